@@ -0,0 +1,82 @@
+package com.warehouse.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows latency, in the spirit of the gradient limiters used by
+ * service meshes: a slow long-term average RTT is compared with the recent RTT, and the limit
+ * shrinks when requests start queueing somewhere downstream (row locks, connection pool)
+ * and grows again while latency stays close to the baseline.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_SMOOTHING = 0.2;
+    private static final double LONG_SMOOTHING = 0.005;
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double shortRtt;
+    private double longRtt;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return the number of requests in flight when this one was admitted, or -1 when rejected
+     */
+    int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    void release(long rttNanos, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        update(rttNanos, inFlightAtStart);
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtStart) {
+        if (shortRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt += SHORT_SMOOTHING * (rttNanos - shortRtt);
+        longRtt += LONG_SMOOTHING * (rttNanos - longRtt);
+        // Baseline ikut turun cepat setelah beban reda, supaya limit tidak tertahan rendah
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // Hanya dipakai setengah limit: latensi tidak mengatakan apa-apa soal limit yang lebih tinggi
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
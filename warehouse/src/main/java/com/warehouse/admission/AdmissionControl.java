@@ -0,0 +1,177 @@
+package com.warehouse.admission;
+
+import com.warehouse.cache.HotInventoryState;
+import com.warehouse.cache.HotVariant;
+import com.warehouse.exception.TooManyRequestsException;
+import com.warehouse.profiling.ContentionProfiler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for stock writes. Each variant gets a small bulkhead (by default a single
+ * writer, since the row lock serializes them anyway, plus a short bounded queue), so a pile-up
+ * on one hot row cannot take every worker thread and connection. Admitted writes then pass a
+ * global adaptive concurrency limit, capped so writes never exhaust the connection pool.
+ * Anything that does not fit is rejected immediately with {@link TooManyRequestsException}.
+ */
+@Component
+@Slf4j
+public class AdmissionControl {
+
+    // Batas jumlah tag sku di metrik shed, sisanya dihitung sebagai "other"
+    private static final int MAX_TAGGED_SKUS = 1000;
+    private static final int RESERVED_CONNECTIONS = 2;
+
+    private final HotInventoryState hotInventoryState;
+    private final ContentionProfiler contentionProfiler;
+    private final MeterRegistry meterRegistry;
+    private final int maxConcurrentPerVariant;
+    private final int maxQueuedPerVariant;
+    private final Duration maxQueueWait;
+    private final Duration retryAfter;
+    private final AdaptiveConcurrencyLimit globalLimit;
+
+    private final ConcurrentHashMap<Long, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> shedCounters = new ConcurrentHashMap<>();
+    private final Counter globalShed;
+
+    public AdmissionControl(HotInventoryState hotInventoryState,
+                            ContentionProfiler contentionProfiler,
+                            MeterRegistry meterRegistry,
+                            @Value("${warehouse.admission.per-variant.max-concurrent:1}") int maxConcurrentPerVariant,
+                            @Value("${warehouse.admission.per-variant.max-queued:8}") int maxQueuedPerVariant,
+                            @Value("${warehouse.admission.per-variant.max-queue-wait:PT0.1S}") Duration maxQueueWait,
+                            @Value("${warehouse.admission.global.initial-limit:20}") int initialLimit,
+                            @Value("${warehouse.admission.global.min-limit:1}") int minLimit,
+                            @Value("${warehouse.admission.global.max-limit:100}") int maxLimit,
+                            @Value("${warehouse.admission.global.rtt-tolerance:2.0}") double rttTolerance,
+                            @Value("${warehouse.admission.retry-after:PT1S}") Duration retryAfter,
+                            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.hotInventoryState = hotInventoryState;
+        this.contentionProfiler = contentionProfiler;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrentPerVariant = maxConcurrentPerVariant;
+        this.maxQueuedPerVariant = maxQueuedPerVariant;
+        this.maxQueueWait = maxQueueWait;
+        this.retryAfter = retryAfter;
+        // Satu write bisa memegang dua koneksi (transaksinya + baca REQUIRES_NEW di listener after-commit),
+        // dan beberapa koneksi disisakan untuk endpoint baca
+        int poolBound = Math.max(1, (connectionPoolSize - RESERVED_CONNECTIONS) / 2);
+        if (maxLimit > poolBound) {
+            log.info("Capping stock write concurrency at {} for a connection pool of {}", poolBound, connectionPoolSize);
+        }
+        int effectiveMax = Math.min(maxLimit, poolBound);
+        this.globalLimit = new AdaptiveConcurrencyLimit(Math.min(initialLimit, effectiveMax),
+                Math.min(minLimit, effectiveMax), effectiveMax, rttTolerance);
+        this.globalShed = Counter.builder("warehouse.admission.shed")
+                .description("Stock writes rejected with 429")
+                .tag("reason", "global")
+                .tag("sku", "all")
+                .register(meterRegistry);
+        Gauge.builder("warehouse.admission.limit", globalLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive concurrency limit for stock writes")
+                .register(meterRegistry);
+        Gauge.builder("warehouse.admission.in.flight", globalLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Stock writes currently executing")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Long variantId, Supplier<T> write) {
+        // Waktu tunggu di bulkhead ikut terukur, itu bagian dari contention pada variant ini
+        return contentionProfiler.profile(ContentionProfiler.Operation.MUTATION, variantId, () -> admit(variantId, write));
+    }
+
+    public void execute(Long variantId, Runnable write) {
+        execute(variantId, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    private <T> T admit(Long variantId, Supplier<T> write) {
+        if (variantId == null) {
+            return admitGlobally(write);
+        }
+        Bulkhead bulkhead = bulkheads.compute(variantId, (id, existing) -> {
+            Bulkhead entry = existing != null ? existing : new Bulkhead(maxConcurrentPerVariant);
+            entry.users++;
+            return entry;
+        });
+        try {
+            if (!enter(bulkhead)) {
+                shedCounter(variantId).increment();
+                throw new TooManyRequestsException("Too many concurrent stock updates for variant " + variantId, retryAfter);
+            }
+            try {
+                return admitGlobally(write);
+            } finally {
+                bulkhead.permits.release();
+            }
+        } finally {
+            bulkheads.computeIfPresent(variantId, (id, entry) -> --entry.users == 0 ? null : entry);
+        }
+    }
+
+    private boolean enter(Bulkhead bulkhead) {
+        if (bulkhead.permits.tryAcquire()) {
+            return true;
+        }
+        // users = yang sedang jalan + yang antre (termasuk request ini)
+        if (bulkhead.users > maxConcurrentPerVariant + maxQueuedPerVariant) {
+            return false;
+        }
+        try {
+            return bulkhead.permits.tryAcquire(maxQueueWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private <T> T admitGlobally(Supplier<T> write) {
+        int inFlight = globalLimit.tryAcquire();
+        if (inFlight < 0) {
+            globalShed.increment();
+            throw new TooManyRequestsException("Server is busy, retry later", retryAfter);
+        }
+        long start = System.nanoTime();
+        try {
+            return write.get();
+        } finally {
+            globalLimit.release(System.nanoTime() - start, inFlight);
+        }
+    }
+
+    private Counter shedCounter(Long variantId) {
+        HotVariant variant = hotInventoryState.find(variantId);
+        String sku = variant != null && variant.sku() != null ? variant.sku() : "variant-" + variantId;
+        if (shedCounters.size() >= MAX_TAGGED_SKUS && !shedCounters.containsKey(sku)) {
+            sku = "other";
+        }
+        return shedCounters.computeIfAbsent(sku, tag -> Counter.builder("warehouse.admission.shed")
+                .description("Stock writes rejected with 429")
+                .tag("reason", "variant")
+                .tag("sku", tag)
+                .register(meterRegistry));
+    }
+
+    private static final class Bulkhead {
+        private final Semaphore permits;
+        // Hanya diubah di dalam compute pada map; entry dibuang saat tidak ada lagi yang memakai
+        private volatile int users;
+
+        Bulkhead(int maxConcurrent) {
+            this.permits = new Semaphore(maxConcurrent, true);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.warehouse.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over a bit array. Values cannot be removed: a filter only ever answers "absent" for
+ * values that were never added, so stale values are shed by building a new filter.
+ * Thread-safe: bits are set with CAS.
+ */
+public class BloomFilter {
+
+    private static final int BITS_PER_WORD = 64;
+
+    private final AtomicLongArray words;
+    private final int bits;
+    private final int hashes;
+
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        long entries = Math.max(expectedEntries, 1);
+        long optimal = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Math.max(optimal, 64), Integer.MAX_VALUE - BITS_PER_WORD);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / entries * Math.log(2)));
+        this.words = new AtomicLongArray((bits + BITS_PER_WORD - 1) / BITS_PER_WORD);
+    }
+
+    public void add(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            set(index(h1 + i * h2));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1 + i * h2);
+            if ((words.get(bit / BITS_PER_WORD) & mask(bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int bitCount() {
+        return bits;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    private void set(int bit) {
+        int word = bit / BITS_PER_WORD;
+        long mask = mask(bit);
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0 || words.compareAndSet(word, current, current | mask)) {
+                return;
+            }
+        }
+    }
+
+    private int index(long combinedHash) {
+        return (int) Math.floorMod(combinedHash, (long) bits);
+    }
+
+    private static long mask(int bit) {
+        return 1L << (bit % BITS_PER_WORD);
+    }
+
+    // FNV-1a dengan finalizer murmur3 supaya bit rendah tersebar rata
+    private static long hash(String value, long seed) {
+        long h = seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
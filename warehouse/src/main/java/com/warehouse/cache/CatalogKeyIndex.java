@@ -0,0 +1,296 @@
+package com.warehouse.cache;
+
+import com.warehouse.event.CatalogKeysReleasedEvent;
+import com.warehouse.repository.CatalogKey;
+import com.warehouse.repository.ItemRepository;
+import com.warehouse.repository.VariantRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Answers "definitely absent" for SKUs and item names without a database round trip.
+ * A "maybe present" answer still goes to the database, and the unique constraints stay the
+ * final authority. Keys are never removed from a filter: an instance cannot tell whether a released
+ * key was ever added to its own filter, and removing one that was not would make other keys false
+ * negatives. Keys written on other instances are added through updated_at every reconcile-interval;
+ * released keys only cost false positives until the filters are rebuilt from the database. A rebuild
+ * keeps the keys of soft-deleted rows, which hold their unique keys until the purge removes them.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+public class CatalogKeyIndex {
+
+    private static final int PAGE_SIZE = 10_000;
+    private static final Pattern IGNORED = Pattern.compile("[\\p{M}\\p{Z}\\p{P}\\p{S}\\p{Cntrl}]+");
+
+    private final ItemRepository itemRepository;
+    private final VariantRepository variantRepository;
+    private final TransactionTemplate readTransaction;
+    private final Duration clockSkewOverlap;
+    private final KeyFilter skus;
+    private final KeyFilter itemNames;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final AtomicLong releasedKeys = new AtomicLong();
+    private volatile boolean ready;
+    private volatile LocalDateTime watermark;
+
+    public CatalogKeyIndex(ItemRepository itemRepository,
+                           VariantRepository variantRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${warehouse.catalog-keys.expected-keys:1000000}") long expectedKeys,
+                           @Value("${warehouse.catalog-keys.false-positive-rate:0.01}") double falsePositiveRate,
+                           @Value("${warehouse.catalog-keys.clock-skew-overlap:PT5S}") Duration clockSkewOverlap) {
+        this.itemRepository = itemRepository;
+        this.variantRepository = variantRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.clockSkewOverlap = clockSkewOverlap;
+        this.skus = new KeyFilter("sku", expectedKeys, falsePositiveRate, meterRegistry);
+        this.itemNames = new KeyFilter("item_name", expectedKeys, falsePositiveRate, meterRegistry);
+    }
+
+    public boolean skuExists(String sku, BooleanSupplier database) {
+        return skus.exists(sku, database);
+    }
+
+    public boolean itemNameExists(String name, BooleanSupplier database) {
+        return itemNames.exists(name, database);
+    }
+
+    // Dipanggil sebelum commit: kalau transaksinya rollback, filter hanya dapat false positive tambahan
+    public void skuAdded(String sku) {
+        skus.add(sku);
+    }
+
+    public void itemNameAdded(String name) {
+        itemNames.add(name);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Hanya dihitung: key yang dilepas tetap di filter sampai rebuild berikutnya
+    @TransactionalEventListener
+    public void onKeysReleased(CatalogKeysReleasedEvent event) {
+        releasedKeys.addAndGet(event.getSkus().size() + event.getItemNames().size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        startBuild();
+    }
+
+    // Key yang ditulis instance lain, dengan overlap untuk selisih jam antar server dan transaksi yang
+    // commit sedikit setelah updated_at-nya di-set
+    @Scheduled(fixedDelayString = "${warehouse.catalog-keys.reconcile-interval:PT30S}",
+            initialDelayString = "${warehouse.catalog-keys.reconcile-interval:PT30S}")
+    public void scheduledReconcile() {
+        LocalDateTime from = watermark;
+        if (!ready || from == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        int added = addChangedSince(from.minus(clockSkewOverlap));
+        watermark = startedAt;
+        if (added > 0) {
+            log.debug("Added {} catalog keys changed since {}", added, from);
+        }
+    }
+
+    // Filter baru dibangun di samping yang lama, yang tetap menjawab sampai pertukaran
+    @Scheduled(fixedDelayString = "${warehouse.catalog-keys.rebuild-interval:PT6H}",
+            initialDelayString = "${warehouse.catalog-keys.rebuild-interval:PT6H}")
+    public void scheduledRebuild() {
+        if (ready && releasedKeys.get() > 0) {
+            startBuild();
+        }
+    }
+
+    private void startBuild() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        Thread loader = new Thread(this::build, "catalog-key-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        long released = releasedKeys.getAndSet(0);
+        try {
+            itemNames.startBuilding();
+            skus.startBuilding();
+            int itemCount = loadAll(itemNames, itemRepository::findNamesIncludingDeletedAfter);
+            int variantCount = loadAll(skus, variantRepository::findSkusIncludingDeletedAfter);
+            // Scan per id bisa melewatkan baris yang berubah selama loading
+            addChangedSince(startedAt.minus(clockSkewOverlap));
+            itemNames.finishBuilding();
+            skus.finishBuilding();
+            if (watermark == null) {
+                watermark = startedAt;
+            }
+            ready = true;
+            log.info("Catalog key index built with {} item names and {} SKUs in {} ms ({} keys released before)",
+                    itemCount, variantCount, (System.nanoTime() - start) / 1_000_000, released);
+        } catch (RuntimeException e) {
+            itemNames.abortBuilding();
+            skus.abortBuilding();
+            releasedKeys.addAndGet(released);
+            if (ready) {
+                log.error("Catalog key index rebuild failed, the current filters stay in use", e);
+            } else {
+                log.error("Catalog key index failed to load, existence checks keep going to the database", e);
+            }
+        } finally {
+            building.set(false);
+        }
+    }
+
+    private int addChangedSince(LocalDateTime since) {
+        List<CatalogKey> names = readTransaction.execute(status -> itemRepository.findNamesUpdatedSince(since));
+        List<CatalogKey> changedSkus = readTransaction.execute(status -> variantRepository.findSkusUpdatedSince(since));
+        names.forEach(key -> itemNames.add(key.getText()));
+        changedSkus.forEach(key -> skus.add(key.getText()));
+        return names.size() + changedSkus.size();
+    }
+
+    private int loadAll(KeyFilter filter, BiFunction<Long, Pageable, List<CatalogKey>> query) {
+        long afterId = 0;
+        int count = 0;
+        while (true) {
+            long from = afterId;
+            List<CatalogKey> page = readTransaction.execute(status -> query.apply(from, PageRequest.of(0, PAGE_SIZE)));
+            page.forEach(key -> filter.addToNext(key.getText()));
+            count += page.size();
+            if (page.size() < PAGE_SIZE) {
+                return count;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    // Kolasi MySQL (_ci) menganggap "ABC" dan "abc " sama, jadi normalisasi di sini sengaja lebih kasar:
+    // dua nilai yang sama menurut database harus selalu jatuh ke key yang sama
+    static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFKD);
+        return IGNORED.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).replace("ß", "ss");
+    }
+
+    private class KeyFilter {
+        private final long expectedKeys;
+        private final double falsePositiveRate;
+        private volatile BloomFilter filter;
+        // Filter yang sedang dibangun; tulisan lokal masuk ke keduanya supaya tidak hilang saat pertukaran
+        private volatile BloomFilter next;
+        private final Counter skipped;
+        private final Counter falsePositives;
+        private final Counter present;
+        private final Counter notReady;
+
+        KeyFilter(String kind, long expectedKeys, double falsePositiveRate, MeterRegistry meterRegistry) {
+            this.expectedKeys = expectedKeys;
+            this.falsePositiveRate = falsePositiveRate;
+            this.filter = new BloomFilter(expectedKeys, falsePositiveRate);
+            this.skipped = checks(meterRegistry, kind, "definitely_absent");
+            this.falsePositives = checks(meterRegistry, kind, "false_positive");
+            this.present = checks(meterRegistry, kind, "present");
+            this.notReady = checks(meterRegistry, kind, "not_ready");
+            Gauge.builder("warehouse.catalog.key.false.positive.rate", this, KeyFilter::falsePositiveRate)
+                    .description("False positives / (false positives + definitely absent answers)")
+                    .tag("kind", kind)
+                    .register(meterRegistry);
+        }
+
+        boolean exists(String value, BooleanSupplier database) {
+            if (value == null) {
+                return database.getAsBoolean();
+            }
+            if (!ready) {
+                notReady.increment();
+                return database.getAsBoolean();
+            }
+            if (!filter.mightContain(normalize(value))) {
+                skipped.increment();
+                return false;
+            }
+            boolean exists = database.getAsBoolean();
+            (exists ? present : falsePositives).increment();
+            return exists;
+        }
+
+        void add(String value) {
+            if (value == null) {
+                return;
+            }
+            String key = normalize(value);
+            BloomFilter building = next;
+            filter.add(key);
+            if (building != null) {
+                building.add(key);
+            }
+        }
+
+        void addToNext(String value) {
+            if (value != null) {
+                next.add(normalize(value));
+            }
+        }
+
+        void startBuilding() {
+            next = new BloomFilter(expectedKeys, falsePositiveRate);
+        }
+
+        void finishBuilding() {
+            filter = next;
+            next = null;
+        }
+
+        void abortBuilding() {
+            next = null;
+        }
+
+        double falsePositiveRate() {
+            double negatives = falsePositives.count() + skipped.count();
+            return negatives == 0 ? 0 : falsePositives.count() / negatives;
+        }
+
+        private static Counter checks(MeterRegistry meterRegistry, String kind, String outcome) {
+            return Counter.builder("warehouse.catalog.key.checks")
+                    .description("Existence checks by outcome; definitely_absent checks skipped the database")
+                    .tag("kind", kind)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
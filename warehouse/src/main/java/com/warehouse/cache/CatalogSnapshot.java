@@ -0,0 +1,71 @@
+package com.warehouse.cache;
+
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable view of the whole catalog, holding the pre-encoded JSON of every item
+ * (ordered by id) plus the encoded array body and its strong ETag.
+ */
+public final class CatalogSnapshot {
+
+    private final NavigableMap<Long, byte[]> items;
+    private final byte[] body;
+    private final String etag;
+
+    private CatalogSnapshot(NavigableMap<Long, byte[]> items) {
+        this.items = Collections.unmodifiableNavigableMap(items);
+        this.body = encodeArray(items);
+        this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+
+    public static CatalogSnapshot of(Map<Long, byte[]> items) {
+        return new CatalogSnapshot(new TreeMap<>(items));
+    }
+
+    // Item yang tidak berubah tetap memakai byte[] yang sama, hanya item yang disentuh yang di-encode ulang
+    public CatalogSnapshot withChanges(Map<Long, byte[]> updated, Set<Long> removed) {
+        TreeMap<Long, byte[]> next = new TreeMap<>(items);
+        removed.forEach(next::remove);
+        next.putAll(updated);
+        return new CatalogSnapshot(next);
+    }
+
+    // Dibagikan ke semua request tanpa copy, jangan dimodifikasi
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    private static byte[] encodeArray(NavigableMap<Long, byte[]> items) {
+        int length = 2 + Math.max(0, items.size() - 1);
+        for (byte[] item : items.values()) {
+            length += item.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        out.write('[');
+        boolean first = true;
+        for (byte[] item : items.values()) {
+            if (!first) {
+                out.write(',');
+            }
+            out.write(item, 0, item.length);
+            first = false;
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,195 @@
+package com.warehouse.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.model.Item;
+import com.warehouse.model.Variant;
+import com.warehouse.repository.ItemRepository;
+import com.warehouse.service.ItemService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the pre-encoded catalog behind GET /api/items. Changes committed on this instance arrive as
+ * events; changes from other instances are found through updated_at and deleted_at, and hard deletes
+ * by comparing each item's variant count and id sum with the ones it was encoded with.
+ */
+@Component
+@Slf4j
+public class CatalogSnapshotManager {
+
+    private static final String FINGERPRINT_SQL = "SELECT i.id, COUNT(v.id), COALESCE(SUM(v.id), 0) FROM items i "
+            + "LEFT JOIN variants v ON v.item_id = i.id AND v.deleted_at IS NULL "
+            + "WHERE i.deleted_at IS NULL GROUP BY i.id";
+
+    private final ItemRepository itemRepository;
+    private final ItemService itemService;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final Duration clockSkewOverlap;
+
+    private final Set<Long> dirtyItemIds = ConcurrentHashMap.newKeySet();
+    // Variant yang ikut ter-encode per item; dibandingkan dengan database oleh sweep
+    private final Map<Long, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+    private volatile CatalogSnapshot snapshot;
+    private volatile LocalDateTime watermark;
+
+    public CatalogSnapshotManager(ItemRepository itemRepository,
+                                  ItemService itemService,
+                                  ObjectMapper objectMapper,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${warehouse.catalog-snapshot.clock-skew-overlap:PT5S}") Duration clockSkewOverlap) {
+        this.itemRepository = itemRepository;
+        this.itemService = itemService;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.clockSkewOverlap = clockSkewOverlap;
+    }
+
+    public CatalogSnapshot current() {
+        CatalogSnapshot current = snapshot;
+        return current != null ? current : buildIfAbsent();
+    }
+
+    private synchronized CatalogSnapshot buildIfAbsent() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        log.info("Building catalog snapshot");
+        LocalDateTime startedAt = LocalDateTime.now();
+        Map<Long, byte[]> encoded = readTransaction.execute(status -> encode(itemRepository.findAllWithVariants()));
+        snapshot = CatalogSnapshot.of(encoded);
+        watermark = startedAt;
+        log.info("Built catalog snapshot with {} items", snapshot.size());
+        return snapshot;
+    }
+
+    // Dipanggil setiap mutasi stok: cukup tandai item-nya, encode ulang dikerjakan refreshDirty di belakang
+    @TransactionalEventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        dirtyItemIds.addAll(event.getItemIds());
+    }
+
+    /**
+     * Re-encodes the items changed since the last run, all in one read. Changes made during a burst of
+     * writes are folded into one rebuild per item; reads see them at most one interval later.
+     */
+    @Scheduled(fixedDelayString = "${warehouse.catalog-snapshot.refresh-interval:PT1S}")
+    public synchronized void refreshDirty() {
+        if (snapshot == null) {
+            // Belum pernah dibangun, build penuh berikutnya akan membaca data terbaru
+            dirtyItemIds.clear();
+            return;
+        }
+        if (dirtyItemIds.isEmpty()) {
+            return;
+        }
+        Set<Long> itemIds = new HashSet<>(dirtyItemIds);
+        dirtyItemIds.removeAll(itemIds);
+
+        Map<Long, byte[]> updated;
+        try {
+            updated = readTransaction.execute(status -> encode(itemRepository.findAllByIdWithVariants(itemIds)));
+        } catch (RuntimeException e) {
+            dirtyItemIds.addAll(itemIds);
+            log.warn("Refreshing catalog snapshot failed, retrying: {}", e.getMessage());
+            return;
+        }
+        Set<Long> removed = new HashSet<>(itemIds);
+        removed.removeAll(updated.keySet());
+        removed.forEach(fingerprints::remove);
+
+        snapshot = snapshot.withChanges(updated, removed);
+        log.debug("Refreshed catalog snapshot: {} items re-encoded, {} removed", updated.size(), removed.size());
+    }
+
+    // Perubahan dari instance lain tidak lewat event; ambil dari updated_at/deleted_at seperti HotInventoryState
+    @Scheduled(fixedDelayString = "${warehouse.catalog-snapshot.reconcile-interval:PT30S}",
+            initialDelayString = "${warehouse.catalog-snapshot.reconcile-interval:PT30S}")
+    public void scheduledReconcile() {
+        LocalDateTime from = watermark;
+        if (snapshot == null || from == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since = from.minus(clockSkewOverlap);
+        try {
+            List<Long> changed = readTransaction.execute(status -> itemRepository.findIdsChangedSince(since));
+            dirtyItemIds.addAll(changed);
+            watermark = startedAt;
+            if (!changed.isEmpty()) {
+                log.debug("Marked {} items changed since {} for catalog snapshot refresh", changed.size(), since);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Reading catalog changes of other instances failed: {}", e.getMessage());
+        }
+    }
+
+    // Hard delete (variant, item, akhir purge) tidak meninggalkan jejak waktu; item yang jumlah atau id
+    // variant-nya tidak lagi cocok dengan yang di-encode ditandai kotor
+    @Scheduled(fixedDelayString = "${warehouse.catalog-snapshot.sweep-interval:PT5M}",
+            initialDelayString = "${warehouse.catalog-snapshot.sweep-interval:PT5M}")
+    public void scheduledSweep() {
+        if (snapshot == null) {
+            return;
+        }
+        Set<Long> encoded = new HashSet<>(fingerprints.keySet());
+        Set<Long> mismatched = new HashSet<>();
+        try {
+            readTransaction.executeWithoutResult(status -> jdbcTemplate.query(FINGERPRINT_SQL, rs -> {
+                long itemId = rs.getLong(1);
+                encoded.remove(itemId);
+                if (!new Fingerprint(rs.getLong(2), rs.getLong(3)).equals(fingerprints.get(itemId))) {
+                    mismatched.add(itemId);
+                }
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Sweeping the catalog snapshot failed: {}", e.getMessage());
+            return;
+        }
+        mismatched.addAll(encoded);
+        dirtyItemIds.addAll(mismatched);
+        if (!mismatched.isEmpty()) {
+            log.debug("Marked {} items whose variants no longer match the catalog snapshot", mismatched.size());
+        }
+    }
+
+    private Map<Long, byte[]> encode(List<Item> items) {
+        Map<Long, byte[]> encoded = new HashMap<>();
+        for (Item item : items) {
+            try {
+                encoded.put(item.getId(), objectMapper.writeValueAsBytes(itemService.convertToDTO(item)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to encode item " + item.getId(), e);
+            }
+            fingerprints.put(item.getId(), new Fingerprint(item.getVariants().size(),
+                    item.getVariants().stream().mapToLong(Variant::getId).sum()));
+        }
+        return encoded;
+    }
+
+    private record Fingerprint(long variants, long idSum) {
+    }
+}
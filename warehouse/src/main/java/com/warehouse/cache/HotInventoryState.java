@@ -0,0 +1,303 @@
+package com.warehouse.cache;
+
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.repository.VariantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stock levels per variant kept in memory so hot reads skip MySQL.
+ * Levels, item ids and SKUs all live in one primitive {@link StockTable}: about 100 bytes per
+ * variant in total with 12-character SKUs, measured at one million variants by StockTableBenchmarkTest.
+ * Survives restarts through {@link InventorySnapshotFile}: on startup the last snapshot is
+ * mapped and answers reads immediately while the state is reconciled in the background.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+public class HotInventoryState {
+
+    private static final int PAGE_SIZE = 10_000;
+
+    private final VariantRepository variantRepository;
+    private final TransactionTemplate readTransaction;
+    private final Path snapshotPath;
+    private final Duration clockSkewOverlap;
+
+    private final StockTable stock;
+    private volatile InventorySnapshotFile.Mapped warmupSnapshot;
+    private volatile boolean warm;
+    private volatile LocalDateTime watermark;
+
+    public HotInventoryState(VariantRepository variantRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${warehouse.hot-state.snapshot-path:data/inventory-hot-state.bin}") Path snapshotPath,
+                             @Value("${warehouse.hot-state.clock-skew-overlap:PT5S}") Duration clockSkewOverlap,
+                             @Value("${warehouse.hot-state.expected-variants:100000}") int expectedVariants) {
+        this.variantRepository = variantRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.snapshotPath = snapshotPath;
+        this.clockSkewOverlap = clockSkewOverlap;
+        this.stock = new StockTable(expectedVariants);
+    }
+
+    public Integer getStockQuantity(Long variantId) {
+        long levels = stock.levels(variantId);
+        if (levels != StockTable.MISSING) {
+            return StockTable.stockOf(levels);
+        }
+        HotVariant fromSnapshot = findInWarmupSnapshot(variantId);
+        return fromSnapshot != null ? fromSnapshot.stockQuantity() : null;
+    }
+
+    public HotVariant find(Long variantId) {
+        long levels = stock.levels(variantId);
+        if (levels == StockTable.MISSING) {
+            return findInWarmupSnapshot(variantId);
+        }
+        return new HotVariant(variantId, stock.itemId(variantId), stock.sku(variantId),
+                StockTable.stockOf(levels), StockTable.minStockOf(levels), null);
+    }
+
+    // Masih warm-up: jawab dari snapshot yang di-map, nilainya bisa sedikit basi sampai rekonsiliasi selesai
+    private HotVariant findInWarmupSnapshot(Long variantId) {
+        InventorySnapshotFile.Mapped snapshot = warm ? null : warmupSnapshot;
+        return snapshot != null ? snapshot.find(variantId) : null;
+    }
+
+    public void remember(HotVariant variant) {
+        stock.put(variant.variantId(), variant.itemId(), variant.stockQuantity(), variant.minStockLevel(),
+                InventorySnapshotFile.toMicros(variant.updatedAt()), variant.sku());
+    }
+
+    // Versi penghapusan = sekarang: baris yang dibaca sebelum penghapusan tidak bisa memasukkan variant lagi
+    private boolean forget(long variantId) {
+        return stock.remove(variantId, InventorySnapshotFile.toMicros(LocalDateTime.now()));
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public int size() {
+        return stock.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmUp() {
+        if (Files.exists(snapshotPath)) {
+            try {
+                warmupSnapshot = InventorySnapshotFile.open(snapshotPath);
+                log.info("Mapped inventory snapshot {} with {} variants (watermark {})",
+                        snapshotPath, warmupSnapshot.size(), warmupSnapshot.getWatermark());
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable inventory snapshot {}: {}", snapshotPath, e.getMessage());
+            }
+        }
+        Thread warmUp = new Thread(this::warmUp, "hot-inventory-warmup");
+        warmUp.setDaemon(true);
+        warmUp.start();
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        try {
+            InventorySnapshotFile.Mapped snapshot = warmupSnapshot;
+            if (snapshot != null) {
+                snapshot.forEach(this::remember);
+                watermark = snapshot.getWatermark();
+                long[] snapshotIds = variantIds();
+                reconcile();
+                removeMissing(snapshotIds);
+            } else {
+                loadAll();
+            }
+            warm = true;
+            warmupSnapshot = null;
+            log.info("Hot inventory state warm with {} variants in {} ms",
+                    stock.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Hot inventory warm-up failed, reads fall back to the database", e);
+            warmupSnapshot = null;
+        }
+    }
+
+    private void loadAll() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            List<HotVariant> page = readTransaction.execute(status ->
+                    variantRepository.findHotVariantsAfter(from, PageRequest.of(0, PAGE_SIZE)));
+            page.forEach(this::remember);
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).variantId();
+        }
+        watermark = startedAt;
+    }
+
+    // Variant yang ada di state (diambil sebelum scan) tapi sudah tidak ada di database dihapus dari state
+    private void removeMissing(long[] knownIds) {
+        long afterId = 0;
+        int cursor = 0;
+        int removed = 0;
+        while (true) {
+            long from = afterId;
+            List<Long> page = readTransaction.execute(status ->
+                    variantRepository.findIdsAfter(from, PageRequest.of(0, PAGE_SIZE)));
+            boolean last = page.size() < PAGE_SIZE;
+            long upTo = last ? Long.MAX_VALUE : page.get(page.size() - 1);
+            Set<Long> existing = new HashSet<>(page);
+            while (cursor < knownIds.length && knownIds[cursor] <= upTo) {
+                if (!existing.contains(knownIds[cursor]) && forget(knownIds[cursor])) {
+                    removed++;
+                }
+                cursor++;
+            }
+            if (last) {
+                break;
+            }
+            afterId = upTo;
+        }
+        if (removed > 0) {
+            log.info("Removed {} variants no longer in the database", removed);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.hot-state.reconcile-interval:PT30S}",
+            initialDelayString = "${warehouse.hot-state.reconcile-interval:PT30S}")
+    public void scheduledReconcile() {
+        if (warm) {
+            reconcile();
+        }
+    }
+
+    // Hard delete (hapus variant atau item, akhir purge) di instance lain tidak meninggalkan jejak yang bisa
+    // dicari per waktu; id yang dipegang dicocokkan dengan id di database, lebih jarang dari reconcile
+    @Scheduled(fixedDelayString = "${warehouse.hot-state.sweep-interval:PT5M}",
+            initialDelayString = "${warehouse.hot-state.sweep-interval:PT5M}")
+    public void scheduledSweep() {
+        if (warm) {
+            removeMissing(variantIds());
+        }
+    }
+
+    // Ambil perubahan dari instance lain berdasarkan updatedAt, dengan overlap untuk selisih jam antar server
+    // dan transaksi yang commit sedikit setelah updatedAt-nya di-set. Soft delete tidak mengubah updatedAt
+    // dan disaring @SQLRestriction, jadi dicari terpisah lewat deleted_at.
+    private void reconcile() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since = watermark != null ? watermark.minus(clockSkewOverlap) : LocalDateTime.of(1970, 1, 1, 0, 0);
+        List<HotVariant> changed = readTransaction.execute(status -> variantRepository.findHotVariantsUpdatedSince(since));
+        changed.forEach(this::remember);
+        List<Long> deleted = readTransaction.execute(status -> variantRepository.findIdsDeletedSince(since));
+        int removed = 0;
+        for (Long variantId : deleted) {
+            if (forget(variantId)) {
+                removed++;
+            }
+        }
+        watermark = startedAt;
+        if (!changed.isEmpty() || removed > 0) {
+            log.debug("Reconciled {} variants changed and removed {} deleted since {}", changed.size(), removed, since);
+        }
+    }
+
+    /**
+     * Reloads what the event names. A variant-level event (every stock write) touches only its variants;
+     * an item-level event reloads the item's variants and drops the ones no longer in the database.
+     */
+    @TransactionalEventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        Set<Long> variantIds = event.getVariantIds();
+        if (!variantIds.isEmpty()) {
+            List<HotVariant> rows = readTransaction.execute(status -> variantRepository.findHotVariantsByIdIn(variantIds));
+            Set<Long> found = new HashSet<>();
+            for (HotVariant row : rows) {
+                found.add(row.variantId());
+                remember(row);
+            }
+            variantIds.stream().filter(id -> !found.contains(id)).forEach(this::forget);
+            return;
+        }
+
+        Set<Long> itemIds = event.getItemIds();
+        List<HotVariant> rows = readTransaction.execute(status -> variantRepository.findHotVariantsByItemIdIn(itemIds));
+        Set<Long> found = new HashSet<>();
+        for (HotVariant row : rows) {
+            found.add(row.variantId());
+            remember(row);
+        }
+        for (Long itemId : itemIds) {
+            for (long variantId : stock.variantIdsOfItem(itemId)) {
+                if (!found.contains(variantId)) {
+                    forget(variantId);
+                }
+            }
+        }
+    }
+
+    private long[] variantIds() {
+        long[] ids = new long[stock.size()];
+        int[] count = {0};
+        stock.forEach((variantId, itemId, quantity, minStock, version, sku) -> {
+            if (count[0] < ids.length) {
+                ids[count[0]++] = variantId;
+            }
+        });
+        long[] result = count[0] == ids.length ? ids : Arrays.copyOf(ids, count[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.hot-state.snapshot-interval:PT5M}",
+            initialDelayString = "${warehouse.hot-state.snapshot-interval:PT5M}")
+    public void scheduledSnapshot() {
+        writeSnapshot();
+    }
+
+    @PreDestroy
+    public void writeSnapshot() {
+        if (!warm) {
+            // Jangan timpa snapshot lama dengan state yang belum lengkap
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            List<HotVariant> variants = new ArrayList<>(stock.size());
+            stock.forEach((variantId, itemId, quantity, minStock, version, sku) -> variants.add(new HotVariant(variantId, itemId,
+                    sku != null ? sku : "", quantity, minStock, InventorySnapshotFile.fromMicros(version))));
+            InventorySnapshotFile.write(snapshotPath, variants, watermark);
+            log.info("Wrote inventory snapshot with {} variants to {} in {} ms",
+                    variants.size(), snapshotPath, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Failed to write inventory snapshot {}", snapshotPath, e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.warehouse.cache;
+
+import java.time.LocalDateTime;
+
+public record HotVariant(Long variantId,
+                         Long itemId,
+                         String sku,
+                         Integer stockQuantity,
+                         Integer minStockLevel,
+                         LocalDateTime updatedAt) {
+}
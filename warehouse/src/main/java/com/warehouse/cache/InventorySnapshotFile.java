@@ -0,0 +1,200 @@
+package com.warehouse.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of {@link HotVariant} rows, read back through a memory-mapped buffer.
+ *
+ * <pre>
+ * header  (32 B): magic, version, count, crc32c(body), watermark micros, written-at millis
+ * records (40 B each, sorted by variant id): id, itemId, stock, minStock, updatedAt micros, skuOffset, skuLength
+ * sku heap: UTF-8 bytes referenced by the records
+ * </pre>
+ */
+public final class InventorySnapshotFile {
+
+    private static final int MAGIC = 0x57485331; // "WHS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int RECORD_BYTES = 40;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private InventorySnapshotFile() {
+    }
+
+    public static void write(Path path, Collection<HotVariant> variants, LocalDateTime watermark) throws IOException {
+        List<HotVariant> sorted = new ArrayList<>(variants);
+        sorted.sort(Comparator.comparing(HotVariant::variantId));
+
+        List<byte[]> skus = new ArrayList<>(sorted.size());
+        long heapBytes = 0;
+        for (HotVariant variant : sorted) {
+            byte[] sku = variant.sku().getBytes(StandardCharsets.UTF_8);
+            skus.add(sku);
+            heapBytes += sku.length;
+        }
+        long heapOffset = HEADER_BYTES + (long) sorted.size() * RECORD_BYTES;
+        long totalBytes = heapOffset + heapBytes;
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot too large for a single mapping: " + totalBytes + " bytes");
+        }
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, totalBytes);
+
+            int skuOffset = 0;
+            buffer.position(HEADER_BYTES);
+            for (int i = 0; i < sorted.size(); i++) {
+                HotVariant variant = sorted.get(i);
+                buffer.putLong(variant.variantId());
+                buffer.putLong(variant.itemId());
+                buffer.putInt(variant.stockQuantity());
+                buffer.putInt(variant.minStockLevel());
+                buffer.putLong(toMicros(variant.updatedAt()));
+                buffer.putInt(skuOffset);
+                buffer.putInt(skus.get(i).length);
+                skuOffset += skus.get(i).length;
+            }
+            for (byte[] sku : skus) {
+                buffer.put(sku);
+            }
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, sorted.size());
+            buffer.putInt(12, checksum(buffer, (int) totalBytes));
+            buffer.putLong(16, toMicros(watermark));
+            buffer.putLong(24, System.currentTimeMillis());
+            buffer.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Mapped open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size: " + size);
+            }
+            // Mapping tetap valid setelah channel ditutup
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Unrecognized snapshot format in " + path);
+            }
+            int count = buffer.getInt(8);
+            if (HEADER_BYTES + (long) count * RECORD_BYTES > size) {
+                throw new IOException("Truncated snapshot: " + path);
+            }
+            if (buffer.getInt(12) != checksum(buffer, (int) size)) {
+                throw new IOException("Checksum mismatch in snapshot " + path);
+            }
+            return new Mapped(buffer, count, fromMicros(buffer.getLong(16)));
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int totalBytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(HEADER_BYTES).limit(totalBytes));
+        return (int) crc.getValue();
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return NO_TIMESTAMP;
+        }
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        if (micros == NO_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Read-only view over a mapped snapshot. Lookups binary-search the id-sorted records
+     * directly in the mapping, so reads work before anything is copied onto the heap.
+     */
+    public static final class Mapped {
+        private final ByteBuffer buffer;
+        private final int count;
+        private final int heapOffset;
+        private final LocalDateTime watermark;
+
+        private Mapped(ByteBuffer buffer, int count, LocalDateTime watermark) {
+            this.buffer = buffer;
+            this.count = count;
+            this.heapOffset = HEADER_BYTES + count * RECORD_BYTES;
+            this.watermark = watermark;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public LocalDateTime getWatermark() {
+            return watermark;
+        }
+
+        public HotVariant find(long variantId) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = buffer.getLong(recordOffset(mid));
+                if (id < variantId) {
+                    low = mid + 1;
+                } else if (id > variantId) {
+                    high = mid - 1;
+                } else {
+                    return read(mid);
+                }
+            }
+            return null;
+        }
+
+        public void forEach(Consumer<HotVariant> consumer) {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(read(i));
+            }
+        }
+
+        private HotVariant read(int index) {
+            int offset = recordOffset(index);
+            byte[] sku = new byte[buffer.getInt(offset + 36)];
+            buffer.get(heapOffset + buffer.getInt(offset + 32), sku);
+            return new HotVariant(
+                    buffer.getLong(offset),
+                    buffer.getLong(offset + 8),
+                    new String(sku, StandardCharsets.UTF_8),
+                    buffer.getInt(offset + 16),
+                    buffer.getInt(offset + 20),
+                    fromMicros(buffer.getLong(offset + 24)));
+        }
+
+        private static int recordOffset(int index) {
+            return HEADER_BYTES + index * RECORD_BYTES;
+        }
+    }
+}
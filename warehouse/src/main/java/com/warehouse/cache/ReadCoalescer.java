@@ -0,0 +1,154 @@
+package com.warehouse.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Single-flight for hot reads: concurrent callers asking for the same key share one load. A caller
+ * only joins a load that has not started yet, so the shared read always begins after the caller
+ * arrived and sees every write the caller committed before. A caller that arrives while a load is
+ * running queues the next one, which starts when the running one finishes; there is at most one
+ * load per key at a time. The leader runs the load in a read-only transaction; the others wait
+ * without opening a transaction, so they do not hold a connection either. Nothing is cached once
+ * the load finishes. Mutable results are copied for every caller.
+ */
+@Component
+public class ReadCoalescer {
+
+    private final TransactionTemplate readTransaction;
+    private final MeterRegistry meterRegistry;
+    // Flight terbaru per key: yang sedang berjalan, atau yang menunggu giliran di belakangnya
+    private final ConcurrentHashMap<FlightKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    public ReadCoalescer(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** For results that are immutable or never modified by callers. */
+    public <T> T load(String group, Object key, Supplier<T> loader) {
+        return load(group, key, loader, UnaryOperator.identity());
+    }
+
+    /** Every caller gets {@code copy} of the shared result, so callers can modify what they get. */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String group, Object key, Supplier<T> loader, UnaryOperator<T> copy) {
+        // Di dalam transaksi yang sudah berjalan (mungkin sudah menulis), hasil orang lain tidak boleh dipakai
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        FlightKey flightKey = new FlightKey(group, key);
+        while (true) {
+            Flight[] created = new Flight[1];
+            Flight flight = inFlight.compute(flightKey, (k, latest) -> {
+                // Load yang sudah mulai bisa saja membaca sebelum tulisan terakhir pemanggil ini commit
+                if (latest != null && !latest.started) {
+                    return latest;
+                }
+                created[0] = new Flight(latest);
+                return created[0];
+            });
+            Object value;
+            try {
+                if (flight == created[0]) {
+                    counters(group)[0].increment();
+                    value = lead(flightKey, flight, loader);
+                } else {
+                    counters(group)[1].increment();
+                    value = await(flight.result);
+                }
+            } catch (CancellationException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                // Load pemimpin dibatalkan, bukan gagal: coba lagi, mungkin jadi pemimpin berikutnya
+                continue;
+            }
+            return value == null ? null : copy.apply((T) value);
+        }
+    }
+
+    private Object lead(FlightKey key, Flight flight, Supplier<?> loader) {
+        try {
+            if (flight.previous != null) {
+                // Satu load per key: tunggu load sebelumnya selesai, hasilnya tidak dipakai
+                flight.previous.result.handle((value, error) -> null).join();
+                flight.previous = null;
+            }
+            inFlight.computeIfPresent(key, (k, latest) -> {
+                flight.started = true;
+                return latest;
+            });
+            Object value = readTransaction.execute(status -> loader.get());
+            flight.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // Pemimpin yang di-interrupt tidak boleh membuat semua yang menunggu ikut gagal
+            flight.result.completeExceptionally(Thread.currentThread().isInterrupted() ? new CancellationException() : e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a shared load");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private Counter[] counters(String group) {
+        return counters.computeIfAbsent(group, name -> new Counter[]{
+                counter(name, "leader"),
+                counter(name, "coalesced")
+        });
+    }
+
+    private Counter counter(String group, String role) {
+        return Counter.builder("warehouse.read.coalescer.calls")
+                .description("Reads by role; coalesced calls shared another caller's database load")
+                .tag("group", group)
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+
+    private record FlightKey(String group, Object key) {
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        // Dilepas setelah ditunggu supaya flight lama tidak membentuk rantai
+        private Flight previous;
+        // Hanya diubah di dalam compute pada map, supaya bergabung dan mulai tidak saling mendahului
+        private volatile boolean started;
+
+        Flight(Flight previous) {
+            this.previous = previous;
+        }
+    }
+}
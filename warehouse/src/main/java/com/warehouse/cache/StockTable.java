@@ -0,0 +1,402 @@
+package com.warehouse.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing table from variant id to stock levels, item id and SKU, stored in primitive arrays
+ * (40 bytes per slot plus the SKU's UTF-8 bytes, instead of boxed map entries per SKU).
+ *
+ * <p>Stock quantity and minimum stock level are packed into one long so both are always read
+ * together. SKUs live in one shared byte heap that is compacted when it fills up. The table mirrors
+ * committed database values; it is not a write path of its own. Reads are optimistic and take no
+ * lock; value updates share a read lock so they only wait while the table is being resized.
+ * Inserting a new id, changing a SKU or removing an id takes the write lock.
+ *
+ * <p>A removed id leaves a tombstone with its version, so a put that was read before the removal
+ * cannot bring the variant back. Tombstones are dropped when the table is rehashed.
+ */
+public class StockTable {
+
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private static final long EMPTY = 0;
+    private static final long NO_SKU = -1;
+    private static final float MAX_LOAD = 0.75f;
+    private static final int STRIPES = 64;
+
+    private final StampedLock lock = new StampedLock();
+    private final Object[] stripes = new Object[STRIPES];
+    private volatile Slots slots;
+    private int size;
+    private int tombstones;
+    // Hanya diubah di bawah write lock; byte SKU lama jadi sampah sampai heap dipadatkan
+    private byte[] skuHeap = new byte[0];
+    private int skuHeapUsed;
+    private int skuHeapLive;
+
+    public StockTable() {
+        this(1024);
+    }
+
+    public StockTable(int expectedSize) {
+        this.slots = new Slots(capacityFor(expectedSize));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public static int stockOf(long levels) {
+        return (int) levels;
+    }
+
+    public static int minStockOf(long levels) {
+        return (int) (levels >>> 32);
+    }
+
+    static long pack(int stockQuantity, int minStockLevel) {
+        return ((long) minStockLevel << 32) | (stockQuantity & 0xFFFFFFFFL);
+    }
+
+    /** Packed levels for the variant, or {@link #MISSING}. */
+    public long levels(long variantId) {
+        long stamp = lock.tryOptimisticRead();
+        long levels = readLevels(slots, variantId);
+        if (lock.validate(stamp)) {
+            return levels;
+        }
+        stamp = lock.readLock();
+        try {
+            return readLevels(slots, variantId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long itemId(long variantId) {
+        long stamp = lock.readLock();
+        try {
+            int index = slots.indexOf(variantId);
+            return index >= 0 ? slots.itemIds[index] : MISSING;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** SKU of the variant, or null when the variant is missing or was stored without one. */
+    public String sku(long variantId) {
+        long stamp = lock.readLock();
+        try {
+            int index = slots.indexOf(variantId);
+            return index >= 0 ? readSku(slots.skuRefs[index]) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Ids of the variants stored for the item; scans the table, meant for item-level changes. */
+    public long[] variantIdsOfItem(long itemId) {
+        long stamp = lock.readLock();
+        try {
+            Slots current = slots;
+            long[] ids = new long[8];
+            int count = 0;
+            for (int i = 0; i < current.capacity(); i++) {
+                if (current.keys[i] > 0 && current.itemIds[i] == itemId) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = current.keys[i];
+                }
+            }
+            return Arrays.copyOf(ids, count);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stores the levels unless the table already holds a newer version for the variant, or removed it
+     * at the same or a newer version.
+     *
+     * @param version monotonically increasing per variant (e.g. updatedAt in micros)
+     * @param sku     the variant's SKU, or null to keep the stored one
+     * @return true if the value was stored
+     */
+    public boolean put(long variantId, long itemId, int stockQuantity, int minStockLevel, long version, String sku) {
+        if (variantId <= 0) {
+            throw new IllegalArgumentException("Variant id must be positive: " + variantId);
+        }
+        byte[] skuBytes = sku != null ? sku.getBytes(StandardCharsets.UTF_8) : null;
+        long stamp = lock.readLock();
+        try {
+            int index = slots.indexOf(variantId);
+            if (index >= 0 && (skuBytes == null || skuEquals(slots.skuRefs[index], skuBytes))) {
+                return update(slots, index, itemId, stockQuantity, minStockLevel, version);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        stamp = lock.writeLock();
+        try {
+            int index = slots.slotOf(variantId);
+            if (index >= 0 && slots.keys[index] == variantId) {
+                if (version < slots.versions[index]) {
+                    return false;
+                }
+                storeSku(index, skuBytes);
+                return update(slots, index, itemId, stockQuantity, minStockLevel, version);
+            }
+            if (index >= 0) {
+                // Tombstone id ini: hanya versi yang lebih baru dari penghapusan yang boleh masuk lagi
+                if (version <= slots.versions[index]) {
+                    return false;
+                }
+                tombstones--;
+            } else {
+                if (size + tombstones + 1 > slots.capacity() * MAX_LOAD) {
+                    // Kalau penuh karena tombstone saja, rehash di kapasitas yang sama sudah cukup
+                    slots = rehash(slots, Math.max(slots.capacity(), capacityFor(size * 2)));
+                    tombstones = 0;
+                }
+                index = slots.emptyIndex(variantId);
+            }
+            slots.levels.set(index, pack(stockQuantity, minStockLevel));
+            slots.itemIds[index] = itemId;
+            slots.versions[index] = version;
+            slots.skuRefs[index] = NO_SKU;
+            storeSku(index, skuBytes);
+            slots.keys[index] = variantId;
+            size++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the variant and leaves a tombstone at {@code version} (or the stored version, if newer).
+     */
+    public boolean remove(long variantId, long version) {
+        long stamp = lock.writeLock();
+        try {
+            int index = slots.indexOf(variantId);
+            if (index < 0) {
+                return false;
+            }
+            releaseSku(slots.skuRefs[index]);
+            slots.skuRefs[index] = NO_SKU;
+            slots.keys[index] = -variantId;
+            slots.levels.set(index, 0);
+            slots.versions[index] = Math.max(slots.versions[index], version);
+            size--;
+            tombstones++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Visits every entry under the read lock; the visitor must not modify the table. */
+    public void forEach(EntryVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            Slots current = slots;
+            for (int i = 0; i < current.capacity(); i++) {
+                long key = current.keys[i];
+                if (key > 0) {
+                    long levels = current.levels.get(i);
+                    visitor.visit(key, current.itemIds[i], stockOf(levels), minStockOf(levels), current.versions[i],
+                            readSku(current.skuRefs[i]));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean update(Slots current, int index, long itemId, int stockQuantity, int minStockLevel, long version) {
+        synchronized (stripes[index & (STRIPES - 1)]) {
+            if (version < current.versions[index]) {
+                return false;
+            }
+            current.itemIds[index] = itemId;
+            current.versions[index] = version;
+            current.levels.set(index, pack(stockQuantity, minStockLevel));
+            return true;
+        }
+    }
+
+    private static long readLevels(Slots current, long variantId) {
+        int index = current.indexOf(variantId);
+        return index >= 0 ? current.levels.get(index) : MISSING;
+    }
+
+    // Dipanggil di bawah read atau write lock
+    private String readSku(long ref) {
+        return ref == NO_SKU ? null : new String(skuHeap, skuOffset(ref), skuLength(ref), StandardCharsets.UTF_8);
+    }
+
+    private boolean skuEquals(long ref, byte[] sku) {
+        if (ref == NO_SKU) {
+            return false;
+        }
+        int offset = skuOffset(ref);
+        return Arrays.equals(skuHeap, offset, offset + skuLength(ref), sku, 0, sku.length);
+    }
+
+    // Dipanggil di bawah write lock
+    private void storeSku(int index, byte[] sku) {
+        if (sku == null || skuEquals(slots.skuRefs[index], sku)) {
+            return;
+        }
+        releaseSku(slots.skuRefs[index]);
+        slots.skuRefs[index] = NO_SKU;
+        if (skuHeapUsed + sku.length > skuHeap.length) {
+            compactSkuHeap(sku.length);
+        }
+        System.arraycopy(sku, 0, skuHeap, skuHeapUsed, sku.length);
+        slots.skuRefs[index] = ((long) skuHeapUsed << 32) | sku.length;
+        skuHeapUsed += sku.length;
+        skuHeapLive += sku.length;
+    }
+
+    private void releaseSku(long ref) {
+        if (ref != NO_SKU) {
+            skuHeapLive -= skuLength(ref);
+        }
+    }
+
+    // Salin hanya SKU yang masih dipakai ke heap baru, dengan ruang untuk pertumbuhan
+    private void compactSkuHeap(int extra) {
+        byte[] next = new byte[Math.max(1024, (skuHeapLive + extra) * 2)];
+        int used = 0;
+        Slots current = slots;
+        for (int i = 0; i < current.capacity(); i++) {
+            long ref = current.skuRefs[i];
+            if (current.keys[i] > 0 && ref != NO_SKU) {
+                int length = skuLength(ref);
+                System.arraycopy(skuHeap, skuOffset(ref), next, used, length);
+                current.skuRefs[i] = ((long) used << 32) | length;
+                used += length;
+            }
+        }
+        skuHeap = next;
+        skuHeapUsed = used;
+        skuHeapLive = used;
+    }
+
+    private static int skuOffset(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int skuLength(long ref) {
+        return (int) ref;
+    }
+
+    private static Slots rehash(Slots old, int capacity) {
+        Slots next = new Slots(capacity);
+        for (int i = 0; i < old.capacity(); i++) {
+            long key = old.keys[i];
+            if (key > 0) {
+                int slot = next.emptyIndex(key);
+                next.keys[slot] = key;
+                next.levels.set(slot, old.levels.get(i));
+                next.itemIds[slot] = old.itemIds[i];
+                next.versions[slot] = old.versions[i];
+                next.skuRefs[slot] = old.skuRefs[i];
+            }
+        }
+        return next;
+    }
+
+    private static int capacityFor(int entries) {
+        int needed = (int) Math.ceil(Math.max(entries, 16) / (double) MAX_LOAD);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long variantId, long itemId, int stockQuantity, int minStockLevel, long version, String sku);
+    }
+
+    // Key > 0: variant id; key < 0: tombstone berisi -variantId; 0: kosong
+    private static final class Slots {
+        final long[] keys;
+        final AtomicLongArray levels;
+        final long[] itemIds;
+        final long[] versions;
+        final long[] skuRefs;
+        final int mask;
+
+        Slots(int capacity) {
+            keys = new long[capacity];
+            levels = new AtomicLongArray(capacity);
+            itemIds = new long[capacity];
+            versions = new long[capacity];
+            skuRefs = new long[capacity];
+            Arrays.fill(skuRefs, NO_SKU);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        int indexOf(long key) {
+            int index = hash(key) & mask;
+            while (true) {
+                long current = keys[index];
+                if (current == key) {
+                    return index;
+                }
+                if (current == EMPTY) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        // Slot yang memegang key, hidup atau sebagai tombstone
+        int slotOf(long key) {
+            int index = hash(key) & mask;
+            while (true) {
+                long current = keys[index];
+                if (current == key || current == -key) {
+                    return index;
+                }
+                if (current == EMPTY) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        // Dipanggil di bawah write lock, key dipastikan belum ada. Tombstone tidak dipakai ulang supaya
+        // versinya bertahan sampai rehash
+        int emptyIndex(long key) {
+            int index = hash(key) & mask;
+            while (keys[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
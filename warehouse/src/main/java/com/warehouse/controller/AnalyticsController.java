@@ -0,0 +1,36 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.ValuationDTO;
+import com.warehouse.dto.ValuationGroupDTO;
+import com.warehouse.service.InventoryValuationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final InventoryValuationService inventoryValuationService;
+
+    @GetMapping("/valuation")
+    public ResponseEntity<ValuationDTO> getValuation() {
+        return ResponseEntity.ok(inventoryValuationService.getValuation());
+    }
+
+    // dimension: item, color, size atau material
+    @GetMapping("/valuation/by/{dimension}")
+    public ResponseEntity<List<ValuationGroupDTO>> getValuationBreakdown(@PathVariable String dimension,
+                                                                         @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(inventoryValuationService.getBreakdown(dimension, limit));
+    }
+
+    @PostMapping("/valuation/recompute")
+    public ResponseEntity<ValuationDTO> recomputeValuation() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(inventoryValuationService.startRecompute());
+    }
+}
@@ -0,0 +1,20 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.ContentionReportDTO;
+import com.warehouse.profiling.ContentionProfiler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/contention")
+@RequiredArgsConstructor
+public class ContentionController {
+
+    private final ContentionProfiler contentionProfiler;
+
+    @GetMapping
+    public ResponseEntity<ContentionReportDTO> getContentionReport(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(contentionProfiler.report(limit));
+    }
+}
@@ -1,49 +1,108 @@
 package com.warehouse.controller;
 
+import com.warehouse.admission.AdmissionControl;
+import com.warehouse.dto.ReconciliationJobDTO;
+import com.warehouse.dto.StockLevelSeriesDTO;
+import com.warehouse.dto.StockMovementEntryDTO;
+import com.warehouse.dto.StockMovementResponse;
+import com.warehouse.dto.StockMutationAck;
 import com.warehouse.dto.StockUpdateDTO;
 import com.warehouse.model.StockMovement;
+import com.warehouse.profiling.ContentionProfiler;
 import com.warehouse.service.InventoryService;
+import com.warehouse.service.JournaledStockService;
+import com.warehouse.service.LedgerReconciliationService;
+import com.warehouse.service.StockLevelService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/inventory")
 @RequiredArgsConstructor
 public class InventoryController {
 
+    private static final String RETURN_MINIMAL = "return=minimal";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+
     private final InventoryService inventoryService;
+    private final AdmissionControl admissionControl;
+    private final ContentionProfiler contentionProfiler;
+    private final LedgerReconciliationService ledgerReconciliationService;
+    private final StockLevelService stockLevelService;
+    private final JournaledStockService journaledStockService;
 
     @PostMapping("/add-stock")
-    public ResponseEntity<StockMovement> addStock(@Valid @RequestBody StockUpdateDTO stockUpdateDTO) {
-        StockMovement movement = inventoryService.addStock(stockUpdateDTO);
-        return ResponseEntity.ok(movement);
+    public ResponseEntity<StockMutationAck> addStock(@Valid @RequestBody StockUpdateDTO stockUpdateDTO,
+                                                     @RequestHeader(value = "Prefer", required = false) String prefer) {
+        // Mode journal tidak memegang koneksi database di jalur request, jadi tidak lewat admission control
+        StockMutationAck ack = journaledStockService.isEnabled()
+                ? journaledStockService.addStock(stockUpdateDTO)
+                : admissionControl.execute(stockUpdateDTO.getVariantId(), () -> inventoryService.addStock(stockUpdateDTO));
+        return acknowledge(ack, prefer);
     }
 
     @PostMapping("/remove-stock")
-    public ResponseEntity<StockMovement> removeStock(@Valid @RequestBody StockUpdateDTO stockUpdateDTO) {
-        StockMovement movement = inventoryService.removeStock(stockUpdateDTO);
-        return ResponseEntity.ok(movement);
+    public ResponseEntity<StockMutationAck> removeStock(@Valid @RequestBody StockUpdateDTO stockUpdateDTO,
+                                                        @RequestHeader(value = "Prefer", required = false) String prefer) {
+        StockMutationAck ack = journaledStockService.isEnabled()
+                ? journaledStockService.removeStock(stockUpdateDTO)
+                : admissionControl.execute(stockUpdateDTO.getVariantId(), () -> inventoryService.removeStock(stockUpdateDTO));
+        return acknowledge(ack, prefer);
     }
 
     @PostMapping("/adjust-stock")
-    public ResponseEntity<StockMovement> adjustStock(@Valid @RequestBody StockUpdateDTO stockUpdateDTO) {
-        StockMovement movement = inventoryService.adjustStock(stockUpdateDTO);
-        return ResponseEntity.ok(movement);
+    public ResponseEntity<StockMutationAck> adjustStock(@Valid @RequestBody StockUpdateDTO stockUpdateDTO,
+                                                        @RequestHeader(value = "Prefer", required = false) String prefer) {
+        StockMutationAck ack = journaledStockService.isEnabled()
+                ? journaledStockService.adjustStock(stockUpdateDTO)
+                : admissionControl.execute(stockUpdateDTO.getVariantId(), () -> inventoryService.adjustStock(stockUpdateDTO));
+        return acknowledge(ack, prefer);
     }
 
     @GetMapping("/{variantId}/movements")
-    public ResponseEntity<List<StockMovement>> getStockMovementHistory(@PathVariable Long variantId) {
-        List<StockMovement> movements = inventoryService.getStockMovementHistory(variantId);
+    public ResponseEntity<List<StockMovementResponse>> getStockMovementHistory(@PathVariable Long variantId) {
+        List<StockMovementResponse> movements = inventoryService.getStockMovementHistory(variantId);
         return ResponseEntity.ok(movements);
     }
 
+    @GetMapping("/{variantId}/movements/history")
+    public ResponseEntity<List<StockMovementEntryDTO>> getStockMovementHistory(
+            @PathVariable Long variantId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Set<StockMovement.MovementType> types,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(inventoryService.getStockMovementHistory(variantId, from, to, types, limit));
+    }
+
+    // Satu entri per bucket (hour, day, week); dashboard tidak perlu memutar ulang seluruh riwayat movement
+    @GetMapping("/{variantId}/stock-levels")
+    public ResponseEntity<StockLevelSeriesDTO> getStockLevels(
+            @PathVariable Long variantId,
+            @RequestParam(defaultValue = "day") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(stockLevelService.getSeries(variantId, resolution, from, to));
+    }
+
+    @PostMapping("/stock-levels/rebuild")
+    public ResponseEntity<Integer> rebuildStockLevelRollups() {
+        return ResponseEntity.accepted().body(stockLevelService.rebuildAll());
+    }
+
     @GetMapping("/{variantId}/current-stock")
     public ResponseEntity<Integer> getCurrentStockLevel(@PathVariable Long variantId) {
-        Integer stockLevel = inventoryService.getCurrentStockLevel(variantId);
+        Integer stockLevel = contentionProfiler.profile(ContentionProfiler.Operation.LOOKUP, variantId,
+                () -> inventoryService.getCurrentStockLevel(variantId));
         return ResponseEntity.ok(stockLevel);
     }
 
@@ -53,9 +112,31 @@ public class InventoryController {
         return ResponseEntity.ok(totalIn);
     }
 
+    @PostMapping("/reconciliations")
+    public ResponseEntity<ReconciliationJobDTO> startReconciliation(@RequestParam(defaultValue = "false") boolean repair) {
+        ReconciliationJobDTO job = ledgerReconciliationService.startJob(repair);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/inventory/reconciliations/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("/reconciliations/{jobId}")
+    public ResponseEntity<ReconciliationJobDTO> getReconciliation(@PathVariable String jobId) {
+        return ResponseEntity.ok(ledgerReconciliationService.getJob(jobId));
+    }
+
     @GetMapping("/{variantId}/total-out")
     public ResponseEntity<Integer> getTotalStockOut(@PathVariable Long variantId) {
         Integer totalOut = inventoryService.getTotalStockOut(variantId);
         return ResponseEntity.ok(totalOut);
     }
-}
\ No newline at end of file
+
+    // Prefer: return=minimal (RFC 7240) untuk pemanggil volume tinggi: 202 tanpa body, tidak ada serialisasi sama sekali
+    private static ResponseEntity<StockMutationAck> acknowledge(StockMutationAck ack, String prefer) {
+        if (prefer != null && Arrays.stream(prefer.split(","))
+                .anyMatch(preference -> preference.trim().equalsIgnoreCase(RETURN_MINIMAL))) {
+            return ResponseEntity.accepted().header(PREFERENCE_APPLIED, RETURN_MINIMAL).build();
+        }
+        return ResponseEntity.ok(ack);
+    }
+}
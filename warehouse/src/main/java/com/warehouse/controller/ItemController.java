@@ -1,13 +1,26 @@
 package com.warehouse.controller;
 
+import com.warehouse.cache.CatalogSnapshot;
+import com.warehouse.cache.CatalogSnapshotManager;
+import com.warehouse.dto.FieldSelection;
 import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.ItemPurgeStatusDTO;
+import com.warehouse.dto.ItemVariantMatrixDTO;
+import com.warehouse.dto.ResourceVersion;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.dto.VariantMatrixDTO;
+import com.warehouse.service.ItemPurgeService;
 import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantMatrixService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -16,6 +29,9 @@ import java.util.List;
 public class ItemController {
 
     private final ItemService itemService;
+    private final CatalogSnapshotManager catalogSnapshotManager;
+    private final ItemPurgeService itemPurgeService;
+    private final VariantMatrixService variantMatrixService;
 
     @PostMapping
     public ResponseEntity<ItemDTO> createItem(@Valid @RequestBody ItemDTO itemDTO) {
@@ -30,14 +46,53 @@ public class ItemController {
         return new ResponseEntity<>(createdItem, HttpStatus.CREATED);
     }
 
+    // Semua kombinasi size x color x material dibangkitkan di server
+    @PostMapping("/with-variant-matrix")
+    public ResponseEntity<ItemDTO> createItemWithVariantMatrix(@Valid @RequestBody ItemVariantMatrixDTO request) {
+        ItemDTO createdItem = itemService.createItemWithVariantMatrix(request);
+        return new ResponseEntity<>(createdItem, HttpStatus.CREATED);
+    }
+
+    @PostMapping("/{id}/variant-matrix")
+    public ResponseEntity<List<VariantDTO>> createVariantMatrix(@PathVariable Long id,
+                                                                @Valid @RequestBody VariantMatrixDTO matrix) {
+        return new ResponseEntity<>(variantMatrixService.createVariantMatrix(id, matrix), HttpStatus.CREATED);
+    }
+
+    // Tanpa fields/include body sudah di-encode di snapshot, tidak lewat query maupun Jackson per request.
+    // Proyeksi tidak memakai snapshot, jadi punya validator sendiri
     @GetMapping
-    public ResponseEntity<List<ItemDTO>> getAllItems() {
-        List<ItemDTO> items = itemService.getAllItems();
-        return ResponseEntity.ok(items);
+    public ResponseEntity<?> getAllItems(@RequestParam(required = false) String fields,
+                                         @RequestParam(required = false) String include,
+                                         WebRequest webRequest) {
+        FieldSelection selection = FieldSelection.ofItems(fields, include);
+        if (selection != null) {
+            if (notModified(webRequest, itemService.getAllItemFieldsVersion(selection))) {
+                return null;
+            }
+            return ResponseEntity.ok(itemService.getAllItemFields(selection));
+        }
+        CatalogSnapshot snapshot = catalogSnapshotManager.current();
+        if (webRequest.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getBody());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ItemDTO> getItemById(@PathVariable Long id) {
+    public ResponseEntity<?> getItemById(@PathVariable Long id,
+                                         @RequestParam(required = false) String fields,
+                                         @RequestParam(required = false) String include,
+                                         WebRequest webRequest) {
+        if (notModified(webRequest, itemService.getItemVersion(id))) {
+            return null;
+        }
+        FieldSelection selection = FieldSelection.ofItems(fields, include);
+        if (selection != null) {
+            return ResponseEntity.ok(itemService.getItemFields(id, selection));
+        }
         ItemDTO item = itemService.getItemById(id);
         return ResponseEntity.ok(item);
     }
@@ -48,15 +103,42 @@ public class ItemController {
         return ResponseEntity.ok(updatedItem);
     }
 
+    // mode=purge: item langsung hilang dari API, movement/variant/item dihapus bertahap di background
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteItem(@PathVariable Long id) {
+    public ResponseEntity<ItemPurgeStatusDTO> deleteItem(@PathVariable Long id,
+                                                         @RequestParam(required = false) String mode) {
+        if ("purge".equalsIgnoreCase(mode)) {
+            itemService.purgeItem(id);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/items/" + id + "/purge"))
+                    .body(itemPurgeService.getStatus(id));
+        }
         itemService.deleteItem(id);
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/{id}/purge")
+    public ResponseEntity<ItemPurgeStatusDTO> getPurgeStatus(@PathVariable Long id) {
+        return ResponseEntity.ok(itemPurgeService.getStatus(id));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<ItemDTO>> searchItems(@RequestParam String name) {
+    public ResponseEntity<?> searchItems(@RequestParam String name,
+                                         @RequestParam(required = false) String fields,
+                                         @RequestParam(required = false) String include,
+                                         WebRequest webRequest) {
+        if (notModified(webRequest, itemService.getSearchVersion(name))) {
+            return null;
+        }
+        FieldSelection selection = FieldSelection.ofItems(fields, include);
+        if (selection != null) {
+            return ResponseEntity.ok(itemService.searchItemFieldsByName(name, selection));
+        }
         List<ItemDTO> items = itemService.searchItemsByName(name);
         return ResponseEntity.ok(items);
     }
+
+    private boolean notModified(WebRequest webRequest, ResourceVersion version) {
+        return version != null && webRequest.checkNotModified(version.getEtag(), version.getLastModified());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.warehouse.controller;
+
+import com.warehouse.dto.LocationStockDTO;
+import com.warehouse.dto.StockMovementEntryDTO;
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.dto.VariantAvailabilityDTO;
+import com.warehouse.service.LocationStockService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Stok per gudang; tiap lokasi disimpan di satu shard, stok pusat tetap lewat /api/inventory
+@RestController
+@RequestMapping("/api/locations")
+@RequiredArgsConstructor
+public class LocationStockController {
+
+    private final LocationStockService locationStockService;
+
+    @PostMapping("/{location}/add-stock")
+    public ResponseEntity<StockMovementEntryDTO> addStock(@PathVariable String location,
+                                                          @Valid @RequestBody StockUpdateDTO stockUpdateDTO) {
+        return ResponseEntity.ok(locationStockService.addStock(location, stockUpdateDTO));
+    }
+
+    @PostMapping("/{location}/remove-stock")
+    public ResponseEntity<StockMovementEntryDTO> removeStock(@PathVariable String location,
+                                                             @Valid @RequestBody StockUpdateDTO stockUpdateDTO) {
+        return ResponseEntity.ok(locationStockService.removeStock(location, stockUpdateDTO));
+    }
+
+    @PostMapping("/{location}/adjust-stock")
+    public ResponseEntity<StockMovementEntryDTO> adjustStock(@PathVariable String location,
+                                                             @Valid @RequestBody StockUpdateDTO stockUpdateDTO) {
+        return ResponseEntity.ok(locationStockService.adjustStock(location, stockUpdateDTO));
+    }
+
+    @PostMapping("/{location}/variants/{variantId}/reserve")
+    public ResponseEntity<StockMovementEntryDTO> reserveStock(@PathVariable String location,
+                                                              @PathVariable Long variantId,
+                                                              @RequestParam Integer quantity) {
+        return ResponseEntity.ok(locationStockService.reserveStock(location, variantId, quantity));
+    }
+
+    // Keyset paging: halaman berikutnya mulai setelah variantId terakhir
+    @GetMapping("/{location}/stock")
+    public ResponseEntity<List<LocationStockDTO>> getLocationStock(@PathVariable String location,
+                                                                   @RequestParam(defaultValue = "0") long afterVariantId,
+                                                                   @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(locationStockService.getLocationStock(location, afterVariantId, limit));
+    }
+
+    @GetMapping("/{location}/variants/{variantId}")
+    public ResponseEntity<LocationStockDTO> getStock(@PathVariable String location, @PathVariable Long variantId) {
+        return ResponseEntity.ok(locationStockService.getStock(location, variantId));
+    }
+
+    @GetMapping("/{location}/variants/{variantId}/movements")
+    public ResponseEntity<List<StockMovementEntryDTO>> getMovements(@PathVariable String location,
+                                                                    @PathVariable Long variantId,
+                                                                    @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(locationStockService.getMovements(location, variantId, limit));
+    }
+
+    // Scatter-gather ke semua shard
+    @GetMapping("/availability/{variantId}")
+    public ResponseEntity<VariantAvailabilityDTO> getAvailability(@PathVariable Long variantId) {
+        return ResponseEntity.ok(locationStockService.getAvailability(variantId));
+    }
+
+    @GetMapping("/availability")
+    public ResponseEntity<List<VariantAvailabilityDTO>> getAvailability(@RequestParam List<Long> variantIds) {
+        return ResponseEntity.ok(locationStockService.getAvailability(variantIds));
+    }
+}
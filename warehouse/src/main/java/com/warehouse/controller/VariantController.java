@@ -1,13 +1,25 @@
 package com.warehouse.controller;
 
+import com.warehouse.admission.AdmissionControl;
+import com.warehouse.dto.FieldSelection;
+import com.warehouse.dto.RepricingJobDTO;
+import com.warehouse.dto.RepricingRequestDTO;
+import com.warehouse.dto.ReplenishmentSuggestionDTO;
+import com.warehouse.dto.ResourceVersion;
 import com.warehouse.dto.VariantDTO;
+import com.warehouse.profiling.ContentionProfiler;
+import com.warehouse.service.ConsumptionStatsService;
+import com.warehouse.service.JournaledStockService;
+import com.warehouse.service.VariantRepricingService;
 import com.warehouse.service.VariantService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -16,6 +28,11 @@ import java.util.List;
 public class VariantController {
 
     private final VariantService variantService;
+    private final ConsumptionStatsService consumptionStatsService;
+    private final AdmissionControl admissionControl;
+    private final ContentionProfiler contentionProfiler;
+    private final VariantRepricingService variantRepricingService;
+    private final JournaledStockService journaledStockService;
 
     @PostMapping
     public ResponseEntity<VariantDTO> createVariant(@Valid @RequestBody VariantDTO variantDTO) {
@@ -24,20 +41,49 @@ public class VariantController {
     }
 
     @GetMapping("/item/{itemId}")
-    public ResponseEntity<List<VariantDTO>> getVariantsByItemId(@PathVariable Long itemId) {
+    public ResponseEntity<?> getVariantsByItemId(@PathVariable Long itemId,
+                                                 @RequestParam(required = false) String fields,
+                                                 WebRequest webRequest) {
+        if (notModified(webRequest, variantService.getVariantsByItemIdVersion(itemId))) {
+            return null;
+        }
+        FieldSelection selection = FieldSelection.ofVariants(fields);
+        if (selection != null) {
+            return ResponseEntity.ok(variantService.getVariantFieldsByItemId(itemId, selection));
+        }
         List<VariantDTO> variants = variantService.getVariantsByItemId(itemId);
         return ResponseEntity.ok(variants);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<VariantDTO> getVariantById(@PathVariable Long id) {
-        VariantDTO variant = variantService.getVariantById(id);
+    public ResponseEntity<?> getVariantById(@PathVariable Long id,
+                                            @RequestParam(required = false) String fields,
+                                            WebRequest webRequest) {
+        if (notModified(webRequest, variantService.getVariantVersion(id))) {
+            return null;
+        }
+        FieldSelection selection = FieldSelection.ofVariants(fields);
+        Object variant = contentionProfiler.profile(ContentionProfiler.Operation.LOOKUP, id,
+                () -> selection != null ? variantService.getVariantFields(id, selection) : variantService.getVariantById(id));
         return ResponseEntity.ok(variant);
     }
 
     @GetMapping("/sku/{sku}")
-    public ResponseEntity<VariantDTO> getVariantBySku(@PathVariable String sku) {
-        VariantDTO variant = variantService.getVariantBySku(sku);
+    public ResponseEntity<?> getVariantBySku(@PathVariable String sku,
+                                             @RequestParam(required = false) String fields,
+                                             WebRequest webRequest) {
+        if (notModified(webRequest, variantService.getVariantVersionBySku(sku))) {
+            return null;
+        }
+        FieldSelection selection = FieldSelection.ofVariants(fields);
+        // Id variant baru diketahui dari hasilnya; field selection tanpa id tidak tercatat
+        if (selection != null) {
+            return ResponseEntity.ok(contentionProfiler.profile(ContentionProfiler.Operation.LOOKUP,
+                    () -> variantService.getVariantFieldsBySku(sku, selection),
+                    found -> found.get("id") instanceof Number id ? id.longValue() : null));
+        }
+        VariantDTO variant = contentionProfiler.profile(ContentionProfiler.Operation.LOOKUP,
+                () -> variantService.getVariantBySku(sku), VariantDTO::getId);
         return ResponseEntity.ok(variant);
     }
 
@@ -47,6 +93,19 @@ public class VariantController {
         return ResponseEntity.ok(updatedVariant);
     }
 
+    @PostMapping("/repricing")
+    public ResponseEntity<RepricingJobDTO> startRepricing(@Valid @RequestBody RepricingRequestDTO request) {
+        RepricingJobDTO job = variantRepricingService.startJob(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/variants/repricing/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("/repricing/{jobId}")
+    public ResponseEntity<RepricingJobDTO> getRepricing(@PathVariable String jobId) {
+        return ResponseEntity.ok(variantRepricingService.getJob(jobId));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteVariant(@PathVariable Long id) {
         variantService.deleteVariant(id);
@@ -54,26 +113,54 @@ public class VariantController {
     }
 
     @GetMapping("/low-stock")
-    public ResponseEntity<List<VariantDTO>> getLowStockVariants() {
+    public ResponseEntity<List<VariantDTO>> getLowStockVariants(WebRequest webRequest) {
+        if (notModified(webRequest, variantService.getLowStockVersion())) {
+            return null;
+        }
         List<VariantDTO> variants = variantService.getLowStockVariants();
         return ResponseEntity.ok(variants);
     }
 
     @GetMapping("/out-of-stock")
-    public ResponseEntity<List<VariantDTO>> getOutOfStockVariants() {
+    public ResponseEntity<List<VariantDTO>> getOutOfStockVariants(WebRequest webRequest) {
+        if (notModified(webRequest, variantService.getOutOfStockVersion())) {
+            return null;
+        }
         List<VariantDTO> variants = variantService.getOutOfStockVariants();
         return ResponseEntity.ok(variants);
     }
 
     @GetMapping("/in-stock")
-    public ResponseEntity<List<VariantDTO>> getInStockVariants() {
+    public ResponseEntity<List<VariantDTO>> getInStockVariants(WebRequest webRequest) {
+        if (notModified(webRequest, variantService.getInStockVersion())) {
+            return null;
+        }
         List<VariantDTO> variants = variantService.getInStockVariants();
         return ResponseEntity.ok(variants);
     }
 
     @PostMapping("/{id}/reserve")
     public ResponseEntity<Void> reserveStock(@PathVariable Long id, @RequestParam Integer quantity) {
-        variantService.reserveStock(id, quantity);
+        if (journaledStockService.isEnabled()) {
+            journaledStockService.reserveStock(id, quantity);
+        } else {
+            admissionControl.execute(id, () -> variantService.reserveStock(id, quantity));
+        }
         return ResponseEntity.ok().build();
     }
+
+    @GetMapping("/{id}/replenishment")
+    public ResponseEntity<ReplenishmentSuggestionDTO> getReplenishmentSuggestion(@PathVariable Long id) {
+        return ResponseEntity.ok(consumptionStatsService.getSuggestion(id));
+    }
+
+    @GetMapping("/replenishment")
+    public ResponseEntity<List<ReplenishmentSuggestionDTO>> getReplenishmentSuggestions(
+            @RequestParam(defaultValue = "false") boolean belowReorderPoint) {
+        return ResponseEntity.ok(consumptionStatsService.getSuggestions(belowReorderPoint));
+    }
+
+    private boolean notModified(WebRequest webRequest, ResourceVersion version) {
+        return version != null && webRequest.checkNotModified(version.getEtag(), version.getLastModified());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentionReportDTO {
+    private long windowSeconds;
+    private long operations;
+    private long mutations;
+    private List<VariantContentionDTO> hottest;
+    private List<VariantContentionDTO> mostContended;
+}
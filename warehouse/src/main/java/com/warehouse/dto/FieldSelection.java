@@ -0,0 +1,109 @@
+package com.warehouse.dto;
+
+import com.warehouse.exception.InvalidFieldSelectionException;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fields requested with ?fields= and ?include= on catalog reads. Names are the JSON property names
+ * of ItemDTO and VariantDTO; variant fields inside an item are written as variants.sku. The parse
+ * methods return null when neither parameter is present, meaning the full DTO is wanted.
+ */
+@Getter
+public final class FieldSelection {
+
+    public static final List<String> ITEM_FIELDS = List.of(
+            "id", "name", "description", "basePrice", "createdAt", "updatedAt");
+    public static final List<String> VARIANT_FIELDS = List.of(
+            "id", "itemId", "sku", "size", "color", "material", "price", "stockQuantity", "minStockLevel",
+            "createdAt", "updatedAt");
+
+    private static final String VARIANTS = "variants";
+    private static final String VARIANT_PREFIX = VARIANTS + ".";
+
+    private final List<String> fields;
+    // null: variant tidak diminta sama sekali
+    private final List<String> variantFields;
+
+    private FieldSelection(List<String> fields, List<String> variantFields) {
+        this.fields = fields;
+        this.variantFields = variantFields;
+    }
+
+    public boolean includesVariants() {
+        return variantFields != null;
+    }
+
+    public static FieldSelection ofItems(String fields, String include) {
+        if (fields == null && include == null) {
+            return null;
+        }
+        boolean variantsRequested = false;
+        for (String name : split(include)) {
+            if (!VARIANTS.equals(name)) {
+                throw new InvalidFieldSelectionException("Unknown include '" + name + "', supported: " + VARIANTS);
+            }
+            variantsRequested = true;
+        }
+
+        Set<String> itemFields = new LinkedHashSet<>();
+        Set<String> variantFields = new LinkedHashSet<>();
+        for (String name : split(fields)) {
+            if (VARIANTS.equals(name)) {
+                variantsRequested = true;
+            } else if (name.startsWith(VARIANT_PREFIX)) {
+                variantFields.add(check(name.substring(VARIANT_PREFIX.length()), VARIANT_FIELDS, VARIANT_PREFIX));
+                variantsRequested = true;
+            } else {
+                itemFields.add(check(name, ITEM_FIELDS, ""));
+            }
+        }
+
+        List<String> selectedItemFields = fields == null ? ITEM_FIELDS : List.copyOf(itemFields);
+        if (selectedItemFields.isEmpty() && !variantsRequested) {
+            throw new InvalidFieldSelectionException("fields must name at least one field");
+        }
+        List<String> selectedVariantFields = !variantsRequested ? null
+                : variantFields.isEmpty() ? VARIANT_FIELDS : List.copyOf(variantFields);
+        return new FieldSelection(selectedItemFields, selectedVariantFields);
+    }
+
+    public static FieldSelection ofVariants(String fields) {
+        if (fields == null) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String name : split(fields)) {
+            selected.add(check(name, VARIANT_FIELDS, ""));
+        }
+        if (selected.isEmpty()) {
+            throw new InvalidFieldSelectionException("fields must name at least one field");
+        }
+        return new FieldSelection(List.copyOf(selected), null);
+    }
+
+    private static String check(String name, List<String> allowed, String prefix) {
+        if (!allowed.contains(name)) {
+            throw new InvalidFieldSelectionException("Unknown field '" + prefix + name + "', supported: "
+                    + String.join(", ", allowed.stream().map(f -> prefix + f).toList()));
+        }
+        return name;
+    }
+
+    private static List<String> split(String value) {
+        List<String> names = new ArrayList<>();
+        if (value != null) {
+            for (String part : value.split(",")) {
+                String name = part.trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+}
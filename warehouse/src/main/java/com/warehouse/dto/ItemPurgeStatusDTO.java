@@ -0,0 +1,23 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ItemPurgeStatusDTO {
+    private Long itemId;
+    private String status;
+    private long variantsDeleted;
+    private long movementsDeleted;
+    // Hanya diisi untuk purge yang tidak dijalankan instance ini (instance lain, atau sebelum restart)
+    private Long variantsRemaining;
+    private Long movementsRemaining;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,33 @@
+package com.warehouse.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * A new item together with the variant matrix to generate for it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ItemVariantMatrixDTO {
+
+    @NotBlank(message = "Item name is required")
+    private String name;
+
+    private String description;
+
+    @NotNull(message = "Base price is required")
+    @Positive(message = "Base price must be positive")
+    private BigDecimal basePrice;
+
+    @NotNull(message = "Variant matrix is required")
+    @Valid
+    private VariantMatrixDTO matrix;
+}
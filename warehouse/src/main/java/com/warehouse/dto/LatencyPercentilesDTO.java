@@ -0,0 +1,15 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LatencyPercentilesDTO {
+    private long samples;
+    private double p50Millis;
+    private double p95Millis;
+    private double p99Millis;
+}
@@ -0,0 +1,16 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerMismatchDTO {
+    private Long variantId;
+    private Integer stockQuantity;
+    private Long ledgerBalance;
+    private Long difference;
+    private boolean repaired;
+}
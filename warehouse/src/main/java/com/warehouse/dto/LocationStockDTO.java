@@ -0,0 +1,17 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LocationStockDTO {
+    private String location;
+    private Long variantId;
+    private Integer quantity;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,30 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationJobDTO {
+    private String id;
+    private String status;
+    private boolean repair;
+    private int rangesTotal;
+    private int rangesCompleted;
+    private long variantsChecked;
+    private long mismatchCount;
+    private long repairedCount;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+
+    // Dibatasi warehouse.reconciliation.max-reported-mismatches; mismatchCount selalu jumlah lengkapnya
+    @Builder.Default
+    private List<LedgerMismatchDTO> mismatches = new ArrayList<>();
+}
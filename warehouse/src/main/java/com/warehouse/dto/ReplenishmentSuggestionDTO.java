@@ -0,0 +1,22 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplenishmentSuggestionDTO {
+    private Long variantId;
+    private String sku;
+    private Integer stockQuantity;
+    private Integer minStockLevel;
+    private double averageDailyDemand;
+    private double demandStdDev;
+    private int observedDays;
+    private int reorderPoint;
+    // null kalau belum ada permintaan sama sekali
+    private Double daysOfCover;
+    private boolean belowReorderPoint;
+}
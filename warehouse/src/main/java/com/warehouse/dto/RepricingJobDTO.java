@@ -0,0 +1,33 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RepricingJobDTO {
+    private String id;
+    private String status;
+    private String mode;
+    private String reason;
+    private int chunksCompleted;
+    private long variantsMatched;
+    private long variantsUpdated;
+    // Harga baru sama dengan yang lama, tidak positif, atau melebihi kolom decimal(10,2)
+    private long variantsSkipped;
+    private int itemsAffected;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+
+    // SKU dari daftar harga yang tidak ditemukan, dibatasi; jumlah lengkapnya di unknownSkuCount
+    private long unknownSkuCount;
+    @Builder.Default
+    private List<String> unknownSkus = new ArrayList<>();
+}
@@ -0,0 +1,75 @@
+package com.warehouse.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Either a rule (adjustmentType + amount, optionally narrowed by itemIds, attributes and skus)
+ * or an explicit price list, not both. Filters in a rule are combined with AND.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RepricingRequestDTO {
+
+    public enum AdjustmentType { PERCENTAGE, ABSOLUTE }
+
+    private AdjustmentType adjustmentType;
+    // PERCENTAGE: -10 berarti turun 10%; ABSOLUTE: ditambahkan ke harga sekarang
+    private BigDecimal amount;
+
+    private List<Long> itemIds;
+    private String size;
+    private String color;
+    private String material;
+    private List<String> skus;
+
+    @Valid
+    private List<PriceEntry> prices;
+
+    @Size(max = 255, message = "Reason must be at most 255 characters")
+    private String reason;
+
+    @JsonIgnore
+    public boolean isRule() {
+        return adjustmentType != null;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Specify either adjustmentType with amount, or prices, but not both")
+    public boolean isRuleOrPriceList() {
+        boolean hasPrices = prices != null && !prices.isEmpty();
+        return isRule() ? amount != null && !hasPrices : hasPrices;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "A percentage change must be greater than -100")
+    public boolean isPercentageAboveMinusHundred() {
+        return adjustmentType != AdjustmentType.PERCENTAGE || amount == null
+                || amount.compareTo(BigDecimal.valueOf(-100)) > 0;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceEntry {
+        @NotBlank(message = "SKU is required")
+        private String sku;
+
+        @NotNull(message = "Price is required")
+        @Positive(message = "Price must be positive")
+        private BigDecimal price;
+    }
+}
@@ -0,0 +1,33 @@
+package com.warehouse.dto;
+
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Validator for conditional GETs, derived from row metadata (count, id sum, latest updatedAt)
+ * instead of the serialized body, so a 304 never needs the full entity.
+ */
+@Getter
+public class ResourceVersion {
+    private final String etag;
+    private final long lastModified;
+
+    private ResourceVersion(String etag, long lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    public static ResourceVersion of(String resource, Long rowCount, Long idSum, LocalDateTime lastModified) {
+        String stamp = resource + ":" + rowCount + ":" + idSum + ":" + lastModified;
+        String hash = DigestUtils.md5DigestAsHex(stamp.getBytes(StandardCharsets.UTF_8));
+        long lastModifiedMillis = lastModified != null
+                ? lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+        // Weak karena diturunkan dari metadata, bukan dari byte body
+        return new ResourceVersion("W/\"" + hash + "\"", lastModifiedMillis);
+    }
+}
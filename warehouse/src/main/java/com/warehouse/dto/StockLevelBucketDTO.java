@@ -0,0 +1,25 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockLevelBucketDTO {
+    private LocalDateTime bucketStart;
+    private int openLevel;
+    private int minLevel;
+    private int maxLevel;
+    private int closeLevel;
+    private int inQuantity;
+    private int outQuantity;
+    // ADJUSTMENT sudah bertanda
+    private int adjustmentQuantity;
+    // closeLevel - openLevel
+    private int netChange;
+    private int movementCount;
+}
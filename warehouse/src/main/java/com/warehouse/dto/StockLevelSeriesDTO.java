@@ -0,0 +1,24 @@
+package com.warehouse.dto;
+
+import com.warehouse.model.StockLevelResolution;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockLevelSeriesDTO {
+    private Long variantId;
+    private StockLevelResolution resolution;
+    // Awal bucket pertama dan batas akhir (eksklusif) rentang yang diminta
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // Satu entri per bucket, termasuk bucket tanpa movement, jadi ukurannya tidak bergantung jumlah movement
+    @Builder.Default
+    private List<StockLevelBucketDTO> buckets = new ArrayList<>();
+}
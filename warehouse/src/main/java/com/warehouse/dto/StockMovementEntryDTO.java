@@ -0,0 +1,27 @@
+package com.warehouse.dto;
+
+import com.warehouse.model.StockMovement;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovementEntryDTO {
+    private Long id;
+    private StockMovement.MovementType movementType;
+    private Integer quantity;
+    private String reason;
+    private String reference;
+    private LocalDateTime createdAt;
+    private String location;
+
+    // Movement stok pusat tidak punya lokasi; movement per lokasi dibaca dari shard lokasi
+    public StockMovementEntryDTO(Long id, StockMovement.MovementType movementType, Integer quantity,
+                                 String reason, String reference, LocalDateTime createdAt) {
+        this(id, movementType, quantity, reason, reference, createdAt, null);
+    }
+}
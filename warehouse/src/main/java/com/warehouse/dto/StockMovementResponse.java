@@ -0,0 +1,15 @@
+package com.warehouse.dto;
+
+import com.warehouse.model.StockMovement;
+
+import java.time.LocalDateTime;
+
+// Movement untuk response JSON; variant cukup id-nya, jadi Jackson tidak pernah menyentuh relasi lazy
+public record StockMovementResponse(Long id,
+                                    Long variantId,
+                                    StockMovement.MovementType movementType,
+                                    Integer quantity,
+                                    String reason,
+                                    String reference,
+                                    LocalDateTime createdAt) {
+}
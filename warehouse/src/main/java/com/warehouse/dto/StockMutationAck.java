@@ -0,0 +1,9 @@
+package com.warehouse.dto;
+
+// Jawaban add/remove/adjust-stock: dibangun dari nilai yang sudah ada di service, tanpa entity.
+// Lewat journal movement: movementId null (baris movement baru ada setelah proyeksi), journalSequence terisi
+public record StockMutationAck(Long movementId,
+                               Long variantId,
+                               Integer stockQuantity,
+                               Long journalSequence) {
+}
@@ -2,6 +2,7 @@ package com.warehouse.dto;
 
 import com.warehouse.model.StockMovement;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.*;
 
 @Getter
@@ -16,6 +17,10 @@ public class StockUpdateDTO {
     @NotNull(message = "Quantity is required")
     private Integer quantity;
 
+    // Panjang kolom stock_movements.reason / reference
+    @Size(max = 255, message = "Reason must be at most 255 characters")
     private String reason;
+
+    @Size(max = 255, message = "Reference must be at most 255 characters")
     private String reference;
 }
\ No newline at end of file
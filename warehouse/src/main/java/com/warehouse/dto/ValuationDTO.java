@@ -0,0 +1,24 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ValuationDTO {
+    private BigDecimal totalValue;
+    private long totalUnits;
+    private long variantCount;
+    // false sampai recompute penuh pertama selesai; angka sebelum itu tidak lengkap
+    private boolean ready;
+    private boolean recomputing;
+    // Variant/item yang sudah berubah tapi belum masuk agregat (diterapkan tiap warehouse.valuation.refresh-interval)
+    private int pendingChanges;
+    private LocalDateTime lastRecomputedAt;
+    private Long lastRecomputeMillis;
+}
@@ -0,0 +1,19 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ValuationGroupDTO {
+    // itemId untuk dimensi item; null kalau atribut variant tidak diisi
+    private String key;
+    private BigDecimal totalValue;
+    private long totalUnits;
+    private long variantCount;
+    private double shareOfValue;
+}
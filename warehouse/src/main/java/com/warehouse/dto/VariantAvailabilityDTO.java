@@ -0,0 +1,23 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VariantAvailabilityDTO {
+    private Long variantId;
+    // Jumlah stok di semua lokasi yang terjawab; stok pusat (variants.stock_quantity) tidak termasuk
+    private long totalQuantity;
+    @Builder.Default
+    private List<LocationStockDTO> locations = new ArrayList<>();
+    // false kalau ada shard yang gagal atau lewat batas waktu; totalQuantity hanya dari shard yang menjawab
+    private boolean complete;
+    @Builder.Default
+    private List<String> unavailableShards = new ArrayList<>();
+}
@@ -0,0 +1,22 @@
+package com.warehouse.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VariantContentionDTO {
+    private Long variantId;
+    private String sku;
+    // Estimasi count-min: bisa sedikit lebih besar dari angka sebenarnya, tidak pernah lebih kecil
+    private long operations;
+    private long mutations;
+    private long totalMutationMillis;
+    // Hanya mencakup periode selama variant ada di top-K
+    private LatencyPercentilesDTO mutationLatency;
+    private LatencyPercentilesDTO lookupLatency;
+    private double insufficientStockRate;
+    private double rejectedRate;
+}
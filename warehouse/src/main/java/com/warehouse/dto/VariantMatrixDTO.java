@@ -0,0 +1,68 @@
+package com.warehouse.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Attribute axes from which every combination (size x color x material) becomes a variant.
+ * An axis that is left out stays null on all generated variants. The SKU template may use
+ * {item}, {size}, {color}, {material} and {index} (1-based position in the matrix).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VariantMatrixDTO {
+
+    public static final Set<String> AXES = Set.of("size", "color", "material");
+
+    private List<@NotBlank(message = "Axis values must not be blank") String> sizes;
+    private List<@NotBlank(message = "Axis values must not be blank") String> colors;
+    private List<@NotBlank(message = "Axis values must not be blank") String> materials;
+
+    @NotBlank(message = "SKU template is required")
+    @Size(max = 255, message = "SKU template must be at most 255 characters")
+    private String skuTemplate;
+
+    // Kosong: pakai basePrice item
+    @Positive(message = "Price must be positive")
+    private BigDecimal price;
+
+    // Ditambahkan ke price per nilai atribut, contoh {"size": {"46": 5.00}, "material": {"leather": 20}}
+    private Map<String, Map<String, BigDecimal>> priceAdjustments;
+
+    @PositiveOrZero(message = "Stock quantity cannot be negative")
+    @Builder.Default
+    private Integer stockQuantity = 0;
+
+    @PositiveOrZero(message = "Minimum stock level cannot be negative")
+    @Builder.Default
+    private Integer minStockLevel = 0;
+
+    @JsonIgnore
+    @AssertTrue(message = "At least one of sizes, colors or materials is required")
+    public boolean isAnyAxis() {
+        return hasValues(sizes) || hasValues(colors) || hasValues(materials);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "priceAdjustments keys must be size, color or material")
+    public boolean isKnownAdjustmentAxes() {
+        return priceAdjustments == null || AXES.containsAll(priceAdjustments.keySet());
+    }
+
+    private static boolean hasValues(List<String> values) {
+        return values != null && !values.isEmpty();
+    }
+}
@@ -0,0 +1,25 @@
+package com.warehouse.event;
+
+import lombok.Getter;
+
+import java.util.Set;
+
+@Getter
+public class CatalogChangedEvent {
+    private final Set<Long> itemIds;
+    private final Set<Long> variantIds;
+
+    public CatalogChangedEvent(Set<Long> itemIds, Set<Long> variantIds) {
+        this.itemIds = Set.copyOf(itemIds);
+        this.variantIds = Set.copyOf(variantIds);
+    }
+
+    // Perubahan pada level item (termasuk hapus item), semua variant milik item ikut dianggap berubah
+    public static CatalogChangedEvent ofItem(Long itemId) {
+        return new CatalogChangedEvent(Set.of(itemId), Set.of());
+    }
+
+    public static CatalogChangedEvent ofVariant(Long itemId, Long variantId) {
+        return new CatalogChangedEvent(Set.of(itemId), Set.of(variantId));
+    }
+}
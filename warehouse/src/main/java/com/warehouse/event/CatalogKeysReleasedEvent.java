@@ -0,0 +1,28 @@
+package com.warehouse.event;
+
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * SKU atau nama item yang tidak dipakai lagi (dihapus atau diganti). Dipublish di dalam transaksi,
+ * listener baru memprosesnya setelah commit.
+ */
+@Getter
+public class CatalogKeysReleasedEvent {
+    private final Set<String> skus;
+    private final Set<String> itemNames;
+
+    public CatalogKeysReleasedEvent(Set<String> skus, Set<String> itemNames) {
+        this.skus = Set.copyOf(skus);
+        this.itemNames = Set.copyOf(itemNames);
+    }
+
+    public static CatalogKeysReleasedEvent ofSku(String sku) {
+        return new CatalogKeysReleasedEvent(Set.of(sku), Set.of());
+    }
+
+    public static CatalogKeysReleasedEvent ofItemName(String itemName) {
+        return new CatalogKeysReleasedEvent(Set.of(), Set.of(itemName));
+    }
+}
@@ -0,0 +1,10 @@
+package com.warehouse.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class ItemPurgeRequestedEvent {
+    private final Long itemId;
+}
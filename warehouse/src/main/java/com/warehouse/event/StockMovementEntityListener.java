@@ -0,0 +1,25 @@
+package com.warehouse.event;
+
+import com.warehouse.model.StockMovement;
+import jakarta.persistence.PostPersist;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes a {@link StockMovementRecordedEvent} for every movement persisted through JPA,
+ * whichever service wrote it. Hibernate obtains this listener from the Spring context.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockMovementEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void onPersisted(StockMovement movement) {
+        // getId() pada proxy variant tidak memicu query
+        eventPublisher.publishEvent(new StockMovementRecordedEvent(movement.getVariant().getId(),
+                movement.getMovementType(), movement.getQuantity(), movement.getCreatedAt()));
+    }
+}
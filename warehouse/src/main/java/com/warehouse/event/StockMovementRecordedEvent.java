@@ -0,0 +1,16 @@
+package com.warehouse.event;
+
+import com.warehouse.model.StockMovement;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Getter
+@RequiredArgsConstructor
+public class StockMovementRecordedEvent {
+    private final Long variantId;
+    private final StockMovement.MovementType movementType;
+    private final int quantity;
+    private final LocalDateTime createdAt;
+}
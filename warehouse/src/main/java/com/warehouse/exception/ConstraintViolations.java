@@ -0,0 +1,72 @@
+package com.warehouse.exception;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Mencari tahu constraint mana yang dilanggar supaya bisa diterjemahkan ke pesan yang sama
+ * dengan pengecekan manual sebelumnya.
+ */
+public final class ConstraintViolations {
+
+    // Duplicate entry di MySQL/MariaDB; SQLState 23000 di sana juga dipakai FK dan NOT NULL
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final String UNIQUE_VIOLATION_STATE = "23505";
+
+    // MySQL 8 melaporkan "variants.sku", H2 "PUBLIC.SKU_INDEX_B"
+    private static final Pattern SCHEMA_PREFIX = Pattern.compile("^.*\\.");
+    private static final Pattern H2_INDEX_SUFFIX = Pattern.compile("_index_[0-9a-z]+$");
+
+    private ConstraintViolations() {
+    }
+
+    public static boolean isViolationOf(DataIntegrityViolationException ex, String constraint) {
+        String expected = constraint.toLowerCase(Locale.ROOT);
+        String name = constraintName(ex);
+        if (name != null && !expected.endsWith(name)) {
+            return false;
+        }
+        if (expected.equals(name)) {
+            return true;
+        }
+        // Dialect tidak selalu bisa mengekstrak nama (FK di MySQL, H2 kadang memotong karakter pertama), dan
+        // insert lewat JdbcTemplate tidak melewati dialect sama sekali, jadi cari nama lengkapnya sebagai token
+        // di pesan driver. H2 menyebut index unique-nya, yaitu nama constraint ditambah akhiran _index_x
+        String message = String.valueOf(ex.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        return Pattern.compile("[`\"'.\\s]" + Pattern.quote(expected) + "(_index_[0-9a-z]+)?[`\"':\\s]")
+                .matcher(message).find();
+    }
+
+    public static boolean isUniqueViolation(DataIntegrityViolationException ex) {
+        if (ex instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                return true;
+            }
+            if (cause instanceof SQLException sql
+                    && (sql.getErrorCode() == MYSQL_DUPLICATE_ENTRY || UNIQUE_VIOLATION_STATE.equals(sql.getSQLState()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String constraintName(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                String name = violation.getConstraintName().toLowerCase(Locale.ROOT);
+                name = SCHEMA_PREFIX.matcher(name).replaceFirst("");
+                return H2_INDEX_SUFFIX.matcher(name).replaceFirst("");
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.warehouse.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFieldSelectionException extends RuntimeException {
+    public InvalidFieldSelectionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.warehouse.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Job latar belakang hanya boleh jalan satu per jenis; bukan data yang bentrok, klien cukup menunggu job itu selesai
+@ResponseStatus(HttpStatus.CONFLICT)
+public class JobAlreadyRunningException extends RuntimeException {
+    public JobAlreadyRunningException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.warehouse.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Journal movement belum siap (replay saat startup) atau gagal menulis; mutasi tidak tercatat
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class StockJournalUnavailableException extends RuntimeException {
+    public StockJournalUnavailableException(String message) {
+        super(message);
+    }
+
+    public StockJournalUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
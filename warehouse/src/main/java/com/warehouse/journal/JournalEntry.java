@@ -0,0 +1,27 @@
+package com.warehouse.journal;
+
+import com.warehouse.model.StockMovement;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stock movement as written to the {@link MovementJournal}. The sequence is assigned when the entry
+ * is appended; before that it is 0. ADJUSTMENT quantities are signed, IN and OUT are positive.
+ */
+public record JournalEntry(long sequence,
+                           long variantId,
+                           StockMovement.MovementType movementType,
+                           int quantity,
+                           String reason,
+                           String reference,
+                           LocalDateTime createdAt) {
+
+    public JournalEntry withSequence(long assigned) {
+        return new JournalEntry(assigned, variantId, movementType, quantity, reason, reference, createdAt);
+    }
+
+    // Perubahan stok yang dibawa entry ini
+    public int delta() {
+        return movementType == StockMovement.MovementType.OUT ? -quantity : quantity;
+    }
+}
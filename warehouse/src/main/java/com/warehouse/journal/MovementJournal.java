@@ -0,0 +1,433 @@
+package com.warehouse.journal;
+
+import com.warehouse.model.StockMovement;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only movement journal: a directory of segment files, each holding checksummed frames with
+ * consecutive sequence numbers. An append is written and forced to disk as one batch before it returns,
+ * so one fsync covers every entry of the batch. A torn frame at the end of the newest segment (crash
+ * during a write) is truncated on open; damage anywhere else fails the open. While open, the journal holds
+ * an exclusive lock on {@code journal.lock} in its directory, so a second process (or a second open in
+ * this one) fails instead of appending to the same segments.
+ *
+ * <pre>
+ * segment file name: first sequence, zero-padded, + ".journal"
+ * segment header (32 B): magic, version, journal id (2 longs), first sequence
+ * frame: payload length, crc32c(payload), payload
+ * payload: sequence, variantId, movement type, quantity, createdAt micros, reason, reference
+ *          (texts as short length + UTF-8 bytes, length -1 for null)
+ * </pre>
+ * Not thread-safe for appends: one writer thread appends, other threads may only read and delete segments.
+ */
+@Slf4j
+public final class MovementJournal implements Closeable {
+
+    private static final int MAGIC = 0x57484A31; // "WHJ1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 1 + 4 + 8 + 2 + 2;
+    private static final int MAX_TEXT_BYTES = Short.MAX_VALUE;
+    private static final String SUFFIX = ".journal";
+    private static final String LOCK_FILE = "journal.lock";
+    private static final StockMovement.MovementType[] TYPES = StockMovement.MovementType.values();
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final UUID id;
+    // Segment yang sudah penuh, dari yang terlama; dihapus setelah semua entry-nya terproyeksi
+    private final Deque<Segment> sealed;
+    private FileChannel lockChannel;
+    private Segment active;
+    private FileChannel channel;
+    private long nextSequence;
+    private boolean broken;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private record Segment(Path path, long firstSequence, long lastSequence) {
+    }
+
+    private record Scan(UUID id, long firstSequence, long lastSequence, long validBytes, long size) {
+    }
+
+    private MovementJournal(Path directory, long segmentBytes, UUID id, Deque<Segment> sealed) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.id = id;
+        this.sealed = sealed;
+    }
+
+    public static MovementJournal open(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal segment size must be between " + HEADER_BYTES
+                    + " and " + Integer.MAX_VALUE + " bytes: " + segmentBytes);
+        }
+        Files.createDirectories(directory);
+        FileChannel lockChannel = lock(directory);
+        try {
+            MovementJournal journal = open(directory, segmentBytes, segmentPaths(directory));
+            journal.lockChannel = lockChannel;
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    // Lock dilepas saat channel-nya ditutup atau prosesnya mati, jadi tidak ada lock basi setelah crash
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.tryLock() != null) {
+                return channel;
+            }
+        } catch (OverlappingFileLockException e) {
+            // Dipegang journal lain di JVM ini
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        throw new IOException("Journal directory " + directory + " is locked by another writer");
+    }
+
+    private static MovementJournal open(Path directory, long segmentBytes, List<Path> paths) throws IOException {
+        if (paths.isEmpty()) {
+            MovementJournal journal = new MovementJournal(directory, segmentBytes, UUID.randomUUID(), new ArrayDeque<>());
+            journal.startSegment(1);
+            log.info("Created movement journal {} in {}", journal.id, directory);
+            return journal;
+        }
+
+        UUID id = null;
+        Deque<Segment> segments = new ArrayDeque<>();
+        Scan scan = null;
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            scan = scan(path, Long.MAX_VALUE, null);
+            if (id == null) {
+                id = scan.id();
+            } else if (!id.equals(scan.id())) {
+                throw new IOException("Journal segment " + path + " belongs to journal " + scan.id() + ", expected " + id);
+            }
+            if (!segments.isEmpty() && segments.peekLast().lastSequence() + 1 != scan.firstSequence()) {
+                throw new IOException("Journal segment " + path + " starts at sequence " + scan.firstSequence()
+                        + ", expected " + (segments.peekLast().lastSequence() + 1));
+            }
+            boolean newest = i == paths.size() - 1;
+            if (scan.validBytes() < scan.size() && !newest) {
+                throw new IOException("Corrupt journal segment " + path + " at byte " + scan.validBytes());
+            }
+            segments.addLast(new Segment(path, scan.firstSequence(), scan.lastSequence()));
+        }
+
+        MovementJournal journal = new MovementJournal(directory, segmentBytes, id, segments);
+        journal.active = segments.pollLast();
+        journal.channel = FileChannel.open(journal.active.path(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (scan.validBytes() < scan.size()) {
+            // Frame terakhir tidak utuh: crash di tengah write, entry-nya belum pernah di-ack
+            log.warn("Truncating torn tail of journal segment {} from {} to {} bytes",
+                    journal.active.path(), scan.size(), scan.validBytes());
+            journal.channel.truncate(scan.validBytes());
+            journal.channel.force(true);
+        }
+        journal.channel.position(scan.validBytes());
+        journal.nextSequence = journal.active.lastSequence() + 1;
+        log.info("Opened movement journal {} in {}: {} segments, next sequence {}",
+                id, directory, segments.size() + 1, journal.nextSequence);
+        return journal;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Assigns consecutive sequences to the entries, writes them and forces the segment to disk.
+     * Returns the entries with their sequences once they are durable. On failure nothing of the
+     * batch remains in the journal and no sequence is consumed.
+     */
+    public synchronized List<JournalEntry> append(List<JournalEntry> entries) throws IOException {
+        if (broken) {
+            throw new IOException("Journal " + id + " is unusable after an earlier write failure");
+        }
+        List<JournalEntry> sequenced = new ArrayList<>(entries.size());
+        ByteBuffer frames = encode(entries, sequenced);
+        if (channel.position() > HEADER_BYTES && channel.position() + frames.remaining() > segmentBytes) {
+            rotate();
+        }
+
+        long start = channel.position();
+        try {
+            while (frames.hasRemaining()) {
+                channel.write(frames);
+            }
+            // Satu fsync untuk seluruh batch; metadata file tidak perlu ikut kecuali ukuran
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateFailure) {
+                broken = true;
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        nextSequence += entries.size();
+        active = new Segment(active.path(), active.firstSequence(), nextSequence - 1);
+        return sequenced;
+    }
+
+    /**
+     * Feeds every entry with a sequence above {@code afterSequence} to the consumer, oldest first.
+     *
+     * @throws IllegalStateException when {@code afterSequence} lies past the end of the journal, i.e. the
+     *                               checkpoint belongs to entries this directory no longer has
+     */
+    public void replay(long afterSequence, Consumer<JournalEntry> consumer) throws IOException {
+        List<Segment> segments;
+        synchronized (this) {
+            if (afterSequence > nextSequence - 1) {
+                throw new IllegalStateException("Cannot replay journal " + id + " from sequence " + afterSequence
+                        + ": it ends at " + (nextSequence - 1) + " in " + directory);
+            }
+            segments = new ArrayList<>(sealed);
+            segments.add(active);
+        }
+        for (Segment segment : segments) {
+            if (segment.lastSequence() > afterSequence) {
+                scan(segment.path(), afterSequence, consumer);
+            }
+        }
+    }
+
+    /**
+     * Deletes sealed segments whose entries all have a sequence of at most {@code projectedSequence}.
+     * The active segment is never deleted, so the next sequence survives a restart.
+     */
+    public synchronized int deleteProjected(long projectedSequence) throws IOException {
+        int deleted = 0;
+        while (!sealed.isEmpty() && sealed.peekFirst().lastSequence() <= projectedSequence) {
+            Files.deleteIfExists(sealed.pollFirst().path());
+            deleted++;
+        }
+        return deleted;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.force(true);
+                channel.close();
+            }
+        } finally {
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.force(true);
+        channel.close();
+        sealed.addLast(active);
+        startSegment(nextSequence);
+        log.debug("Journal {} rotated to segment {}", id, active.path());
+    }
+
+    // Header ditulis ke file sementara lalu dipindah atomik: segment selalu punya header utuh atau tidak ada
+    private void startSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%020d", firstSequence) + SUFFIX);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel headerChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                    .putLong(firstSequence)
+                    .flip();
+            while (header.hasRemaining()) {
+                headerChannel.write(header);
+            }
+            headerChannel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        active = new Segment(path, firstSequence, firstSequence - 1);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(HEADER_BYTES);
+        nextSequence = firstSequence;
+    }
+
+    private ByteBuffer encode(List<JournalEntry> entries, List<JournalEntry> sequenced) {
+        List<byte[]> texts = new ArrayList<>(entries.size() * 2);
+        long total = 0;
+        for (JournalEntry entry : entries) {
+            byte[] reason = text(entry.reason());
+            byte[] reference = text(entry.reference());
+            texts.add(reason);
+            texts.add(reference);
+            total += FRAME_HEADER_BYTES + FIXED_PAYLOAD_BYTES + length(reason) + length(reference);
+        }
+        if (total > segmentBytes - HEADER_BYTES) {
+            throw new IllegalArgumentException("Journal batch of " + total + " bytes does not fit in a segment");
+        }
+        if (buffer.capacity() < total) {
+            buffer = ByteBuffer.allocateDirect((int) Math.max(total, buffer.capacity() * 2L));
+        }
+        buffer.clear();
+
+        CRC32C crc = new CRC32C();
+        long sequence = nextSequence;
+        for (int i = 0; i < entries.size(); i++) {
+            JournalEntry entry = entries.get(i).withSequence(sequence++);
+            byte[] reason = texts.get(i * 2);
+            byte[] reference = texts.get(i * 2 + 1);
+            int frameStart = buffer.position();
+            int payloadStart = frameStart + FRAME_HEADER_BYTES;
+            buffer.position(payloadStart);
+            buffer.putLong(entry.sequence());
+            buffer.putLong(entry.variantId());
+            buffer.put((byte) entry.movementType().ordinal());
+            buffer.putInt(entry.quantity());
+            buffer.putLong(toMicros(entry.createdAt()));
+            putText(buffer, reason);
+            putText(buffer, reference);
+            int payloadEnd = buffer.position();
+
+            crc.reset();
+            crc.update(buffer.duplicate().position(payloadStart).limit(payloadEnd));
+            buffer.putInt(frameStart, payloadEnd - payloadStart);
+            buffer.putInt(frameStart + 4, (int) crc.getValue());
+            sequenced.add(entry);
+        }
+        return buffer.flip();
+    }
+
+    private static Scan scan(Path path, long afterSequence, Consumer<JournalEntry> consumer) throws IOException {
+        try (FileChannel segment = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = segment.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid journal segment size " + size + ": " + path);
+            }
+            MappedByteBuffer mapped = segment.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                throw new IOException("Unrecognized journal segment format in " + path);
+            }
+            UUID id = new UUID(mapped.getLong(8), mapped.getLong(16));
+            long firstSequence = mapped.getLong(24);
+
+            // Berhenti di frame pertama yang tidak utuh, checksum-nya salah atau sequence-nya melompat
+            CRC32C crc = new CRC32C();
+            long expected = firstSequence;
+            int position = HEADER_BYTES;
+            while (position + FRAME_HEADER_BYTES <= size) {
+                int length = mapped.getInt(position);
+                if (length < FIXED_PAYLOAD_BYTES || position + FRAME_HEADER_BYTES + (long) length > size) {
+                    break;
+                }
+                ByteBuffer payload = mapped.slice(position + FRAME_HEADER_BYTES, length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != mapped.getInt(position + 4) || payload.getLong(0) != expected) {
+                    break;
+                }
+                if (consumer != null && expected > afterSequence) {
+                    consumer.accept(decode(payload));
+                }
+                expected++;
+                position += FRAME_HEADER_BYTES + length;
+            }
+            return new Scan(id, firstSequence, expected - 1, position, size);
+        }
+    }
+
+    private static JournalEntry decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        long variantId = payload.getLong();
+        StockMovement.MovementType type = TYPES[payload.get()];
+        int quantity = payload.getInt();
+        LocalDateTime createdAt = fromMicros(payload.getLong());
+        String reason = getText(payload);
+        String reference = getText(payload);
+        return new JournalEntry(sequence, variantId, type, quantity, reason, reference, createdAt);
+    }
+
+    private static List<Path> segmentPaths(Path directory) throws IOException {
+        // Nama di-pad nol, jadi urutan nama sama dengan urutan sequence
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static byte[] text(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Journal text field too long: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int length(byte[] text) {
+        return text == null ? 0 : text.length;
+    }
+
+    private static void putText(ByteBuffer buffer, byte[] text) {
+        if (text == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) text.length);
+            buffer.put(text);
+        }
+    }
+
+    private static String getText(ByteBuffer payload) {
+        short length = payload.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -14,6 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@SQLRestriction("deleted_at IS NULL")
 @Table(name = "items")
 @Getter
 @Setter
@@ -48,4 +50,8 @@ public class Item {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // Diisi saat purge dimulai; baris yang sudah ditandai tidak terlihat lagi lewat JPA
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.warehouse.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Ditulis dan dibaca lewat JDBC oleh StockJournalRepository; entity ini hanya mendefinisikan tabelnya
+@Entity
+@Table(name = "stock_journal_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockJournalCheckpoint {
+    @Id
+    @Column(name = "journal_id", length = 36)
+    private String journalId;
+
+    @Column(name = "projected_sequence", nullable = false)
+    private long projectedSequence;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+}
@@ -0,0 +1,39 @@
+package com.warehouse.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket width of a stock-level series. Buckets are aligned to server local time; weeks start on Monday.
+ */
+public enum StockLevelResolution {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS),
+    WEEK(ChronoUnit.WEEKS);
+
+    private final ChronoUnit unit;
+
+    StockLevelResolution(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        if (this == WEEK) {
+            return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+
+    // Jumlah bucket yang menyentuh [from, to); bucket terakhir boleh hanya sebagian
+    public long bucketsBetween(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = bucketStart(from);
+        long whole = unit.between(start, to);
+        return start.plus(whole, unit).isBefore(to) ? whole + 1 : whole;
+    }
+}
@@ -0,0 +1,66 @@
+package com.warehouse.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Ditulis dan dibaca lewat JDBC oleh StockLevelRepository; entity ini hanya mendefinisikan tabelnya
+@Entity
+@Table(name = "stock_level_rollups")
+@IdClass(StockLevelRollup.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockLevelRollup {
+    @Id
+    @Column(name = "variant_id")
+    private Long variantId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private StockLevelResolution resolution;
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Column(name = "open_level", nullable = false)
+    private int openLevel;
+
+    @Column(name = "min_level", nullable = false)
+    private int minLevel;
+
+    @Column(name = "max_level", nullable = false)
+    private int maxLevel;
+
+    @Column(name = "close_level", nullable = false)
+    private int closeLevel;
+
+    @Column(name = "in_quantity", nullable = false)
+    private int inQuantity;
+
+    @Column(name = "out_quantity", nullable = false)
+    private int outQuantity;
+
+    @Column(name = "adjustment_quantity", nullable = false)
+    private int adjustmentQuantity;
+
+    @Column(name = "movement_count", nullable = false)
+    private int movementCount;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long variantId;
+        private StockLevelResolution resolution;
+        private LocalDateTime bucketStart;
+    }
+}
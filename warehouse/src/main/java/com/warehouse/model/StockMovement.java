@@ -1,5 +1,6 @@
 package com.warehouse.model;
 
+import com.warehouse.event.StockMovementEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
@@ -8,7 +9,11 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "stock_movements")
+@EntityListeners(StockMovementEntityListener.class)
+// Sama dengan index di V2; InnoDB menambahkan id di ujung setiap secondary index, jadi efektif (variant_id, created_at, id)
+@Table(name = "stock_movements", indexes = {
+        @Index(name = "idx_stock_movements_variant_created", columnList = "variant_id, created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,8 +25,9 @@ public class StockMovement {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Tanpa FK: tabel berpartisi di MySQL tidak mendukungnya (V9)
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "variant_id", nullable = false)
+    @JoinColumn(name = "variant_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Variant variant;
 
     @Enumerated(EnumType.STRING)
@@ -35,8 +41,9 @@ public class StockMovement {
     private String reason;
     private String reference;
 
+    // Kolom partisi (RANGE per bulan), bagian dari primary key (id, created_at) di MySQL
     @CreationTimestamp
-    @Column(name = "created_at", updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     public enum MovementType {
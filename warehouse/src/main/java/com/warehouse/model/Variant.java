@@ -6,13 +6,18 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "variants")
+@SQLRestriction("deleted_at IS NULL")
+@Table(name = "variants", uniqueConstraints = {
+        @UniqueConstraint(name = Variant.SKU_CONSTRAINT, columnNames = "sku"),
+        @UniqueConstraint(name = Variant.ATTRIBUTES_CONSTRAINT, columnNames = {"item_id", "size", "color", "material"})
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,16 +25,21 @@ import java.time.LocalDateTime;
 @Builder
 @ToString(exclude = "item")
 public class Variant {
+    // Nama harus sama dengan constraint di migration, dipakai untuk menerjemahkan pelanggaran constraint
+    public static final String SKU_CONSTRAINT = "sku";
+    public static final String ATTRIBUTES_CONSTRAINT = "unique_variant_attributes";
+    public static final String ITEM_FOREIGN_KEY = "variants_ibfk_1";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "item_id", nullable = false)
+    @JoinColumn(name = "item_id", nullable = false, foreignKey = @ForeignKey(name = ITEM_FOREIGN_KEY))
     private Item item;
 
     @NotBlank(message = "SKU is required")
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String sku;
 
     private String size;
@@ -61,6 +71,10 @@ public class Variant {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Diisi saat purge dimulai; baris yang sudah ditandai tidak terlihat lagi lewat JPA
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     // Business methods
     public boolean isInStock() {
         return stockQuantity > 0;
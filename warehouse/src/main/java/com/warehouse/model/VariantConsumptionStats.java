@@ -0,0 +1,40 @@
+package com.warehouse.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "variant_consumption_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VariantConsumptionStats {
+    @Id
+    @Column(name = "variant_id")
+    private Long variantId;
+
+    @Column(name = "ewma_daily_out", nullable = false)
+    private double ewmaDailyOut;
+
+    @Column(name = "ewm_variance", nullable = false)
+    private double ewmVariance;
+
+    @Column(name = "observed_days", nullable = false)
+    private int observedDays;
+
+    @Column(name = "current_day", nullable = false)
+    private LocalDate currentDay;
+
+    @Column(name = "current_day_out", nullable = false)
+    private int currentDayOut;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,41 @@
+package com.warehouse.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "variant_price_history", indexes = {
+        @Index(name = "idx_variant_price_history_variant_changed", columnList = "variant_id, changed_at"),
+        @Index(name = "idx_variant_price_history_batch", columnList = "batch_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VariantPriceHistory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "variant_id", nullable = false)
+    private Long variantId;
+
+    @Column(name = "old_price", nullable = false, precision = 10, scale = 2)
+    private BigDecimal oldPrice;
+
+    @Column(name = "new_price", nullable = false, precision = 10, scale = 2)
+    private BigDecimal newPrice;
+
+    private String reason;
+
+    // Id job repricing massal; null untuk edit satu variant
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,392 @@
+package com.warehouse.profiling;
+
+import com.warehouse.cache.HotInventoryState;
+import com.warehouse.cache.HotVariant;
+import com.warehouse.dto.ContentionReportDTO;
+import com.warehouse.dto.LatencyPercentilesDTO;
+import com.warehouse.dto.VariantContentionDTO;
+import com.warehouse.exception.InsufficientStockException;
+import com.warehouse.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Streaming profile of which variants are read and written most, and which ones spend the most
+ * time in stock writes (lock waits, queueing in the bulkhead). Every operation goes into
+ * count-min sketches; each sketch slice also keeps a small top-K table with latency histograms
+ * for its heaviest variants. The window is a ring of slices, so memory is fixed by configuration
+ * and does not grow with the catalog. Each slice is split into stripes by variant id, each with its
+ * own lock, sketches and tables, so concurrent requests for different variants rarely wait on each other.
+ */
+@Component
+public class ContentionProfiler {
+
+    public enum Operation { LOOKUP, MUTATION }
+
+    private enum Outcome { SUCCESS, INSUFFICIENT_STOCK, REJECTED, FAILED }
+
+    private final HotInventoryState hotInventoryState;
+    // [slice waktu][stripe]; satu variant selalu jatuh ke stripe yang sama
+    private final Slice[][] slices;
+    private final long sliceNanos;
+    private final int topK;
+    private final long origin = System.nanoTime();
+
+    public ContentionProfiler(HotInventoryState hotInventoryState,
+                              @Value("${warehouse.profiler.window:PT5M}") Duration window,
+                              @Value("${warehouse.profiler.slices:5}") int sliceCount,
+                              @Value("${warehouse.profiler.top-k:50}") int topK,
+                              @Value("${warehouse.profiler.sketch-width:2048}") int sketchWidth,
+                              @Value("${warehouse.profiler.stripes:4}") int stripes) {
+        this.hotInventoryState = hotInventoryState;
+        this.sliceNanos = window.toNanos() / sliceCount;
+        this.topK = topK;
+        // Lebar sketch dan kapasitas top-K per stripe diberi dua kali bagian ratanya: variant terberat tidak
+        // tersebar rata, dan variant dingin yang bertabrakan dengan beberapa variant panas di stripe yang sama
+        // di semua baris sketch akan ikut terlihat panas
+        int stripeWidth = Math.max(16, sketchWidth * 2 / stripes);
+        int stripeCapacity = Math.max(4, (topK * 4 + stripes - 1) / stripes);
+        this.slices = new Slice[sliceCount][stripes];
+        for (int i = 0; i < sliceCount; i++) {
+            for (int j = 0; j < stripes; j++) {
+                slices[i][j] = new Slice(stripeWidth, stripeCapacity);
+            }
+        }
+    }
+
+    public <T> T profile(Operation operation, Long variantId, Supplier<T> call) {
+        if (variantId == null) {
+            return call.get();
+        }
+        return profile(operation, call, result -> variantId, variantId);
+    }
+
+    /**
+     * Profiles a call whose variant is only known from its result, such as a lookup by SKU. Calls that
+     * fail, or whose result names no variant, are not recorded.
+     */
+    public <T> T profile(Operation operation, Supplier<T> call, Function<T, Long> variantIdOf) {
+        return profile(operation, call, variantIdOf, null);
+    }
+
+    private <T> T profile(Operation operation, Supplier<T> call, Function<T, Long> variantIdOf, Long knownId) {
+        long start = System.nanoTime();
+        Long variantId = knownId;
+        Outcome outcome = Outcome.FAILED;
+        try {
+            T result = call.get();
+            outcome = Outcome.SUCCESS;
+            variantId = variantIdOf.apply(result);
+            return result;
+        } catch (InsufficientStockException e) {
+            outcome = Outcome.INSUFFICIENT_STOCK;
+            throw e;
+        } catch (TooManyRequestsException e) {
+            outcome = Outcome.REJECTED;
+            throw e;
+        } finally {
+            if (variantId != null) {
+                long end = System.nanoTime();
+                record(operation, variantId, (end - origin) / sliceNanos, (end - start) / 1_000, outcome);
+            }
+        }
+    }
+
+    private void record(Operation operation, long variantId, long epoch, long micros, Outcome outcome) {
+        Slice slice = slices[(int) (epoch % slices.length)][stripe(variantId)];
+        synchronized (slice) {
+            // Pemanggil yang tertunda tidak memutar slice kembali ke epoch lama dan menghapus data yang lebih baru
+            if (slice.rollTo(epoch)) {
+                slice.record(operation, variantId, micros, outcome);
+            }
+        }
+    }
+
+    private int stripe(long variantId) {
+        long h = variantId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) slices[0].length);
+    }
+
+    public ContentionReportDTO report(int limit) {
+        long currentEpoch = (System.nanoTime() - origin) / sliceNanos;
+        int stripes = slices[0].length;
+        List<List<Candidate>> byStripe = new ArrayList<>(stripes);
+        for (int j = 0; j < stripes; j++) {
+            byStripe.add(new ArrayList<>());
+        }
+        Map<Long, Candidate> candidates = new HashMap<>();
+        for (Slice[] stripesOfSlice : slices) {
+            for (Slice slice : stripesOfSlice) {
+                synchronized (slice) {
+                    if (currentEpoch - slice.epoch < slices.length) {
+                        slice.candidates().forEach(id -> candidates.computeIfAbsent(id, key -> {
+                            Candidate candidate = new Candidate(key);
+                            byStripe.get(stripe(key)).add(candidate);
+                            return candidate;
+                        }));
+                    }
+                }
+            }
+        }
+
+        // Angka dari sketch dijumlahkan per slice, hanya dari stripe milik variant itu;
+        // histogram hanya ada selama variant masuk top-K slice itu
+        long operations = 0;
+        long mutations = 0;
+        for (Slice[] stripesOfSlice : slices) {
+            for (int j = 0; j < stripes; j++) {
+                Slice slice = stripesOfSlice[j];
+                synchronized (slice) {
+                    if (currentEpoch - slice.epoch >= slices.length) {
+                        continue;
+                    }
+                    operations += slice.operations;
+                    mutations += slice.mutations;
+                    addEstimates(slice, byStripe.get(j));
+                }
+            }
+        }
+
+        return ContentionReportDTO.builder()
+                .windowSeconds(sliceNanos * slices.length / 1_000_000_000L)
+                .operations(operations)
+                .mutations(mutations)
+                .hottest(top(candidates, limit, c -> c.operations))
+                .mostContended(top(candidates, limit, c -> c.mutationMicros))
+                .build();
+    }
+
+    private static void addEstimates(Slice slice, List<Candidate> candidates) {
+        for (Candidate candidate : candidates) {
+            long id = candidate.variantId;
+            candidate.operations += slice.operationCounts.estimate(id);
+            candidate.mutations += slice.mutationCounts.estimate(id);
+            candidate.mutationMicros += slice.mutationMicros.estimate(id);
+            candidate.insufficient += slice.insufficientCounts.estimate(id);
+            candidate.rejected += slice.rejectedCounts.estimate(id);
+            Entry entry = slice.entry(id);
+            if (entry != null) {
+                entry.mutationLatency.addTo(candidate.mutationLatency);
+                entry.lookupLatency.addTo(candidate.lookupLatency);
+            }
+        }
+    }
+
+    private List<VariantContentionDTO> top(Map<Long, Candidate> candidates, int limit, ToLongFunction<Candidate> weight) {
+        return candidates.values().stream()
+                .filter(c -> weight.applyAsLong(c) > 0)
+                .sorted(Comparator.comparingLong(weight).reversed())
+                .limit(Math.min(limit, topK))
+                .map(this::toDTO)
+                .toList();
+    }
+
+    private VariantContentionDTO toDTO(Candidate c) {
+        HotVariant variant = hotInventoryState.find(c.variantId);
+        long mutations = Math.max(1, c.mutations);
+        return VariantContentionDTO.builder()
+                .variantId(c.variantId)
+                .sku(variant != null ? variant.sku() : null)
+                .operations(c.operations)
+                .mutations(c.mutations)
+                .totalMutationMillis(c.mutationMicros / 1_000)
+                .mutationLatency(percentiles(c.mutationLatency))
+                .lookupLatency(percentiles(c.lookupLatency))
+                .insufficientStockRate(Math.min(1.0, (double) c.insufficient / mutations))
+                .rejectedRate(Math.min(1.0, (double) c.rejected / mutations))
+                .build();
+    }
+
+    private static LatencyPercentilesDTO percentiles(LatencyHistogram histogram) {
+        return LatencyPercentilesDTO.builder()
+                .samples(histogram.total())
+                .p50Millis(histogram.percentile(0.50) / 1_000.0)
+                .p95Millis(histogram.percentile(0.95) / 1_000.0)
+                .p99Millis(histogram.percentile(0.99) / 1_000.0)
+                .build();
+    }
+
+    private static final class Slice {
+        private final CountMinSketch operationCounts;
+        private final CountMinSketch mutationCounts;
+        private final CountMinSketch mutationMicros;
+        private final CountMinSketch insufficientCounts;
+        private final CountMinSketch rejectedCounts;
+        private final TopTable hottest;
+        private final TopTable contended;
+        // Cukup jauh di masa lalu supaya slice yang belum terpakai tidak dianggap masih di dalam window
+        private long epoch = Long.MIN_VALUE / 2;
+        private long operations;
+        private long mutations;
+
+        Slice(int sketchWidth, int capacity) {
+            this.operationCounts = new CountMinSketch(sketchWidth);
+            this.mutationCounts = new CountMinSketch(sketchWidth);
+            this.mutationMicros = new CountMinSketch(sketchWidth);
+            this.insufficientCounts = new CountMinSketch(sketchWidth);
+            this.rejectedCounts = new CountMinSketch(sketchWidth);
+            this.hottest = new TopTable(capacity);
+            this.contended = new TopTable(capacity);
+        }
+
+        // false: slice sudah di epoch yang lebih baru, sampel lama dibuang
+        boolean rollTo(long newEpoch) {
+            if (newEpoch <= epoch) {
+                return newEpoch == epoch;
+            }
+            epoch = newEpoch;
+            operations = 0;
+            mutations = 0;
+            operationCounts.clear();
+            mutationCounts.clear();
+            mutationMicros.clear();
+            insufficientCounts.clear();
+            rejectedCounts.clear();
+            hottest.clear();
+            contended.clear();
+            return true;
+        }
+
+        void record(Operation operation, long variantId, long micros, Outcome outcome) {
+            operations++;
+            hottest.offer(variantId, operationCounts.add(variantId, 1), operation, micros);
+            if (operation == Operation.MUTATION) {
+                mutations++;
+                mutationCounts.add(variantId, 1);
+                if (outcome == Outcome.INSUFFICIENT_STOCK) {
+                    insufficientCounts.add(variantId, 1);
+                } else if (outcome == Outcome.REJECTED) {
+                    rejectedCounts.add(variantId, 1);
+                }
+                // Bobot contention = total waktu yang dihabiskan write pada variant ini
+                contended.offer(variantId, mutationMicros.add(variantId, Math.max(1, micros)), operation, micros);
+            }
+        }
+
+        // Histogram dari tabel yang sudah lebih lama memantau variant ini
+        Entry entry(long variantId) {
+            Entry hot = hottest.entries.get(variantId);
+            Entry busy = contended.entries.get(variantId);
+            if (hot == null || busy == null) {
+                return hot != null ? hot : busy;
+            }
+            return hot.samples() >= busy.samples() ? hot : busy;
+        }
+
+        Set<Long> candidates() {
+            Set<Long> ids = new HashSet<>(hottest.entries.keySet());
+            ids.addAll(contended.entries.keySet());
+            return ids;
+        }
+    }
+
+    /**
+     * Top-K table in the style of Space-Saving: a newcomer replaces the lightest entry once its
+     * sketch estimate is heavier. Entries are preallocated and reused.
+     */
+    private static final class TopTable {
+        private final int capacity;
+        private final Map<Long, Entry> entries;
+        private final List<Entry> free = new ArrayList<>();
+        private long minWeight;
+
+        TopTable(int capacity) {
+            this.capacity = capacity;
+            this.entries = new HashMap<>(capacity * 2);
+            for (int i = 0; i < capacity; i++) {
+                free.add(new Entry());
+            }
+        }
+
+        void offer(long variantId, long weight, Operation operation, long micros) {
+            Entry entry = entries.get(variantId);
+            if (entry == null) {
+                entry = admit(variantId, weight);
+                if (entry == null) {
+                    return;
+                }
+            }
+            entry.weight = weight;
+            (operation == Operation.MUTATION ? entry.mutationLatency : entry.lookupLatency).record(micros);
+        }
+
+        private Entry admit(long variantId, long weight) {
+            if (entries.size() >= capacity) {
+                // Bobot entry hanya naik, jadi minWeight yang tersimpan selalu batas bawah yang aman
+                if (weight <= minWeight) {
+                    return null;
+                }
+                Entry lightest = null;
+                for (Entry candidate : entries.values()) {
+                    if (lightest == null || candidate.weight < lightest.weight) {
+                        lightest = candidate;
+                    }
+                }
+                minWeight = lightest.weight;
+                if (lightest.weight >= weight) {
+                    return null;
+                }
+                entries.remove(lightest.variantId);
+                lightest.clear();
+                free.add(lightest);
+            }
+            Entry entry = free.remove(free.size() - 1);
+            entry.variantId = variantId;
+            entries.put(variantId, entry);
+            return entry;
+        }
+
+        void clear() {
+            entries.values().forEach(entry -> {
+                entry.clear();
+                free.add(entry);
+            });
+            entries.clear();
+            minWeight = 0;
+        }
+    }
+
+    private static final class Entry {
+        private final LatencyHistogram mutationLatency = new LatencyHistogram();
+        private final LatencyHistogram lookupLatency = new LatencyHistogram();
+        private long variantId;
+        private long weight;
+
+        long samples() {
+            return mutationLatency.total() + lookupLatency.total();
+        }
+
+        void clear() {
+            mutationLatency.clear();
+            lookupLatency.clear();
+            weight = 0;
+        }
+    }
+
+    private static final class Candidate {
+        private final long variantId;
+        private final LatencyHistogram mutationLatency = new LatencyHistogram();
+        private final LatencyHistogram lookupLatency = new LatencyHistogram();
+        private long operations;
+        private long mutations;
+        private long mutationMicros;
+        private long insufficient;
+        private long rejected;
+
+        Candidate(long variantId) {
+            this.variantId = variantId;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.warehouse.profiling;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch over long keys. Estimates never undercount; they overcount by at most
+ * about total / width with high probability. Not thread-safe, callers lock.
+ */
+final class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final long[][] rows;
+    private final int mask;
+
+    CountMinSketch(int width) {
+        int size = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+        this.rows = new long[SEEDS.length][size];
+        this.mask = size - 1;
+    }
+
+    long add(long key, long amount) {
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++) {
+            int index = index(key, i);
+            rows[i][index] += amount;
+            estimate = Math.min(estimate, rows[i][index]);
+        }
+        return estimate;
+    }
+
+    long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++) {
+            estimate = Math.min(estimate, rows[i][index(key, i)]);
+        }
+        return estimate;
+    }
+
+    void clear() {
+        for (long[] row : rows) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    private int index(long key, int row) {
+        long h = (key + SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,78 @@
+package com.warehouse.profiling;
+
+import java.util.Arrays;
+
+/**
+ * Log-scaled latency histogram in microseconds: four sub-buckets per power of two, so a
+ * percentile is reported within about 19% of the true value. Covers 1 µs to roughly 70 s.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 26;
+    static final int SIZE = (MAX_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final int[] counts = new int[SIZE];
+    private long total;
+
+    void record(long micros) {
+        counts[indexOf(micros)]++;
+        total++;
+    }
+
+    void addTo(LatencyHistogram target) {
+        for (int i = 0; i < SIZE; i++) {
+            target.counts[i] += counts[i];
+        }
+        target.total += total;
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    long total() {
+        return total;
+    }
+
+    /**
+     * @return upper bound of the bucket holding the given percentile, in microseconds
+     */
+    long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < SIZE; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(SIZE - 1);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return SIZE - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
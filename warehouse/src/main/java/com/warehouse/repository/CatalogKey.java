@@ -0,0 +1,6 @@
+package com.warehouse.repository;
+
+public interface CatalogKey {
+    Long getId();
+    String getText();
+}
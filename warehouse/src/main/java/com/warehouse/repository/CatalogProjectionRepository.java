@@ -0,0 +1,133 @@
+package com.warehouse.repository;
+
+import com.warehouse.dto.FieldSelection;
+import com.warehouse.model.Item;
+import com.warehouse.model.Variant;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tuple queries for sparse fieldsets: only the requested columns are selected, and variants are
+ * read with one extra query only when asked for. Nothing is loaded as an entity, so the eager
+ * Item.variants association is never touched. Rows come back as ordered maps keyed by JSON name.
+ */
+@Repository
+public class CatalogProjectionRepository {
+
+    // Alias internal, tidak ikut ke response
+    private static final String KEY = "_key";
+    private static final String ITEM_KEY = "_item";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<Map<String, Object>> findItems(@Nullable Specification<Item> filter, FieldSelection selection) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Item> item = query.from(Item.class);
+
+        // Path yang sama tidak boleh di-select dua kali, jadi id hanya ditambahkan kalau tidak diminta
+        String key = selection.getFields().contains("id") ? "id" : KEY;
+        List<Selection<?>> columns = new ArrayList<>();
+        selection.getFields().forEach(field -> columns.add(item.get(field).alias(field)));
+        if (key.equals(KEY)) {
+            columns.add(item.get("id").alias(KEY));
+        }
+        query.multiselect(columns).orderBy(cb.asc(item.get("id")));
+        where(query, filter == null ? null : filter.toPredicate(item, query, cb));
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        Map<Long, List<Map<String, Object>>> variantsByItem = new HashMap<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            Map<String, Object> values = toMap(row, selection.getFields());
+            if (selection.includesVariants()) {
+                List<Map<String, Object>> variants = new ArrayList<>();
+                values.put("variants", variants);
+                variantsByItem.put(row.get(key, Long.class), variants);
+            }
+            items.add(values);
+        }
+
+        if (selection.includesVariants() && !items.isEmpty()) {
+            // Satu query untuk semua variant, difilter dengan subquery yang sama dengan query item
+            CriteriaQuery<Tuple> variantQuery = cb.createTupleQuery();
+            Root<Variant> variant = variantQuery.from(Variant.class);
+            Subquery<Long> itemIds = variantQuery.subquery(Long.class);
+            Root<Item> filtered = itemIds.from(Item.class);
+            itemIds.select(filtered.get("id"));
+            Predicate itemFilter = filter == null ? null : filter.toPredicate(filtered, variantQuery, cb);
+            if (itemFilter != null) {
+                itemIds.where(itemFilter);
+            }
+
+            List<String> variantFields = selection.getVariantFields();
+            String itemKey = variantFields.contains("itemId") ? "itemId" : ITEM_KEY;
+            List<Selection<?>> variantColumns = variantColumns(variant, variantFields);
+            if (itemKey.equals(ITEM_KEY)) {
+                variantColumns.add(variant.get("item").get("id").alias(ITEM_KEY));
+            }
+            variantQuery.multiselect(variantColumns)
+                    .where(variant.get("item").get("id").in(itemIds))
+                    .orderBy(cb.asc(variant.get("item").get("id")), cb.asc(variant.get("id")));
+            for (Tuple row : entityManager.createQuery(variantQuery).getResultList()) {
+                List<Map<String, Object>> variants = variantsByItem.get(row.get(itemKey, Long.class));
+                if (variants != null) {
+                    variants.add(toMap(row, variantFields));
+                }
+            }
+        }
+        return items;
+    }
+
+    public List<Map<String, Object>> findVariants(Specification<Variant> filter, List<String> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Variant> variant = query.from(Variant.class);
+        query.multiselect(variantColumns(variant, fields)).orderBy(cb.asc(variant.get("id")));
+        where(query, filter.toPredicate(variant, query, cb));
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(row -> toMap(row, fields))
+                .toList();
+    }
+
+    private static List<Selection<?>> variantColumns(Root<Variant> variant, List<String> fields) {
+        List<Selection<?>> columns = new ArrayList<>();
+        for (String field : fields) {
+            // itemId dibaca dari kolom FK, tanpa join ke items
+            Path<?> path = "itemId".equals(field) ? variant.get("item").get("id") : variant.get(field);
+            columns.add(path.alias(field));
+        }
+        return columns;
+    }
+
+    private static void where(CriteriaQuery<?> query, @Nullable Predicate predicate) {
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    private static Map<String, Object> toMap(Tuple row, List<String> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, row.get(field));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,9 @@
+package com.warehouse.repository;
+
+import java.time.LocalDateTime;
+
+public interface ChangeStamp {
+    Long getRowCount();
+    Long getIdSum();
+    LocalDateTime getLastModified();
+}
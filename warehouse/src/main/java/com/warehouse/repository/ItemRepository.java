@@ -1,22 +1,85 @@
 package com.warehouse.repository;
 
 import com.warehouse.model.Item;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
     Optional<Item> findByName(String name);
-    boolean existsByName(String name);
 
     @Query("SELECT i FROM Item i WHERE LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))")
     List<Item> findByNameContainingIgnoreCase(String name);
 
     @Query("SELECT i FROM Item i LEFT JOIN FETCH i.variants WHERE i.id = :id")
     Optional<Item> findByIdWithVariants(@Param("id") Long id);
+
+    // Satu baris per pasangan item-variant, sehingga perubahan di variant ikut mengubah stamp item
+    @Query("SELECT COUNT(i.id) AS rowCount, COALESCE(SUM(i.id + COALESCE(v.id, 0)), 0) AS idSum, " +
+            "MAX(CASE WHEN v.updatedAt > i.updatedAt THEN v.updatedAt ELSE i.updatedAt END) AS lastModified " +
+            "FROM Item i LEFT JOIN i.variants v WHERE i.id = :id")
+    ChangeStamp getChangeStamp(@Param("id") Long id);
+
+    @Query("SELECT COUNT(i.id) AS rowCount, COALESCE(SUM(i.id + COALESCE(v.id, 0)), 0) AS idSum, " +
+            "MAX(CASE WHEN v.updatedAt > i.updatedAt THEN v.updatedAt ELSE i.updatedAt END) AS lastModified " +
+            "FROM Item i LEFT JOIN i.variants v")
+    ChangeStamp getChangeStampOfAll();
+
+    @Query("SELECT COUNT(i.id) AS rowCount, COALESCE(SUM(i.id + COALESCE(v.id, 0)), 0) AS idSum, " +
+            "MAX(CASE WHEN v.updatedAt > i.updatedAt THEN v.updatedAt ELSE i.updatedAt END) AS lastModified " +
+            "FROM Item i LEFT JOIN i.variants v WHERE LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    ChangeStamp getChangeStampByNameContaining(@Param("name") String name);
+
+    @Query("SELECT DISTINCT i FROM Item i LEFT JOIN FETCH i.variants v ORDER BY i.id, v.id")
+    List<Item> findAllWithVariants();
+
+    @Query("SELECT DISTINCT i FROM Item i LEFT JOIN FETCH i.variants v WHERE i.id IN :ids ORDER BY i.id, v.id")
+    List<Item> findAllByIdWithVariants(@Param("ids") Collection<Long> ids);
+
+    // Termasuk item yang di-soft-delete: namanya tetap memegang unique key sampai purge selesai
+    @Query(value = "SELECT id AS id, name AS text FROM items WHERE id > :afterId ORDER BY id", nativeQuery = true)
+    List<CatalogKey> findNamesIncludingDeletedAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT i.id AS id, i.name AS text FROM Item i WHERE i.updatedAt >= :since")
+    List<CatalogKey> findNamesUpdatedSince(@Param("since") LocalDateTime since);
+
+    // Native supaya soft delete ikut terbaca; item juga dianggap berubah kalau salah satu variant-nya berubah
+    @Query(value = "SELECT id FROM items WHERE updated_at >= :since OR deleted_at >= :since " +
+            "UNION SELECT item_id FROM variants WHERE updated_at >= :since OR deleted_at >= :since", nativeQuery = true)
+    List<Long> findIdsChangedSince(@Param("since") LocalDateTime since);
+
+    // Variant baru ke item ini (cek FK mengambil shared lock pada baris item) menunggu sampai kunci dilepas
+    @Query(value = "SELECT id FROM items WHERE id = :id AND deleted_at IS NULL FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    // Query native di bawah ini sengaja melewati @SQLRestriction supaya bisa melihat item yang sedang di-purge
+    @Modifying
+    @Query(value = "UPDATE items SET deleted_at = :deletedAt WHERE id = :id AND deleted_at IS NULL", nativeQuery = true)
+    int softDelete(@Param("id") Long id, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Query(value = "SELECT id FROM items WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    Optional<Long> findSoftDeletedId(@Param("id") Long id);
+
+    @Query(value = "SELECT id FROM items WHERE deleted_at IS NOT NULL ORDER BY deleted_at", nativeQuery = true)
+    List<Long> findSoftDeletedIds();
+
+    // Item yang sedang di-purge tetap memegang unique key name
+    @Query(value = "SELECT id FROM items WHERE name = :name LIMIT 1", nativeQuery = true)
+    Optional<Long> findIdByNameIncludingDeleted(@Param("name") String name);
+
+    @Query(value = "SELECT name FROM items WHERE id = :id", nativeQuery = true)
+    Optional<String> findNameIncludingDeleted(@Param("id") Long id);
+
+    @Modifying
+    @Query(value = "DELETE FROM items WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    int deleteSoftDeleted(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.warehouse.repository;
+
+public interface LedgerBalance {
+    Long getVariantId();
+    Integer getStockQuantity();
+    Long getLedgerBalance();
+}
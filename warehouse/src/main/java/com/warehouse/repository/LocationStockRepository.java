@@ -0,0 +1,131 @@
+package com.warehouse.repository;
+
+import com.warehouse.dto.LocationStockDTO;
+import com.warehouse.dto.StockMovementEntryDTO;
+import com.warehouse.model.StockMovement;
+import com.warehouse.sharding.LocationShard;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plain JDBC access to the location_stock tables of one shard. Every method takes the shard it
+ * runs on; callers that write several statements wrap them in that shard's transaction.
+ */
+@Repository
+public class LocationStockRepository {
+
+    private static final RowMapper<LocationStockDTO> STOCK = (rs, rowNum) -> LocationStockDTO.builder()
+            .location(rs.getString("location_code"))
+            .variantId(rs.getLong("variant_id"))
+            .quantity(rs.getInt("quantity"))
+            .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+            .build();
+
+    private static final RowMapper<StockMovementEntryDTO> MOVEMENT = (rs, rowNum) -> StockMovementEntryDTO.builder()
+            .id(rs.getLong("id"))
+            .movementType(StockMovement.MovementType.valueOf(rs.getString("movement_type")))
+            .quantity(rs.getInt("quantity"))
+            .reason(rs.getString("reason"))
+            .reference(rs.getString("reference"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .location(rs.getString("location_code"))
+            .build();
+
+    // Tambah (atau kurangi tanpa syarat); baris saldo dibuat kalau belum ada
+    public void increment(LocationShard shard, String location, Long variantId, int delta, LocalDateTime now) {
+        if (update(shard, location, variantId, delta, now) > 0) {
+            return;
+        }
+        try {
+            shard.jdbcTemplate().update(
+                    "INSERT INTO location_stock (location_code, variant_id, quantity, updated_at) VALUES (?, ?, ?, ?)",
+                    location, variantId, delta, now);
+        } catch (DuplicateKeyException e) {
+            // Writer lain membuat baris yang sama lebih dulu; sekarang UPDATE pasti kena
+            update(shard, location, variantId, delta, now);
+        }
+    }
+
+    // Satu statement bersyarat: tidak ada baca-lalu-tulis, saldo tidak pernah negatif
+    public boolean decrementIfAvailable(LocationShard shard, String location, Long variantId, int quantity, LocalDateTime now) {
+        return shard.jdbcTemplate().update("UPDATE location_stock SET quantity = quantity - ?, updated_at = ? "
+                + "WHERE location_code = ? AND variant_id = ? AND quantity >= ?",
+                quantity, now, location, variantId, quantity) > 0;
+    }
+
+    public LocationStockDTO find(LocationShard shard, String location, Long variantId) {
+        List<LocationStockDTO> rows = shard.jdbcTemplate().query("SELECT location_code, variant_id, quantity, updated_at "
+                + "FROM location_stock WHERE location_code = ? AND variant_id = ?", STOCK, location, variantId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public List<LocationStockDTO> findByLocation(LocationShard shard, String location, long afterVariantId, int limit) {
+        return shard.jdbcTemplate().query("SELECT location_code, variant_id, quantity, updated_at FROM location_stock "
+                + "WHERE location_code = ? AND variant_id > ? ORDER BY variant_id LIMIT ?",
+                STOCK, location, afterVariantId, limit);
+    }
+
+    // Batas waktu di sisi driver: membatalkan Future tidak menghentikan query JDBC yang sedang jalan
+    public List<LocationStockDTO> findByVariantIds(LocationShard shard, Collection<Long> variantIds, int timeoutSeconds) {
+        String sql = "SELECT location_code, variant_id, quantity, updated_at FROM location_stock "
+                + "WHERE variant_id IN (" + String.join(", ", Collections.nCopies(variantIds.size(), "?")) + ")";
+        return shard.jdbcTemplate().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setQueryTimeout(timeoutSeconds);
+            int index = 1;
+            for (Long variantId : variantIds) {
+                statement.setLong(index++, variantId);
+            }
+            return statement;
+        }, STOCK);
+    }
+
+    public StockMovementEntryDTO insertMovement(LocationShard shard, String location, Long variantId,
+                                                StockMovement.MovementType type, int quantity,
+                                                String reason, String reference, LocalDateTime now) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        shard.jdbcTemplate().update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("INSERT INTO location_stock_movements "
+                    + "(location_code, variant_id, movement_type, quantity, reason, reference, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)", new String[]{"id"});
+            statement.setString(1, location);
+            statement.setLong(2, variantId);
+            statement.setString(3, type.name());
+            statement.setInt(4, quantity);
+            statement.setString(5, reason);
+            statement.setString(6, reference);
+            statement.setTimestamp(7, Timestamp.valueOf(now));
+            return statement;
+        }, keys);
+        return StockMovementEntryDTO.builder()
+                .id(keys.getKey().longValue())
+                .movementType(type)
+                .quantity(quantity)
+                .reason(reason)
+                .reference(reference)
+                .createdAt(now)
+                .location(location)
+                .build();
+    }
+
+    public List<StockMovementEntryDTO> findMovements(LocationShard shard, String location, Long variantId, int limit) {
+        return shard.jdbcTemplate().query("SELECT id, location_code, movement_type, quantity, reason, reference, created_at "
+                + "FROM location_stock_movements WHERE location_code = ? AND variant_id = ? "
+                + "ORDER BY created_at DESC, id DESC LIMIT ?", MOVEMENT, location, variantId, limit);
+    }
+
+    private int update(LocationShard shard, String location, Long variantId, int delta, LocalDateTime now) {
+        return shard.jdbcTemplate().update("UPDATE location_stock SET quantity = quantity + ?, updated_at = ? "
+                + "WHERE location_code = ? AND variant_id = ?", delta, now, location, variantId);
+    }
+}
@@ -0,0 +1,10 @@
+package com.warehouse.repository;
+
+import java.time.LocalDateTime;
+
+// Satu partisi stock_movements; batas atas null untuk partisi MAXVALUE (p_future)
+public record MovementPartition(String name,
+                                Long upperBoundEpoch,
+                                LocalDateTime upperBound,
+                                long estimatedRows) {
+}
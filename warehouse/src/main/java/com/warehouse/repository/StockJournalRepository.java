@@ -0,0 +1,128 @@
+package com.warehouse.repository;
+
+import com.warehouse.journal.JournalEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Plain JDBC writes for the movement journal projector: applies a batch of journal entries to variants
+ * and stock_movements and advances the checkpoint. Callers run {@link #project} in one transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockJournalRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long findOrCreateCheckpoint(String journalId) {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "SELECT projected_sequence FROM stock_journal_checkpoints WHERE journal_id = ?", Long.class, journalId);
+        if (!rows.isEmpty()) {
+            return rows.get(0);
+        }
+        jdbcTemplate.update("INSERT INTO stock_journal_checkpoints (journal_id, projected_sequence, updated_at) "
+                + "VALUES (?, 0, ?)", journalId, LocalDateTime.now());
+        return 0;
+    }
+
+    /**
+     * Takes or renews the writer lease of the journal for {@code owner}. Fails while any journal's lease is
+     * held by another owner and has not expired, so only one instance writes through a journal at a time
+     * even when instances have their own journal directories. Run in a transaction: the locking read of
+     * every checkpoint row makes two instances taking a lease at the same moment wait for each other.
+     */
+    public boolean acquireLease(String journalId, String owner, LocalDateTime now, LocalDateTime expiresAt) {
+        boolean heldElsewhere = jdbcTemplate.query("SELECT journal_id, lease_owner, lease_expires_at "
+                        + "FROM stock_journal_checkpoints ORDER BY journal_id FOR UPDATE",
+                (rs, rowNum) -> rs.getString("lease_owner") != null && !owner.equals(rs.getString("lease_owner"))
+                        && rs.getTimestamp("lease_expires_at") != null
+                        && rs.getTimestamp("lease_expires_at").toLocalDateTime().isAfter(now))
+                .contains(true);
+        if (heldElsewhere) {
+            return false;
+        }
+        return jdbcTemplate.update("UPDATE stock_journal_checkpoints SET lease_owner = ?, lease_expires_at = ? "
+                + "WHERE journal_id = ?", owner, expiresAt, journalId) == 1;
+    }
+
+    public void releaseLease(String journalId, String owner) {
+        jdbcTemplate.update("UPDATE stock_journal_checkpoints SET lease_owner = NULL, lease_expires_at = NULL "
+                + "WHERE journal_id = ? AND lease_owner = ?", journalId, owner);
+    }
+
+    /**
+     * Applies the entries (consecutive sequences, oldest first) and moves the checkpoint to the last one.
+     * Entries of variants that no longer exist are skipped. Returns variant id -> item id of the
+     * variants that were updated.
+     *
+     * @throws IllegalStateException when the checkpoint is already at or past the batch, i.e. another
+     *                               process projected it; the caller's transaction must roll back
+     */
+    public Map<Long, Long> project(String journalId, List<JournalEntry> entries, LocalDateTime now) {
+        long firstSequence = entries.get(0).sequence();
+        long lastSequence = entries.get(entries.size() - 1).sequence();
+        // Checkpoint lebih dulu: baris ini sekaligus kunci, projector kedua pada journal yang sama menunggu di sini
+        int advanced = jdbcTemplate.update("UPDATE stock_journal_checkpoints SET projected_sequence = ?, updated_at = ? "
+                + "WHERE journal_id = ? AND projected_sequence = ?", lastSequence, now, journalId, firstSequence - 1);
+        if (advanced == 0) {
+            throw new IllegalStateException("Checkpoint of journal " + journalId + " is not at sequence "
+                    + (firstSequence - 1) + "; batch " + firstSequence + ".." + lastSequence + " was not applied");
+        }
+
+        Map<Long, Long> itemIds = findItemIds(entries);
+        // Urut id: kunci baris variant selalu diambil dalam urutan yang sama dengan writer lain
+        TreeMap<Long, Integer> deltas = new TreeMap<>();
+        List<JournalEntry> applied = new ArrayList<>(entries.size());
+        for (JournalEntry entry : entries) {
+            if (itemIds.containsKey(entry.variantId())) {
+                deltas.merge(entry.variantId(), entry.delta(), Integer::sum);
+                applied.add(entry);
+            }
+        }
+        // UPDATE variant dulu baru INSERT movement: kunci FK dari insert tidak mendahului kunci baris variant
+        jdbcTemplate.batchUpdate("UPDATE variants SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?",
+                deltas.entrySet().stream().map(delta -> new Object[]{delta.getValue(), now, delta.getKey()}).toList());
+        for (int start = 0; start < applied.size(); start += BATCH_SIZE) {
+            List<JournalEntry> batch = applied.subList(start, Math.min(start + BATCH_SIZE, applied.size()));
+            String sql = "INSERT INTO stock_movements (variant_id, movement_type, quantity, reason, reference, created_at) "
+                    + "VALUES " + String.join(", ", Collections.nCopies(batch.size(), "(?, ?, ?, ?, ?, ?)"));
+            List<Object> args = new ArrayList<>(batch.size() * 6);
+            for (JournalEntry entry : batch) {
+                Collections.addAll(args, entry.variantId(), entry.movementType().name(), entry.quantity(),
+                        entry.reason(), entry.reference(), entry.createdAt());
+            }
+            jdbcTemplate.update(sql, args.toArray());
+        }
+        return itemIds;
+    }
+
+    // Variant yang sudah di-soft-delete tetap diproyeksikan: entry-nya sudah di-ack sebelum variant dihapus.
+    // FOR UPDATE dalam urutan id: variant yang ditemukan tetap ada sampai movement-nya ter-insert, hard delete
+    // yang bersamaan menunggu lalu ikut menghapus movement tersebut
+    private Map<Long, Long> findItemIds(List<JournalEntry> entries) {
+        List<Long> variantIds = new ArrayList<>(new TreeSet<>(entries.stream().map(JournalEntry::variantId).toList()));
+        Map<Long, Long> itemIds = new HashMap<>();
+        for (int start = 0; start < variantIds.size(); start += BATCH_SIZE) {
+            List<Long> batch = variantIds.subList(start, Math.min(start + BATCH_SIZE, variantIds.size()));
+            jdbcTemplate.query("SELECT id, item_id FROM variants WHERE id IN ("
+                            + String.join(", ", Collections.nCopies(batch.size(), "?")) + ") ORDER BY id FOR UPDATE",
+                    rs -> {
+                        itemIds.put(rs.getLong("id"), rs.getLong("item_id"));
+                    },
+                    batch.toArray());
+        }
+        return itemIds;
+    }
+}
@@ -0,0 +1,144 @@
+package com.warehouse.repository;
+
+import com.warehouse.dto.StockLevelBucketDTO;
+import com.warehouse.model.StockLevelResolution;
+import com.warehouse.model.StockMovement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plain JDBC access for stock-level series: a keyset-paged walk over one variant's movements and
+ * the stock_level_rollups table.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockLevelRepository {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private static final RowMapper<StockLevelBucketDTO> ROLLUP = (rs, rowNum) -> StockLevelBucketDTO.builder()
+            .bucketStart(rs.getTimestamp("bucket_start").toLocalDateTime())
+            .openLevel(rs.getInt("open_level"))
+            .minLevel(rs.getInt("min_level"))
+            .maxLevel(rs.getInt("max_level"))
+            .closeLevel(rs.getInt("close_level"))
+            .inQuantity(rs.getInt("in_quantity"))
+            .outQuantity(rs.getInt("out_quantity"))
+            .adjustmentQuantity(rs.getInt("adjustment_quantity"))
+            .netChange(rs.getInt("close_level") - rs.getInt("open_level"))
+            .movementCount(rs.getInt("movement_count"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @FunctionalInterface
+    public interface MovementSink {
+        void accept(StockMovement.MovementType type, int quantity, LocalDateTime createdAt);
+    }
+
+    /**
+     * Feeds the movements of a variant in [from, to) to the sink in (created_at, id) order, one page at a time.
+     * Connector/J buffers a whole result set unless it is told to stream, so pages keep memory bounded
+     * by the page size however many movements the range holds.
+     */
+    public long foldMovements(Long variantId, LocalDateTime from, LocalDateTime to, int pageSize, MovementSink sink) {
+        Timestamp end = Timestamp.valueOf(to);
+        // Kursor dikirim sebagai teks: parameter tanggal kehilangan pecahan detik di sebagian kombinasi
+        // driver/server, dan kursor yang terpotong membaca ulang halaman yang sama tanpa henti
+        String[] lastCreatedAt = {Timestamp.valueOf(from).toString()};
+        long[] lastId = {0};
+        long total = 0;
+        int page;
+        do {
+            int[] rows = {0};
+            // Kursor (created_at, id) sebagai satu range di idx_stock_movements_variant_created;
+            // baris dengan created_at = from tetap ikut karena id > 0
+            jdbcTemplate.query("SELECT id, movement_type, quantity, created_at FROM stock_movements "
+                            + "WHERE variant_id = ? AND created_at < ? "
+                            + "AND created_at >= ? AND (created_at > ? OR id > ?) "
+                            + "ORDER BY created_at, id LIMIT ?",
+                    rs -> {
+                        lastId[0] = rs.getLong("id");
+                        Timestamp createdAt = rs.getTimestamp("created_at");
+                        lastCreatedAt[0] = createdAt.toString();
+                        sink.accept(StockMovement.MovementType.valueOf(rs.getString("movement_type")),
+                                rs.getInt("quantity"), createdAt.toLocalDateTime());
+                        rows[0]++;
+                    },
+                    variantId, end, lastCreatedAt[0], lastCreatedAt[0], lastId[0], pageSize);
+            page = rows[0];
+            total += page;
+        } while (page == pageSize);
+        return total;
+    }
+
+    public List<StockLevelBucketDTO> findRollups(Long variantId, StockLevelResolution resolution,
+                                                 LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query("SELECT * FROM stock_level_rollups WHERE variant_id = ? AND resolution = ? "
+                        + "AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                ROLLUP, variantId, resolution.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    // Bucket terakhir sebelum batas; closeLevel-nya adalah level stok tepat pada batas itu
+    public StockLevelBucketDTO findLastRollupBefore(Long variantId, StockLevelResolution resolution, LocalDateTime before) {
+        List<StockLevelBucketDTO> rows = jdbcTemplate.query("SELECT * FROM stock_level_rollups "
+                        + "WHERE variant_id = ? AND resolution = ? AND bucket_start < ? ORDER BY bucket_start DESC LIMIT 1",
+                ROLLUP, variantId, resolution.name(), Timestamp.valueOf(before));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Replaces every bucket from {@code from} onwards; earlier buckets are left alone. Buckets are upserted
+     * and only the ones that no longer exist are deleted, so two instances folding the same variant never
+     * collide on the primary key: the last write wins.
+     */
+    public void replaceRollups(Long variantId, StockLevelResolution resolution, LocalDateTime from,
+                               List<StockLevelBucketDTO> buckets) {
+        for (int start = 0; start < buckets.size(); start += INSERT_BATCH_SIZE) {
+            List<StockLevelBucketDTO> batch = buckets.subList(start, Math.min(start + INSERT_BATCH_SIZE, buckets.size()));
+            String sql = "INSERT INTO stock_level_rollups (variant_id, resolution, bucket_start, open_level, min_level, "
+                    + "max_level, close_level, in_quantity, out_quantity, adjustment_quantity, movement_count) VALUES "
+                    + String.join(", ", Collections.nCopies(batch.size(), "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"))
+                    + " ON DUPLICATE KEY UPDATE open_level = VALUES(open_level), min_level = VALUES(min_level), "
+                    + "max_level = VALUES(max_level), close_level = VALUES(close_level), in_quantity = VALUES(in_quantity), "
+                    + "out_quantity = VALUES(out_quantity), adjustment_quantity = VALUES(adjustment_quantity), "
+                    + "movement_count = VALUES(movement_count)";
+            List<Object> args = new ArrayList<>(batch.size() * 11);
+            for (StockLevelBucketDTO bucket : batch) {
+                Collections.addAll(args, variantId, resolution.name(), Timestamp.valueOf(bucket.getBucketStart()),
+                        bucket.getOpenLevel(), bucket.getMinLevel(), bucket.getMaxLevel(), bucket.getCloseLevel(),
+                        bucket.getInQuantity(), bucket.getOutQuantity(), bucket.getAdjustmentQuantity(),
+                        bucket.getMovementCount());
+            }
+            jdbcTemplate.update(sql, args.toArray());
+        }
+
+        // Bucket yang movement-nya sudah tidak ada (misalnya dihapus langsung di database)
+        Set<LocalDateTime> kept = new HashSet<>();
+        buckets.forEach(bucket -> kept.add(bucket.getBucketStart()));
+        List<Object[]> stale = jdbcTemplate.queryForList("SELECT bucket_start FROM stock_level_rollups "
+                                + "WHERE variant_id = ? AND resolution = ? AND bucket_start >= ?",
+                        Timestamp.class, variantId, resolution.name(), Timestamp.valueOf(from)).stream()
+                .filter(bucketStart -> !kept.contains(bucketStart.toLocalDateTime()))
+                .map(bucketStart -> new Object[]{variantId, resolution.name(), bucketStart})
+                .toList();
+        if (!stale.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM stock_level_rollups WHERE variant_id = ? AND resolution = ? "
+                    + "AND bucket_start = ?", stale);
+        }
+    }
+
+    public List<Long> findActiveVariantIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM variants WHERE deleted_at IS NULL ORDER BY id", Long.class);
+    }
+}
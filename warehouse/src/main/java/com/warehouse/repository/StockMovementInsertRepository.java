@@ -0,0 +1,46 @@
+package com.warehouse.repository;
+
+import com.warehouse.model.StockMovement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Movement inserts for an existing variant. stock_movements has no FK to variants since V9, so the
+ * statement itself checks that the variant row is still there: a movement is never written for a
+ * variant that a concurrent hard delete already removed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockMovementInsertRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the id of the new movement, or null when the variant no longer exists. Callers update the
+     * variant row first, so the row is already locked by their transaction.
+     */
+    public Long insertForVariant(Long variantId, StockMovement.MovementType type, int quantity,
+                                 String reason, String reference, LocalDateTime createdAt) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        int inserted = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("INSERT INTO stock_movements "
+                    + "(variant_id, movement_type, quantity, reason, reference, created_at) "
+                    + "SELECT id, ?, ?, ?, ?, ? FROM variants WHERE id = ?", new String[]{"id"});
+            statement.setString(1, type.name());
+            statement.setInt(2, quantity);
+            statement.setString(3, reason);
+            statement.setString(4, reference);
+            statement.setTimestamp(5, Timestamp.valueOf(createdAt));
+            statement.setLong(6, variantId);
+            return statement;
+        }, keys);
+        return inserted == 0 ? null : keys.getKey().longValue();
+    }
+}
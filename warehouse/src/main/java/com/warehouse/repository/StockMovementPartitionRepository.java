@@ -0,0 +1,141 @@
+package com.warehouse.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * MySQL partition maintenance for stock_movements (RANGE on UNIX_TIMESTAMP(created_at), see V9).
+ * Partition bounds are written and read back as server-side date literals, so they follow the session
+ * time zone just like created_at itself.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockMovementPartitionRepository {
+
+    public static final String FUTURE_PARTITION = "p_future";
+
+    // Nama lock MySQL berlaku untuk seluruh server, jadi diawali nama database
+    private static final String LOCK_SUFFIX = ".stock_movement_partitions";
+
+    private static final DateTimeFormatter LITERAL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Runs the body while this session holds a MySQL named lock, so partition maintenance runs on one
+     * instance at a time. Returns false without running it when another instance holds the lock. The lock
+     * lives on the connection that took it; the body's own statements use other pooled connections.
+     */
+    public boolean withMaintenanceLock(Runnable body) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK(CONCAT(DATABASE(), ?), 0)")) {
+                lock.setString(1, LOCK_SUFFIX);
+                try (ResultSet rs = lock.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        return false;
+                    }
+                }
+            }
+            try {
+                body.run();
+                return true;
+            } finally {
+                try (PreparedStatement release = connection.prepareStatement("SELECT RELEASE_LOCK(CONCAT(DATABASE(), ?))")) {
+                    release.setString(1, LOCK_SUFFIX);
+                    release.execute();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Partitions in bound order, or an empty list when the table is not partitioned (H2 in tests, or
+     * V9 not applied yet).
+     */
+    public List<MovementPartition> findPartitions() {
+        try {
+            return jdbcTemplate.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION, "
+                            + "DATE_FORMAT(FROM_UNIXTIME(NULLIF(PARTITION_DESCRIPTION, 'MAXVALUE')), '%Y-%m-%d %H:%i:%s') AS upper_bound, "
+                            + "TABLE_ROWS FROM information_schema.PARTITIONS "
+                            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'stock_movements' AND PARTITION_NAME IS NOT NULL "
+                            + "ORDER BY PARTITION_ORDINAL_POSITION",
+                    (rs, rowNum) -> {
+                        String upperBound = rs.getString("upper_bound");
+                        return new MovementPartition(rs.getString("PARTITION_NAME"),
+                                upperBound == null ? null : Long.valueOf(rs.getString("PARTITION_DESCRIPTION")),
+                                upperBound == null ? null : LocalDateTime.parse(upperBound, LITERAL),
+                                rs.getLong("TABLE_ROWS"));
+                    });
+        } catch (DataAccessException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Splits p_future into one partition per month in [from, to). Rows already in p_future are moved
+     * into the new partitions; normally there are none because partitions are created months ahead.
+     */
+    public void addMonthlyPartitions(LocalDateTime from, LocalDateTime to) {
+        StringBuilder partitions = new StringBuilder();
+        for (LocalDateTime month = from; month.isBefore(to); month = month.plusMonths(1)) {
+            partitions.append("PARTITION ").append(monthlyName(month))
+                    .append(" VALUES LESS THAN (UNIX_TIMESTAMP('").append(LITERAL.format(month.plusMonths(1))).append("')), ");
+        }
+        jdbcTemplate.execute("ALTER TABLE stock_movements REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                + partitions + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+    }
+
+    /**
+     * Writes the net ledger change of every variant in the partition as one ADJUSTMENT at the partition's
+     * upper bound, i.e. into the next partition, so ledger balances survive dropping it. Idempotent: does
+     * nothing when the carry-forward of this partition already exists. Returns the number of rows written.
+     */
+    public int carryForward(MovementPartition partition, String reason, String reference) {
+        // Nama partisi bukan parameter; hanya nama yang dibaca dari information_schema yang sampai di sini
+        String signed = "SUM(CASE m.movement_type WHEN 'OUT' THEN -m.quantity ELSE m.quantity END)";
+        return jdbcTemplate.update("INSERT INTO stock_movements (variant_id, movement_type, quantity, reason, reference, created_at) "
+                        + "SELECT m.variant_id, 'ADJUSTMENT', " + signed + ", ?, ?, FROM_UNIXTIME(?) "
+                        + "FROM stock_movements PARTITION (" + quoted(partition.name()) + ") m "
+                        + "JOIN variants v ON v.id = m.variant_id "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM stock_movements c "
+                        + "  WHERE c.created_at = FROM_UNIXTIME(?) AND c.reference = ?) "
+                        + "GROUP BY m.variant_id HAVING " + signed + " <> 0",
+                reason, reference, partition.upperBoundEpoch(), partition.upperBoundEpoch(), reference);
+    }
+
+    public List<Long> findCarriedForwardVariantIds(MovementPartition partition, String reference) {
+        return jdbcTemplate.queryForList("SELECT variant_id FROM stock_movements "
+                + "WHERE created_at = FROM_UNIXTIME(?) AND reference = ?", Long.class, partition.upperBoundEpoch(), reference);
+    }
+
+    /**
+     * Deletes the stock-level rollups that lie before the partition's upper bound. They were folded from
+     * movements that are about to be dropped; a later fold over them would count the carried-forward
+     * balance twice.
+     */
+    public int deleteRollupsBefore(MovementPartition partition) {
+        return jdbcTemplate.update("DELETE FROM stock_level_rollups WHERE bucket_start < FROM_UNIXTIME(?)",
+                partition.upperBoundEpoch());
+    }
+
+    public void dropPartition(MovementPartition partition) {
+        jdbcTemplate.execute("ALTER TABLE stock_movements DROP PARTITION " + quoted(partition.name()));
+    }
+
+    public static String monthlyName(LocalDateTime monthStart) {
+        return "p" + DateTimeFormatter.ofPattern("yyyyMM").format(monthStart);
+    }
+
+    private static String quoted(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+}
@@ -1,26 +1,87 @@
 package com.warehouse.repository;
 
+import com.warehouse.dto.StockMovementEntryDTO;
+import com.warehouse.dto.StockMovementResponse;
 import com.warehouse.model.StockMovement;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
-    List<StockMovement> findByVariantIdOrderByCreatedAtDesc(Long variantId);
+    // Constructor expression: tidak ada entity atau proxy variant di persistence context
+    @Query("SELECT new com.warehouse.dto.StockMovementResponse(sm.id, sm.variant.id, sm.movementType, sm.quantity, " +
+            "sm.reason, sm.reference, sm.createdAt) " +
+            "FROM StockMovement sm WHERE sm.variant.id = :variantId ORDER BY sm.createdAt DESC, sm.id DESC")
+    List<StockMovementResponse> findResponsesByVariantId(@Param("variantId") Long variantId);
 
-    @Query("SELECT sm FROM StockMovement sm WHERE sm.variant.id = :variantId AND sm.createdAt BETWEEN :startDate AND :endDate ORDER BY sm.createdAt DESC")
-    List<StockMovement> findByVariantIdAndDateRange(@Param("variantId") Long variantId,
-                                                    @Param("startDate") LocalDateTime startDate,
-                                                    @Param("endDate") LocalDateTime endDate);
+    // Range scan mundur di idx_stock_movements_variant_created, berhenti setelah limit baris yang lolos filter tipe
+    @Query("SELECT new com.warehouse.dto.StockMovementEntryDTO(sm.id, sm.movementType, sm.quantity, sm.reason, sm.reference, sm.createdAt) " +
+            "FROM StockMovement sm WHERE sm.variant.id = :variantId AND sm.createdAt >= :from AND sm.createdAt < :to " +
+            "AND sm.movementType IN :types ORDER BY sm.createdAt DESC, sm.id DESC")
+    List<StockMovementEntryDTO> findHistory(@Param("variantId") Long variantId,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("types") Collection<StockMovement.MovementType> types,
+                                            Pageable pageable);
 
     @Query("SELECT COALESCE(SUM(sm.quantity), 0) FROM StockMovement sm WHERE sm.variant.id = :variantId AND sm.movementType = 'IN'")
     Integer getTotalStockIn(@Param("variantId") Long variantId);
 
     @Query("SELECT COALESCE(SUM(sm.quantity), 0) FROM StockMovement sm WHERE sm.variant.id = :variantId AND sm.movementType = 'OUT'")
     Integer getTotalStockOut(@Param("variantId") Long variantId);
+
+    @Query(value = "SELECT COUNT(*) FROM stock_movements WHERE variant_id IN (SELECT id FROM variants WHERE item_id = :itemId)",
+            nativeQuery = true)
+    long countByItemIdIncludingDeleted(@Param("itemId") Long itemId);
+
+    @Query(value = "SELECT id FROM stock_movements WHERE variant_id IN (:variantIds) LIMIT :limit", nativeQuery = true)
+    List<Long> findIdsByVariantIds(@Param("variantIds") Collection<Long> variantIds, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM stock_movements WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    // Pengganti ON DELETE CASCADE yang hilang sejak stock_movements dipartisi (V9)
+    @Modifying
+    @Query(value = "DELETE FROM stock_movements WHERE variant_id IN (:variantIds)", nativeQuery = true)
+    int deleteByVariantIds(@Param("variantIds") Collection<Long> variantIds);
+
+    // Subquery dibaca dengan locking read, jadi variant yang baru di-commit transaksi lain ikut terhapus movement-nya
+    @Modifying
+    @Query(value = "DELETE FROM stock_movements WHERE variant_id IN (SELECT id FROM variants WHERE item_id = :itemId)",
+            nativeQuery = true)
+    int deleteByItemId(@Param("itemId") Long itemId);
+
+    // Saldo ledger: IN dan OUT disimpan positif, ADJUSTMENT sudah bertanda.
+    // Agregasi per variant dikerjakan database dalam satu range id; hanya baris yang tidak cocok yang dikirim balik
+    @Query(value = "SELECT v.id AS variantId, v.stock_quantity AS stockQuantity, COALESCE(l.balance, 0) AS ledgerBalance " +
+            "FROM variants v LEFT JOIN (" +
+            "  SELECT variant_id, SUM(CASE movement_type WHEN 'OUT' THEN -quantity ELSE quantity END) AS balance " +
+            "  FROM stock_movements WHERE variant_id >= :fromId AND variant_id < :toId GROUP BY variant_id" +
+            ") l ON l.variant_id = v.id " +
+            "WHERE v.id >= :fromId AND v.id < :toId AND v.deleted_at IS NULL " +
+            "AND v.stock_quantity <> COALESCE(l.balance, 0) ORDER BY v.id", nativeQuery = true)
+    List<LedgerBalance> findLedgerMismatches(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Dihitung ulang di dalam statement yang sama dengan insert, jadi perubahan sejak scan tidak ikut dikoreksi dua kali
+    @Modifying
+    @Query(value = "INSERT INTO stock_movements (variant_id, movement_type, quantity, reason, reference, created_at) " +
+            "SELECT v.id, 'ADJUSTMENT', v.stock_quantity - COALESCE(SUM(CASE m.movement_type WHEN 'OUT' THEN -m.quantity ELSE m.quantity END), 0), " +
+            ":reason, :reference, CURRENT_TIMESTAMP(6) " +
+            "FROM variants v LEFT JOIN stock_movements m ON m.variant_id = v.id " +
+            "WHERE v.id = :variantId AND v.deleted_at IS NULL " +
+            "GROUP BY v.id, v.stock_quantity " +
+            "HAVING v.stock_quantity <> COALESCE(SUM(CASE m.movement_type WHEN 'OUT' THEN -m.quantity ELSE m.quantity END), 0)",
+            nativeQuery = true)
+    int insertCompensatingAdjustment(@Param("variantId") Long variantId,
+                                     @Param("reason") String reason,
+                                     @Param("reference") String reference);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.warehouse.repository;
+
+import java.math.BigDecimal;
+
+// Kolom variant yang dibutuhkan valuasi, dibaca lewat constructor expression tanpa memuat entity
+public record ValuationRow(Long variantId,
+                           Long itemId,
+                           String color,
+                           String size,
+                           String material,
+                           BigDecimal price,
+                           Integer stockQuantity) {
+}
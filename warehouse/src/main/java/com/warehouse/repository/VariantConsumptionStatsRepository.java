@@ -0,0 +1,14 @@
+package com.warehouse.repository;
+
+import com.warehouse.model.VariantConsumptionStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface VariantConsumptionStatsRepository extends JpaRepository<VariantConsumptionStats, Long> {
+
+    List<VariantConsumptionStats> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+}
@@ -0,0 +1,80 @@
+package com.warehouse.repository;
+
+import com.warehouse.model.VariantConsumptionStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes of variant_consumption_stats that several instances can run at the same time. Day totals are
+ * added to the stored row instead of overwriting it, so each instance only contributes the movements it
+ * saw itself.
+ */
+@Repository
+@RequiredArgsConstructor
+public class VariantConsumptionStatsUpsertRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * OUT quantity one instance saw for a variant since its last flush, counted on {@code day}.
+     */
+    public record DayOut(long variantId, LocalDate day, long quantity) {
+    }
+
+    /**
+     * Locks and returns the rows whose current day is before {@code day}: they need their finished days
+     * folded before more can be added. At READ COMMITTED only these rows stay locked.
+     */
+    public List<VariantConsumptionStats> lockRowsBefore(Collection<Long> variantIds, LocalDate day) {
+        return jdbcTemplate.query("SELECT variant_id, ewma_daily_out, ewm_variance, observed_days, current_day, current_day_out "
+                        + "FROM variant_consumption_stats WHERE variant_id IN ("
+                        + String.join(", ", Collections.nCopies(variantIds.size(), "?")) + ") AND current_day < ? "
+                        + "ORDER BY variant_id FOR UPDATE",
+                (rs, rowNum) -> VariantConsumptionStats.builder()
+                        .variantId(rs.getLong("variant_id"))
+                        .ewmaDailyOut(rs.getDouble("ewma_daily_out"))
+                        .ewmVariance(rs.getDouble("ewm_variance"))
+                        .observedDays(rs.getInt("observed_days"))
+                        .currentDay(rs.getDate("current_day").toLocalDate())
+                        .currentDayOut(rs.getInt("current_day_out"))
+                        .build(),
+                append(variantIds.toArray(), Date.valueOf(day)));
+    }
+
+    // Baris yang sudah dikunci lockRowsBefore, ditulis utuh setelah hari-harinya dilipat
+    public void updateRows(List<VariantConsumptionStats> rows, LocalDateTime now) {
+        jdbcTemplate.batchUpdate("UPDATE variant_consumption_stats SET ewma_daily_out = ?, ewm_variance = ?, observed_days = ?, "
+                        + "current_day = ?, current_day_out = ?, updated_at = ? WHERE variant_id = ?",
+                rows.stream().map(row -> new Object[]{row.getEwmaDailyOut(), row.getEwmVariance(), row.getObservedDays(),
+                        Date.valueOf(row.getCurrentDay()), row.getCurrentDayOut(), now, row.getVariantId()}).toList());
+    }
+
+    /**
+     * Adds each quantity to the variant's running day total, creating the row when it does not exist yet.
+     * A quantity for a day before the row's current day is counted to the current day.
+     */
+    public void addDayOut(List<DayOut> additions, LocalDateTime now) {
+        jdbcTemplate.batchUpdate("INSERT INTO variant_consumption_stats "
+                        + "(variant_id, ewma_daily_out, ewm_variance, observed_days, current_day, current_day_out, updated_at) "
+                        + "VALUES (?, 0, 0, 0, ?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE current_day_out = current_day_out + VALUES(current_day_out), "
+                        + "updated_at = VALUES(updated_at)",
+                additions.stream().map(addition -> new Object[]{addition.variantId(), Date.valueOf(addition.day()),
+                        (int) Math.min(Integer.MAX_VALUE, addition.quantity()), now}).toList());
+    }
+
+    private static Object[] append(Object[] values, Object last) {
+        Object[] result = new Object[values.length + 1];
+        System.arraycopy(values, 0, result, 0, values.length);
+        result[values.length] = last;
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package com.warehouse.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+/**
+ * Variant inserts under an item that must still be live. The statement itself checks the item, so an
+ * item that is soft-deleted or being purged is rejected without a separate lookup, and the generated id
+ * comes back with the insert instead of through a reload.
+ */
+@Repository
+@RequiredArgsConstructor
+public class VariantInsertRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns the id of the new variant, or null when the item does not exist or is soft-deleted.
+     * Unique key violations surface as {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    public Long insertForActiveItem(Long itemId, String sku, String size, String color, String material,
+                                    BigDecimal price, Integer stockQuantity, Integer minStockLevel,
+                                    LocalDateTime now) {
+        // Item dibaca dalam statement yang sama: di REPEATABLE READ baris item diambil dengan shared lock, jadi delete
+        // atau purge yang belum commit ditunggu, dan item yang sudah ditandai terhapus tidak menghasilkan baris
+        KeyHolder keys = new GeneratedKeyHolder();
+        int inserted = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("INSERT INTO variants "
+                    + "(item_id, sku, size, color, material, price, stock_quantity, min_stock_level, created_at, updated_at) "
+                    + "SELECT id, ?, ?, ?, ?, ?, ?, ?, ?, ? FROM items WHERE id = ? AND deleted_at IS NULL",
+                    new String[]{"id"});
+            statement.setString(1, sku);
+            statement.setString(2, size);
+            statement.setString(3, color);
+            statement.setString(4, material);
+            statement.setBigDecimal(5, price);
+            statement.setObject(6, stockQuantity, Types.INTEGER);
+            statement.setObject(7, minStockLevel, Types.INTEGER);
+            statement.setTimestamp(8, Timestamp.valueOf(now));
+            statement.setTimestamp(9, Timestamp.valueOf(now));
+            statement.setObject(10, itemId, Types.BIGINT);
+            return statement;
+        }, keys);
+        return inserted == 0 ? null : keys.getKey().longValue();
+    }
+}
@@ -0,0 +1,9 @@
+package com.warehouse.repository;
+
+import com.warehouse.model.VariantPriceHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface VariantPriceHistoryRepository extends JpaRepository<VariantPriceHistory, Long> {
+}
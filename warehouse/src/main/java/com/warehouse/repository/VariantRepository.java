@@ -1,19 +1,24 @@
 package com.warehouse.repository;
 
+import com.warehouse.cache.HotVariant;
 import com.warehouse.model.Variant;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface VariantRepository extends JpaRepository<Variant, Long> {
     Optional<Variant> findBySku(String sku);
-    boolean existsBySku(String sku);
     List<Variant> findByItemId(Long itemId);
+    List<Variant> findByItemIdAndSkuInOrderById(Long itemId, Collection<String> skus);
 
     @Query("SELECT v FROM Variant v WHERE v.item.id = :itemId AND v.size = :size AND v.color = :color AND v.material = :material")
     Optional<Variant> findByItemIdAndAttributes(@Param("itemId") Long itemId,
@@ -28,4 +33,90 @@ public interface VariantRepository extends JpaRepository<Variant, Long> {
 
     @Query("SELECT v FROM Variant v WHERE v.stockQuantity = 0")
     List<Variant> findOutOfStock();
+
+    @Query("SELECT COUNT(v.id) AS rowCount, COALESCE(SUM(v.id), 0) AS idSum, MAX(v.updatedAt) AS lastModified FROM Variant v WHERE v.id = :id")
+    ChangeStamp getChangeStamp(@Param("id") Long id);
+
+    @Query("SELECT COUNT(v.id) AS rowCount, COALESCE(SUM(v.id), 0) AS idSum, MAX(v.updatedAt) AS lastModified FROM Variant v WHERE v.sku = :sku")
+    ChangeStamp getChangeStampBySku(@Param("sku") String sku);
+
+    @Query("SELECT COUNT(v.id) AS rowCount, COALESCE(SUM(v.id), 0) AS idSum, MAX(v.updatedAt) AS lastModified FROM Variant v WHERE v.item.id = :itemId")
+    ChangeStamp getChangeStampByItemId(@Param("itemId") Long itemId);
+
+    @Query("SELECT COUNT(v.id) AS rowCount, COALESCE(SUM(v.id), 0) AS idSum, MAX(v.updatedAt) AS lastModified FROM Variant v WHERE v.stockQuantity <= v.minStockLevel AND v.stockQuantity > 0")
+    ChangeStamp getLowStockChangeStamp();
+
+    @Query("SELECT COUNT(v.id) AS rowCount, COALESCE(SUM(v.id), 0) AS idSum, MAX(v.updatedAt) AS lastModified FROM Variant v WHERE v.stockQuantity = 0")
+    ChangeStamp getOutOfStockChangeStamp();
+
+    @Query("SELECT COUNT(v.id) AS rowCount, COALESCE(SUM(v.id), 0) AS idSum, MAX(v.updatedAt) AS lastModified FROM Variant v WHERE v.stockQuantity > 0")
+    ChangeStamp getInStockChangeStamp();
+
+    @Query("SELECT new com.warehouse.cache.HotVariant(v.id, v.item.id, v.sku, v.stockQuantity, v.minStockLevel, v.updatedAt) FROM Variant v WHERE v.id > :afterId ORDER BY v.id")
+    List<HotVariant> findHotVariantsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.warehouse.cache.HotVariant(v.id, v.item.id, v.sku, v.stockQuantity, v.minStockLevel, v.updatedAt) FROM Variant v WHERE v.id IN :ids")
+    List<HotVariant> findHotVariantsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.warehouse.cache.HotVariant(v.id, v.item.id, v.sku, v.stockQuantity, v.minStockLevel, v.updatedAt) FROM Variant v WHERE v.item.id IN :itemIds")
+    List<HotVariant> findHotVariantsByItemIdIn(@Param("itemIds") Collection<Long> itemIds);
+
+    @Query("SELECT new com.warehouse.cache.HotVariant(v.id, v.item.id, v.sku, v.stockQuantity, v.minStockLevel, v.updatedAt) FROM Variant v WHERE v.updatedAt >= :since")
+    List<HotVariant> findHotVariantsUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT new com.warehouse.repository.ValuationRow(v.id, v.item.id, v.color, v.size, v.material, v.price, v.stockQuantity) FROM Variant v WHERE v.id >= :fromId AND v.id < :toId")
+    List<ValuationRow> findValuationRowsInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT new com.warehouse.repository.ValuationRow(v.id, v.item.id, v.color, v.size, v.material, v.price, v.stockQuantity) FROM Variant v WHERE v.id IN :ids")
+    List<ValuationRow> findValuationRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.warehouse.repository.ValuationRow(v.id, v.item.id, v.color, v.size, v.material, v.price, v.stockQuantity) FROM Variant v WHERE v.item.id IN :itemIds")
+    List<ValuationRow> findValuationRowsByItemIdIn(@Param("itemIds") Collection<Long> itemIds);
+
+    // Native supaya variant yang baru di-soft-delete ikut terbaca; soft delete per item tidak mengubah updated_at
+    @Query(value = "SELECT id FROM variants WHERE updated_at >= :since OR deleted_at >= :since", nativeQuery = true)
+    List<Long> findIdsChangedSince(@Param("since") LocalDateTime since);
+
+    // Native: variant yang di-soft-delete (purge berjalan) tetap memegang unique key sku
+    @Query(value = "SELECT id FROM variants WHERE sku = :sku LIMIT 1", nativeQuery = true)
+    Optional<Long> findIdBySkuIncludingDeleted(@Param("sku") String sku);
+
+    @Query(value = "SELECT sku FROM variants WHERE sku IN (:skus)", nativeQuery = true)
+    List<String> findSkusIncludingDeleted(@Param("skus") Collection<String> skus);
+
+    @Query(value = "SELECT id FROM variants WHERE deleted_at >= :since", nativeQuery = true)
+    List<Long> findIdsDeletedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT v.id FROM Variant v WHERE v.id > :afterId ORDER BY v.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Termasuk variant yang di-soft-delete: sku-nya tetap memegang unique key sampai purge selesai
+    @Query(value = "SELECT id AS id, sku AS text FROM variants WHERE id > :afterId ORDER BY id", nativeQuery = true)
+    List<CatalogKey> findSkusIncludingDeletedAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT v.id AS id, v.sku AS text FROM Variant v WHERE v.updatedAt >= :since")
+    List<CatalogKey> findSkusUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query(value = "UPDATE variants SET deleted_at = :deletedAt WHERE item_id = :itemId AND deleted_at IS NULL", nativeQuery = true)
+    int softDeleteByItemId(@Param("itemId") Long itemId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Query(value = "SELECT COUNT(*) FROM variants WHERE item_id = :itemId", nativeQuery = true)
+    long countByItemIdIncludingDeleted(@Param("itemId") Long itemId);
+
+    @Query(value = "SELECT id AS id, sku AS text FROM variants WHERE item_id = :itemId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<CatalogKey> findSkusByItemIdIncludingDeleted(@Param("itemId") Long itemId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM variants WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COALESCE(MIN(v.id), 0) FROM Variant v")
+    Long findMinId();
+
+    @Query("SELECT COALESCE(MAX(v.id), 0) FROM Variant v")
+    Long findMaxId();
+
+    @Query("SELECT COUNT(v) FROM Variant v WHERE v.id >= :fromId AND v.id < :toId")
+    long countInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.warehouse.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Plumbing shared by the background jobs that walk the variant table: a single daemon thread that
+ * runs one job at a time, and a parallel scan of the variant id space in fixed-size ranges.
+ */
+final class BackgroundJobs {
+
+    private BackgroundJobs() {
+    }
+
+    static ExecutorService launcher(String threadName) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @FunctionalInterface
+    interface RangeScan<T> {
+        T scan(long fromId, long toId);
+    }
+
+    static int rangeCount(long fromId, long toId, int rangeSize) {
+        return (int) ((toId - fromId + rangeSize - 1) / rangeSize);
+    }
+
+    /**
+     * Scans [fromId, toId) in ranges of at most rangeSize ids on a fork-join pool of the given
+     * parallelism and combines the partial results. Blocks until every range is done; a failing
+     * range fails the whole scan.
+     */
+    static <T> T scanRanges(long fromId, long toId, int rangeSize, int parallelism,
+                            RangeScan<T> scan, BinaryOperator<T> combine) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new RangeTask<>(fromId, toId, rangeSize, scan, combine));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static final class RangeTask<T> extends RecursiveTask<T> {
+        private final long fromId;
+        private final long toId;
+        private final int rangeSize;
+        private final RangeScan<T> scan;
+        private final BinaryOperator<T> combine;
+
+        RangeTask(long fromId, long toId, int rangeSize, RangeScan<T> scan, BinaryOperator<T> combine) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.rangeSize = rangeSize;
+            this.scan = scan;
+            this.combine = combine;
+        }
+
+        @Override
+        protected T compute() {
+            long size = toId - fromId;
+            if (size <= rangeSize) {
+                return scan.scan(fromId, toId);
+            }
+            // Belah di batas kelipatan rangeSize supaya jumlah range sesuai rangeCount
+            long ranges = (size + rangeSize - 1) / rangeSize;
+            long middle = fromId + (ranges / 2) * rangeSize;
+            RangeTask<T> left = new RangeTask<>(fromId, middle, rangeSize, scan, combine);
+            left.fork();
+            T right = new RangeTask<>(middle, toId, rangeSize, scan, combine).compute();
+            return combine.apply(left.join(), right);
+        }
+    }
+}
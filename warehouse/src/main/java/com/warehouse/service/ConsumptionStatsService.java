@@ -0,0 +1,424 @@
+package com.warehouse.service;
+
+import com.warehouse.cache.HotInventoryState;
+import com.warehouse.cache.HotVariant;
+import com.warehouse.dto.ReplenishmentSuggestionDTO;
+import com.warehouse.event.StockMovementRecordedEvent;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.model.StockMovement;
+import com.warehouse.model.Variant;
+import com.warehouse.model.VariantConsumptionStats;
+import com.warehouse.repository.VariantConsumptionStatsRepository;
+import com.warehouse.repository.VariantConsumptionStatsUpsertRepository;
+import com.warehouse.repository.VariantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per-variant consumption statistics: an exponentially weighted mean and variance of the daily
+ * OUT quantity. Each committed OUT movement adds to the running day total; when a new day starts
+ * the finished day (and any quiet days in between) are folded into the averages, so history is
+ * never rescanned. Statistics are written back to variant_consumption_stats periodically and
+ * loaded again on startup. Several instances share the rows: a flush adds only the OUT quantity this
+ * instance saw since its last flush, and the combined rows are read back from updated_at.
+ */
+@Service
+@Lazy(false)
+@Slf4j
+public class ConsumptionStatsService {
+
+    // Setelah setahun tanpa permintaan rata-ratanya praktis nol, tidak perlu melipat hari kosong lebih lama
+    private static final int MAX_QUIET_DAYS_FOLDED = 366;
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    private final VariantConsumptionStatsRepository statsRepository;
+    private final VariantConsumptionStatsUpsertRepository upsertRepository;
+    private final VariantRepository variantRepository;
+    private final HotInventoryState hotInventoryState;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final double smoothing;
+    private final double leadTimeDays;
+    private final double serviceLevelZ;
+    private final Duration clockSkewOverlap;
+
+    private final ConcurrentHashMap<Long, Stats> stats = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private volatile LocalDateTime watermark;
+
+    public ConsumptionStatsService(VariantConsumptionStatsRepository statsRepository,
+                                   VariantConsumptionStatsUpsertRepository upsertRepository,
+                                   VariantRepository variantRepository,
+                                   HotInventoryState hotInventoryState,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${warehouse.consumption.smoothing:0.1}") double smoothing,
+                                   @Value("${warehouse.consumption.lead-time-days:7}") double leadTimeDays,
+                                   @Value("${warehouse.consumption.service-level-z:1.65}") double serviceLevelZ,
+                                   @Value("${warehouse.hot-state.clock-skew-overlap:PT5S}") Duration clockSkewOverlap) {
+        this.statsRepository = statsRepository;
+        this.upsertRepository = upsertRepository;
+        this.variantRepository = variantRepository;
+        this.hotInventoryState = hotInventoryState;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Hanya baris yang perlu dilipat ke hari baru yang tetap terkunci, bukan setiap baris yang dibaca
+        this.writeTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.smoothing = smoothing;
+        this.leadTimeDays = leadTimeDays;
+        this.serviceLevelZ = serviceLevelZ;
+        this.clockSkewOverlap = clockSkewOverlap;
+    }
+
+    @TransactionalEventListener
+    public void onMovementRecorded(StockMovementRecordedEvent event) {
+        if (event.getMovementType() != StockMovement.MovementType.OUT || event.getQuantity() <= 0) {
+            return;
+        }
+        LocalDate day = event.getCreatedAt() != null ? event.getCreatedAt().toLocalDate() : LocalDate.now();
+        stats.computeIfAbsent(event.getVariantId(), id -> new Stats(day)).record(day, event.getQuantity());
+        dirty.add(event.getVariantId());
+    }
+
+    public ReplenishmentSuggestionDTO getSuggestion(Long variantId) {
+        HotVariant variant = hotInventoryState.find(variantId);
+        if (variant == null) {
+            List<HotVariant> found = readTransaction.execute(status ->
+                    variantRepository.findHotVariantsByIdIn(List.of(variantId)));
+            if (found.isEmpty()) {
+                throw new ResourceNotFoundException("Variant not found with id: " + variantId);
+            }
+            variant = found.get(0);
+        }
+        Stats variantStats = stats.get(variantId);
+        return suggest(variant, variantStats != null ? variantStats.estimate(LocalDate.now()) : Estimate.NONE);
+    }
+
+    /**
+     * Suggestions for every variant with recorded consumption, most urgent (fewest days of cover) first.
+     * Costs one pass over the in-memory statistics plus a lookup per variant.
+     */
+    public List<ReplenishmentSuggestionDTO> getSuggestions(boolean belowReorderPointOnly) {
+        LocalDate today = LocalDate.now();
+        Map<Long, Estimate> estimates = new HashMap<>(stats.size() * 2);
+        stats.forEach((variantId, variantStats) -> estimates.put(variantId, variantStats.estimate(today)));
+
+        List<ReplenishmentSuggestionDTO> suggestions = new ArrayList<>(estimates.size());
+        List<Long> cold = new ArrayList<>();
+        estimates.forEach((variantId, estimate) -> {
+            HotVariant variant = hotInventoryState.find(variantId);
+            if (variant == null) {
+                cold.add(variantId);
+            } else {
+                suggestions.add(suggest(variant, estimate));
+            }
+        });
+        if (!cold.isEmpty()) {
+            List<HotVariant> found = readTransaction.execute(status -> variantRepository.findHotVariantsByIdIn(cold));
+            found.forEach(variant -> suggestions.add(suggest(variant, estimates.get(variant.variantId()))));
+            // Variant yang sudah dihapus; barisnya di database ikut terhapus lewat FK
+            if (found.size() < cold.size()) {
+                Set<Long> existing = found.stream().map(HotVariant::variantId).collect(Collectors.toSet());
+                cold.stream().filter(id -> !existing.contains(id)).forEach(this::forget);
+            }
+        }
+
+        return suggestions.stream()
+                .filter(s -> !belowReorderPointOnly || s.isBelowReorderPoint())
+                .sorted(Comparator.comparing(ReplenishmentSuggestionDTO::getDaysOfCover,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    private ReplenishmentSuggestionDTO suggest(HotVariant variant, Estimate estimate) {
+        int stock = variant.stockQuantity() != null ? variant.stockQuantity() : 0;
+        double stdDev = Math.sqrt(estimate.variance());
+        // Safety stock z·σ·√L di atas permintaan rata-rata selama lead time
+        int reorderPoint = (int) Math.ceil(estimate.mean() * leadTimeDays
+                + serviceLevelZ * stdDev * Math.sqrt(leadTimeDays));
+        Double daysOfCover = estimate.mean() > 0 ? Math.round(stock / estimate.mean() * 10) / 10.0 : null;
+        return ReplenishmentSuggestionDTO.builder()
+                .variantId(variant.variantId())
+                .sku(variant.sku())
+                .stockQuantity(stock)
+                .minStockLevel(variant.minStockLevel())
+                .averageDailyDemand(round2(estimate.mean()))
+                .demandStdDev(round2(stdDev))
+                .observedDays(estimate.observedDays())
+                .reorderPoint(reorderPoint)
+                .daysOfCover(daysOfCover)
+                .belowReorderPoint(reorderPoint > 0 && stock <= reorderPoint)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        watermark = LocalDateTime.now();
+        List<VariantConsumptionStats> rows = readTransaction.execute(status -> statsRepository.findAll());
+        for (VariantConsumptionStats row : rows) {
+            // Movement yang sudah masuk sebelum loading selesai digabung ke statistik tersimpan
+            stats.merge(row.getVariantId(), new Stats(row), (live, stored) -> stored.absorb(live));
+        }
+        log.info("Loaded consumption statistics for {} variants in {} ms",
+                rows.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.consumption.flush-interval:PT1M}",
+            initialDelayString = "${warehouse.consumption.flush-interval:PT1M}")
+    public void scheduledFlush() {
+        flush();
+        reconcile();
+    }
+
+    @PreDestroy
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        // Hanya delta lokal yang diambil; movement yang datang selama flush tetap tersimpan untuk flush berikutnya
+        Map<Long, SortedMap<LocalDate, Long>> flushed = new HashMap<>();
+        for (Long id : ids) {
+            Stats variantStats = stats.get(id);
+            if (variantStats != null) {
+                SortedMap<LocalDate, Long> days = variantStats.drainUnflushed();
+                if (!days.isEmpty()) {
+                    flushed.put(id, days);
+                }
+            }
+        }
+        if (flushed.isEmpty()) {
+            return;
+        }
+        try {
+            writeTransaction.executeWithoutResult(status -> write(flushed));
+        } catch (RuntimeException e) {
+            // Dicoba lagi di flush berikutnya; variant yang sudah dihapus dibuang dari memori
+            log.warn("Failed to persist consumption statistics for {} variants", flushed.size(), e);
+            Set<Long> existing = readTransaction.execute(status -> variantRepository.findAllById(flushed.keySet())).stream()
+                    .map(Variant::getId).collect(Collectors.toSet());
+            flushed.forEach((id, days) -> {
+                Stats variantStats = stats.get(id);
+                if (existing.contains(id) && variantStats != null) {
+                    variantStats.restoreUnflushed(days);
+                    dirty.add(id);
+                } else {
+                    forget(id);
+                }
+            });
+        }
+    }
+
+    // Baris yang hari berjalannya sudah lewat dilipat di sini dengan kunci; sisanya cukup ditambah
+    private void write(Map<Long, SortedMap<LocalDate, Long>> flushed) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate latest = flushed.values().stream().map(SortedMap::lastKey).max(LocalDate::compareTo).orElseThrow();
+        Map<Long, VariantConsumptionStats> behind = new HashMap<>();
+        List<Long> ids = new ArrayList<>(flushed.keySet());
+        for (int start = 0; start < ids.size(); start += WRITE_BATCH_SIZE) {
+            upsertRepository.lockRowsBefore(ids.subList(start, Math.min(start + WRITE_BATCH_SIZE, ids.size())), latest)
+                    .forEach(row -> behind.put(row.getVariantId(), row));
+        }
+
+        List<VariantConsumptionStats> rolled = new ArrayList<>();
+        List<VariantConsumptionStatsUpsertRepository.DayOut> additions = new ArrayList<>();
+        flushed.forEach((id, days) -> {
+            VariantConsumptionStats row = behind.get(id);
+            if (row != null && row.getCurrentDay().isBefore(days.lastKey())) {
+                Stats merged = new Stats(row);
+                days.forEach(merged::apply);
+                rolled.add(merged.toEntity(id));
+            } else {
+                long quantity = days.values().stream().mapToLong(Long::longValue).sum();
+                additions.add(new VariantConsumptionStatsUpsertRepository.DayOut(id, days.lastKey(), quantity));
+            }
+        });
+        upsertRepository.updateRows(rolled, now);
+        upsertRepository.addDayOut(additions, now);
+    }
+
+    // Gabungan semua instance, termasuk yang baru saja ditulis flush ini, dibaca kembali berdasarkan updated_at
+    private void reconcile() {
+        LocalDateTime since = watermark;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            List<VariantConsumptionStats> rows = readTransaction.execute(status ->
+                    statsRepository.findByUpdatedAtGreaterThanEqual(since.minus(clockSkewOverlap)));
+            for (VariantConsumptionStats row : rows) {
+                Stats existing = stats.putIfAbsent(row.getVariantId(), new Stats(row));
+                if (existing != null) {
+                    existing.rebase(row);
+                }
+            }
+            watermark = startedAt;
+        } catch (RuntimeException e) {
+            log.warn("Reading consumption statistics of other instances failed: {}", e.getMessage());
+        }
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private void forget(Long variantId) {
+        stats.remove(variantId);
+        dirty.remove(variantId);
+    }
+
+    private record Estimate(double mean, double variance, int observedDays) {
+        static final Estimate NONE = new Estimate(0, 0, 0);
+    }
+
+    private final class Stats {
+        private double mean;
+        private double variance;
+        private int observedDays;
+        private LocalDate currentDay;
+        private long currentDayOut;
+        // OUT per hari yang sudah dihitung di atas tetapi belum ditambahkan ke baris database
+        private final SortedMap<LocalDate, Long> unflushed = new TreeMap<>();
+
+        Stats(LocalDate currentDay) {
+            this.currentDay = currentDay;
+        }
+
+        Stats(VariantConsumptionStats row) {
+            copyFrom(row);
+        }
+
+        synchronized void record(LocalDate day, long quantity) {
+            apply(day, quantity);
+            unflushed.merge(day, quantity, Long::sum);
+        }
+
+        void apply(LocalDate day, long quantity) {
+            if (day.isAfter(currentDay)) {
+                closeDaysBefore(day);
+            }
+            // Movement yang datang terlambat (tanggal sebelum currentDay) dihitung ke hari berjalan
+            currentDayOut += quantity;
+        }
+
+        synchronized Stats absorb(Stats live) {
+            synchronized (live) {
+                live.unflushed.forEach(this::record);
+            }
+            return this;
+        }
+
+        synchronized SortedMap<LocalDate, Long> drainUnflushed() {
+            SortedMap<LocalDate, Long> drained = new TreeMap<>(unflushed);
+            unflushed.clear();
+            return drained;
+        }
+
+        // Flush gagal: delta-nya masih dihitung di atas, cukup dicatat lagi sebagai belum tersimpan
+        synchronized void restoreUnflushed(SortedMap<LocalDate, Long> days) {
+            days.forEach((day, quantity) -> unflushed.merge(day, quantity, Long::sum));
+        }
+
+        // Baris database memuat semua yang sudah di-flush; yang belum tersimpan di sini ditambahkan di atasnya
+        synchronized void rebase(VariantConsumptionStats row) {
+            copyFrom(row);
+            unflushed.forEach(this::apply);
+        }
+
+        private void copyFrom(VariantConsumptionStats row) {
+            this.currentDay = row.getCurrentDay();
+            this.mean = row.getEwmaDailyOut();
+            this.variance = row.getEwmVariance();
+            this.observedDays = row.getObservedDays();
+            this.currentDayOut = row.getCurrentDayOut();
+        }
+
+        synchronized Estimate estimate(LocalDate today) {
+            if (today.isAfter(currentDay)) {
+                Stats copy = copy();
+                copy.closeDaysBefore(today);
+                return new Estimate(copy.mean, copy.variance, copy.observedDays);
+            }
+            if (observedDays == 0) {
+                // Hari pertama: belum ada hari yang selesai, pakai total hari ini sebagai perkiraan awal
+                return new Estimate(currentDayOut, 0, 0);
+            }
+            return new Estimate(mean, variance, observedDays);
+        }
+
+        synchronized VariantConsumptionStats toEntity(Long variantId) {
+            return VariantConsumptionStats.builder()
+                    .variantId(variantId)
+                    .ewmaDailyOut(mean)
+                    .ewmVariance(variance)
+                    .observedDays(observedDays)
+                    .currentDay(currentDay)
+                    .currentDayOut((int) Math.min(Integer.MAX_VALUE, currentDayOut))
+                    .build();
+        }
+
+        private void closeDaysBefore(LocalDate day) {
+            fold(currentDayOut);
+            long quietDays = ChronoUnit.DAYS.between(currentDay, day) - 1;
+            for (long i = 0; i < Math.min(quietDays, MAX_QUIET_DAYS_FOLDED); i++) {
+                fold(0);
+            }
+            observedDays += (int) Math.max(0, quietDays - MAX_QUIET_DAYS_FOLDED);
+            currentDay = day;
+            currentDayOut = 0;
+        }
+
+        // Mean dan varians berbobot eksponensial yang diperbarui inkremental
+        private void fold(double dayTotal) {
+            if (observedDays == 0) {
+                mean = dayTotal;
+                variance = 0;
+            } else {
+                double diff = dayTotal - mean;
+                double increment = smoothing * diff;
+                mean += increment;
+                variance = (1 - smoothing) * (variance + diff * increment);
+            }
+            observedDays++;
+        }
+
+        private Stats copy() {
+            Stats copy = new Stats(currentDay);
+            copy.mean = mean;
+            copy.variance = variance;
+            copy.observedDays = observedDays;
+            copy.currentDayOut = currentDayOut;
+            return copy;
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package com.warehouse.service;
 
+import com.warehouse.cache.HotInventoryState;
+import com.warehouse.cache.HotVariant;
+import com.warehouse.dto.StockMovementEntryDTO;
+import com.warehouse.dto.StockMovementResponse;
+import com.warehouse.dto.StockMutationAck;
 import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.event.StockMovementRecordedEvent;
 import com.warehouse.exception.ResourceNotFoundException;
 import com.warehouse.model.StockMovement;
 import com.warehouse.model.Variant;
+import com.warehouse.repository.StockMovementInsertRepository;
 import com.warehouse.repository.StockMovementRepository;
 import com.warehouse.repository.VariantRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -19,10 +34,17 @@ import java.util.List;
 @Slf4j
 public class InventoryService {
 
+    private static final Duration DEFAULT_HISTORY_WINDOW = Duration.ofDays(7);
+    private static final int MAX_HISTORY_LIMIT = 1000;
+
     private final VariantRepository variantRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final StockMovementInsertRepository stockMovementInsertRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HotInventoryState hotInventoryState;
+    private final JournaledStockService journaledStockService;
 
-    public StockMovement addStock(StockUpdateDTO stockUpdateDTO) {
+    public StockMutationAck addStock(StockUpdateDTO stockUpdateDTO) {
         log.info("Adding stock for variant ID: {}", stockUpdateDTO.getVariantId());
 
         Variant variant = variantRepository.findById(stockUpdateDTO.getVariantId())
@@ -36,26 +58,21 @@ public class InventoryService {
         // Update stock quantity
         int newStockQuantity = variant.getStockQuantity() + stockUpdateDTO.getQuantity();
         variant.setStockQuantity(newStockQuantity);
-        variantRepository.save(variant);
+        variantRepository.saveAndFlush(variant);
 
         // Create stock movement
-        StockMovement movement = StockMovement.builder()
-                .variant(variant)
-                .movementType(StockMovement.MovementType.IN) // Hardcode sebagai IN untuk add-stock
-                .quantity(stockUpdateDTO.getQuantity())
-                .reason(stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock addition")
-                .reference(stockUpdateDTO.getReference())
-                .build();
-
-        StockMovement savedMovement = stockMovementRepository.save(movement);
+        Long movementId = recordMovement(variant, StockMovement.MovementType.IN, stockUpdateDTO.getQuantity(),
+                stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock addition",
+                stockUpdateDTO.getReference());
+        eventPublisher.publishEvent(CatalogChangedEvent.ofVariant(variant.getItem().getId(), variant.getId()));
         log.info("Added {} units to variant ID: {}. New stock: {}",
                 stockUpdateDTO.getQuantity(), stockUpdateDTO.getVariantId(), newStockQuantity);
 
-        return savedMovement;
+        return new StockMutationAck(movementId, variant.getId(), newStockQuantity, null);
     }
 
     // Untuk remove-stock, buat method terpisah
-    public StockMovement removeStock(StockUpdateDTO stockUpdateDTO) {
+    public StockMutationAck removeStock(StockUpdateDTO stockUpdateDTO) {
         log.info("Removing stock for variant ID: {}", stockUpdateDTO.getVariantId());
 
         Variant variant = variantRepository.findById(stockUpdateDTO.getVariantId())
@@ -74,26 +91,21 @@ public class InventoryService {
         // Update stock quantity
         int newStockQuantity = variant.getStockQuantity() - stockUpdateDTO.getQuantity();
         variant.setStockQuantity(newStockQuantity);
-        variantRepository.save(variant);
+        variantRepository.saveAndFlush(variant);
 
         // Create stock movement
-        StockMovement movement = StockMovement.builder()
-                .variant(variant)
-                .movementType(StockMovement.MovementType.OUT) // Hardcode sebagai OUT untuk remove-stock
-                .quantity(stockUpdateDTO.getQuantity())
-                .reason(stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock removal")
-                .reference(stockUpdateDTO.getReference())
-                .build();
-
-        StockMovement savedMovement = stockMovementRepository.save(movement);
+        Long movementId = recordMovement(variant, StockMovement.MovementType.OUT, stockUpdateDTO.getQuantity(),
+                stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock removal",
+                stockUpdateDTO.getReference());
+        eventPublisher.publishEvent(CatalogChangedEvent.ofVariant(variant.getItem().getId(), variant.getId()));
         log.info("Removed {} units from variant ID: {}. New stock: {}",
                 stockUpdateDTO.getQuantity(), stockUpdateDTO.getVariantId(), newStockQuantity);
 
-        return savedMovement;
+        return new StockMutationAck(movementId, variant.getId(), newStockQuantity, null);
     }
 
     // Untuk adjust-stock (bisa positif atau negatif)
-    public StockMovement adjustStock(StockUpdateDTO stockUpdateDTO) {
+    public StockMutationAck adjustStock(StockUpdateDTO stockUpdateDTO) {
         log.info("Adjusting stock for variant ID: {}", stockUpdateDTO.getVariantId());
 
         Variant variant = variantRepository.findById(stockUpdateDTO.getVariantId())
@@ -110,40 +122,71 @@ public class InventoryService {
         }
 
         variant.setStockQuantity(newStockQuantity);
-        variantRepository.save(variant);
-
-        // Determine movement type based on quantity
-        StockMovement.MovementType movementType = stockUpdateDTO.getQuantity() >= 0 ?
-                StockMovement.MovementType.IN : StockMovement.MovementType.OUT;
+        variantRepository.saveAndFlush(variant);
 
-        StockMovement movement = StockMovement.builder()
-                .variant(variant)
-                .movementType(StockMovement.MovementType.ADJUSTMENT)
-                .quantity(stockUpdateDTO.getQuantity())
-                .reason(stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock adjustment")
-                .reference(stockUpdateDTO.getReference())
-                .build();
-
-        StockMovement savedMovement = stockMovementRepository.save(movement);
+        Long movementId = recordMovement(variant, StockMovement.MovementType.ADJUSTMENT, stockUpdateDTO.getQuantity(),
+                stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock adjustment",
+                stockUpdateDTO.getReference());
+        eventPublisher.publishEvent(CatalogChangedEvent.ofVariant(variant.getItem().getId(), variant.getId()));
         log.info("Adjusted stock by {} units for variant ID: {}. New stock: {}",
                 stockUpdateDTO.getQuantity(), stockUpdateDTO.getVariantId(), newStockQuantity);
 
-        return savedMovement;
+        return new StockMutationAck(movementId, variant.getId(), newStockQuantity, null);
+    }
+
+    // UPDATE variant sudah di-flush, jadi barisnya terkunci sebelum insert movement (urutan kunci sama untuk
+    // semua writer). Insert-nya sendiri hanya jadi kalau variant masih ada
+    private Long recordMovement(Variant variant, StockMovement.MovementType type, int quantity,
+                                String reason, String reference) {
+        LocalDateTime now = LocalDateTime.now();
+        Long movementId = stockMovementInsertRepository.insertForVariant(variant.getId(), type, quantity,
+                reason, reference, now);
+        if (movementId == null) {
+            throw new ResourceNotFoundException("Variant not found with id: " + variant.getId());
+        }
+        eventPublisher.publishEvent(new StockMovementRecordedEvent(variant.getId(), type, quantity, now));
+        return movementId;
     }
 
     @Transactional(readOnly = true)
-    public List<StockMovement> getStockMovementHistory(Long variantId) {
+    public List<StockMovementResponse> getStockMovementHistory(Long variantId) {
         log.info("Fetching stock movement history for variant ID: {}", variantId);
         if (!variantRepository.existsById(variantId)) {
             throw new ResourceNotFoundException("Variant not found with id: " + variantId);
         }
-        return stockMovementRepository.findByVariantIdOrderByCreatedAtDesc(variantId);
+        return stockMovementRepository.findResponsesByVariantId(variantId);
     }
 
     @Transactional(readOnly = true)
+    public List<StockMovementEntryDTO> getStockMovementHistory(Long variantId, LocalDateTime from, LocalDateTime to,
+                                                               Set<StockMovement.MovementType> types, int limit) {
+        if (!variantRepository.existsById(variantId)) {
+            throw new ResourceNotFoundException("Variant not found with id: " + variantId);
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minus(DEFAULT_HISTORY_WINDOW);
+        Set<StockMovement.MovementType> movementTypes = types == null || types.isEmpty()
+                ? EnumSet.allOf(StockMovement.MovementType.class) : types;
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+        return stockMovementRepository.findHistory(variantId, start, end, movementTypes, PageRequest.of(0, pageSize));
+    }
+
+    // SUPPORTS: cache hit tidak perlu membuka transaksi (dan koneksi) sama sekali
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Integer getCurrentStockLevel(Long variantId) {
+        // Mode journal: saldo di memori sudah memuat mutasi yang belum terproyeksi ke database dan hot state
+        Integer journaled = journaledStockService.getStockQuantity(variantId);
+        if (journaled != null) {
+            return journaled;
+        }
+        Integer cached = hotInventoryState.getStockQuantity(variantId);
+        if (cached != null) {
+            return cached;
+        }
         Variant variant = variantRepository.findById(variantId)
                 .orElseThrow(() -> new ResourceNotFoundException("Variant not found with id: " + variantId));
+        hotInventoryState.remember(new HotVariant(variant.getId(), variant.getItem().getId(), variant.getSku(),
+                variant.getStockQuantity(), variant.getMinStockLevel(), variant.getUpdatedAt()));
         return variant.getStockQuantity();
     }
 
@@ -0,0 +1,414 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.ValuationDTO;
+import com.warehouse.dto.ValuationGroupDTO;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.exception.InvalidStockRequestException;
+import com.warehouse.exception.JobAlreadyRunningException;
+import com.warehouse.repository.ValuationRow;
+import com.warehouse.repository.VariantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inventory value (price x stockQuantity) kept as running aggregates in memory: catalog totals
+ * plus breakdowns by item, color, size and material. Every committed catalog change only marks
+ * variants or items as dirty; a scheduled refresh re-reads just those rows and swaps their old
+ * contribution for the new one. Changes made on other instances are found through variants.updated_at
+ * and deleted_at, the same way HotInventoryState reconciles. A full recompute scans the variant id
+ * space in ranges on a fork-join pool and replaces the aggregates; it runs on startup, on a schedule
+ * and on request, and also picks up variants hard-deleted on other instances.
+ */
+@Service
+@Lazy(false)
+@Slf4j
+public class InventoryValuationService {
+
+    public enum Dimension { ITEM, COLOR, SIZE, MATERIAL }
+
+    // Batas ukuran IN list per query saat menerapkan perubahan
+    private static final int REFRESH_BATCH = 1_000;
+
+    private final VariantRepository variantRepository;
+    private final TransactionTemplate readTransaction;
+    private final int rangeSize;
+    private final int parallelism;
+    private final Duration clockSkewOverlap;
+
+    // Agregat hanya diubah satu penulis (refresh atau recompute, bergantian lewat writer);
+    // lock baca-tulis menjaga pembaca tidak melihat update yang setengah jadi
+    private final ReentrantLock writer = new ReentrantLock();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Aggregate aggregate = new Aggregate();
+
+    private final Set<Long> dirtyVariants = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyItems = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean recomputing = new AtomicBoolean();
+    private volatile boolean ready;
+    private volatile LocalDateTime lastRecomputedAt;
+    private volatile Long lastRecomputeMillis;
+    private volatile LocalDateTime watermark;
+    private final ExecutorService launcher = BackgroundJobs.launcher("valuation-recompute");
+
+    public InventoryValuationService(VariantRepository variantRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${warehouse.valuation.range-size:5000}") int rangeSize,
+                                     @Value("${warehouse.valuation.parallelism:4}") int parallelism,
+                                     @Value("${warehouse.valuation.clock-skew-overlap:PT5S}") Duration clockSkewOverlap) {
+        this.variantRepository = variantRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.clockSkewOverlap = clockSkewOverlap;
+    }
+
+    public ValuationDTO getValuation() {
+        lock.readLock().lock();
+        try {
+            return ValuationDTO.builder()
+                    .totalValue(BigDecimal.valueOf(aggregate.total.valueCents, 2))
+                    .totalUnits(aggregate.total.units)
+                    .variantCount(aggregate.total.variants)
+                    .ready(ready)
+                    .recomputing(recomputing.get())
+                    .pendingChanges(dirtyVariants.size() + dirtyItems.size())
+                    .lastRecomputedAt(lastRecomputedAt)
+                    .lastRecomputeMillis(lastRecomputeMillis)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<ValuationGroupDTO> getBreakdown(String dimensionName, int limit) {
+        Dimension dimension;
+        try {
+            dimension = Dimension.valueOf(dimensionName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidStockRequestException("Unknown valuation dimension '" + dimensionName
+                    + "'; expected item, color, size or material");
+        }
+
+        List<Map.Entry<Object, Totals>> groups = new ArrayList<>();
+        long totalCents;
+        lock.readLock().lock();
+        try {
+            totalCents = aggregate.total.valueCents;
+            aggregate.groups.get(dimension).forEach((key, totals) -> groups.add(Map.entry(key, totals.copy())));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return groups.stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Object, Totals> group) -> group.getValue().valueCents).reversed())
+                .limit(limit)
+                .map(group -> ValuationGroupDTO.builder()
+                        .key(group.getKey() == Aggregate.NONE ? null : String.valueOf(group.getKey()))
+                        .totalValue(BigDecimal.valueOf(group.getValue().valueCents, 2))
+                        .totalUnits(group.getValue().units)
+                        .variantCount(group.getValue().variants)
+                        .shareOfValue(totalCents == 0 ? 0 : (double) group.getValue().valueCents / totalCents)
+                        .build())
+                .toList();
+    }
+
+    // Tidak ada query di thread request: cukup tandai, refresh berikutnya yang membaca ulang barisnya
+    @TransactionalEventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!event.getVariantIds().isEmpty()) {
+            dirtyVariants.addAll(event.getVariantIds());
+        } else {
+            // Perubahan level item (hapus item, repricing massal): semua variant item itu dibaca ulang
+            dirtyItems.addAll(event.getItemIds());
+        }
+    }
+
+    // Event hanya datang dari instance ini; perubahan instance lain ditandai dirty lewat updated_at dan deleted_at,
+    // dengan overlap untuk selisih jam antar server dan transaksi yang commit sedikit setelah waktunya di-set
+    @Scheduled(fixedDelayString = "${warehouse.valuation.reconcile-interval:PT30S}",
+            initialDelayString = "${warehouse.valuation.reconcile-interval:PT30S}")
+    public void scheduledReconcile() {
+        LocalDateTime from = watermark;
+        if (!ready || from == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since = from.minus(clockSkewOverlap);
+        List<Long> changed = readTransaction.execute(status -> variantRepository.findIdsChangedSince(since));
+        dirtyVariants.addAll(changed);
+        watermark = startedAt;
+        if (!changed.isEmpty()) {
+            log.debug("Marked {} variants changed since {} for valuation refresh", changed.size(), since);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialRecompute() {
+        startRecompute();
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.valuation.recompute-interval:PT6H}",
+            initialDelayString = "${warehouse.valuation.recompute-interval:PT6H}")
+    public void scheduledRecompute() {
+        if (!recomputing.get()) {
+            startRecompute();
+        }
+    }
+
+    public ValuationDTO startRecompute() {
+        if (!recomputing.compareAndSet(false, true)) {
+            throw new JobAlreadyRunningException("A valuation recompute is already running");
+        }
+        launcher.submit(this::recompute);
+        return getValuation();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        launcher.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.valuation.refresh-interval:PT1S}")
+    public void refresh() {
+        if (!ready || (dirtyVariants.isEmpty() && dirtyItems.isEmpty())) {
+            return;
+        }
+        // Recompute yang sedang jalan menerapkan perubahan ini sendiri setelah selesai
+        if (!writer.tryLock()) {
+            return;
+        }
+        try {
+            applyDirty();
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    private void recompute() {
+        long start = System.nanoTime();
+        writer.lock();
+        try {
+            // Perubahan di instance lain yang commit selama scan dibaca ulang oleh rekonsiliasi berikutnya
+            LocalDateTime scanStartedAt = LocalDateTime.now();
+            long minId = readTransaction.execute(status -> variantRepository.findMinId());
+            long maxId = readTransaction.execute(status -> variantRepository.findMaxId());
+            Aggregate fresh = BackgroundJobs.scanRanges(minId, maxId + 1, rangeSize, parallelism, this::scanRange,
+                    (left, right) -> {
+                        left.merge(right);
+                        return left;
+                    });
+
+            lock.writeLock().lock();
+            try {
+                aggregate = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (watermark == null) {
+                watermark = scanStartedAt;
+            }
+            ready = true;
+            lastRecomputedAt = LocalDateTime.now();
+            lastRecomputeMillis = (System.nanoTime() - start) / 1_000_000;
+            // Perubahan yang commit selama scan ditandai dirty dan diterapkan di atas hasil baru
+            applyDirty();
+            log.info("Recomputed inventory valuation over {} variants in {} ms: total {}",
+                    fresh.total.variants, lastRecomputeMillis, BigDecimal.valueOf(fresh.total.valueCents, 2));
+        } catch (RuntimeException e) {
+            log.error("Inventory valuation recompute failed", e);
+        } finally {
+            writer.unlock();
+            recomputing.set(false);
+        }
+    }
+
+    private void applyDirty() {
+        List<Long> variantIds = drain(dirtyVariants);
+        List<Long> itemIds = drain(dirtyItems);
+        List<ValuationRow> rows = new ArrayList<>();
+        try {
+            readTransaction.executeWithoutResult(status -> {
+                for (int from = 0; from < variantIds.size(); from += REFRESH_BATCH) {
+                    rows.addAll(variantRepository.findValuationRowsByIdIn(
+                            variantIds.subList(from, Math.min(from + REFRESH_BATCH, variantIds.size()))));
+                }
+                for (int from = 0; from < itemIds.size(); from += REFRESH_BATCH) {
+                    rows.addAll(variantRepository.findValuationRowsByItemIdIn(
+                            itemIds.subList(from, Math.min(from + REFRESH_BATCH, itemIds.size()))));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Coba lagi di refresh berikutnya
+            dirtyVariants.addAll(variantIds);
+            dirtyItems.addAll(itemIds);
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Set<Long> found = new HashSet<>();
+            for (ValuationRow row : rows) {
+                aggregate.put(Entry.of(row));
+                found.add(row.variantId());
+            }
+            // Variant yang tidak ditemukan lagi sudah dihapus
+            variantIds.stream().filter(id -> !found.contains(id)).forEach(aggregate::remove);
+            if (!itemIds.isEmpty()) {
+                Set<Long> items = new HashSet<>(itemIds);
+                List<Long> orphaned = aggregate.entries.values().stream()
+                        .filter(entry -> items.contains(entry.itemId()) && !found.contains(entry.variantId()))
+                        .map(Entry::variantId)
+                        .toList();
+                orphaned.forEach(aggregate::remove);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<Long> drain(Set<Long> ids) {
+        List<Long> drained = new ArrayList<>();
+        for (Iterator<Long> it = ids.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    private Aggregate scanRange(long fromId, long toId) {
+        Aggregate partial = new Aggregate();
+        readTransaction.execute(status -> variantRepository.findValuationRowsInRange(fromId, toId))
+                .forEach(row -> partial.put(Entry.of(row)));
+        return partial;
+    }
+
+    private record Entry(long variantId, long itemId, String color, String size, String material,
+                         long priceCents, int quantity) {
+
+        static Entry of(ValuationRow row) {
+            long cents = row.price().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            return new Entry(row.variantId(), row.itemId(), row.color(), row.size(), row.material(),
+                    cents, row.stockQuantity());
+        }
+
+        Object key(Dimension dimension) {
+            Object key = switch (dimension) {
+                case ITEM -> itemId;
+                case COLOR -> color;
+                case SIZE -> size;
+                case MATERIAL -> material;
+            };
+            return key != null ? key : Aggregate.NONE;
+        }
+    }
+
+    private static final class Totals {
+        private long valueCents;
+        private long units;
+        private long variants;
+
+        void add(Entry entry, int sign) {
+            valueCents += sign * entry.priceCents() * entry.quantity();
+            units += sign * (long) entry.quantity();
+            variants += sign;
+        }
+
+        void add(Totals other) {
+            valueCents += other.valueCents;
+            units += other.units;
+            variants += other.variants;
+        }
+
+        Totals copy() {
+            Totals copy = new Totals();
+            copy.add(this);
+            return copy;
+        }
+    }
+
+    private static final class Aggregate {
+        // Penanda atribut kosong; null tidak dipakai sebagai key supaya group-nya tetap bisa dilaporkan
+        private static final Object NONE = new Object();
+
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final Totals total = new Totals();
+        private final Map<Dimension, Map<Object, Totals>> groups = new EnumMap<>(Dimension.class);
+
+        Aggregate() {
+            for (Dimension dimension : Dimension.values()) {
+                groups.put(dimension, new HashMap<>());
+            }
+        }
+
+        void put(Entry entry) {
+            Entry previous = entries.put(entry.variantId(), entry);
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            apply(entry, 1);
+        }
+
+        void remove(long variantId) {
+            Entry previous = entries.remove(variantId);
+            if (previous != null) {
+                apply(previous, -1);
+            }
+        }
+
+        private void apply(Entry entry, int sign) {
+            total.add(entry, sign);
+            for (Dimension dimension : Dimension.values()) {
+                Map<Object, Totals> byKey = groups.get(dimension);
+                Object key = entry.key(dimension);
+                Totals totals = byKey.computeIfAbsent(key, k -> new Totals());
+                totals.add(entry, sign);
+                if (totals.variants == 0) {
+                    byKey.remove(key);
+                }
+            }
+        }
+
+        // Range id tidak tumpang tindih, jadi penggabungan cukup menjumlahkan
+        void merge(Aggregate other) {
+            entries.putAll(other.entries);
+            total.add(other.total);
+            for (Dimension dimension : Dimension.values()) {
+                Map<Object, Totals> byKey = groups.get(dimension);
+                other.groups.get(dimension).forEach((key, totals) ->
+                        byKey.computeIfAbsent(key, k -> new Totals()).add(totals));
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.ItemPurgeStatusDTO;
+import com.warehouse.event.CatalogKeysReleasedEvent;
+import com.warehouse.event.ItemPurgeRequestedEvent;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.repository.CatalogKey;
+import com.warehouse.repository.ItemRepository;
+import com.warehouse.repository.StockMovementRepository;
+import com.warehouse.repository.VariantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes soft-deleted items in the background: movements, then variants, then the item,
+ * each chunk in its own short transaction so live traffic is never blocked for long.
+ * Progress of the purges run here is kept in memory; a purge this instance does not know about
+ * (run elsewhere, or cut off by a restart) is reported from deleted_at and the rows still left.
+ * Unfinished purges are picked up again on startup.
+ */
+@Service
+@Lazy(false)
+@Slf4j
+public class ItemPurgeService {
+
+    private final ItemRepository itemRepository;
+    private final VariantRepository variantRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final Duration chunkPause;
+    private final Duration statusRetention;
+
+    private final ConcurrentHashMap<Long, Progress> purges = new ConcurrentHashMap<>();
+    private final ExecutorService executor = BackgroundJobs.launcher("item-purge");
+
+    public ItemPurgeService(ItemRepository itemRepository,
+                            VariantRepository variantRepository,
+                            StockMovementRepository stockMovementRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${warehouse.purge.chunk-size:1000}") int chunkSize,
+                            @Value("${warehouse.purge.chunk-pause:PT0.05S}") Duration chunkPause,
+                            @Value("${warehouse.purge.status-retention:PT1H}") Duration statusRetention) {
+        this.itemRepository = itemRepository;
+        this.variantRepository = variantRepository;
+        this.stockMovementRepository = stockMovementRepository;
+        this.eventPublisher = eventPublisher;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+        this.statusRetention = statusRetention;
+    }
+
+    public ItemPurgeStatusDTO getStatus(Long itemId) {
+        Progress progress = purges.get(itemId);
+        if (progress != null) {
+            return progress.toDTO();
+        }
+        return chunkTransaction.execute(status -> {
+            if (itemRepository.findSoftDeletedId(itemId).isEmpty()) {
+                throw new ResourceNotFoundException("No purge found for item id: " + itemId);
+            }
+            return ItemPurgeStatusDTO.builder()
+                    .itemId(itemId)
+                    .status("PENDING")
+                    .variantsRemaining(variantRepository.countByItemIdIncludingDeleted(itemId))
+                    .movementsRemaining(stockMovementRepository.countByItemIdIncludingDeleted(itemId))
+                    .build();
+        });
+    }
+
+    @TransactionalEventListener
+    public void onPurgeRequested(ItemPurgeRequestedEvent event) {
+        schedule(event.getItemId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingPurges() {
+        List<Long> pending = itemRepository.findSoftDeletedIds();
+        if (!pending.isEmpty()) {
+            log.info("Resuming purge of {} soft-deleted items", pending.size());
+            pending.forEach(this::schedule);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Purge yang terpotong dilanjutkan saat startup berikutnya
+        executor.shutdownNow();
+    }
+
+    private void schedule(Long itemId) {
+        LocalDateTime expiry = LocalDateTime.now().minus(statusRetention);
+        purges.values().removeIf(p -> p.finishedAt != null && p.finishedAt.isBefore(expiry));
+
+        Progress progress = new Progress(itemId);
+        Progress current = purges.compute(itemId,
+                (id, existing) -> existing == null || existing.isFinished() ? progress : existing);
+        if (current == progress) {
+            executor.submit(() -> purge(progress));
+        }
+    }
+
+    private void purge(Progress progress) {
+        Long itemId = progress.itemId;
+        progress.status = "RUNNING";
+        progress.startedAt = LocalDateTime.now();
+        log.info("Purging item {}", itemId);
+        try {
+            Set<String> skus = new HashSet<>();
+            while (true) {
+                List<CatalogKey> variants = chunkTransaction.execute(status ->
+                        variantRepository.findSkusByItemIdIncludingDeleted(itemId, chunkSize));
+                if (variants.isEmpty()) {
+                    break;
+                }
+                List<Long> variantIds = variants.stream().map(CatalogKey::getId).toList();
+                purgeMovements(progress, variantIds);
+
+                int deleted = chunkTransaction.execute(status -> variantRepository.deleteByIds(variantIds));
+                progress.variantsDeleted.addAndGet(deleted);
+                variants.forEach(v -> skus.add(v.getText()));
+                pause();
+            }
+
+            chunkTransaction.executeWithoutResult(status -> {
+                String name = itemRepository.findNameIncludingDeleted(itemId).orElse(null);
+                itemRepository.deleteSoftDeleted(itemId);
+                eventPublisher.publishEvent(new CatalogKeysReleasedEvent(skus, name != null ? Set.of(name) : Set.of()));
+            });
+            progress.status = "COMPLETED";
+            log.info("Purged item {}: {} variants, {} movements", itemId,
+                    progress.variantsDeleted.get(), progress.movementsDeleted.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.status = "INTERRUPTED";
+        } catch (RuntimeException e) {
+            log.error("Purge of item {} failed", itemId, e);
+            progress.status = "FAILED";
+            progress.error = e.getMessage();
+        } finally {
+            progress.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private void purgeMovements(Progress progress, List<Long> variantIds) throws InterruptedException {
+        while (true) {
+            int deleted = chunkTransaction.execute(status -> {
+                List<Long> movementIds = stockMovementRepository.findIdsByVariantIds(variantIds, chunkSize);
+                return movementIds.isEmpty() ? 0 : stockMovementRepository.deleteByIds(movementIds);
+            });
+            if (deleted == 0) {
+                return;
+            }
+            progress.movementsDeleted.addAndGet(deleted);
+            pause();
+        }
+    }
+
+    private void pause() throws InterruptedException {
+        if (!chunkPause.isZero()) {
+            Thread.sleep(chunkPause.toMillis());
+        }
+    }
+
+    private static final class Progress {
+        private final Long itemId;
+        private final AtomicLong variantsDeleted = new AtomicLong();
+        private final AtomicLong movementsDeleted = new AtomicLong();
+        private volatile String status = "QUEUED";
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Progress(Long itemId) {
+            this.itemId = itemId;
+        }
+
+        boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        ItemPurgeStatusDTO toDTO() {
+            return ItemPurgeStatusDTO.builder()
+                    .itemId(itemId)
+                    .status(status)
+                    .variantsDeleted(variantsDeleted.get())
+                    .movementsDeleted(movementsDeleted.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -1,20 +1,39 @@
 package com.warehouse.service;
 
+import com.warehouse.cache.CatalogKeyIndex;
+import com.warehouse.cache.ReadCoalescer;
+import com.warehouse.dto.FieldSelection;
 import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.ItemVariantMatrixDTO;
+import com.warehouse.dto.ResourceVersion;
 import com.warehouse.dto.VariantDTO;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.event.CatalogKeysReleasedEvent;
+import com.warehouse.event.ItemPurgeRequestedEvent;
 import com.warehouse.exception.DuplicateResourceException;
 import com.warehouse.exception.ResourceNotFoundException;
 import com.warehouse.model.Item;
 import com.warehouse.model.StockMovement;
 import com.warehouse.model.Variant;
+import com.warehouse.repository.CatalogProjectionRepository;
+import com.warehouse.repository.ChangeStamp;
 import com.warehouse.repository.ItemRepository;
 import com.warehouse.repository.StockMovementRepository;
+import com.warehouse.repository.VariantRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,12 +44,18 @@ public class ItemService {
 
     private final ItemRepository itemRepository;
     private final VariantService variantService;
+    private final VariantRepository variantRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogKeyIndex catalogKeyIndex;
+    private final ReadCoalescer readCoalescer;
+    private final CatalogProjectionRepository catalogProjectionRepository;
+    private final VariantMatrixService variantMatrixService;
 
     public ItemDTO createItem(ItemDTO itemDTO) {
         log.info("Creating new item: {}", itemDTO.getName());
 
-        if (itemRepository.existsByName(itemDTO.getName())) {
+        if (itemNameExists(itemDTO.getName())) {
             throw new DuplicateResourceException("Item with name '" + itemDTO.getName() + "' already exists");
         }
 
@@ -41,6 +66,8 @@ public class ItemService {
                 .build();
 
         Item savedItem = itemRepository.save(item);
+        catalogKeyIndex.itemNameAdded(savedItem.getName());
+        eventPublisher.publishEvent(CatalogChangedEvent.ofItem(savedItem.getId()));
         log.info("Created item with ID: {}", savedItem.getId());
 
         return convertToDTO(savedItem);
@@ -49,7 +76,7 @@ public class ItemService {
     public ItemDTO createItemWithVariants(ItemDTO itemDTO) {
         log.info("Creating new item with variants: {}", itemDTO.getName());
 
-        if (itemRepository.existsByName(itemDTO.getName())) {
+        if (itemNameExists(itemDTO.getName())) {
             throw new DuplicateResourceException("Item with name '" + itemDTO.getName() + "' already exists");
         }
 
@@ -60,12 +87,19 @@ public class ItemService {
                 .build();
 
         Item savedItem = itemRepository.save(item);
+        catalogKeyIndex.itemNameAdded(savedItem.getName());
         log.info("Created item with ID: {}", savedItem.getId());
 
         if (itemDTO.getVariants() != null && !itemDTO.getVariants().isEmpty()) {
+            // SKU yang sudah dipakai dilewati. Satu query untuk semua SKU, langsung ke database (termasuk variant
+            // yang sedang di-purge): filter di memori bisa belum mengenal SKU dari instance lain.
+            Set<String> takenSkus = variantRepository.findSkusIncludingDeleted(itemDTO.getVariants().stream()
+                            .map(VariantDTO::getSku)
+                            .collect(Collectors.toSet())).stream()
+                    .map(sku -> sku.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toCollection(HashSet::new));
             for (VariantDTO variantDTO : itemDTO.getVariants()) {
-                // Check if variant with same SKU already exists
-                if (!variantService.existsBySku(variantDTO.getSku())) {
+                if (takenSkus.add(variantDTO.getSku().toLowerCase(Locale.ROOT))) {
                     Variant variant = Variant.builder()
                             .item(savedItem)
                             .sku(variantDTO.getSku())
@@ -94,10 +128,39 @@ public class ItemService {
 
         Item itemWithVariants = itemRepository.findByIdWithVariants(savedItem.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Item not found after creation"));
+        eventPublisher.publishEvent(CatalogChangedEvent.ofItem(savedItem.getId()));
 
         return convertToDTO(itemWithVariants);
     }
 
+    // Variant dibangkitkan di server dan di-insert per batch, bukan satu per satu seperti createItemWithVariants
+    public ItemDTO createItemWithVariantMatrix(ItemVariantMatrixDTO request) {
+        log.info("Creating new item with variant matrix: {}", request.getName());
+
+        if (itemNameExists(request.getName())) {
+            throw new DuplicateResourceException("Item with name '" + request.getName() + "' already exists");
+        }
+
+        Item savedItem = itemRepository.save(Item.builder()
+                .name(request.getName())
+                .description(request.getDescription())
+                .basePrice(request.getBasePrice())
+                .build());
+        catalogKeyIndex.itemNameAdded(savedItem.getName());
+        variantMatrixService.insertMatrix(savedItem, request.getMatrix());
+
+        // Variant di-insert lewat JDBC, koleksi variants pada item yang masih managed tidak ikut terisi
+        ItemDTO created = convertToDTO(savedItem);
+        created.setVariants(variantRepository.findByItemId(savedItem.getId()).stream()
+                .sorted(Comparator.comparing(Variant::getId))
+                .map(variantService::convertToDTO)
+                .collect(Collectors.toList()));
+        eventPublisher.publishEvent(CatalogChangedEvent.ofItem(savedItem.getId()));
+        log.info("Created item with ID: {} and {} variants", savedItem.getId(), created.getVariants().size());
+
+        return created;
+    }
+
     @Transactional(readOnly = true)
     public List<ItemDTO> getAllItems() {
         log.info("Fetching all items");
@@ -106,12 +169,58 @@ public class ItemService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
+    // SUPPORTS: pemanggil yang menumpang load orang lain tidak perlu transaksi (dan koneksi)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public ItemDTO getItemById(Long id) {
         log.info("Fetching item by ID: {}", id);
-        Item item = itemRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Item not found with id: " + id));
-        return convertToDTO(item);
+        return readCoalescer.load("item", id, () -> {
+            Item item = itemRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Item not found with id: " + id));
+            return convertToDTO(item);
+        }, ItemService::copy);
+    }
+
+    // Sparse fieldset: hanya kolom yang diminta yang di-select, variant hanya kalau di-include
+    @Transactional(readOnly = true)
+    public Map<String, Object> getItemFields(Long id, FieldSelection selection) {
+        log.info("Fetching item fields {} by ID: {}", selection.getFields(), id);
+        List<Map<String, Object>> items = catalogProjectionRepository.findItems(
+                (item, query, cb) -> cb.equal(item.get("id"), id), selection);
+        if (items.isEmpty()) {
+            throw new ResourceNotFoundException("Item not found with id: " + id);
+        }
+        return items.get(0);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllItemFields(FieldSelection selection) {
+        log.info("Fetching fields {} of all items", selection.getFields());
+        return catalogProjectionRepository.findItems(null, selection);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> searchItemFieldsByName(String name, FieldSelection selection) {
+        log.info("Searching item fields {} by name: {}", selection.getFields(), name);
+        return catalogProjectionRepository.findItems((item, query, cb) ->
+                cb.like(cb.lower(item.get("name")), "%" + name.toLowerCase() + "%"), selection);
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public ResourceVersion getItemVersion(Long id) {
+        return readCoalescer.load("item-version", id,
+                () -> toVersionIfExists("item:" + id, itemRepository.getChangeStamp(id)));
+    }
+
+    // Proyeksi dibaca langsung dari tabel, jadi validatornya juga dari tabel, bukan dari snapshot katalog
+    @Transactional(readOnly = true)
+    public ResourceVersion getAllItemFieldsVersion(FieldSelection selection) {
+        return toVersion("items:fields:" + selection.getFields() + ":" + selection.getVariantFields(),
+                itemRepository.getChangeStampOfAll());
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getSearchVersion(String name) {
+        return toVersion("items:search:" + name, itemRepository.getChangeStampByNameContaining(name));
     }
 
     public ItemDTO updateItem(Long id, ItemDTO itemDTO) {
@@ -119,8 +228,9 @@ public class ItemService {
         Item existingItem = itemRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Item not found with id: " + id));
 
-        if (!existingItem.getName().equals(itemDTO.getName()) &&
-                itemRepository.existsByName(itemDTO.getName())) {
+        String previousName = existingItem.getName();
+        boolean renamed = !previousName.equals(itemDTO.getName());
+        if (renamed && itemNameExists(itemDTO.getName())) {
             throw new DuplicateResourceException("Item with name '" + itemDTO.getName() + "' already exists");
         }
 
@@ -129,6 +239,11 @@ public class ItemService {
         existingItem.setBasePrice(itemDTO.getBasePrice());
 
         Item updatedItem = itemRepository.save(existingItem);
+        if (renamed) {
+            catalogKeyIndex.itemNameAdded(updatedItem.getName());
+            eventPublisher.publishEvent(CatalogKeysReleasedEvent.ofItemName(previousName));
+        }
+        eventPublisher.publishEvent(CatalogChangedEvent.ofItem(id));
         log.info("Updated item with ID: {}", updatedItem.getId());
 
         return convertToDTO(updatedItem);
@@ -136,11 +251,31 @@ public class ItemService {
 
     public void deleteItem(Long id) {
         log.info("Deleting item with ID: {}", id);
-        if (!itemRepository.existsById(id)) {
+        // Kunci item dulu: variant yang dibuat bersamaan (matrix) sudah commit atau belum dimulai, dan
+        // tidak ada yang tertinggal dengan movement yatim setelah item terhapus
+        itemRepository.lockById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Item not found with id: " + id));
+        Item item = itemRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Item not found with id: " + id));
+        Set<String> skus = item.getVariants().stream().map(Variant::getSku).collect(Collectors.toSet());
+        stockMovementRepository.deleteByItemId(id);
+        itemRepository.delete(item);
+        eventPublisher.publishEvent(new CatalogKeysReleasedEvent(skus, Set.of(item.getName())));
+        eventPublisher.publishEvent(CatalogChangedEvent.ofItem(id));
+        log.info("Deleted item with ID: {}", id);
+    }
+
+    // Hanya menandai item dan variant-nya; penghapusan baris dikerjakan ItemPurgeService setelah commit
+    public void purgeItem(Long id) {
+        log.info("Purging item with ID: {}", id);
+        LocalDateTime deletedAt = LocalDateTime.now();
+        if (itemRepository.softDelete(id, deletedAt) == 0) {
             throw new ResourceNotFoundException("Item not found with id: " + id);
         }
-        itemRepository.deleteById(id);
-        log.info("Deleted item with ID: {}", id);
+        int variants = variantRepository.softDeleteByItemId(id, deletedAt);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofItem(id));
+        eventPublisher.publishEvent(new ItemPurgeRequestedEvent(id));
+        log.info("Soft-deleted item with ID: {} and {} variants, purge scheduled", id, variants);
     }
 
     @Transactional(readOnly = true)
@@ -151,7 +286,29 @@ public class ItemService {
                 .collect(Collectors.toList());
     }
 
-    private ItemDTO convertToDTO(Item item) {
+    private boolean itemNameExists(String name) {
+        return catalogKeyIndex.itemNameExists(name, () -> itemRepository.findIdByNameIncludingDeleted(name).isPresent());
+    }
+
+    private ResourceVersion toVersion(String resource, ChangeStamp stamp) {
+        return ResourceVersion.of(resource, stamp.getRowCount(), stamp.getIdSum(), stamp.getLastModified());
+    }
+
+    // Resource yang tidak ada tidak punya validator, biarkan request jatuh ke 404
+    private ResourceVersion toVersionIfExists(String resource, ChangeStamp stamp) {
+        return stamp.getRowCount() > 0 ? toVersion(resource, stamp) : null;
+    }
+
+    // Variant ikut disalin: list dan DTO di dalamnya juga bisa diubah oleh pemanggil
+    static ItemDTO copy(ItemDTO item) {
+        return item.toBuilder()
+                .variants(item.getVariants() == null ? null : item.getVariants().stream()
+                        .map(VariantService::copy)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    public ItemDTO convertToDTO(Item item) {
         ItemDTO dto = ItemDTO.builder()
                 .id(item.getId())
                 .name(item.getName())
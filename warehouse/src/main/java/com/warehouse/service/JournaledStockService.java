@@ -0,0 +1,751 @@
+package com.warehouse.service;
+
+import com.warehouse.cache.HotVariant;
+import com.warehouse.dto.StockMutationAck;
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.event.StockMovementRecordedEvent;
+import com.warehouse.exception.InsufficientStockException;
+import com.warehouse.exception.InvalidStockRequestException;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.exception.StockJournalUnavailableException;
+import com.warehouse.exception.TooManyRequestsException;
+import com.warehouse.journal.JournalEntry;
+import com.warehouse.journal.MovementJournal;
+import com.warehouse.model.StockMovement;
+import com.warehouse.repository.StockJournalRepository;
+import com.warehouse.repository.VariantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Journal write mode for stock mutations ({@code warehouse.stock-journal.enabled=true}). A mutation is
+ * checked against an in-memory balance, appended to the {@link MovementJournal} and acknowledged once the
+ * journal batch holding it is on disk; concurrent mutations share one fsync. A projector thread applies
+ * journal batches to variants and stock_movements and advances the checkpoint in the same transaction,
+ * then publishes the events the JPA write path would have published. After a restart everything past the
+ * checkpoint is projected before mutations are accepted again.
+ * Balances are the authority for stock of the variants they hold; variants, movements and the series
+ * built from them trail the journal by the projection delay. A balance whose variant changed outside the
+ * journal is rebuilt by the projector as database stock plus its unprojected deltas; until then mutations
+ * of that variant get 503. Changes made by other instances are picked up from variants.updated_at.
+ * <p>
+ * Single writer: the journal directory is locked by {@link MovementJournal}, and mutations are accepted
+ * only while this instance holds the writer lease in stock_journal_checkpoints. The lease excludes every
+ * other journal too, so with several instances exactly one accepts journaled mutations and the others
+ * answer 503. An acknowledged mutation is only on this instance's local disk until it is projected; losing
+ * that disk loses it, which is weaker than a database commit.
+ */
+@Service
+@Lazy(false)
+@Slf4j
+public class JournaledStockService {
+
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final int REBASE_BATCH_SIZE = 1000;
+
+    private final VariantRepository variantRepository;
+    private final StockJournalRepository stockJournalRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final boolean enabled;
+    private final Path directory;
+    private final DataSize segmentSize;
+    private final int maxBatch;
+    private final int maxUnprojected;
+    private final int projectorBatchSize;
+    private final Duration retryInterval;
+    private final Duration leaseDuration;
+    private final Duration reconcileInterval;
+    private final Duration clockSkewOverlap;
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    private final ConcurrentHashMap<Long, Balance> balances = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<PendingAppend> appendQueue = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<JournalEntry> projectionQueue = new LinkedBlockingQueue<>();
+    // Mutasi yang sudah masuk antrean tapi belum terproyeksi; di atas batas, mutasi baru ditolak 429
+    private final AtomicInteger unprojected = new AtomicInteger();
+    // Saldo yang harus dibangun ulang dari database oleh projector
+    private final Set<Long> staleVariantIds = ConcurrentHashMap.newKeySet();
+    // Read lock dipegang dari cek saldo sampai enqueue. stop() dan append yang gagal mengambil write lock:
+    // setelahnya tidak ada mutasi yang sedang disetujui terhadap saldo lama
+    private final ReentrantReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private volatile boolean accepting;
+    private volatile boolean stopping;
+    private volatile boolean waitingForLease;
+    private volatile MovementJournal journal;
+    private volatile long projectedSequence;
+    private volatile Thread writerThread;
+    private volatile Thread projectorThread;
+    private volatile Thread leaseThread;
+    // System.nanoTime() sampai kapan lease dianggap masih dipegang; separuh durasi lease setelah diperbarui
+    private volatile long leaseDeadline = System.nanoTime();
+    private LocalDateTime reconcileWatermark;
+    private long lastReconcile;
+
+    public JournaledStockService(VariantRepository variantRepository,
+                                 StockJournalRepository stockJournalRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${warehouse.stock-journal.enabled:false}") boolean enabled,
+                                 @Value("${warehouse.stock-journal.directory:data/stock-journal}") Path directory,
+                                 @Value("${warehouse.stock-journal.segment-size:64MB}") DataSize segmentSize,
+                                 @Value("${warehouse.stock-journal.max-batch:1000}") int maxBatch,
+                                 @Value("${warehouse.stock-journal.max-unprojected:100000}") int maxUnprojected,
+                                 @Value("${warehouse.stock-journal.projector.batch-size:5000}") int projectorBatchSize,
+                                 @Value("${warehouse.stock-journal.projector.retry-interval:PT1S}") Duration retryInterval,
+                                 @Value("${warehouse.stock-journal.lease-duration:PT30S}") Duration leaseDuration,
+                                 @Value("${warehouse.stock-journal.reconcile-interval:PT5S}") Duration reconcileInterval,
+                                 @Value("${warehouse.hot-state.clock-skew-overlap:PT5S}") Duration clockSkewOverlap) {
+        this.variantRepository = variantRepository;
+        this.stockJournalRepository = stockJournalRepository;
+        this.eventPublisher = eventPublisher;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxBatch = maxBatch;
+        this.maxUnprojected = maxUnprojected;
+        this.projectorBatchSize = projectorBatchSize;
+        this.retryInterval = retryInterval;
+        this.leaseDuration = leaseDuration;
+        this.reconcileInterval = reconcileInterval;
+        this.clockSkewOverlap = clockSkewOverlap;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Replay setelah start sudah selesai dan mutasi diterima
+    public boolean isReady() {
+        return accepting;
+    }
+
+    public StockMutationAck addStock(StockUpdateDTO stockUpdateDTO) {
+        Integer quantity = stockUpdateDTO.getQuantity();
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        return append(stockUpdateDTO.getVariantId(), StockMovement.MovementType.IN, quantity, quantity,
+                stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock addition",
+                stockUpdateDTO.getReference(), null);
+    }
+
+    public StockMutationAck removeStock(StockUpdateDTO stockUpdateDTO) {
+        Integer quantity = stockUpdateDTO.getQuantity();
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        return append(stockUpdateDTO.getVariantId(), StockMovement.MovementType.OUT, quantity, -quantity,
+                stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock removal",
+                stockUpdateDTO.getReference(),
+                (sku, available) -> new IllegalArgumentException("Insufficient stock available. Available: "
+                        + available + ", Requested: " + quantity));
+    }
+
+    public StockMutationAck adjustStock(StockUpdateDTO stockUpdateDTO) {
+        Integer quantity = stockUpdateDTO.getQuantity();
+        if (quantity == null) {
+            throw new IllegalArgumentException("Quantity is required");
+        }
+        return append(stockUpdateDTO.getVariantId(), StockMovement.MovementType.ADJUSTMENT, quantity, quantity,
+                stockUpdateDTO.getReason() != null ? stockUpdateDTO.getReason() : "Stock adjustment",
+                stockUpdateDTO.getReference(),
+                (sku, available) -> new IllegalArgumentException(
+                        "Stock cannot be negative. Adjustment would result in: " + (available + quantity)));
+    }
+
+    public StockMutationAck reserveStock(Long variantId, Integer quantity) {
+        return append(variantId, StockMovement.MovementType.OUT, quantity, -quantity, "Sale reservation", null,
+                (sku, available) -> new InsufficientStockException("Insufficient stock for variant " + sku
+                        + ". Available: " + available + ", Requested: " + quantity));
+    }
+
+    // Stok menurut journal, termasuk mutasi yang belum terproyeksi; null kalau variant tidak dipegang di memori
+    public Integer getStockQuantity(Long variantId) {
+        Balance balance = balances.get(variantId);
+        if (balance == null) {
+            return null;
+        }
+        synchronized (balance) {
+            return balance.removed || balance.stale ? null : balance.stock;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Rejection {
+        RuntimeException reject(String sku, int available);
+    }
+
+    private StockMutationAck append(Long variantId, StockMovement.MovementType type, int quantity, int delta,
+                                    String reason, String reference, Rejection rejection) {
+        if (!accepting) {
+            throw new StockJournalUnavailableException(!enabled ? "Stock journal is disabled"
+                    : waitingForLease ? "Another instance holds the stock journal writer lease"
+                    : "Stock journal is still replaying, try again shortly");
+        }
+        if (!leaseValid()) {
+            throw new StockJournalUnavailableException("This instance does not hold the stock journal writer lease");
+        }
+        if (unprojected.get() >= maxUnprojected) {
+            throw new TooManyRequestsException("Stock journal projection is " + unprojected.get()
+                    + " movements behind", retryInterval);
+        }
+        // Entry yang tidak muat di kolomnya akan menahan proyeksi selamanya, jadi ditolak sebelum masuk journal
+        if (length(reason) > MAX_TEXT_LENGTH || length(reference) > MAX_TEXT_LENGTH) {
+            throw new InvalidStockRequestException("Reason and reference are limited to " + MAX_TEXT_LENGTH + " characters");
+        }
+
+        JournalEntry entry = new JournalEntry(0, variantId, type, quantity, reason, reference, LocalDateTime.now());
+        PendingAppend pending;
+        int stockAfter;
+        while (true) {
+            Balance balance = balance(variantId);
+            lifecycle.readLock().lock();
+            try {
+                if (!accepting) {
+                    throw new StockJournalUnavailableException("Stock journal is shutting down");
+                }
+                synchronized (balance) {
+                    if (balance.removed) {
+                        continue;
+                    }
+                    if (balance.stale) {
+                        throw new StockJournalUnavailableException("Stock of variant " + variantId
+                                + " is being reloaded, try again shortly");
+                    }
+                    if (rejection != null && balance.stock + delta < 0) {
+                        throw rejection.reject(balance.sku, balance.stock);
+                    }
+                    balance.stock += delta;
+                    balance.pending += delta;
+                    stockAfter = balance.stock;
+                    // Enqueue di dalam monitor: antrean menyimpan urutan yang sama dengan saldo yang menyetujuinya
+                    pending = new PendingAppend(entry, balance, new CompletableFuture<>());
+                    unprojected.incrementAndGet();
+                    appendQueue.add(pending);
+                    break;
+                }
+            } finally {
+                lifecycle.readLock().unlock();
+            }
+        }
+
+        try {
+            long sequence = pending.future().join();
+            return new StockMutationAck(null, variantId, stockAfter, sequence);
+        } catch (CompletionException e) {
+            // Saldo sudah dikembalikan oleh writer
+            throw new StockJournalUnavailableException("Stock journal write failed", e.getCause());
+        }
+    }
+
+    private Balance balance(Long variantId) {
+        Balance balance = balances.get(variantId);
+        if (balance != null) {
+            return balance;
+        }
+        // Variant yang tidak ada di memori tidak punya entry yang belum terproyeksi, jadi database sudah lengkap
+        List<HotVariant> rows = readTransaction.execute(status -> variantRepository.findHotVariantsByIdIn(List.of(variantId)));
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Variant not found with id: " + variantId);
+        }
+        HotVariant row = rows.get(0);
+        Balance loaded = new Balance(row.itemId(), row.sku(), row.stockQuantity());
+        Balance existing = balances.putIfAbsent(variantId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    // Dipanggil dengan monitor saldo dipegang
+    private void markStale(long variantId, Balance balance) {
+        balance.stale = true;
+        balance.staleMarks++;
+        staleVariantIds.add(variantId);
+    }
+
+    /**
+     * Marks balances of variants changed outside the journal (update, matrix, repricing, delete, purge)
+     * stale; the projector rebuilds them from the database.
+     */
+    @TransactionalEventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        // Event dari projector sendiri: saldo di memori sudah lebih baru dari baris yang baru diproyeksikan
+        if (!enabled || Thread.currentThread() == projectorThread) {
+            return;
+        }
+        if (!event.getVariantIds().isEmpty()) {
+            event.getVariantIds().forEach(variantId -> {
+                Balance balance = balances.get(variantId);
+                if (balance != null) {
+                    synchronized (balance) {
+                        markStale(variantId, balance);
+                    }
+                }
+            });
+        } else {
+            balances.forEach((variantId, balance) -> {
+                if (event.getItemIds().contains(balance.itemId)) {
+                    synchronized (balance) {
+                        markStale(variantId, balance);
+                    }
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread recovery = new Thread(this::recover, "stock-journal-recovery");
+        recovery.setDaemon(true);
+        recovery.start();
+    }
+
+    // Proyeksikan sisa journal dari checkpoint, baru setelah itu mutasi diterima
+    private void recover() {
+        long start = System.nanoTime();
+        try {
+            journal = MovementJournal.open(directory, segmentSize.toBytes());
+            String journalId = journal.getId().toString();
+            Long checkpoint = null;
+            while (checkpoint == null && !stopping) {
+                try {
+                    checkpoint = writeTransaction.execute(status -> stockJournalRepository.findOrCreateCheckpoint(journalId));
+                } catch (RuntimeException e) {
+                    log.warn("Reading checkpoint of stock journal {} failed, retrying: {}", journalId, e.getMessage());
+                    sleep(retryInterval);
+                }
+            }
+            if (checkpoint == null) {
+                return;
+            }
+            // Fail closed: tanpa lease tidak ada replay maupun mutasi. Instance cadangan menunggu di sini
+            // sampai pemegang lease berhenti dan lease-nya kedaluwarsa
+            while (!renewLease(journalId) && !stopping) {
+                if (!waitingForLease) {
+                    log.info("Stock journal writer lease is held by another instance; waiting for it to expire");
+                    waitingForLease = true;
+                }
+                sleep(retryInterval);
+            }
+            waitingForLease = false;
+            if (stopping) {
+                return;
+            }
+
+            projectedSequence = checkpoint;
+            List<JournalEntry> batch = new ArrayList<>(projectorBatchSize);
+            long[] replayed = {0};
+            journal.replay(checkpoint, entry -> {
+                batch.add(entry);
+                if (batch.size() == projectorBatchSize) {
+                    projectWithRetry(batch);
+                    replayed[0] += batch.size();
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                projectWithRetry(batch);
+                replayed[0] += batch.size();
+            }
+            if (projectedSequence != journal.getLastSequence()) {
+                // Berhenti di tengah replay (shutdown); sisanya diulang saat start berikutnya
+                return;
+            }
+            journal.deleteProjected(projectedSequence);
+
+            // accepting dulu: writer berhenti begitu accepting false dan antreannya kosong
+            accepting = true;
+            writerThread = daemon(this::writeLoop, "stock-journal-writer");
+            projectorThread = daemon(this::projectLoop, "stock-journal-projector");
+            leaseThread = daemon(() -> leaseLoop(journalId), "stock-journal-lease");
+            log.info("Stock journal {} ready at sequence {} after replaying {} entries in {} ms",
+                    journalId, projectedSequence, replayed[0], (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.error("Stock journal in {} could not be recovered; journaled stock mutations are unavailable", directory, e);
+        }
+    }
+
+    private void leaseLoop(String journalId) {
+        Duration renewEvery = leaseDuration.dividedBy(4);
+        while (!stopping) {
+            sleep(renewEvery);
+            if (!stopping) {
+                renewLease(journalId);
+            }
+        }
+    }
+
+    /**
+     * Takes or renews the writer lease. It counts as held for half the lease duration from the start of the
+     * renewal, which leaves room for clock skew against the instance that would take it over. When the lease
+     * had lapsed, another instance may have written meanwhile, so every balance is rebuilt.
+     */
+    private boolean renewLease(String journalId) {
+        long startedAt = System.nanoTime();
+        boolean lapsed = !leaseValid();
+        LocalDateTime now = LocalDateTime.now();
+        boolean acquired;
+        try {
+            acquired = Boolean.TRUE.equals(writeTransaction.execute(status ->
+                    stockJournalRepository.acquireLease(journalId, leaseOwner, now, now.plus(leaseDuration))));
+        } catch (RuntimeException e) {
+            log.warn("Renewing the stock journal writer lease failed: {}", e.getMessage());
+            return false;
+        }
+        if (!acquired) {
+            if (!lapsed) {
+                log.warn("Stock journal writer lease was taken by another instance; journaled mutations are refused");
+            }
+            return false;
+        }
+        if (lapsed && accepting) {
+            log.warn("Stock journal writer lease had lapsed; rebuilding {} balances", balances.size());
+            balances.forEach((variantId, balance) -> {
+                synchronized (balance) {
+                    markStale(variantId, balance);
+                }
+            });
+        }
+        leaseDeadline = startedAt + leaseDuration.toNanos() / 2;
+        return true;
+    }
+
+    private boolean leaseValid() {
+        return System.nanoTime() - leaseDeadline < 0;
+    }
+
+    // Group commit: semua yang antre selama fsync sebelumnya ditulis dan di-fsync sebagai satu batch
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>(maxBatch);
+        List<JournalEntry> entries = new ArrayList<>(maxBatch);
+        while (accepting || !appendQueue.isEmpty()) {
+            try {
+                PendingAppend first = appendQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                appendQueue.drainTo(batch, maxBatch - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            batch.forEach(pending -> entries.add(pending.entry()));
+            try {
+                if (!leaseValid()) {
+                    throw new IllegalStateException("Stock journal writer lease is not held");
+                }
+                List<JournalEntry> written = journal.append(entries);
+                projectionQueue.addAll(written);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).future().complete(written.get(i).sequence());
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Appending {} entries to the stock journal failed", batch.size(), e);
+                failPending(batch, e);
+            }
+            batch.clear();
+            entries.clear();
+        }
+    }
+
+    /**
+     * Fails the batch and every mutation queued behind it: they may have been approved against balances
+     * that counted the failed deltas. Their balances are marked stale and rebuilt from the database.
+     */
+    private void failPending(List<PendingAppend> batch, Exception cause) {
+        List<PendingAppend> failed = new ArrayList<>(batch);
+        lifecycle.writeLock().lock();
+        try {
+            appendQueue.drainTo(failed);
+            for (PendingAppend pending : failed) {
+                Balance balance = pending.balance();
+                synchronized (balance) {
+                    balance.pending -= pending.entry().delta();
+                    markStale(pending.entry().variantId(), balance);
+                }
+            }
+            unprojected.addAndGet(-failed.size());
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        failed.forEach(pending -> pending.future().completeExceptionally(cause));
+        if (failed.size() > batch.size()) {
+            log.warn("Failed {} queued stock journal mutations behind the failed append", failed.size() - batch.size());
+        }
+    }
+
+    private void projectLoop() {
+        List<JournalEntry> batch = new ArrayList<>(projectorBatchSize);
+        while (!stopping || !projectionQueue.isEmpty()) {
+            try {
+                JournalEntry first = projectionQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    projectionQueue.drainTo(batch, projectorBatchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (!batch.isEmpty()) {
+                if (!projectWithRetry(batch)) {
+                    break;
+                }
+                for (JournalEntry entry : batch) {
+                    unprojected.decrementAndGet();
+                    Balance balance = balances.get(entry.variantId());
+                    if (balance != null) {
+                        synchronized (balance) {
+                            balance.pending -= entry.delta();
+                        }
+                    }
+                }
+                batch.clear();
+                try {
+                    journal.deleteProjected(projectedSequence);
+                } catch (IOException e) {
+                    log.warn("Deleting projected stock journal segments failed: {}", e.getMessage());
+                }
+            }
+            rebuildBalances();
+        }
+    }
+
+    // Di thread projector, di antara batch: stok database memuat tepat entry yang sudah terproyeksi, jadi
+    // saldo = stok database + delta yang belum terproyeksi
+    private void rebuildBalances() {
+        try {
+            if (!staleVariantIds.isEmpty()) {
+                List<Long> variantIds = new ArrayList<>(staleVariantIds);
+                staleVariantIds.removeAll(variantIds);
+                try {
+                    rebase(variantIds);
+                } catch (RuntimeException e) {
+                    staleVariantIds.addAll(variantIds);
+                    throw e;
+                }
+            }
+            if (System.nanoTime() - lastReconcile >= reconcileInterval.toNanos()) {
+                reconcile();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Rebuilding stock journal balances failed, retrying: {}", e.getMessage());
+        }
+    }
+
+    // Perubahan dari instance lain tidak lewat event di sini; ambil dari updatedAt seperti HotInventoryState
+    private void reconcile() {
+        long startedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        if (reconcileWatermark != null && !balances.isEmpty()) {
+            LocalDateTime since = reconcileWatermark.minus(clockSkewOverlap);
+            List<Long> changed = readTransaction.execute(status -> variantRepository.findHotVariantsUpdatedSince(since))
+                    .stream().map(HotVariant::variantId).filter(balances::containsKey).toList();
+            rebase(changed);
+        }
+        reconcileWatermark = now;
+        lastReconcile = startedAt;
+    }
+
+    private void rebase(List<Long> variantIds) {
+        for (int start = 0; start < variantIds.size(); start += REBASE_BATCH_SIZE) {
+            List<Long> chunk = variantIds.subList(start, Math.min(start + REBASE_BATCH_SIZE, variantIds.size()));
+            Map<Long, Integer> marks = new HashMap<>();
+            for (Long variantId : chunk) {
+                Balance balance = balances.get(variantId);
+                if (balance != null) {
+                    synchronized (balance) {
+                        marks.put(variantId, balance.staleMarks);
+                    }
+                }
+            }
+            Map<Long, Integer> stock = new HashMap<>();
+            readTransaction.execute(status -> variantRepository.findHotVariantsByIdIn(marks.keySet()))
+                    .forEach(row -> stock.put(row.variantId(), row.stockQuantity()));
+            marks.forEach((variantId, seenMarks) -> {
+                Balance balance = balances.get(variantId);
+                if (balance == null) {
+                    return;
+                }
+                synchronized (balance) {
+                    Integer rowStock = stock.get(variantId);
+                    if (rowStock == null) {
+                        // Variant sudah dihapus; entry yang belum terproyeksi dilewati projector
+                        balance.removed = true;
+                        balances.remove(variantId, balance);
+                        return;
+                    }
+                    balance.stock = rowStock + balance.pending;
+                    // Ditandai lagi selama query berjalan: baris yang dibaca mungkin sudah lama, ulangi
+                    if (balance.staleMarks == seenMarks) {
+                        balance.stale = false;
+                    }
+                }
+            });
+        }
+    }
+
+    // Diulang sampai berhasil; saat shutdown cukup sekali, sisanya diproyeksikan dari journal saat start berikutnya
+    private boolean projectWithRetry(List<JournalEntry> batch) {
+        while (true) {
+            try {
+                project(batch);
+                return true;
+            } catch (RuntimeException e) {
+                log.warn("Projecting stock journal entries {}..{} failed, retrying in {}: {}", batch.get(0).sequence(),
+                        batch.get(batch.size() - 1).sequence(), retryInterval, e.getMessage());
+                if (stopping) {
+                    return false;
+                }
+                sleep(retryInterval);
+            }
+        }
+    }
+
+    private void project(List<JournalEntry> batch) {
+        String journalId = journal.getId().toString();
+        writeTransaction.executeWithoutResult(status -> {
+            Map<Long, Long> itemIds = stockJournalRepository.project(journalId, batch, LocalDateTime.now());
+            // Event yang sama dengan jalur JPA; listener-nya berjalan setelah commit
+            for (JournalEntry entry : batch) {
+                if (itemIds.containsKey(entry.variantId())) {
+                    eventPublisher.publishEvent(new StockMovementRecordedEvent(entry.variantId(), entry.movementType(),
+                            entry.quantity(), entry.createdAt()));
+                }
+            }
+            if (!itemIds.isEmpty()) {
+                eventPublisher.publishEvent(new CatalogChangedEvent(new HashSet<>(itemIds.values()), itemIds.keySet()));
+            }
+            if (itemIds.size() < batch.stream().map(JournalEntry::variantId).distinct().count()) {
+                log.warn("Skipped stock journal entries of variants that no longer exist in batch {}..{}",
+                        batch.get(0).sequence(), batch.get(batch.size() - 1).sequence());
+            }
+        });
+        projectedSequence = batch.get(batch.size() - 1).sequence();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        lifecycle.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        join(writerThread);
+        stopping = true;
+        join(projectorThread);
+        join(leaseThread);
+        MovementJournal current = journal;
+        if (current != null && leaseThread != null) {
+            try {
+                writeTransaction.executeWithoutResult(status ->
+                        stockJournalRepository.releaseLease(current.getId().toString(), leaseOwner));
+            } catch (RuntimeException e) {
+                log.warn("Releasing stock journal writer lease failed, it expires on its own: {}", e.getMessage());
+            }
+        }
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("Closing stock journal failed: {}", e.getMessage());
+            }
+        }
+        log.info("Stock journal stopped at projected sequence {}", projectedSequence);
+    }
+
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void join(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    private record PendingAppend(JournalEntry entry, Balance balance, CompletableFuture<Long> future) {
+    }
+
+    // Dijaga monitor-nya sendiri; pending menjumlahkan delta yang sudah disetujui tapi belum diproyeksikan
+    private static final class Balance {
+        private final long itemId;
+        private final String sku;
+        private int stock;
+        private int pending;
+        private boolean stale;
+        private int staleMarks;
+        private boolean removed;
+
+        private Balance(long itemId, String sku, int stock) {
+            this.itemId = itemId;
+            this.sku = sku;
+            this.stock = stock;
+        }
+    }
+}
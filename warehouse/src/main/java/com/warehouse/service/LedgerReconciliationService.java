@@ -0,0 +1,198 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.LedgerMismatchDTO;
+import com.warehouse.dto.ReconciliationJobDTO;
+import com.warehouse.exception.JobAlreadyRunningException;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.repository.LedgerBalance;
+import com.warehouse.repository.StockMovementRepository;
+import com.warehouse.repository.VariantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares Variant.stockQuantity with the balance of its stock_movements ledger.
+ * The variant id space is split into ranges that are checked in parallel on a fork-join pool.
+ * Each range is a single aggregate query, and only mismatched rows come back, so memory stays flat
+ * however large the ledger is. Reads are plain consistent reads and take no row locks.
+ * Repair inserts a compensating ADJUSTMENT so the ledger matches the stock.
+ */
+@Service
+@Slf4j
+public class LedgerReconciliationService {
+
+    private static final String REPAIR_REASON = "Ledger reconciliation";
+
+    private final VariantRepository variantRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final StockLevelService stockLevelService;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate repairTransaction;
+    private final int rangeSize;
+    private final int parallelism;
+    private final int maxReportedMismatches;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicReference<Job> running = new AtomicReference<>();
+    private final ExecutorService launcher = BackgroundJobs.launcher("ledger-reconciliation");
+
+    public LedgerReconciliationService(VariantRepository variantRepository,
+                                       StockMovementRepository stockMovementRepository,
+                                       StockLevelService stockLevelService,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${warehouse.reconciliation.range-size:5000}") int rangeSize,
+                                       @Value("${warehouse.reconciliation.parallelism:4}") int parallelism,
+                                       @Value("${warehouse.reconciliation.max-reported-mismatches:1000}") int maxReportedMismatches) {
+        this.variantRepository = variantRepository;
+        this.stockMovementRepository = stockMovementRepository;
+        this.stockLevelService = stockLevelService;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.repairTransaction = new TransactionTemplate(transactionManager);
+        // INSERT ... SELECT di REPEATABLE READ mengunci baris dan gap movement yang dibaca, sehingga movement baru
+        // untuk variant itu tertahan; di READ COMMITTED bacaannya consistent read tanpa lock
+        this.repairTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.maxReportedMismatches = maxReportedMismatches;
+    }
+
+    public ReconciliationJobDTO startJob(boolean repair) {
+        Job job = new Job(UUID.randomUUID().toString(), repair);
+        if (!running.compareAndSet(null, job)) {
+            throw new JobAlreadyRunningException("A reconciliation job is already running: " + running.get().id);
+        }
+        jobs.put(job.id, job);
+        launcher.submit(() -> run(job));
+        log.info("Started ledger reconciliation job {} (repair={})", job.id, repair);
+        return job.toDTO();
+    }
+
+    public ReconciliationJobDTO getJob(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Reconciliation job not found with id: " + id);
+        }
+        return job.toDTO();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        launcher.shutdownNow();
+    }
+
+    private void run(Job job) {
+        job.status = "RUNNING";
+        long start = System.nanoTime();
+        String finalStatus = "FAILED";
+        try {
+            long minId = variantRepository.findMinId();
+            long maxId = variantRepository.findMaxId();
+            long toId = maxId + 1;
+            job.rangesTotal = BackgroundJobs.rangeCount(minId, toId, rangeSize);
+            BackgroundJobs.scanRanges(minId, toId, rangeSize, parallelism, (fromId, untilId) -> {
+                checkRange(job, fromId, untilId);
+                return null;
+            }, (left, right) -> null);
+            finalStatus = "COMPLETED";
+            log.info("Ledger reconciliation {} checked {} variants in {} ms: {} mismatches, {} repaired",
+                    job.id, job.variantsChecked.get(), (System.nanoTime() - start) / 1_000_000,
+                    job.mismatchCount.get(), job.repairedCount.get());
+        } catch (RuntimeException e) {
+            log.error("Ledger reconciliation {} failed", job.id, e);
+            job.error = e.getMessage();
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            // Slot dilepas sebelum status akhir terlihat: job baru yang dimulai setelah polling melihat COMPLETED
+            // tidak ditolak 409
+            running.set(null);
+            job.status = finalStatus;
+        }
+    }
+
+    private void checkRange(Job job, long fromId, long toId) {
+        List<LedgerBalance> mismatches = readTransaction.execute(status -> {
+            job.variantsChecked.addAndGet(variantRepository.countInRange(fromId, toId));
+            return stockMovementRepository.findLedgerMismatches(fromId, toId);
+        });
+
+        for (LedgerBalance mismatch : mismatches) {
+            boolean repaired = job.repair && repairTransaction.execute(status ->
+                    stockMovementRepository.insertCompensatingAdjustment(mismatch.getVariantId(), REPAIR_REASON,
+                            "reconciliation:" + job.id) > 0);
+            job.mismatchCount.incrementAndGet();
+            if (repaired) {
+                job.repairedCount.incrementAndGet();
+                // Insert native tidak memicu StockMovementRecordedEvent
+                stockLevelService.invalidate(mismatch.getVariantId(), LocalDateTime.now());
+            }
+            if (job.reported.incrementAndGet() <= maxReportedMismatches) {
+                job.mismatches.add(LedgerMismatchDTO.builder()
+                        .variantId(mismatch.getVariantId())
+                        .stockQuantity(mismatch.getStockQuantity())
+                        .ledgerBalance(mismatch.getLedgerBalance())
+                        .difference(mismatch.getStockQuantity() - mismatch.getLedgerBalance())
+                        .repaired(repaired)
+                        .build());
+            }
+        }
+        job.rangesCompleted.incrementAndGet();
+    }
+
+    private static final class Job {
+        private final String id;
+        private final boolean repair;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger rangesCompleted = new AtomicInteger();
+        private final AtomicLong variantsChecked = new AtomicLong();
+        private final AtomicLong mismatchCount = new AtomicLong();
+        private final AtomicLong repairedCount = new AtomicLong();
+        private final AtomicInteger reported = new AtomicInteger();
+        private final ConcurrentLinkedQueue<LedgerMismatchDTO> mismatches = new ConcurrentLinkedQueue<>();
+        private volatile int rangesTotal;
+        private volatile String status = "QUEUED";
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Job(String id, boolean repair) {
+            this.id = id;
+            this.repair = repair;
+        }
+
+        ReconciliationJobDTO toDTO() {
+            return ReconciliationJobDTO.builder()
+                    .id(id)
+                    .status(status)
+                    .repair(repair)
+                    .rangesTotal(rangesTotal)
+                    .rangesCompleted(rangesCompleted.get())
+                    .variantsChecked(variantsChecked.get())
+                    .mismatchCount(mismatchCount.get())
+                    .repairedCount(repairedCount.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .mismatches(mismatches.stream()
+                            .sorted((a, b) -> Long.compare(a.getVariantId(), b.getVariantId()))
+                            .toList())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.warehouse.service;
+
+import com.warehouse.cache.HotInventoryState;
+import com.warehouse.dto.LocationStockDTO;
+import com.warehouse.dto.StockMovementEntryDTO;
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.dto.VariantAvailabilityDTO;
+import com.warehouse.exception.InsufficientStockException;
+import com.warehouse.exception.InvalidStockRequestException;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.model.StockMovement;
+import com.warehouse.repository.LocationStockRepository;
+import com.warehouse.repository.VariantRepository;
+import com.warehouse.sharding.LocationShard;
+import com.warehouse.sharding.LocationShards;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stock balances and movements per warehouse location. A location lives on exactly one shard, so
+ * every write is a short single-shard transaction: a conditional UPDATE of the balance row plus
+ * one movement row. Availability across locations is a scatter-gather: the same query runs on all
+ * shards in parallel and the answers are summed. The central variants.stock_quantity is untouched,
+ * so the primary database takes no write for location stock.
+ */
+@Service
+@Slf4j
+public class LocationStockService {
+
+    private static final int MAX_AVAILABILITY_VARIANTS = 1000;
+    private static final int MAX_LIST_LIMIT = 1000;
+
+    private final LocationShards locationShards;
+    private final LocationStockRepository locationStockRepository;
+    private final VariantRepository variantRepository;
+    private final HotInventoryState hotInventoryState;
+    private final Duration queryTimeout;
+    private final ExecutorService scatter;
+
+    public LocationStockService(LocationShards locationShards,
+                                LocationStockRepository locationStockRepository,
+                                VariantRepository variantRepository,
+                                HotInventoryState hotInventoryState,
+                                @Value("${warehouse.location-stock.query-timeout:PT2S}") Duration queryTimeout,
+                                @Value("${warehouse.location-stock.pool-size:10}") int poolSize) {
+        this.locationShards = locationShards;
+        this.locationStockRepository = locationStockRepository;
+        this.variantRepository = variantRepository;
+        this.hotInventoryState = hotInventoryState;
+        this.queryTimeout = queryTimeout;
+        // Satu thread per koneksi shard: request yang bersamaan tidak antre di belakang satu thread per shard,
+        // karena waktu antre ikut memakan queryTimeout
+        AtomicInteger threads = new AtomicInteger();
+        this.scatter = Executors.newFixedThreadPool(locationShards.all().size() * Math.max(1, poolSize), runnable -> {
+            Thread thread = new Thread(runnable, "location-shard-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public StockMovementEntryDTO addStock(String location, StockUpdateDTO request) {
+        requirePositive(request.getQuantity());
+        return increase(location, request, StockMovement.MovementType.IN, "Stock addition");
+    }
+
+    public StockMovementEntryDTO removeStock(String location, StockUpdateDTO request) {
+        requirePositive(request.getQuantity());
+        return decrease(location, request, StockMovement.MovementType.OUT, "Stock removal");
+    }
+
+    public StockMovementEntryDTO reserveStock(String location, Long variantId, Integer quantity) {
+        requirePositive(quantity);
+        StockUpdateDTO request = StockUpdateDTO.builder().variantId(variantId).quantity(quantity).build();
+        return decrease(location, request, StockMovement.MovementType.OUT, "Sale reservation");
+    }
+
+    // Quantity adalah selisih, positif atau negatif, sama seperti adjust-stock stok pusat
+    public StockMovementEntryDTO adjustStock(String location, StockUpdateDTO request) {
+        if (request.getQuantity() >= 0) {
+            return increase(location, request, StockMovement.MovementType.ADJUSTMENT, "Stock adjustment");
+        }
+        return decrease(location, request, StockMovement.MovementType.ADJUSTMENT, "Stock adjustment");
+    }
+
+    public LocationStockDTO getStock(String location, Long variantId) {
+        String code = LocationShards.normalize(location);
+        LocationStockDTO stock = locationStockRepository.find(locationShards.forLocation(code), code, variantId);
+        if (stock == null) {
+            requireVariant(variantId);
+            return LocationStockDTO.builder().location(code).variantId(variantId).quantity(0).build();
+        }
+        return stock;
+    }
+
+    public List<LocationStockDTO> getLocationStock(String location, long afterVariantId, int limit) {
+        String code = LocationShards.normalize(location);
+        return locationStockRepository.findByLocation(locationShards.forLocation(code), code, afterVariantId,
+                Math.max(1, Math.min(limit, MAX_LIST_LIMIT)));
+    }
+
+    public List<StockMovementEntryDTO> getMovements(String location, Long variantId, int limit) {
+        String code = LocationShards.normalize(location);
+        return locationStockRepository.findMovements(locationShards.forLocation(code), code, variantId,
+                Math.max(1, Math.min(limit, MAX_LIST_LIMIT)));
+    }
+
+    public VariantAvailabilityDTO getAvailability(Long variantId) {
+        requireVariant(variantId);
+        return getAvailability(List.of(variantId)).get(0);
+    }
+
+    public List<VariantAvailabilityDTO> getAvailability(List<Long> variantIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(variantIds));
+        if (ids.isEmpty() || ids.size() > MAX_AVAILABILITY_VARIANTS) {
+            throw new InvalidStockRequestException("Between 1 and " + MAX_AVAILABILITY_VARIANTS + " variant ids are required");
+        }
+
+        // Semua shard ditanya bersamaan; total waktu mengikuti shard paling lambat, dibatasi queryTimeout.
+        // Query yang melewati batas dihentikan oleh driver lewat statement timeout (dibulatkan ke atas per detik)
+        List<LocationShard> shards = locationShards.all();
+        long deadline = System.nanoTime() + queryTimeout.toNanos();
+        List<CompletableFuture<List<LocationStockDTO>>> answers = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(
+                        () -> locationStockRepository.findByVariantIds(shard, ids, remainingSeconds(deadline)), scatter))
+                .toList();
+
+        Map<Long, VariantAvailabilityDTO> byVariant = new LinkedHashMap<>();
+        ids.forEach(id -> byVariant.put(id, VariantAvailabilityDTO.builder().variantId(id).complete(true).build()));
+        List<String> unavailable = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                for (LocationStockDTO stock : answers.get(i).get(remaining, TimeUnit.NANOSECONDS)) {
+                    VariantAvailabilityDTO availability = byVariant.get(stock.getVariantId());
+                    availability.getLocations().add(stock);
+                    availability.setTotalQuantity(availability.getTotalQuantity() + stock.getQuantity());
+                }
+            } catch (TimeoutException | ExecutionException e) {
+                answers.get(i).cancel(true);
+                log.warn("Location shard {} did not answer the availability query: {}", shards.get(i).name(), e.toString());
+                unavailable.add(shards.get(i).name());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unavailable.add(shards.get(i).name());
+            }
+        }
+
+        for (VariantAvailabilityDTO availability : byVariant.values()) {
+            availability.getLocations().sort(Comparator.comparing(LocationStockDTO::getLocation));
+            availability.setComplete(unavailable.isEmpty());
+            availability.setUnavailableShards(unavailable);
+        }
+        return new ArrayList<>(byVariant.values());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scatter.shutdownNow();
+    }
+
+    private StockMovementEntryDTO increase(String location, StockUpdateDTO request, StockMovement.MovementType type,
+                                           String defaultReason) {
+        String code = LocationShards.normalize(location);
+        Long variantId = request.getVariantId();
+        requireVariant(variantId);
+        LocationShard shard = locationShards.forLocation(code);
+        return shard.transactionTemplate().execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            locationStockRepository.increment(shard, code, variantId, request.getQuantity(), now);
+            StockMovementEntryDTO movement = locationStockRepository.insertMovement(shard, code, variantId, type,
+                    request.getQuantity(), reasonOrDefault(request, defaultReason), request.getReference(), now);
+            log.info("{} {} units of variant ID {} at location {} ({})", type, request.getQuantity(), variantId, code, shard.name());
+            return movement;
+        });
+    }
+
+    private StockMovementEntryDTO decrease(String location, StockUpdateDTO request, StockMovement.MovementType type,
+                                           String defaultReason) {
+        String code = LocationShards.normalize(location);
+        Long variantId = request.getVariantId();
+        int quantity = Math.abs(request.getQuantity());
+        LocationShard shard = locationShards.forLocation(code);
+        return shard.transactionTemplate().execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!locationStockRepository.decrementIfAvailable(shard, code, variantId, quantity, now)) {
+                LocationStockDTO current = locationStockRepository.find(shard, code, variantId);
+                if (current == null) {
+                    requireVariant(variantId);
+                }
+                throw new InsufficientStockException("Insufficient stock for variant " + variantId + " at location "
+                        + code + ". Available: " + (current == null ? 0 : current.getQuantity())
+                        + ", Requested: " + quantity);
+            }
+            StockMovementEntryDTO movement = locationStockRepository.insertMovement(shard, code, variantId, type,
+                    request.getQuantity(), reasonOrDefault(request, defaultReason), request.getReference(), now);
+            log.info("{} {} units of variant ID {} at location {} ({})", type, request.getQuantity(), variantId, code, shard.name());
+            return movement;
+        });
+    }
+
+    // Variant ada di database utama; yang sudah ada di hot state tidak perlu query
+    private void requireVariant(Long variantId) {
+        if (hotInventoryState.getStockQuantity(variantId) == null && !variantRepository.existsById(variantId)) {
+            throw new ResourceNotFoundException("Variant not found with id: " + variantId);
+        }
+    }
+
+    private static int remainingSeconds(long deadline) {
+        long remaining = Math.max(0, deadline - System.nanoTime());
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private static void requirePositive(Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new InvalidStockRequestException("Quantity must be positive");
+        }
+    }
+
+    private static String reasonOrDefault(StockUpdateDTO request, String defaultReason) {
+        return request.getReason() != null ? request.getReason() : defaultReason;
+    }
+}
@@ -0,0 +1,402 @@
+package com.warehouse.service;
+
+import com.warehouse.cache.HotVariant;
+import com.warehouse.dto.StockLevelBucketDTO;
+import com.warehouse.dto.StockLevelSeriesDTO;
+import com.warehouse.event.StockMovementRecordedEvent;
+import com.warehouse.exception.InvalidStockRequestException;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.model.StockLevelResolution;
+import com.warehouse.model.StockMovement;
+import com.warehouse.repository.StockLevelRepository;
+import com.warehouse.repository.VariantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock level over time for one variant, one entry per bucket: open, min, max and close level plus the
+ * IN, OUT and ADJUSTMENT quantities. The level is the running balance of the stock_movements ledger.
+ * Hourly series are a streaming fold over the movements of the requested range. Day and week series
+ * come from stock_level_rollups, which are kept current incrementally: a committed movement marks its
+ * day dirty, and a flush re-folds only the movements from the earliest dirty day onwards. Requests never
+ * write rollups: they read the committed ones up to the earliest stale day and fold the rest in memory.
+ * Response size depends on the bucket count only.
+ */
+@Service
+@Lazy(false)
+@Slf4j
+public class StockLevelService {
+
+    // Awal lipatan penuh untuk variant yang belum punya rollup; sebelum movement pertama level selalu 0
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime OPEN_END = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private final StockLevelRepository stockLevelRepository;
+    private final VariantRepository variantRepository;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final int maxBuckets;
+    private final int pageSize;
+
+    // variant -> awal hari paling awal yang rollup-nya perlu dilipat ulang
+    private final ConcurrentHashMap<Long, LocalDateTime> dirty = new ConcurrentHashMap<>();
+    // Tanda yang sedang dilipat flush; request tetap menganggapnya basi sampai rollup-nya commit
+    private final ConcurrentHashMap<Long, LocalDateTime> refreshing = new ConcurrentHashMap<>();
+    // Rebuild penuh dari rebuildAll; request tetap membaca rollup lama sampai flush menggantinya
+    private final Set<Long> rebuildQueued = ConcurrentHashMap.newKeySet();
+    // Flush terjadwal dan flush saat shutdown tidak melipat bersamaan; request tidak pernah menunggu lock ini
+    private final ReentrantLock writer = new ReentrantLock();
+
+    public StockLevelService(StockLevelRepository stockLevelRepository,
+                             VariantRepository variantRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${warehouse.stock-levels.max-buckets:2000}") int maxBuckets,
+                             @Value("${warehouse.stock-levels.page-size:5000}") int pageSize) {
+        this.stockLevelRepository = stockLevelRepository;
+        this.variantRepository = variantRepository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.maxBuckets = maxBuckets;
+        this.pageSize = pageSize;
+    }
+
+    @TransactionalEventListener
+    public void onMovementRecorded(StockMovementRecordedEvent event) {
+        invalidate(event.getVariantId(), event.getCreatedAt() != null ? event.getCreatedAt() : LocalDateTime.now());
+    }
+
+    /**
+     * Marks the rollups of a variant stale from the day of {@code since}. For movements written outside JPA
+     * (native inserts), which publish no {@link StockMovementRecordedEvent}.
+     */
+    public void invalidate(Long variantId, LocalDateTime since) {
+        LocalDateTime day = StockLevelResolution.DAY.bucketStart(since);
+        dirty.merge(variantId, day, (current, added) -> added.isBefore(current) ? added : current);
+    }
+
+    public StockLevelSeriesDTO getSeries(Long variantId, String resolutionName, LocalDateTime from, LocalDateTime to) {
+        StockLevelResolution resolution = parseResolution(resolutionName);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = resolution.bucketStart(from != null ? from : defaultFrom(resolution, end));
+        if (!start.isBefore(end)) {
+            throw new InvalidStockRequestException("'from' must be before 'to'");
+        }
+        long bucketCount = resolution.bucketsBetween(start, end);
+        if (bucketCount > maxBuckets) {
+            throw new InvalidStockRequestException("Range covers " + bucketCount + " " + resolution
+                    + " buckets; at most " + maxBuckets + " are allowed");
+        }
+        // Bucket terakhir selalu utuh, supaya bucket jam dan rollup hari/minggu punya arti yang sama
+        LocalDateTime bucketsEnd = start;
+        for (long i = 0; i < bucketCount; i++) {
+            bucketsEnd = resolution.next(bucketsEnd);
+        }
+
+        // Stok dibaca langsung dari database: sekaligus cek variant ada dan pembanding untuk rollup
+        List<HotVariant> found = readTransaction.execute(status -> variantRepository.findHotVariantsByIdIn(List.of(variantId)));
+        if (found.isEmpty()) {
+            throw new ResourceNotFoundException("Variant not found with id: " + variantId);
+        }
+        LocalDateTime staleFrom = staleFrom(variantId, found.get(0).stockQuantity());
+
+        int opening;
+        List<StockLevelBucketDTO> sparse;
+        if (resolution == StockLevelResolution.HOUR) {
+            // Dilipat dari awal hari karena rollup harian hanya memberi level di batas hari
+            LocalDateTime dayStart = StockLevelResolution.DAY.bucketStart(start);
+            opening = levelAt(variantId, dayStart, staleFrom);
+            Fold fold = new Fold(StockLevelResolution.HOUR, opening);
+            stockLevelRepository.foldMovements(variantId, dayStart, bucketsEnd, pageSize, fold);
+            sparse = fold.buckets;
+        } else if (staleFrom == null || !staleFrom.isBefore(bucketsEnd)) {
+            opening = levelAt(variantId, start, null);
+            sparse = stockLevelRepository.findRollups(variantId, resolution, start, bucketsEnd);
+        } else {
+            // Rollup yang sudah commit sampai bucket basi pertama, sisanya dilipat di memori tanpa ditulis
+            Refold live = refold(variantId, staleFrom);
+            LocalDateTime liveStart = resolution == StockLevelResolution.DAY ? live.dayStart() : live.weekStart();
+            LocalDateTime committedEnd = liveStart.isBefore(bucketsEnd) ? liveStart : bucketsEnd;
+            opening = levelAt(variantId, start.isBefore(liveStart) ? start : liveStart, null);
+            sparse = new ArrayList<>(stockLevelRepository.findRollups(variantId, resolution, start, committedEnd));
+            sparse.addAll(resolution == StockLevelResolution.DAY ? live.days() : live.weeks());
+        }
+
+        return StockLevelSeriesDTO.builder()
+                .variantId(variantId)
+                .resolution(resolution)
+                .from(start)
+                .to(bucketsEnd)
+                .buckets(fill(resolution, start, bucketsEnd, opening, sparse))
+                .build();
+    }
+
+    /**
+     * Marks the rollups of every active variant for a full rebuild by the next flush. Until then series are
+     * served from the existing rollups. Returns the number of variants queued.
+     */
+    public int rebuildAll() {
+        List<Long> ids = readTransaction.execute(status -> stockLevelRepository.findActiveVariantIds());
+        rebuildQueued.addAll(ids);
+        log.info("Queued stock-level rollup rebuild for {} variants", ids.size());
+        return ids.size();
+    }
+
+    @Scheduled(fixedDelayString = "${warehouse.stock-levels.flush-interval:PT1M}",
+            initialDelayString = "${warehouse.stock-levels.flush-interval:PT1M}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void flush() {
+        if (dirty.isEmpty() && rebuildQueued.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Set<Long> ids = new LinkedHashSet<>(dirty.keySet());
+        ids.addAll(rebuildQueued);
+        int refreshed = 0;
+        for (Long id : ids) {
+            try {
+                refresh(id);
+                refreshed++;
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh stock-level rollups for variant {}", id, e);
+            }
+        }
+        log.debug("Refreshed stock-level rollups for {} variants in {} ms", refreshed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Hari paling awal yang rollup-nya belum mengikuti ledger, null kalau semua rollup terkini
+    private LocalDateTime staleFrom(Long variantId, int stockQuantity) {
+        LocalDateTime since = earliest(dirty.get(variantId), refreshing.get(variantId));
+        StockLevelBucketDTO latest = stockLevelRepository.findLastRollupBefore(variantId, StockLevelResolution.DAY, OPEN_END);
+        if (latest == null) {
+            // Belum pernah dilipat; movement dari insert native (stok awal matrix) juga ikut. Flush berikutnya menyimpannya
+            invalidate(variantId, BEGINNING);
+            return BEGINNING;
+        }
+        if (since == null && latest.getCloseLevel() != stockQuantity) {
+            // Tandanya hilang (restart sebelum flush, movement di instance lain): lipat dari hari rollup terakhir.
+            // Kalau ledger sendiri belum cocok dengan stok, ini terulang tiap request sampai rekonsiliasi
+            invalidate(variantId, latest.getBucketStart());
+            return latest.getBucketStart();
+        }
+        return since;
+    }
+
+    // Level stok tepat di awal hari `at`: close rollup sebelumnya, atau dilipat per hari dari hari basi pertama
+    private int levelAt(Long variantId, LocalDateTime at, LocalDateTime staleFrom) {
+        if (staleFrom == null || !staleFrom.isBefore(at)) {
+            StockLevelBucketDTO before = stockLevelRepository.findLastRollupBefore(variantId, StockLevelResolution.DAY, at);
+            return before != null ? before.getCloseLevel() : 0;
+        }
+        Fold fold = new Fold(StockLevelResolution.DAY, levelAt(variantId, staleFrom, null));
+        stockLevelRepository.foldMovements(variantId, staleFrom, at, pageSize, fold);
+        return fold.level;
+    }
+
+    private void refresh(Long variantId) {
+        writer.lock();
+        LocalDateTime marked = rebuildQueued.remove(variantId) ? BEGINNING : dirty.get(variantId);
+        LocalDateTime since = marked;
+        try {
+            if (marked != null) {
+                refreshing.put(variantId, marked);
+                // Tanda yang lebih awal dari transaksi lain tetap tinggal untuk flush berikutnya
+                dirty.computeIfPresent(variantId, (id, current) -> current.isBefore(marked) ? current : null);
+            }
+            StockLevelBucketDTO latest = stockLevelRepository.findLastRollupBefore(variantId, StockLevelResolution.DAY, OPEN_END);
+            if (latest == null) {
+                since = BEGINNING;
+            }
+            if (since != null) {
+                rebuild(variantId, since, latest != null);
+            }
+        } catch (RuntimeException e) {
+            invalidate(variantId, since != null ? since : BEGINNING);
+            throw e;
+        } finally {
+            refreshing.remove(variantId);
+            writer.unlock();
+        }
+    }
+
+    private void rebuild(Long variantId, LocalDateTime since, boolean hasRollups) {
+        Refold refold = refold(variantId, since);
+        if (!hasRollups && refold.movements() == 0) {
+            return;
+        }
+        writeTransaction.executeWithoutResult(status -> {
+            stockLevelRepository.replaceRollups(variantId, StockLevelResolution.DAY, refold.dayStart(), refold.days());
+            stockLevelRepository.replaceRollups(variantId, StockLevelResolution.WEEK, refold.weekStart(), refold.weeks());
+        });
+        log.debug("Rebuilt stock-level rollups of variant {} from {}: {} movements, {} days",
+                variantId, refold.dayStart(), refold.movements(), refold.days().size());
+    }
+
+    // Rollup hari dan minggu sejak `since` menurut ledger saat ini, belum ditulis
+    private Refold refold(Long variantId, LocalDateTime since) {
+        LocalDateTime dayStart = StockLevelResolution.DAY.bucketStart(since);
+        Fold fold = new Fold(StockLevelResolution.DAY, levelAt(variantId, dayStart, null));
+        long movements = stockLevelRepository.foldMovements(variantId, dayStart, OPEN_END, pageSize, fold);
+
+        // Minggu dihitung dari rollup harian: hari-hari sebelum dayStart di minggu yang sama dibaca dari tabel
+        LocalDateTime weekStart = StockLevelResolution.WEEK.bucketStart(dayStart);
+        List<StockLevelBucketDTO> days = new ArrayList<>(
+                stockLevelRepository.findRollups(variantId, StockLevelResolution.DAY, weekStart, dayStart));
+        days.addAll(fold.buckets);
+        return new Refold(dayStart, weekStart, fold.buckets, weeks(days), movements);
+    }
+
+    private record Refold(LocalDateTime dayStart, LocalDateTime weekStart, List<StockLevelBucketDTO> days,
+                          List<StockLevelBucketDTO> weeks, long movements) {
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static List<StockLevelBucketDTO> weeks(List<StockLevelBucketDTO> days) {
+        List<StockLevelBucketDTO> weeks = new ArrayList<>();
+        StockLevelBucketDTO week = null;
+        for (StockLevelBucketDTO day : days) {
+            LocalDateTime weekStart = StockLevelResolution.WEEK.bucketStart(day.getBucketStart());
+            if (week == null || !week.getBucketStart().equals(weekStart)) {
+                week = StockLevelBucketDTO.builder()
+                        .bucketStart(weekStart)
+                        .openLevel(day.getOpenLevel())
+                        .minLevel(day.getMinLevel())
+                        .maxLevel(day.getMaxLevel())
+                        .build();
+                weeks.add(week);
+            }
+            week.setMinLevel(Math.min(week.getMinLevel(), day.getMinLevel()));
+            week.setMaxLevel(Math.max(week.getMaxLevel(), day.getMaxLevel()));
+            week.setCloseLevel(day.getCloseLevel());
+            week.setInQuantity(week.getInQuantity() + day.getInQuantity());
+            week.setOutQuantity(week.getOutQuantity() + day.getOutQuantity());
+            week.setAdjustmentQuantity(week.getAdjustmentQuantity() + day.getAdjustmentQuantity());
+            week.setMovementCount(week.getMovementCount() + day.getMovementCount());
+            week.setNetChange(week.getCloseLevel() - week.getOpenLevel());
+        }
+        return weeks;
+    }
+
+    // Bucket tanpa movement diisi level datar; bucket sebelum start hanya menggeser level awal
+    private static List<StockLevelBucketDTO> fill(StockLevelResolution resolution, LocalDateTime start, LocalDateTime end,
+                                                  int opening, List<StockLevelBucketDTO> sparse) {
+        List<StockLevelBucketDTO> buckets = new ArrayList<>();
+        Iterator<StockLevelBucketDTO> it = sparse.iterator();
+        StockLevelBucketDTO next = it.hasNext() ? it.next() : null;
+        int level = opening;
+        while (next != null && next.getBucketStart().isBefore(start)) {
+            level = next.getCloseLevel();
+            next = it.hasNext() ? it.next() : null;
+        }
+        for (LocalDateTime bucketStart = start; bucketStart.isBefore(end); bucketStart = resolution.next(bucketStart)) {
+            if (next != null && next.getBucketStart().equals(bucketStart)) {
+                buckets.add(next);
+                level = next.getCloseLevel();
+                next = it.hasNext() ? it.next() : null;
+            } else {
+                buckets.add(flat(bucketStart, level));
+            }
+        }
+        return buckets;
+    }
+
+    private static StockLevelBucketDTO flat(LocalDateTime bucketStart, int level) {
+        return StockLevelBucketDTO.builder()
+                .bucketStart(bucketStart)
+                .openLevel(level)
+                .minLevel(level)
+                .maxLevel(level)
+                .closeLevel(level)
+                .build();
+    }
+
+    private static LocalDateTime defaultFrom(StockLevelResolution resolution, LocalDateTime to) {
+        return switch (resolution) {
+            case HOUR -> to.minusHours(48);
+            case DAY -> to.minusDays(30);
+            case WEEK -> to.minusWeeks(26);
+        };
+    }
+
+    private static StockLevelResolution parseResolution(String name) {
+        if (name == null) {
+            return StockLevelResolution.DAY;
+        }
+        try {
+            return StockLevelResolution.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidStockRequestException("Unknown resolution '" + name + "'; expected hour, day or week");
+        }
+    }
+
+    // Lipatan satu arah atas movement yang sudah urut waktu; hanya bucket yang sedang berjalan yang diubah
+    private static final class Fold implements StockLevelRepository.MovementSink {
+        private final StockLevelResolution resolution;
+        private final List<StockLevelBucketDTO> buckets = new ArrayList<>();
+        private StockLevelBucketDTO current;
+        private int level;
+
+        Fold(StockLevelResolution resolution, int opening) {
+            this.resolution = resolution;
+            this.level = opening;
+        }
+
+        @Override
+        public void accept(StockMovement.MovementType type, int quantity, LocalDateTime createdAt) {
+            LocalDateTime bucketStart = resolution.bucketStart(createdAt);
+            if (current == null || !current.getBucketStart().equals(bucketStart)) {
+                current = flat(bucketStart, level);
+                buckets.add(current);
+            }
+            switch (type) {
+                case IN -> {
+                    level += quantity;
+                    current.setInQuantity(current.getInQuantity() + quantity);
+                }
+                case OUT -> {
+                    level -= quantity;
+                    current.setOutQuantity(current.getOutQuantity() + quantity);
+                }
+                case ADJUSTMENT -> {
+                    level += quantity;
+                    current.setAdjustmentQuantity(current.getAdjustmentQuantity() + quantity);
+                }
+            }
+            current.setMinLevel(Math.min(current.getMinLevel(), level));
+            current.setMaxLevel(Math.max(current.getMaxLevel(), level));
+            current.setCloseLevel(level);
+            current.setNetChange(level - current.getOpenLevel());
+            current.setMovementCount(current.getMovementCount() + 1);
+        }
+    }
+}
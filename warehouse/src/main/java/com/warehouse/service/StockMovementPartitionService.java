@@ -0,0 +1,117 @@
+package com.warehouse.service;
+
+import com.warehouse.repository.MovementPartition;
+import com.warehouse.repository.StockMovementPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of stock_movements ahead of the clock and applies movement retention.
+ * Retention drops whole partitions: before a partition is dropped, the net change of each variant in it
+ * is written as one "balance carried forward" ADJUSTMENT at the start of the next partition, so ledger
+ * balances, reconciliation and stock-level series stay correct from that point on. Stock-level rollups
+ * before that point are deleted, later ones are re-folded from the carried balance. Does nothing when the
+ * table is not partitioned (H2, or before V9).
+ */
+@Service
+@Lazy(false)
+@Slf4j
+public class StockMovementPartitionService {
+
+    static final String CARRY_FORWARD_REASON = "Balance carried forward";
+    static final String CARRY_FORWARD_REFERENCE_PREFIX = "retention:";
+
+    private final StockMovementPartitionRepository partitionRepository;
+    private final StockLevelService stockLevelService;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public StockMovementPartitionService(StockMovementPartitionRepository partitionRepository,
+                                         StockLevelService stockLevelService,
+                                         @Value("${warehouse.movement-partitions.months-ahead:3}") int monthsAhead,
+                                         @Value("${warehouse.movement-partitions.retention-months:0}") int retentionMonths) {
+        this.partitionRepository = partitionRepository;
+        this.stockLevelService = stockLevelService;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionMonths = retentionMonths;
+    }
+
+    // Tanpa initial delay: partisi bulan depan sudah ada segera setelah startup
+    @Scheduled(fixedDelayString = "${warehouse.movement-partitions.check-interval:PT6H}")
+    public void scheduledMaintenance() {
+        try {
+            maintain(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("Stock movement partition maintenance failed", e);
+        }
+    }
+
+    /**
+     * Creates the monthly partitions up to {@code monthsAhead} months after the current one and, when
+     * retention is configured, drops the partitions that end on or before the retention cutoff.
+     */
+    public synchronized void maintain(LocalDateTime now) {
+        if (partitionRepository.findPartitions().isEmpty()) {
+            log.debug("stock_movements is not partitioned; partition maintenance skipped");
+            return;
+        }
+        // Semua instance menjalankan jadwal yang sama; REORGANIZE, carry-forward dan DROP hanya boleh satu sekaligus
+        if (!partitionRepository.withMaintenanceLock(() -> maintainLocked(now))) {
+            log.debug("Stock movement partition maintenance is running on another instance; skipped");
+        }
+    }
+
+    // Daftar partisi dibaca ulang di dalam lock: instance lain mungkin baru saja mengubahnya
+    private void maintainLocked(LocalDateTime now) {
+        List<MovementPartition> partitions = partitionRepository.findPartitions();
+        LocalDateTime currentMonth = LocalDate.from(now).withDayOfMonth(1).atStartOfDay();
+        addFuturePartitions(partitions, currentMonth);
+        if (retentionMonths > 0) {
+            applyRetention(partitions, currentMonth.minusMonths(retentionMonths));
+        }
+    }
+
+    private void addFuturePartitions(List<MovementPartition> partitions, LocalDateTime currentMonth) {
+        LocalDateTime covered = partitions.stream()
+                .map(MovementPartition::upperBound)
+                .filter(bound -> bound != null)
+                .max(LocalDateTime::compareTo)
+                .orElse(currentMonth);
+        LocalDateTime target = currentMonth.plusMonths(monthsAhead + 1L);
+        if (covered.isBefore(target)) {
+            partitionRepository.addMonthlyPartitions(covered, target);
+            log.info("Added stock_movements partitions {} .. {}",
+                    StockMovementPartitionRepository.monthlyName(covered),
+                    StockMovementPartitionRepository.monthlyName(target.minusMonths(1)));
+        }
+    }
+
+    // Tertua lebih dulu: carry-forward partisi berikutnya ikut menjumlahkan carry-forward yang baru ditulis
+    private void applyRetention(List<MovementPartition> partitions, LocalDateTime cutoff) {
+        for (MovementPartition partition : partitions) {
+            if (partition.upperBound() == null || partition.upperBound().isAfter(cutoff)) {
+                break;
+            }
+            long start = System.nanoTime();
+            String reference = CARRY_FORWARD_REFERENCE_PREFIX + partition.name();
+            int carried = partitionRepository.carryForward(partition, CARRY_FORWARD_REASON, reference);
+            // Level stok sejak batas partisi kini dimulai dari carry-forward, bukan dari rollup lama:
+            // rollup sebelumnya dibuang dan variant yang saldonya dibawa dilipat ulang dari batas itu
+            partitionRepository.deleteRollupsBefore(partition);
+            partitionRepository.findCarriedForwardVariantIds(partition, reference)
+                    .forEach(variantId -> stockLevelService.invalidate(variantId, partition.upperBound()));
+            // DDL melakukan commit sendiri; kalau proses mati di antara keduanya, carry-forward yang sudah
+            // ada membuat langkah pertama tidak menulis apa-apa di run berikutnya
+            partitionRepository.dropPartition(partition);
+            log.info("Dropped stock_movements partition {} (~{} rows, {} balances carried forward) in {} ms",
+                    partition.name(), partition.estimatedRows(), carried, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.warehouse.service;
+
+import com.warehouse.cache.CatalogKeyIndex;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.dto.VariantMatrixDTO;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.exception.ConstraintViolations;
+import com.warehouse.exception.DuplicateResourceException;
+import com.warehouse.exception.InvalidVariantMatrixException;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.model.Item;
+import com.warehouse.model.Variant;
+import com.warehouse.repository.ItemRepository;
+import com.warehouse.repository.VariantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Generates every size x color x material combination of a {@link VariantMatrixDTO} on the
+ * server. The whole matrix is checked against the sku and unique_variant_attributes keys with one
+ * query, then variants go in as multi-row INSERTs and their initial IN movements as one
+ * INSERT ... SELECT per chunk, all in the caller's transaction.
+ */
+@Service
+@Transactional
+@Slf4j
+public class VariantMatrixService {
+
+    // Batas kolom price decimal(10,2) dan kolom varchar(255)
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+    private static final int MAX_TEXT_LENGTH = 255;
+    // Baris per statement INSERT, juga ukuran IN list saat membaca balik
+    private static final int INSERT_BATCH = 1_000;
+    private static final int MAX_REPORTED_CONFLICTS = 10;
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([^{}]*)}");
+    private static final Set<String> PLACEHOLDERS = Set.of("item", "size", "color", "material", "index");
+
+    private final ItemRepository itemRepository;
+    private final VariantRepository variantRepository;
+    private final VariantService variantService;
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogKeyIndex catalogKeyIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxVariants;
+
+    public VariantMatrixService(ItemRepository itemRepository,
+                                VariantRepository variantRepository,
+                                VariantService variantService,
+                                JdbcTemplate jdbcTemplate,
+                                CatalogKeyIndex catalogKeyIndex,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${warehouse.variant-matrix.max-variants:10000}") int maxVariants) {
+        this.itemRepository = itemRepository;
+        this.variantRepository = variantRepository;
+        this.variantService = variantService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogKeyIndex = catalogKeyIndex;
+        this.eventPublisher = eventPublisher;
+        this.maxVariants = maxVariants;
+    }
+
+    public List<VariantDTO> createVariantMatrix(Long itemId, VariantMatrixDTO matrix) {
+        log.info("Creating variant matrix for item ID: {}", itemId);
+        Item item = itemRepository.findById(itemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Item not found with id: " + itemId));
+
+        List<String> skus = insertMatrix(item, matrix);
+        eventPublisher.publishEvent(CatalogChangedEvent.ofItem(itemId));
+
+        List<VariantDTO> created = new ArrayList<>(skus.size());
+        for (int from = 0; from < skus.size(); from += INSERT_BATCH) {
+            variantRepository.findByItemIdAndSkuInOrderById(itemId, skus.subList(from, Math.min(from + INSERT_BATCH, skus.size())))
+                    .forEach(variant -> created.add(variantService.convertToDTO(variant)));
+        }
+        return created;
+    }
+
+    /**
+     * Inserts the matrix for an item that already exists in this transaction and returns the
+     * generated SKUs in matrix order. Publishing the catalog change is left to the caller.
+     */
+    public List<String> insertMatrix(Item item, VariantMatrixDTO matrix) {
+        long start = System.nanoTime();
+        List<Row> rows = generate(item, matrix);
+        checkConflicts(item.getId(), rows);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<String> skus = rows.stream().map(Row::sku).toList();
+        try {
+            for (int from = 0; from < rows.size(); from += INSERT_BATCH) {
+                insertVariants(item.getId(), rows.subList(from, Math.min(from + INSERT_BATCH, rows.size())), now);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Request lain yang commit di antara pengecekan dan insert
+            throw translateViolation(item.getId(), e);
+        }
+        skus.forEach(catalogKeyIndex::skuAdded);
+
+        if (matrix.getStockQuantity() != null && matrix.getStockQuantity() > 0) {
+            // Tidak lewat JPA, jadi StockMovementRecordedEvent tidak terbit; pendengarnya hanya peduli movement OUT
+            for (int from = 0; from < skus.size(); from += INSERT_BATCH) {
+                insertInitialMovements(item.getId(), skus.subList(from, Math.min(from + INSERT_BATCH, skus.size())), now);
+            }
+        }
+        log.info("Inserted {} matrix variants for item ID {} in {} ms",
+                rows.size(), item.getId(), (System.nanoTime() - start) / 1_000_000);
+        return skus;
+    }
+
+    private List<Row> generate(Item item, VariantMatrixDTO matrix) {
+        List<String> sizes = axis("sizes", matrix.getSizes());
+        List<String> colors = axis("colors", matrix.getColors());
+        List<String> materials = axis("materials", matrix.getMaterials());
+        long count = (long) sizes.size() * colors.size() * materials.size();
+        if (count > maxVariants) {
+            throw new InvalidVariantMatrixException("Matrix would create " + count + " variants, at most "
+                    + maxVariants + " are allowed per request");
+        }
+        checkTemplate(matrix.getSkuTemplate(), matrix);
+
+        BigDecimal basePrice = matrix.getPrice() != null ? matrix.getPrice() : item.getBasePrice();
+        Map<String, Map<String, BigDecimal>> adjustments = matrix.getPriceAdjustments() != null
+                ? matrix.getPriceAdjustments() : Map.of();
+        int stockQuantity = matrix.getStockQuantity() != null ? matrix.getStockQuantity() : 0;
+        int minStockLevel = matrix.getMinStockLevel() != null ? matrix.getMinStockLevel() : 0;
+
+        List<Row> rows = new ArrayList<>((int) count);
+        Set<String> seenSkus = new HashSet<>();
+        int index = 0;
+        for (String size : sizes) {
+            for (String color : colors) {
+                for (String material : materials) {
+                    index++;
+                    String sku = render(matrix.getSkuTemplate(), item.getId(), size, color, material, index);
+                    if (sku.isBlank() || sku.length() > MAX_TEXT_LENGTH) {
+                        throw new InvalidVariantMatrixException("Generated SKU '" + sku + "' must be 1 to "
+                                + MAX_TEXT_LENGTH + " characters");
+                    }
+                    if (!seenSkus.add(sku.toLowerCase(Locale.ROOT))) {
+                        throw new InvalidVariantMatrixException("SKU template generates '" + sku
+                                + "' more than once; include every axis or {index} in it");
+                    }
+                    BigDecimal price = basePrice
+                            .add(adjustment(adjustments, "size", size))
+                            .add(adjustment(adjustments, "color", color))
+                            .add(adjustment(adjustments, "material", material))
+                            .setScale(2, RoundingMode.HALF_UP);
+                    if (price.signum() <= 0 || price.compareTo(MAX_PRICE) > 0) {
+                        throw new InvalidVariantMatrixException("Price " + price + " for SKU '" + sku
+                                + "' must be positive and at most " + MAX_PRICE);
+                    }
+                    rows.add(new Row(sku, size, color, material, price, stockQuantity, minStockLevel));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Satu query untuk kedua unique key; baris yang sudah di-soft delete tetap memegang key-nya
+    private void checkConflicts(Long itemId, List<Row> rows) {
+        Set<String> skus = new HashSet<>();
+        Set<List<String>> attributes = new HashSet<>();
+        for (Row row : rows) {
+            skus.add(row.sku().toLowerCase(Locale.ROOT));
+            if (row.attributeKey() != null) {
+                attributes.add(row.attributeKey());
+            }
+        }
+
+        List<String> conflicts = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += INSERT_BATCH) {
+            List<Row> chunk = rows.subList(from, Math.min(from + INSERT_BATCH, rows.size()));
+            List<Object> args = new ArrayList<>(chunk.size() + 1);
+            chunk.forEach(row -> args.add(row.sku()));
+            String sql = "SELECT sku, item_id, size, color, material FROM variants WHERE sku IN ("
+                    + placeholders(chunk.size()) + ")";
+            // Atribut hanya bisa bentrok dengan variant item yang sama; cukup diperiksa sekali
+            if (from == 0 && !attributes.isEmpty()) {
+                sql += " OR item_id = ?";
+                args.add(itemId);
+            }
+            jdbcTemplate.query(sql, rs -> {
+                String sku = rs.getString("sku");
+                Row existing = new Row(sku, rs.getString("size"), rs.getString("color"), rs.getString("material"),
+                        null, 0, 0);
+                if (skus.contains(sku.toLowerCase(Locale.ROOT))) {
+                    conflicts.add("SKU '" + sku + "'");
+                } else if (rs.getLong("item_id") == itemId && attributes.contains(existing.attributeKey())) {
+                    conflicts.add("size '" + existing.size() + "', color '" + existing.color()
+                            + "', material '" + existing.material() + "'");
+                }
+            }, args.toArray());
+        }
+
+        if (!conflicts.isEmpty()) {
+            throw new DuplicateResourceException(conflicts.size() + " generated variant(s) already exist: "
+                    + String.join("; ", conflicts.subList(0, Math.min(MAX_REPORTED_CONFLICTS, conflicts.size())))
+                    + (conflicts.size() > MAX_REPORTED_CONFLICTS ? "; ..." : ""));
+        }
+    }
+
+    private void insertVariants(Long itemId, List<Row> rows, LocalDateTime now) {
+        StringBuilder sql = new StringBuilder("INSERT INTO variants (item_id, sku, size, color, material, price, "
+                + "stock_quantity, min_stock_level, created_at, updated_at) VALUES ");
+        List<Object> args = new ArrayList<>(rows.size() * 10);
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            Collections.addAll(args, itemId, row.sku(), row.size(), row.color(), row.material(), row.price(),
+                    row.stockQuantity(), row.minStockLevel(), now, now);
+        }
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    // Id baru tidak perlu dibaca ke aplikasi: movement diambil langsung dari baris yang baru di-insert
+    private void insertInitialMovements(Long itemId, List<String> skus, LocalDateTime now) {
+        List<Object> args = new ArrayList<>(skus.size() + 2);
+        args.add(now);
+        args.add(itemId);
+        args.addAll(skus);
+        jdbcTemplate.update("INSERT INTO stock_movements (variant_id, movement_type, quantity, reason, created_at) "
+                + "SELECT id, 'IN', stock_quantity, 'Initial stock', ? FROM variants "
+                + "WHERE item_id = ? AND stock_quantity > 0 AND sku IN (" + placeholders(skus.size()) + ")", args.toArray());
+    }
+
+    private RuntimeException translateViolation(Long itemId, DataIntegrityViolationException e) {
+        if (ConstraintViolations.isViolationOf(e, Variant.SKU_CONSTRAINT)) {
+            return new DuplicateResourceException("A generated SKU already exists");
+        }
+        if (ConstraintViolations.isViolationOf(e, Variant.ATTRIBUTES_CONSTRAINT)) {
+            return new DuplicateResourceException("A generated variant with these attributes already exists for this item");
+        }
+        if (ConstraintViolations.isViolationOf(e, Variant.ITEM_FOREIGN_KEY)) {
+            return new ResourceNotFoundException("Item not found with id: " + itemId);
+        }
+        return e;
+    }
+
+    // Axis yang tidak diisi menghasilkan satu nilai null, sehingga perkaliannya tetap jalan
+    private static List<String> axis(String name, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.singletonList(null);
+        }
+        Set<String> seen = new HashSet<>();
+        for (String value : values) {
+            if (value.length() > MAX_TEXT_LENGTH) {
+                throw new InvalidVariantMatrixException(name + " value '" + value + "' is longer than "
+                        + MAX_TEXT_LENGTH + " characters");
+            }
+            if (!seen.add(value.toLowerCase(Locale.ROOT))) {
+                throw new InvalidVariantMatrixException(name + " contains '" + value + "' more than once");
+            }
+        }
+        return values;
+    }
+
+    private static void checkTemplate(String template, VariantMatrixDTO matrix) {
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            if (!PLACEHOLDERS.contains(name)) {
+                throw new InvalidVariantMatrixException("Unknown SKU template placeholder {" + name + "}, supported: "
+                        + PLACEHOLDERS.stream().sorted().map(p -> "{" + p + "}").collect(Collectors.joining(", ")));
+            }
+            List<String> values = switch (name) {
+                case "size" -> matrix.getSizes();
+                case "color" -> matrix.getColors();
+                case "material" -> matrix.getMaterials();
+                default -> List.of(name);
+            };
+            if (values == null || values.isEmpty()) {
+                throw new InvalidVariantMatrixException("SKU template uses {" + name + "} but no " + name
+                        + " values were given");
+            }
+        }
+    }
+
+    private static String render(String template, Long itemId, String size, String color, String material, int index) {
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder sku = new StringBuilder();
+        while (matcher.find()) {
+            String value = switch (matcher.group(1)) {
+                case "item" -> String.valueOf(itemId);
+                case "size" -> size;
+                case "color" -> color;
+                case "material" -> material;
+                default -> String.valueOf(index);
+            };
+            matcher.appendReplacement(sku, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(sku);
+        return sku.toString().trim();
+    }
+
+    private static BigDecimal adjustment(Map<String, Map<String, BigDecimal>> adjustments, String axis, String value) {
+        Map<String, BigDecimal> byValue = adjustments.get(axis);
+        if (byValue == null || value == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal amount = byValue.get(value);
+        return amount != null ? amount : BigDecimal.ZERO;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private record Row(String sku, String size, String color, String material, BigDecimal price,
+                       int stockQuantity, int minStockLevel) {
+
+        // Unique key dengan kolom null tidak pernah bentrok, sama seperti di MySQL
+        List<String> attributeKey() {
+            if (size == null || color == null || material == null) {
+                return null;
+            }
+            return Arrays.asList(size.toLowerCase(Locale.ROOT), color.toLowerCase(Locale.ROOT),
+                    material.toLowerCase(Locale.ROOT));
+        }
+    }
+}
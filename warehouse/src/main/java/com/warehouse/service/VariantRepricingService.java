@@ -0,0 +1,354 @@
+package com.warehouse.service;
+
+import com.warehouse.dto.RepricingJobDTO;
+import com.warehouse.dto.RepricingRequestDTO;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.exception.JobAlreadyRunningException;
+import com.warehouse.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Changes the price of many variants in one job. Variants are processed in chunks, each in its own
+ * short READ COMMITTED transaction: the chunk's ids are selected without locks, only those rows are then
+ * locked by primary key and read once, the price history goes in as one multi-row INSERT and the new
+ * prices as one UPDATE ... CASE. Every chunk publishes a CatalogChangedEvent for its own variants, so
+ * caches follow the job as it goes and no event carries the whole job.
+ */
+@Service
+@Slf4j
+public class VariantRepricingService {
+
+    // Batas kolom price decimal(10,2)
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final int MAX_REPORTED_UNKNOWN_SKUS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicReference<Job> running = new AtomicReference<>();
+    private final ExecutorService launcher = BackgroundJobs.launcher("variant-repricing");
+
+    public VariantRepricingService(JdbcTemplate jdbcTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${warehouse.repricing.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        // Tanpa gap lock REPEATABLE READ: baris yang tidak cocok atau id yang sudah hilang tidak ikut terkunci
+        this.chunkTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.chunkSize = chunkSize;
+    }
+
+    public RepricingJobDTO startJob(RepricingRequestDTO request) {
+        Job job = new Job(UUID.randomUUID().toString(), request);
+        // Dua job bersamaan bisa menyentuh baris yang sama dan saling menimpa riwayat harganya
+        if (!running.compareAndSet(null, job)) {
+            throw new JobAlreadyRunningException("A repricing job is already running: " + running.get().id);
+        }
+        jobs.put(job.id, job);
+        launcher.submit(() -> run(job));
+        log.info("Started repricing job {} ({})", job.id, job.mode());
+        return job.toDTO();
+    }
+
+    public RepricingJobDTO getJob(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Repricing job not found with id: " + id);
+        }
+        return job.toDTO();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        launcher.shutdownNow();
+    }
+
+    private void run(Job job) {
+        job.status = "RUNNING";
+        long start = System.nanoTime();
+        String outcome = "FAILED";
+        try {
+            RepricingRequestDTO request = job.request;
+            boolean completed = request.isRule() && (request.getSkus() == null || request.getSkus().isEmpty())
+                    ? scanById(job)
+                    : scanBySku(job);
+            outcome = completed ? "COMPLETED" : "INTERRUPTED";
+            log.info("Repricing job {} {} in {} ms: {} matched, {} updated, {} skipped, {} items",
+                    job.id, outcome.toLowerCase(), (System.nanoTime() - start) / 1_000_000,
+                    job.variantsMatched.get(), job.variantsUpdated.get(), job.variantsSkipped.get(), job.itemIds.size());
+        } catch (RuntimeException e) {
+            log.error("Repricing job {} failed", job.id, e);
+            job.error = e.getMessage();
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            job.status = outcome;
+            running.set(null);
+        }
+    }
+
+    // Aturan tanpa daftar SKU: keyset scan atas id, chunk berikutnya mulai setelah id terakhir
+    private boolean scanById(Job job) {
+        long afterId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long from = afterId;
+            ChunkResult result = chunkTransaction.execute(status -> apply(job, findCandidates(job.request, from, null)));
+            job.add(result);
+            if (result.lastId() == null || result.scanned() < chunkSize) {
+                return true;
+            }
+            afterId = result.lastId();
+        }
+        return false;
+    }
+
+    private boolean scanBySku(Job job) {
+        List<String> skus = job.request.isRule()
+                ? new ArrayList<>(new LinkedHashSet<>(job.request.getSkus()))
+                : new ArrayList<>(job.priceList.keySet());
+        for (int from = 0; from < skus.size(); from += chunkSize) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            List<String> chunk = skus.subList(from, Math.min(from + chunkSize, skus.size()));
+            ChunkResult result = chunkTransaction.execute(status -> apply(job, findCandidates(job.request, null, chunk)));
+            job.add(result);
+            if (!job.request.isRule()) {
+                Set<String> found = result.skus();
+                chunk.stream().filter(sku -> !found.contains(sku)).forEach(job::unknownSku);
+            }
+        }
+        return true;
+    }
+
+    // Tanpa lock: scan dengan filter non-index di bawah FOR UPDATE akan mengunci setiap baris yang dilewati
+    private List<Long> findCandidates(RepricingRequestDTO request, Long afterId, List<String> skus) {
+        StringBuilder sql = new StringBuilder("SELECT id FROM variants WHERE deleted_at IS NULL");
+        List<Object> args = new ArrayList<>();
+        if (afterId != null) {
+            sql.append(" AND id > ?");
+            args.add(afterId);
+        }
+        if (skus != null) {
+            sql.append(" AND sku IN (").append(placeholders(skus.size())).append(')');
+            args.addAll(skus);
+        }
+        appendRuleFilters(sql, args, request);
+        sql.append(" ORDER BY id");
+        if (afterId != null) {
+            sql.append(" LIMIT ?");
+            args.add(chunkSize);
+        }
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    // Hanya kandidat yang dikunci, lewat primary key; filter diulang karena baris bisa berubah sejak dipilih
+    private List<PriceRow> lockRows(RepricingRequestDTO request, List<Long> ids) {
+        StringBuilder sql = new StringBuilder("SELECT id, item_id, sku, price FROM variants WHERE id IN (")
+                .append(placeholders(ids.size())).append(") AND deleted_at IS NULL");
+        List<Object> args = new ArrayList<>(ids);
+        appendRuleFilters(sql, args, request);
+        // Urutan id juga urutan penguncian, sama dengan update lain yang mengunci per id
+        sql.append(" ORDER BY id FOR UPDATE");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new PriceRow(rs.getLong("id"), rs.getLong("item_id"),
+                rs.getString("sku"), rs.getBigDecimal("price")), args.toArray());
+    }
+
+    private ChunkResult apply(Job job, List<Long> candidates) {
+        List<PriceRow> rows = candidates.isEmpty() ? List.of() : lockRows(job.request, candidates);
+        List<PriceChange> changes = new ArrayList<>(rows.size());
+        Set<Long> itemIds = new HashSet<>();
+        Set<Long> variantIds = new HashSet<>();
+        Set<String> skus = new HashSet<>();
+        int skipped = 0;
+        for (PriceRow row : rows) {
+            skus.add(row.sku());
+            BigDecimal newPrice = job.newPrice(row);
+            if (newPrice.signum() <= 0 || newPrice.compareTo(MAX_PRICE) > 0 || newPrice.compareTo(row.price()) == 0) {
+                skipped++;
+                continue;
+            }
+            changes.add(new PriceChange(row.id(), row.price(), newPrice));
+            itemIds.add(row.itemId());
+            variantIds.add(row.id());
+        }
+
+        if (!changes.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            insertHistory(job, changes, now);
+            updatePrices(changes, now);
+            // Diproses listener setelah chunk ini commit, hanya untuk variant yang harganya berubah
+            eventPublisher.publishEvent(new CatalogChangedEvent(itemIds, variantIds));
+        }
+        // Keyset berlanjut dari kandidat terakhir, juga kalau baris itu tidak cocok lagi saat dikunci
+        Long lastId = candidates.isEmpty() ? null : candidates.get(candidates.size() - 1);
+        return new ChunkResult(candidates.size(), rows.size(), changes.size(), skipped, itemIds, skus, lastId);
+    }
+
+    private void insertHistory(Job job, List<PriceChange> changes, LocalDateTime changedAt) {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO variant_price_history (variant_id, old_price, new_price, reason, batch_id, changed_at) VALUES ");
+        List<Object> args = new ArrayList<>(changes.size() * 6);
+        for (int i = 0; i < changes.size(); i++) {
+            PriceChange change = changes.get(i);
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+            Collections.addAll(args, change.variantId(), change.oldPrice(), change.newPrice(),
+                    job.request.getReason(), job.id, changedAt);
+        }
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    private void updatePrices(List<PriceChange> changes, LocalDateTime updatedAt) {
+        StringBuilder sql = new StringBuilder("UPDATE variants SET price = CASE id");
+        List<Object> args = new ArrayList<>(changes.size() * 3 + 1);
+        for (PriceChange change : changes) {
+            sql.append(" WHEN ? THEN CAST(? AS DECIMAL(10, 2))");
+            args.add(change.variantId());
+            args.add(change.newPrice());
+        }
+        // updated_at ikut diubah supaya ETag dan rekonsiliasi hot state antar instance melihat perubahan ini
+        sql.append(" END, updated_at = ? WHERE id IN (").append(placeholders(changes.size())).append(')');
+        args.add(updatedAt);
+        changes.forEach(change -> args.add(change.variantId()));
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    private static void appendRuleFilters(StringBuilder sql, List<Object> args, RepricingRequestDTO request) {
+        if (!request.isRule()) {
+            return;
+        }
+        if (request.getItemIds() != null && !request.getItemIds().isEmpty()) {
+            sql.append(" AND item_id IN (").append(placeholders(request.getItemIds().size())).append(')');
+            args.addAll(request.getItemIds());
+        }
+        appendEquals(sql, args, "size", request.getSize());
+        appendEquals(sql, args, "color", request.getColor());
+        appendEquals(sql, args, "material", request.getMaterial());
+    }
+
+    private static void appendEquals(StringBuilder sql, List<Object> args, String column, String value) {
+        if (value != null) {
+            sql.append(" AND ").append(column).append(" = ?");
+            args.add(value);
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private record PriceRow(long id, long itemId, String sku, BigDecimal price) {
+    }
+
+    private record PriceChange(long variantId, BigDecimal oldPrice, BigDecimal newPrice) {
+    }
+
+    private record ChunkResult(int scanned, int matched, int updated, int skipped, Set<Long> itemIds, Set<String> skus, Long lastId) {
+    }
+
+    private static final class Job {
+        private final String id;
+        private final RepricingRequestDTO request;
+        private final Map<String, BigDecimal> priceList = new LinkedHashMap<>();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger chunksCompleted = new AtomicInteger();
+        private final AtomicLong variantsMatched = new AtomicLong();
+        private final AtomicLong variantsUpdated = new AtomicLong();
+        private final AtomicLong variantsSkipped = new AtomicLong();
+        private final AtomicLong unknownSkuCount = new AtomicLong();
+        private final ConcurrentLinkedQueue<String> unknownSkus = new ConcurrentLinkedQueue<>();
+        private final Set<Long> itemIds = ConcurrentHashMap.newKeySet();
+        private volatile String status = "QUEUED";
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Job(String id, RepricingRequestDTO request) {
+            this.id = id;
+            this.request = request;
+            if (!request.isRule()) {
+                // SKU yang muncul dua kali: harga terakhir yang berlaku
+                request.getPrices().forEach(entry -> priceList.put(entry.getSku(), entry.getPrice()));
+            }
+        }
+
+        String mode() {
+            return request.isRule() ? "RULE" : "PRICE_LIST";
+        }
+
+        BigDecimal newPrice(PriceRow row) {
+            if (!request.isRule()) {
+                return priceList.get(row.sku()).setScale(2, RoundingMode.HALF_UP);
+            }
+            BigDecimal amount = request.getAmount();
+            return switch (request.getAdjustmentType()) {
+                case PERCENTAGE -> row.price().multiply(HUNDRED.add(amount)).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+                case ABSOLUTE -> row.price().add(amount).setScale(2, RoundingMode.HALF_UP);
+            };
+        }
+
+        void add(ChunkResult result) {
+            chunksCompleted.incrementAndGet();
+            variantsMatched.addAndGet(result.matched());
+            variantsUpdated.addAndGet(result.updated());
+            variantsSkipped.addAndGet(result.skipped());
+            itemIds.addAll(result.itemIds());
+        }
+
+        void unknownSku(String sku) {
+            if (unknownSkuCount.incrementAndGet() <= MAX_REPORTED_UNKNOWN_SKUS) {
+                unknownSkus.add(sku);
+            }
+        }
+
+        RepricingJobDTO toDTO() {
+            return RepricingJobDTO.builder()
+                    .id(id)
+                    .status(status)
+                    .mode(mode())
+                    .reason(request.getReason())
+                    .chunksCompleted(chunksCompleted.get())
+                    .variantsMatched(variantsMatched.get())
+                    .variantsUpdated(variantsUpdated.get())
+                    .variantsSkipped(variantsSkipped.get())
+                    .itemsAffected(itemIds.size())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .unknownSkuCount(unknownSkuCount.get())
+                    .unknownSkus(new ArrayList<>(unknownSkus))
+                    .build();
+        }
+    }
+}
@@ -1,21 +1,39 @@
 package com.warehouse.service;
 
+import com.warehouse.cache.CatalogKeyIndex;
+import com.warehouse.cache.ReadCoalescer;
+import com.warehouse.dto.FieldSelection;
+import com.warehouse.dto.ResourceVersion;
 import com.warehouse.dto.VariantDTO;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.event.CatalogKeysReleasedEvent;
+import com.warehouse.event.StockMovementRecordedEvent;
+import com.warehouse.exception.ConstraintViolations;
 import com.warehouse.exception.DuplicateResourceException;
 import com.warehouse.exception.InsufficientStockException;
 import com.warehouse.exception.ResourceNotFoundException;
-import com.warehouse.model.Item;
 import com.warehouse.model.StockMovement;
 import com.warehouse.model.Variant;
+import com.warehouse.model.VariantPriceHistory;
+import com.warehouse.repository.CatalogProjectionRepository;
+import com.warehouse.repository.ChangeStamp;
 import com.warehouse.repository.ItemRepository;
+import com.warehouse.repository.StockMovementInsertRepository;
 import com.warehouse.repository.StockMovementRepository;
+import com.warehouse.repository.VariantInsertRepository;
+import com.warehouse.repository.VariantPriceHistoryRepository;
 import com.warehouse.repository.VariantRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,28 +45,46 @@ public class VariantService {
     private final VariantRepository variantRepository;
     private final ItemRepository itemRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final StockMovementInsertRepository stockMovementInsertRepository;
+    private final VariantInsertRepository variantInsertRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogKeyIndex catalogKeyIndex;
+    private final ReadCoalescer readCoalescer;
+    private final VariantPriceHistoryRepository variantPriceHistoryRepository;
+    private final CatalogProjectionRepository catalogProjectionRepository;
 
     public VariantDTO createVariant(VariantDTO variantDTO) {
         log.info("Creating new variant with SKU: {}", variantDTO.getSku());
 
-        if (variantRepository.existsBySku(variantDTO.getSku())) {
-            throw new DuplicateResourceException("Variant with SKU '" + variantDTO.getSku() + "' already exists");
+        // Tidak ada pengecekan awal: unique key sku/unique_variant_attributes yang menolak, dan item dicek
+        // di INSERT ... SELECT itu sendiri supaya item yang sudah di-soft delete atau sedang di-purge ikut tertolak.
+        // Id dari insert langsung dipakai untuk movement, tanpa membaca ulang variant
+        LocalDateTime now = LocalDateTime.now();
+        Long variantId;
+        try {
+            variantId = variantInsertRepository.insertForActiveItem(variantDTO.getItemId(), variantDTO.getSku(),
+                    variantDTO.getSize(), variantDTO.getColor(), variantDTO.getMaterial(), variantDTO.getPrice(),
+                    variantDTO.getStockQuantity(), variantDTO.getMinStockLevel(), now);
+        } catch (DataIntegrityViolationException e) {
+            throw translateCreateViolation(variantDTO, e);
         }
+        if (variantId == null) {
+            throw new ResourceNotFoundException("Item not found with id: " + variantDTO.getItemId());
+        }
+        catalogKeyIndex.skuAdded(variantDTO.getSku());
 
-        Item item = itemRepository.findById(variantDTO.getItemId())
-                .orElseThrow(() -> new ResourceNotFoundException("Item not found with id: " + variantDTO.getItemId()));
-
-        variantRepository.findByItemIdAndAttributes(
-                variantDTO.getItemId(),
-                variantDTO.getSize(),
-                variantDTO.getColor(),
-                variantDTO.getMaterial()
-        ).ifPresent(v -> {
-            throw new DuplicateResourceException("Variant with these attributes already exists for this item");
-        });
+        if (variantDTO.getStockQuantity() > 0) {
+            stockMovementInsertRepository.insertForVariant(variantId, StockMovement.MovementType.IN,
+                    variantDTO.getStockQuantity(), "Initial stock", null, now);
+            eventPublisher.publishEvent(new StockMovementRecordedEvent(variantId, StockMovement.MovementType.IN,
+                    variantDTO.getStockQuantity(), now));
+        }
 
-        Variant variant = Variant.builder()
-                .item(item)
+        eventPublisher.publishEvent(CatalogChangedEvent.ofVariant(variantDTO.getItemId(), variantId));
+        log.info("Created variant with ID: {}", variantId);
+        return VariantDTO.builder()
+                .id(variantId)
+                .itemId(variantDTO.getItemId())
                 .sku(variantDTO.getSku())
                 .size(variantDTO.getSize())
                 .color(variantDTO.getColor())
@@ -56,22 +92,9 @@ public class VariantService {
                 .price(variantDTO.getPrice())
                 .stockQuantity(variantDTO.getStockQuantity())
                 .minStockLevel(variantDTO.getMinStockLevel())
+                .createdAt(now)
+                .updatedAt(now)
                 .build();
-
-        Variant savedVariant = variantRepository.save(variant);
-
-        if (variantDTO.getStockQuantity() > 0) {
-            StockMovement movement = StockMovement.builder()
-                    .variant(savedVariant)
-                    .movementType(StockMovement.MovementType.IN)
-                    .quantity(variantDTO.getStockQuantity())
-                    .reason("Initial stock")
-                    .build();
-            stockMovementRepository.save(movement);
-        }
-
-        log.info("Created variant with ID: {}", savedVariant.getId());
-        return convertToDTO(savedVariant);
     }
 
     @Transactional(readOnly = true)
@@ -82,20 +105,80 @@ public class VariantService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
+    // SUPPORTS: pemanggil yang menumpang load orang lain tidak perlu transaksi (dan koneksi)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public VariantDTO getVariantById(Long id) {
         log.info("Fetching variant by ID: {}", id);
-        Variant variant = variantRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Variant not found with id: " + id));
-        return convertToDTO(variant);
+        return readCoalescer.load("variant", id, () -> {
+            Variant variant = variantRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Variant not found with id: " + id));
+            return convertToDTO(variant);
+        }, VariantService::copy);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public VariantDTO getVariantBySku(String sku) {
         log.info("Fetching variant by SKU: {}", sku);
-        Variant variant = variantRepository.findBySku(sku)
-                .orElseThrow(() -> new ResourceNotFoundException("Variant not found with SKU: " + sku));
-        return convertToDTO(variant);
+        return readCoalescer.load("variant-sku", sku, () -> {
+            Variant variant = variantRepository.findBySku(sku)
+                    .orElseThrow(() -> new ResourceNotFoundException("Variant not found with SKU: " + sku));
+            return convertToDTO(variant);
+        }, VariantService::copy);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getVariantFields(Long id, FieldSelection selection) {
+        log.info("Fetching variant fields {} by ID: {}", selection.getFields(), id);
+        return single(catalogProjectionRepository.findVariants(
+                (variant, query, cb) -> cb.equal(variant.get("id"), id), selection.getFields()),
+                "Variant not found with id: " + id);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getVariantFieldsBySku(String sku, FieldSelection selection) {
+        log.info("Fetching variant fields {} by SKU: {}", selection.getFields(), sku);
+        return single(catalogProjectionRepository.findVariants(
+                (variant, query, cb) -> cb.equal(variant.get("sku"), sku), selection.getFields()),
+                "Variant not found with SKU: " + sku);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getVariantFieldsByItemId(Long itemId, FieldSelection selection) {
+        log.info("Fetching variant fields {} for item ID: {}", selection.getFields(), itemId);
+        return catalogProjectionRepository.findVariants(
+                (variant, query, cb) -> cb.equal(variant.get("item").get("id"), itemId), selection.getFields());
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public ResourceVersion getVariantVersion(Long id) {
+        return readCoalescer.load("variant-version", id,
+                () -> toVersionIfExists("variant:" + id, variantRepository.getChangeStamp(id)));
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public ResourceVersion getVariantVersionBySku(String sku) {
+        return readCoalescer.load("variant-sku-version", sku,
+                () -> toVersionIfExists("variant:sku:" + sku, variantRepository.getChangeStampBySku(sku)));
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getVariantsByItemIdVersion(Long itemId) {
+        return toVersion("variants:item:" + itemId, variantRepository.getChangeStampByItemId(itemId));
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getLowStockVersion() {
+        return toVersion("variants:low-stock", variantRepository.getLowStockChangeStamp());
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getOutOfStockVersion() {
+        return toVersion("variants:out-of-stock", variantRepository.getOutOfStockChangeStamp());
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getInStockVersion() {
+        return toVersion("variants:in-stock", variantRepository.getInStockChangeStamp());
     }
 
     public VariantDTO updateVariant(Long id, VariantDTO variantDTO) {
@@ -103,11 +186,22 @@ public class VariantService {
         Variant existingVariant = variantRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Variant not found with id: " + id));
 
-        if (!existingVariant.getSku().equals(variantDTO.getSku()) &&
-                variantRepository.existsBySku(variantDTO.getSku())) {
+        String previousSku = existingVariant.getSku();
+        boolean skuChanged = !previousSku.equals(variantDTO.getSku());
+        if (skuChanged && existsBySku(variantDTO.getSku())) {
             throw new DuplicateResourceException("Variant with SKU '" + variantDTO.getSku() + "' already exists");
         }
 
+        if (existingVariant.getPrice().compareTo(variantDTO.getPrice()) != 0) {
+            variantPriceHistoryRepository.save(VariantPriceHistory.builder()
+                    .variantId(id)
+                    .oldPrice(existingVariant.getPrice())
+                    .newPrice(variantDTO.getPrice())
+                    .reason("Variant update")
+                    .changedAt(LocalDateTime.now())
+                    .build());
+        }
+
         existingVariant.setSku(variantDTO.getSku());
         existingVariant.setSize(variantDTO.getSize());
         existingVariant.setColor(variantDTO.getColor());
@@ -116,16 +210,26 @@ public class VariantService {
         existingVariant.setMinStockLevel(variantDTO.getMinStockLevel());
 
         Variant updatedVariant = variantRepository.save(existingVariant);
+        if (skuChanged) {
+            catalogKeyIndex.skuAdded(updatedVariant.getSku());
+            eventPublisher.publishEvent(CatalogKeysReleasedEvent.ofSku(previousSku));
+        }
+        eventPublisher.publishEvent(CatalogChangedEvent.ofVariant(updatedVariant.getItem().getId(), id));
         log.info("Updated variant with ID: {}", updatedVariant.getId());
         return convertToDTO(updatedVariant);
     }
 
     public void deleteVariant(Long id) {
         log.info("Deleting variant with ID: {}", id);
-        if (!variantRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Variant not found with id: " + id);
-        }
-        variantRepository.deleteById(id);
+        Variant variant = variantRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Variant not found with id: " + id));
+        // Variant dihapus (dan dikunci) sebelum movement-nya: writer yang sudah memegang baris variant selesai
+        // lebih dulu sehingga movement-nya ikut terhapus, writer berikutnya tidak menemukan variant lagi
+        variantRepository.delete(variant);
+        variantRepository.flush();
+        stockMovementRepository.deleteByVariantIds(List.of(id));
+        eventPublisher.publishEvent(CatalogKeysReleasedEvent.ofSku(variant.getSku()));
+        eventPublisher.publishEvent(CatalogChangedEvent.ofVariant(variant.getItem().getId(), variant.getId()));
         log.info("Deleted variant with ID: {}", id);
     }
 
@@ -170,19 +274,54 @@ public class VariantService {
         }
 
         variant.setStockQuantity(variant.getStockQuantity() - quantity);
-        variantRepository.save(variant);
-
-        StockMovement movement = StockMovement.builder()
-                .variant(variant)
-                .movementType(StockMovement.MovementType.OUT)
-                .quantity(quantity)
-                .reason("Sale reservation")
-                .build();
-        stockMovementRepository.save(movement);
+        // Flush dulu: baris variant terkunci sebelum insert movement, yang hanya jadi kalau variant masih ada
+        variantRepository.saveAndFlush(variant);
+        LocalDateTime now = LocalDateTime.now();
+        if (stockMovementInsertRepository.insertForVariant(variantId, StockMovement.MovementType.OUT, quantity,
+                "Sale reservation", null, now) == null) {
+            throw new ResourceNotFoundException("Variant not found with id: " + variantId);
+        }
+        eventPublisher.publishEvent(new StockMovementRecordedEvent(variantId, StockMovement.MovementType.OUT,
+                quantity, now));
+        eventPublisher.publishEvent(CatalogChangedEvent.ofVariant(variant.getItem().getId(), variant.getId()));
 
         log.info("Reserved {} units for variant ID: {}", quantity, variantId);
     }
 
+    private RuntimeException translateCreateViolation(VariantDTO variantDTO, DataIntegrityViolationException e) {
+        if (ConstraintViolations.isViolationOf(e, Variant.SKU_CONSTRAINT)) {
+            return new DuplicateResourceException("Variant with SKU '" + variantDTO.getSku() + "' already exists");
+        }
+        if (ConstraintViolations.isViolationOf(e, Variant.ATTRIBUTES_CONSTRAINT)) {
+            return new DuplicateResourceException("Variant with these attributes already exists for this item");
+        }
+        if (ConstraintViolations.isViolationOf(e, Variant.ITEM_FOREIGN_KEY)) {
+            return new ResourceNotFoundException("Item not found with id: " + variantDTO.getItemId());
+        }
+        return e;
+    }
+
+    private static Map<String, Object> single(List<Map<String, Object>> rows, String notFoundMessage) {
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException(notFoundMessage);
+        }
+        return rows.get(0);
+    }
+
+    private ResourceVersion toVersion(String resource, ChangeStamp stamp) {
+        return ResourceVersion.of(resource, stamp.getRowCount(), stamp.getIdSum(), stamp.getLastModified());
+    }
+
+    // Resource yang tidak ada tidak punya validator, biarkan request jatuh ke 404
+    private ResourceVersion toVersionIfExists(String resource, ChangeStamp stamp) {
+        return stamp.getRowCount() > 0 ? toVersion(resource, stamp) : null;
+    }
+
+    // Hasil load dibagi ke semua pemanggil yang menunggu; masing-masing dapat salinannya sendiri
+    static VariantDTO copy(VariantDTO variant) {
+        return variant.toBuilder().build();
+    }
+
     public VariantDTO convertToDTO(Variant variant) {
         return VariantDTO.builder()
                 .id(variant.getId())
@@ -200,10 +339,12 @@ public class VariantService {
     }
 
     public boolean existsBySku(String sku) {
-        return variantRepository.existsBySku(sku);
+        return catalogKeyIndex.skuExists(sku, () -> variantRepository.findIdBySkuIncludingDeleted(sku).isPresent());
     }
 
     public Variant saveVariantDirectly(Variant variant) {
-        return variantRepository.save(variant);
+        Variant saved = variantRepository.save(variant);
+        catalogKeyIndex.skuAdded(saved.getSku());
+        return saved;
     }
 }
\ No newline at end of file
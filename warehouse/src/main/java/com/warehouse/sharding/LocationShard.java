@@ -0,0 +1,11 @@
+package com.warehouse.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One location stock database: a JdbcTemplate and a transaction template bound to its own
+ * connection pool. A transaction never spans two shards.
+ */
+public record LocationShard(int index, String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+}
@@ -0,0 +1,121 @@
+package com.warehouse.sharding;
+
+import com.warehouse.exception.InvalidStockRequestException;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Routes a warehouse location to the database shard that holds its stock. Locations are spread by
+ * a CRC32 hash of their code over warehouse.location-stock.shard-urls, unless pinned to a shard
+ * with warehouse.location-stock.pinned (CODE:index). Without shard URLs there is a single shard in
+ * the primary database. Each shard's schema is migrated from db/shard on startup.
+ */
+@Component
+@Lazy(false)
+@Slf4j
+public class LocationShards {
+
+    private static final Pattern LOCATION_CODE = Pattern.compile("[A-Z0-9_-]{1,64}");
+    private static final String PRIMARY = "primary";
+
+    private final List<LocationShard> shards = new ArrayList<>();
+    private final Map<String, Integer> pinned = new HashMap<>();
+    private final List<HikariDataSource> ownedDataSources = new ArrayList<>();
+
+    public LocationShards(DataSource primaryDataSource,
+                          @Value("${warehouse.location-stock.shard-urls:}") List<String> shardUrls,
+                          @Value("${warehouse.location-stock.username:${spring.datasource.username:}}") String username,
+                          @Value("${warehouse.location-stock.password:${spring.datasource.password:}}") String password,
+                          @Value("${warehouse.location-stock.pool-size:10}") int poolSize,
+                          @Value("${warehouse.location-stock.pinned:}") List<String> pinnedLocations) {
+        List<String> urls = shardUrls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+        if (urls.isEmpty()) {
+            shards.add(shard(0, PRIMARY, primaryDataSource));
+        } else {
+            for (int i = 0; i < urls.size(); i++) {
+                HikariDataSource dataSource = new HikariDataSource();
+                dataSource.setJdbcUrl(urls.get(i));
+                dataSource.setUsername(username);
+                dataSource.setPassword(password);
+                dataSource.setMaximumPoolSize(poolSize);
+                dataSource.setPoolName("location-shard-" + i);
+                ownedDataSources.add(dataSource);
+                shards.add(shard(i, "shard-" + i, dataSource));
+            }
+        }
+
+        for (String entry : pinnedLocations) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            int index = parts.length == 2 && parts[1].trim().matches("\\d+") ? Integer.parseInt(parts[1].trim()) : -1;
+            if (index < 0 || index >= shards.size()) {
+                throw new IllegalStateException("Invalid warehouse.location-stock.pinned entry '" + entry
+                        + "', expected CODE:index with index below " + shards.size());
+            }
+            pinned.put(normalize(parts[0]), index);
+        }
+        log.info("Location stock spread over {} shard(s), {} pinned location(s)", shards.size(), pinned.size());
+    }
+
+    public List<LocationShard> all() {
+        return shards;
+    }
+
+    public LocationShard forLocation(String location) {
+        Integer index = pinned.get(location);
+        if (index != null) {
+            return shards.get(index);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(location.getBytes(StandardCharsets.UTF_8));
+        return shards.get((int) (crc.getValue() % shards.size()));
+    }
+
+    // Kode lokasi dibandingkan tanpa membedakan huruf besar/kecil; hasil normalisasi yang disimpan dan di-hash
+    public static String normalize(String location) {
+        String code = location == null ? "" : location.trim().toUpperCase(Locale.ROOT);
+        if (!LOCATION_CODE.matcher(code).matches()) {
+            throw new InvalidStockRequestException("Location code must be 1 to 64 letters, digits, '-' or '_': " + location);
+        }
+        return code;
+    }
+
+    @PreDestroy
+    public void close() {
+        ownedDataSources.forEach(HikariDataSource::close);
+    }
+
+    private static LocationShard shard(int index, String name, DataSource dataSource) {
+        // Riwayat migrasi shard terpisah dari flyway_schema_history, juga saat shard-nya database utama
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/shard")
+                .table("location_stock_schema_history")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+        return new LocationShard(index, name, new JdbcTemplate(dataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+}
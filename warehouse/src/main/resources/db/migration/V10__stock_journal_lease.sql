@@ -0,0 +1,5 @@
+-- Lease penulis journal: hanya instance yang memegang lease (dan lock direktori journal-nya) yang menerima
+-- mutasi stok lewat journal. Kedaluwarsa sendiri kalau instance-nya mati dan berhenti memperbarui.
+ALTER TABLE stock_journal_checkpoints
+  ADD COLUMN lease_owner varchar(64) NULL,
+  ADD COLUMN lease_expires_at timestamp(6) NULL;
@@ -0,0 +1,47 @@
+-- Baseline: skema yang sebelumnya dibuat oleh ddl-auto=update (lihat doc/dump-shop_warehouse-*.sql).
+-- Database yang sudah ada di-baseline pada versi ini dan tidak menjalankan script ini.
+
+CREATE TABLE items (
+  id bigint NOT NULL AUTO_INCREMENT,
+  name varchar(255) NOT NULL,
+  description varchar(255) DEFAULT NULL,
+  base_price decimal(10,2) NOT NULL,
+  created_at timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  updated_at timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE KEY unique_item_name (name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE variants (
+  id bigint NOT NULL AUTO_INCREMENT,
+  item_id bigint NOT NULL,
+  sku varchar(255) NOT NULL,
+  size varchar(255) DEFAULT NULL,
+  color varchar(255) DEFAULT NULL,
+  material varchar(255) DEFAULT NULL,
+  price decimal(10,2) NOT NULL,
+  stock_quantity int NOT NULL DEFAULT '0',
+  min_stock_level int NOT NULL DEFAULT '0',
+  created_at timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  updated_at timestamp NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE KEY sku (sku),
+  UNIQUE KEY unique_variant_attributes (item_id, size, color, material),
+  KEY idx_variants_item_id (item_id),
+  KEY idx_variants_sku (sku),
+  CONSTRAINT variants_ibfk_1 FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE stock_movements (
+  id bigint NOT NULL AUTO_INCREMENT,
+  variant_id bigint NOT NULL,
+  movement_type enum('IN','OUT','ADJUSTMENT') NOT NULL,
+  quantity int NOT NULL,
+  reason varchar(255) DEFAULT NULL,
+  reference varchar(255) DEFAULT NULL,
+  created_at timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  KEY idx_stock_movements_variant_id (variant_id),
+  KEY idx_stock_movements_created_at (created_at),
+  CONSTRAINT stock_movements_ibfk_1 FOREIGN KEY (variant_id) REFERENCES variants (id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,16 @@
+-- idx_variants_sku menduplikasi unique key `sku`, dan idx_variants_item_id sudah tercakup
+-- oleh prefix unique_variant_attributes (item_id, ...), yang juga melayani FK ke items.
+ALTER TABLE variants
+  DROP INDEX idx_variants_sku,
+  DROP INDEX idx_variants_item_id;
+
+-- Filter low-stock / in-stock / out-of-stock cukup dibaca dari index tanpa menyentuh baris
+ALTER TABLE variants
+  ADD KEY idx_variants_stock_levels (stock_quantity, min_stock_level);
+
+-- Riwayat per variant: filter variant_id lalu urut created_at dari index yang sama.
+-- Index tunggal variant_id jadi prefix yang redundan (FK tetap terlayani oleh index baru).
+ALTER TABLE stock_movements
+  ADD KEY idx_stock_movements_variant_created (variant_id, created_at);
+ALTER TABLE stock_movements
+  DROP INDEX idx_stock_movements_variant_id;
@@ -0,0 +1,12 @@
+-- Validator ETag/Last-Modified diturunkan dari updated_at; presisi detik membuat dua update
+-- dalam detik yang sama tidak terbedakan.
+ALTER TABLE items
+  MODIFY created_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6),
+  MODIFY updated_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+
+ALTER TABLE variants
+  MODIFY created_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6),
+  MODIFY updated_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+
+ALTER TABLE stock_movements
+  MODIFY created_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6);
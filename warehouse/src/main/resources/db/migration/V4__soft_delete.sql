@@ -0,0 +1,8 @@
+-- Purge item besar: item dan variant-nya ditandai terhapus dulu, baris sebenarnya dihapus
+-- bertahap di background. Index dipakai saat startup untuk melanjutkan purge yang belum selesai.
+ALTER TABLE items
+  ADD COLUMN deleted_at timestamp(6) NULL,
+  ADD KEY idx_items_deleted_at (deleted_at);
+
+ALTER TABLE variants
+  ADD COLUMN deleted_at timestamp(6) NULL;
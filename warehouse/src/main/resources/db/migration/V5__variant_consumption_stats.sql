@@ -0,0 +1,13 @@
+-- Statistik konsumsi per variant (EWMA permintaan harian dan variansnya), diperbarui inkremental
+-- dari setiap movement OUT; tidak pernah dihitung ulang dari riwayat stock_movements.
+CREATE TABLE variant_consumption_stats (
+  variant_id bigint NOT NULL,
+  ewma_daily_out double NOT NULL DEFAULT 0,
+  ewm_variance double NOT NULL DEFAULT 0,
+  observed_days int NOT NULL DEFAULT 0,
+  current_day date NOT NULL,
+  current_day_out int NOT NULL DEFAULT 0,
+  updated_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (variant_id),
+  CONSTRAINT variant_consumption_stats_ibfk_1 FOREIGN KEY (variant_id) REFERENCES variants (id) ON DELETE CASCADE
+);
@@ -0,0 +1,15 @@
+-- Riwayat perubahan harga variant; satu baris per variant per perubahan (edit tunggal atau repricing massal).
+-- batch_id mengelompokkan baris dari satu job repricing.
+CREATE TABLE variant_price_history (
+  id bigint NOT NULL AUTO_INCREMENT,
+  variant_id bigint NOT NULL,
+  old_price decimal(10,2) NOT NULL,
+  new_price decimal(10,2) NOT NULL,
+  reason varchar(255) DEFAULT NULL,
+  batch_id varchar(36) DEFAULT NULL,
+  changed_at timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (id),
+  KEY idx_variant_price_history_variant_changed (variant_id, changed_at),
+  KEY idx_variant_price_history_batch (batch_id),
+  CONSTRAINT variant_price_history_ibfk_1 FOREIGN KEY (variant_id) REFERENCES variants (id) ON DELETE CASCADE
+);
@@ -0,0 +1,17 @@
+-- Rollup level stok per variant per hari dan per minggu (mulai Senin), diperbarui inkremental dari bucket
+-- yang berubah saja. Level mengikuti saldo ledger stock_movements: IN dan OUT positif, ADJUSTMENT bertanda.
+CREATE TABLE stock_level_rollups (
+  variant_id bigint NOT NULL,
+  resolution varchar(8) NOT NULL,
+  bucket_start datetime NOT NULL,
+  open_level int NOT NULL,
+  min_level int NOT NULL,
+  max_level int NOT NULL,
+  close_level int NOT NULL,
+  in_quantity int NOT NULL DEFAULT 0,
+  out_quantity int NOT NULL DEFAULT 0,
+  adjustment_quantity int NOT NULL DEFAULT 0,
+  movement_count int NOT NULL DEFAULT 0,
+  PRIMARY KEY (variant_id, resolution, bucket_start),
+  CONSTRAINT stock_level_rollups_ibfk_1 FOREIGN KEY (variant_id) REFERENCES variants (id) ON DELETE CASCADE
+);
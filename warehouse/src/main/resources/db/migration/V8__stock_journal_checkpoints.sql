@@ -0,0 +1,9 @@
+-- Posisi proyeksi journal movement (warehouse.stock-journal.enabled=true): sequence terakhir yang sudah
+-- diterapkan ke variants dan stock_movements, diperbarui dalam transaksi yang sama dengan batch-nya.
+-- Satu baris per direktori journal; id-nya ditulis di header setiap segment.
+CREATE TABLE stock_journal_checkpoints (
+  journal_id varchar(36) NOT NULL,
+  projected_sequence bigint NOT NULL DEFAULT 0,
+  updated_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (journal_id)
+);
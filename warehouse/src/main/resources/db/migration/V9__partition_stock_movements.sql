@@ -0,0 +1,24 @@
+-- stock_movements dipartisi per bulan berdasarkan created_at: query dengan rentang tanggal hanya membuka
+-- partisi yang relevan, index aktif yang terus ditulisi hanya milik bulan berjalan, dan retention membuang
+-- satu partisi utuh (DROP PARTITION) alih-alih menghapus baris. Partisi bulan berikutnya dibuat dan partisi
+-- kedaluwarsa dibuang oleh StockMovementPartitionService.
+
+-- InnoDB tidak mendukung FK pada tabel berpartisi. Pengganti ON DELETE CASCADE ada di aplikasi: delete
+-- item/variant (hard delete) dan purge item menghapus movement-nya sendiri, dan setiap insert movement
+-- memeriksa baris variant di statement yang sama.
+ALTER TABLE stock_movements
+  DROP FOREIGN KEY stock_movements_ibfk_1;
+
+-- Kolom partisi wajib ada di setiap unique key, termasuk primary key, dan tidak boleh NULL
+ALTER TABLE stock_movements
+  MODIFY created_at timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (id, created_at);
+
+-- Riwayat sebelum migrasi masuk satu partisi p_history dan dibuang utuh setelah seluruh isinya melewati
+-- retention. p_future menampung sisanya sampai service memecahnya menjadi partisi bulanan.
+ALTER TABLE stock_movements
+  PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (
+    PARTITION p_history VALUES LESS THAN (UNIX_TIMESTAMP('2026-11-01 00:00:00')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+  );
@@ -0,0 +1,24 @@
+-- Skema setiap shard stok per lokasi (dijalankan oleh LocationShards, bukan Flyway utama).
+-- Tidak ada FK ke variants: tabel variants ada di database utama, aplikasi yang memvalidasi variant_id.
+-- Ditulis supaya jalan di MySQL dan H2 (mode MySQL) yang dipakai test.
+CREATE TABLE location_stock (
+  location_code varchar(64) NOT NULL,
+  variant_id bigint NOT NULL,
+  quantity int NOT NULL DEFAULT 0,
+  updated_at timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (location_code, variant_id),
+  KEY idx_location_stock_variant (variant_id)
+);
+
+CREATE TABLE location_stock_movements (
+  id bigint NOT NULL AUTO_INCREMENT,
+  location_code varchar(64) NOT NULL,
+  variant_id bigint NOT NULL,
+  movement_type enum('IN','OUT','ADJUSTMENT') NOT NULL,
+  quantity int NOT NULL,
+  reason varchar(255) DEFAULT NULL,
+  reference varchar(255) DEFAULT NULL,
+  created_at timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+  PRIMARY KEY (id),
+  KEY idx_location_stock_movements_variant_created (location_code, variant_id, created_at)
+);
@@ -0,0 +1,121 @@
+package com.warehouse;
+
+import com.warehouse.admission.AdmissionControl;
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.InventoryService;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Satu writer dan satu slot antrean per variant; yang antre menunggu cukup lama sampai test melepasnya
+@SpringBootTest(properties = {
+        "warehouse.admission.per-variant.max-concurrent=1",
+        "warehouse.admission.per-variant.max-queued=1",
+        "warehouse.admission.per-variant.max-queue-wait=PT10S",
+        "warehouse.admission.retry-after=PT2S"
+})
+@AutoConfigureMockMvc
+class AdmissionControlTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void fullVariantQueueIsRejectedWithRetryAfter() throws Exception {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("admission-" + run).basePrice(BigDecimal.TEN).build());
+        Long hot = createVariant(item.getId(), "HOT-" + run);
+        Long other = createVariant(item.getId(), "OTHER-" + run);
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> admissionControl.execute(hot, () -> {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+        AtomicReference<Thread> queuedThread = new AtomicReference<>();
+        CompletableFuture<Integer> queued = CompletableFuture.supplyAsync(() -> {
+            queuedThread.set(Thread.currentThread());
+            return admissionControl.execute(hot, () -> inventoryService.addStock(update(hot, 2))).stockQuantity();
+        });
+        // Request kedua sudah parkir di antrean bulkhead
+        for (int i = 0; i < 200 && (queuedThread.get() == null || queuedThread.get().getState() != Thread.State.TIMED_WAITING); i++) {
+            Thread.sleep(25);
+        }
+        assertThat(queuedThread.get().getState()).isEqualTo(Thread.State.TIMED_WAITING);
+
+        mockMvc.perform(post("/api/inventory/add-stock").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"variantId\": " + hot + ", \"quantity\": 1}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                .andExpect(jsonPath("$.message").value("Too many concurrent stock updates for variant " + hot));
+        assertThat(meterRegistry.get("warehouse.admission.shed").tag("reason", "variant").tag("sku", "HOT-" + run)
+                .counter().count()).isEqualTo(1);
+
+        // Bulkhead per variant: variant lain tetap diterima
+        mockMvc.perform(post("/api/inventory/add-stock").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"variantId\": " + other + ", \"quantity\": 1}"))
+                .andExpect(status().isOk());
+
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isEqualTo(7);
+    }
+
+    private Long createVariant(Long itemId, String sku) {
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(itemId)
+                .sku(sku)
+                .size(sku)
+                .price(BigDecimal.ONE)
+                .stockQuantity(5)
+                .minStockLevel(0)
+                .build()).getId();
+    }
+
+    private static StockUpdateDTO update(Long variantId, int quantity) {
+        return StockUpdateDTO.builder().variantId(variantId).quantity(quantity).build();
+    }
+}
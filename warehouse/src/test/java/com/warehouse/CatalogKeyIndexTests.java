@@ -0,0 +1,133 @@
+package com.warehouse;
+
+import com.warehouse.cache.CatalogKeyIndex;
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Reconcile dan rebuild dipanggil langsung oleh test
+@SpringBootTest(properties = {
+        "warehouse.catalog-keys.reconcile-interval=PT1H",
+        "warehouse.catalog-keys.rebuild-interval=PT1H"
+})
+class CatalogKeyIndexTests {
+
+    @Autowired
+    private CatalogKeyIndex catalogKeyIndex;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void awaitKeyIndex() throws InterruptedException {
+        for (int i = 0; i < 200 && !catalogKeyIndex.isReady(); i++) {
+            Thread.sleep(25);
+        }
+        assertThat(catalogKeyIndex.isReady()).isTrue();
+    }
+
+    @Test
+    void falsePositiveIsAnsweredByTheDatabase() {
+        // SKU dari insert yang di-rollback: ada di filter, tidak ada di database
+        String sku = "ROLLED-BACK-" + run();
+        catalogKeyIndex.skuAdded(sku);
+        double before = checks("false_positive");
+
+        assertThat(consultsDatabase(sku)).isTrue();
+        assertThat(variantService.existsBySku(sku)).isFalse();
+        assertThat(checks("false_positive")).isEqualTo(before + 2);
+
+        // Key yang tidak pernah ditambahkan tidak sampai ke database
+        assertThat(consultsDatabase("NEVER-" + run())).isFalse();
+    }
+
+    @Test
+    void rebuildDropsReleasedKeysAndKeepsSoftDeletedOnes() throws InterruptedException {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("keys-" + run).basePrice(BigDecimal.TEN).build());
+        Long released = createVariant(item.getId(), "RELEASED-" + run);
+        createVariant(item.getId(), "HELD-" + run);
+        String heldByPurge = "PURGING-" + run;
+        Long purging = createVariant(item.getId(), heldByPurge);
+
+        variantService.deleteVariant(released);
+        jdbcTemplate.update("UPDATE variants SET deleted_at = ? WHERE id = ?", LocalDateTime.now(), purging);
+        // Key yang dilepas tetap di filter sampai rebuild
+        assertThat(consultsDatabase("RELEASED-" + run)).isTrue();
+
+        catalogKeyIndex.scheduledRebuild();
+        for (int i = 0; i < 200 && consultsDatabase("RELEASED-" + run); i++) {
+            Thread.sleep(25);
+        }
+        assertThat(consultsDatabase("RELEASED-" + run)).isFalse();
+        assertThat(consultsDatabase("HELD-" + run)).isTrue();
+        // Variant yang sedang di-purge masih memegang unique key sku
+        assertThat(consultsDatabase(heldByPurge)).isTrue();
+        assertThat(variantService.existsBySku(heldByPurge)).isTrue();
+    }
+
+    @Test
+    void keysWrittenElsewhereAreAddedOnReconcile() {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("remote-keys-" + run).basePrice(BigDecimal.TEN).build());
+        jdbcTemplate.update("INSERT INTO variants (item_id, sku, price, stock_quantity, min_stock_level, created_at, updated_at) "
+                + "VALUES (?, ?, 1, 0, 0, ?, ?)", item.getId(), "REMOTE-" + run, LocalDateTime.now(), LocalDateTime.now());
+        // Di jendela sebelum reconcile filter belum mengenal SKU-nya
+        assertThat(consultsDatabase("REMOTE-" + run)).isFalse();
+
+        catalogKeyIndex.scheduledReconcile();
+        assertThat(consultsDatabase("REMOTE-" + run)).isTrue();
+        assertThat(variantService.existsBySku("REMOTE-" + run)).isTrue();
+    }
+
+    private boolean consultsDatabase(String sku) {
+        AtomicBoolean consulted = new AtomicBoolean();
+        catalogKeyIndex.skuExists(sku, () -> {
+            consulted.set(true);
+            return false;
+        });
+        return consulted.get();
+    }
+
+    private double checks(String outcome) {
+        return meterRegistry.get("warehouse.catalog.key.checks").tag("kind", "sku").tag("outcome", outcome).counter().count();
+    }
+
+    private Long createVariant(Long itemId, String sku) {
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(itemId)
+                .sku(sku)
+                .size(sku)
+                .price(BigDecimal.ONE)
+                .stockQuantity(0)
+                .minStockLevel(0)
+                .build()).getId();
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,113 @@
+package com.warehouse;
+
+import com.warehouse.cache.CatalogSnapshotManager;
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Refresh, reconcile dan sweep dipanggil langsung oleh test; tulisan lewat JdbcTemplate meniru instance lain.
+// Tanpa overlap, reconcile berikutnya tidak menandai ulang item yang sudah diambil reconcile sebelumnya.
+@SpringBootTest(properties = {
+        "warehouse.catalog-snapshot.refresh-interval=PT1H",
+        "warehouse.catalog-snapshot.reconcile-interval=PT1H",
+        "warehouse.catalog-snapshot.clock-skew-overlap=PT0S",
+        "warehouse.catalog-snapshot.sweep-interval=PT1H"
+})
+@AutoConfigureMockMvc
+class CatalogSnapshotTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogSnapshotManager catalogSnapshotManager;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void etagChangesOnlyAfterTheChangedItemIsReEncoded() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/items")).andExpect(status().isOk()).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("\"").endsWith("\"");
+        mockMvc.perform(get("/api/items").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        String name = "snapshot-" + run();
+        itemService.createItem(ItemDTO.builder().name(name).basePrice(BigDecimal.TEN).build());
+        // Item hanya ditandai kotor; snapshot tertinggal sampai refresh berikutnya
+        mockMvc.perform(get("/api/items").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        catalogSnapshotManager.refreshDirty();
+        MvcResult changed = mockMvc.perform(get("/api/items").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(changed.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+        assertThat(changed.getResponse().getContentAsString()).contains(name);
+    }
+
+    @Test
+    void changesFromOtherInstancesAreFoundByReconcileAndSweep() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("remote-snapshot-" + run).basePrice(BigDecimal.TEN).build());
+        Long variantId = variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("RS-" + run)
+                .price(BigDecimal.TEN)
+                .build()).getId();
+        catalogSnapshotManager.current();
+        catalogSnapshotManager.refreshDirty();
+        assertThat(body()).contains("remote-snapshot-" + run).contains("RS-" + run);
+
+        jdbcTemplate.update("UPDATE items SET name = ?, updated_at = ? WHERE id = ?",
+                "renamed-snapshot-" + run, LocalDateTime.now(), item.getId());
+        catalogSnapshotManager.refreshDirty();
+        assertThat(body()).contains("remote-snapshot-" + run);
+
+        catalogSnapshotManager.scheduledReconcile();
+        catalogSnapshotManager.refreshDirty();
+        assertThat(body()).contains("renamed-snapshot-" + run).doesNotContain("remote-snapshot-" + run);
+
+        // Hard delete tidak terlihat lewat updated_at, hanya lewat sweep
+        jdbcTemplate.update("DELETE FROM variants WHERE id = ?", variantId);
+        catalogSnapshotManager.scheduledReconcile();
+        catalogSnapshotManager.refreshDirty();
+        assertThat(body()).contains("RS-" + run);
+
+        catalogSnapshotManager.scheduledSweep();
+        catalogSnapshotManager.refreshDirty();
+        assertThat(body()).contains("renamed-snapshot-" + run).doesNotContain("RS-" + run);
+    }
+
+    private String body() throws Exception {
+        return mockMvc.perform(get("/api/items")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,99 @@
+package com.warehouse;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// ETag weak dari COUNT, SUM(id) dan MAX(updated_at) baris yang dibaca, bukan dari body
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalGetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Test
+    void unchangedVariantIsNotModifiedAndUpdateChangesTheEtag() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("etag-" + run).basePrice(BigDecimal.TEN).build());
+        VariantDTO variant = createVariant(item.getId(), "ETAG-" + run);
+        String path = "/api/variants/" + variant.getId();
+
+        String etag = etag(path);
+        assertThat(etag).startsWith("W/\"").endsWith("\"");
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        variant.setPrice(new BigDecimal("2.50"));
+        variantService.updateVariant(variant.getId(), variant);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        assertThat(etag(path)).isNotEqualTo(etag);
+    }
+
+    @Test
+    void deleteChangesTheListEtagEvenWhenTheLatestUpdateStays() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("etag-list-" + run).basePrice(BigDecimal.TEN).build());
+        VariantDTO older = createVariant(item.getId(), "ETAG-OLD-" + run);
+        createVariant(item.getId(), "ETAG-NEW-" + run);
+        String path = "/api/variants/item/" + item.getId();
+
+        String etag = etag(path);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // MAX(updated_at) tetap milik variant yang lebih baru; COUNT dan SUM(id) yang berubah
+        variantService.deleteVariant(older.getId());
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        String afterDelete = etag(path);
+        assertThat(afterDelete).isNotEqualTo(etag);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, afterDelete))
+                .andExpect(status().isNotModified());
+
+        // Variant yang sudah dihapus tidak punya validator lagi
+        mockMvc.perform(get("/api/variants/" + older.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotFound());
+    }
+
+    private String etag(String path) throws Exception {
+        return mockMvc.perform(get(path)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private VariantDTO createVariant(Long itemId, String sku) {
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(itemId)
+                .sku(sku)
+                .size(sku)
+                .price(BigDecimal.ONE)
+                .stockQuantity(3)
+                .minStockLevel(0)
+                .build());
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,94 @@
+package com.warehouse;
+
+import com.warehouse.exception.InsufficientStockException;
+import com.warehouse.profiling.ContentionProfiler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Context sendiri: profiler baru tanpa sampel dari test lain. Id variant sintetis, jadi sku kosong
+@SpringBootTest(properties = "warehouse.profiler.top-k=3")
+@AutoConfigureMockMvc
+class ContentionProfilerTests {
+
+    private static final long A = 9_100_001L;
+    private static final long B = 9_100_002L;
+    private static final long C = 9_100_003L;
+    private static final long SLOW = 9_100_004L;
+    private static final long FAST = 9_100_005L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ContentionProfiler contentionProfiler;
+
+    @Test
+    void reportListsTopKVariantsWithLatencyPercentiles() throws Exception {
+        lookups(A, 50);
+        lookups(B, 30);
+        lookups(C, 25);
+        // 19 write cepat dan satu yang menunggu 30 ms: hanya p99 yang melihatnya
+        for (int i = 0; i < 19; i++) {
+            contentionProfiler.profile(ContentionProfiler.Operation.MUTATION, SLOW, () -> null);
+        }
+        contentionProfiler.profile(ContentionProfiler.Operation.MUTATION, SLOW, () -> {
+            sleep(30);
+            return null;
+        });
+        try {
+            contentionProfiler.profile(ContentionProfiler.Operation.MUTATION, FAST, () -> {
+                throw new InsufficientStockException("Insufficient stock");
+            });
+        } catch (InsufficientStockException expected) {
+            // Dicatat sebagai write yang gagal karena stok
+        }
+        for (int i = 0; i < 3; i++) {
+            contentionProfiler.profile(ContentionProfiler.Operation.MUTATION, FAST, () -> null);
+        }
+
+        mockMvc.perform(get("/api/admin/contention").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.operations").value(129))
+                .andExpect(jsonPath("$.mutations").value(24))
+                // Dibatasi top-k walaupun limit lebih besar
+                .andExpect(jsonPath("$.hottest[*].variantId", contains((int) A, (int) B, (int) C)))
+                .andExpect(jsonPath("$.hottest[0].operations").value(50))
+                .andExpect(jsonPath("$.hottest[0].lookupLatency.samples").value(50))
+                .andExpect(jsonPath("$.mostContended[*].variantId", contains((int) SLOW, (int) FAST)))
+                .andExpect(jsonPath("$.mostContended[0].mutations").value(20))
+                .andExpect(jsonPath("$.mostContended[0].totalMutationMillis", greaterThanOrEqualTo(30)))
+                .andExpect(jsonPath("$.mostContended[0].mutationLatency.samples").value(20))
+                .andExpect(jsonPath("$.mostContended[0].mutationLatency.p95Millis", lessThan(10.0)))
+                .andExpect(jsonPath("$.mostContended[0].mutationLatency.p99Millis", greaterThanOrEqualTo(30.0)))
+                .andExpect(jsonPath("$.mostContended[1].insufficientStockRate").value(0.25));
+
+        mockMvc.perform(get("/api/admin/contention").param("limit", "1"))
+                .andExpect(jsonPath("$.hottest", hasSize(1)))
+                .andExpect(jsonPath("$.mostContended", hasSize(1)));
+    }
+
+    private void lookups(long variantId, int count) {
+        for (int i = 0; i < count; i++) {
+            contentionProfiler.profile(ContentionProfiler.Operation.LOOKUP, variantId, () -> null);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
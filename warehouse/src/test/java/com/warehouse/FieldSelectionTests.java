@@ -0,0 +1,161 @@
+package com.warehouse;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Lewat MockMvc supaya nama properti JSON dan status error ikut diuji, bukan hanya isi map
+@SpringBootTest
+@AutoConfigureMockMvc
+class FieldSelectionTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Test
+    void itemFieldsAndIncludedVariantsContainOnlyWhatWasRequested() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("fields-" + run).basePrice(BigDecimal.TEN).build());
+        createVariant(item.getId(), "FS-A-" + run, "red", new BigDecimal("3.50"));
+        createVariant(item.getId(), "FS-B-" + run, "blue", new BigDecimal("4.00"));
+
+        mockMvc.perform(get("/api/items/{id}", item.getId()).param("fields", "name,variants.sku,variants.price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$.name").value("fields-" + run))
+                .andExpect(jsonPath("$.variants[*].sku", contains("FS-A-" + run, "FS-B-" + run)))
+                .andExpect(jsonPath("$.variants[0].*", hasSize(2)))
+                .andExpect(jsonPath("$.variants[0].price").value(3.5));
+
+        // include tanpa daftar field variant: semua field variant, field item tetap dibatasi
+        mockMvc.perform(get("/api/items/{id}", item.getId()).param("fields", "id").param("include", "variants"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$.id").value(item.getId()))
+                .andExpect(jsonPath("$.variants", hasSize(2)))
+                .andExpect(jsonPath("$.variants[1].color").value("blue"))
+                .andExpect(jsonPath("$.variants[1].itemId").value(item.getId()));
+
+        mockMvc.perform(get("/api/items/search").param("name", "fields-" + run).param("fields", "basePrice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].*", hasSize(1)))
+                .andExpect(jsonPath("$[0].basePrice").value(10));
+    }
+
+    @Test
+    void variantFieldsAreSelectedByIdSkuAndItem() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("variant-fields-" + run).basePrice(BigDecimal.TEN).build());
+        Long variantId = createVariant(item.getId(), "VF-" + run, "green", BigDecimal.ONE);
+
+        mockMvc.perform(get("/api/variants/{id}", variantId).param("fields", "sku,stockQuantity"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$.sku").value("VF-" + run))
+                .andExpect(jsonPath("$.stockQuantity").value(2));
+        mockMvc.perform(get("/api/variants/sku/{sku}", "VF-" + run).param("fields", "id,color"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$.id").value(variantId))
+                .andExpect(jsonPath("$.color").value("green"));
+        mockMvc.perform(get("/api/variants/item/{itemId}", item.getId()).param("fields", "itemId"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].*", hasSize(1)))
+                .andExpect(jsonPath("$[0].itemId").value(item.getId()));
+    }
+
+    @Test
+    void projectedItemListHasItsOwnValidator() throws Exception {
+        String snapshotEtag = mockMvc.perform(get("/api/items"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        // ETag snapshot tidak berlaku untuk proyeksi
+        String etag = mockMvc.perform(get("/api/items").param("fields", "name")
+                        .header(HttpHeaders.IF_NONE_MATCH, snapshotEtag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("W/").isNotEqualTo(snapshotEtag);
+        mockMvc.perform(get("/api/items").param("fields", "name").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // Pilihan field lain, validator lain
+        mockMvc.perform(get("/api/items").param("fields", "id").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        // Dibaca dari tabel: item baru langsung terlihat, tanpa menunggu refresh snapshot
+        String name = "projected-" + run();
+        itemService.createItem(ItemDTO.builder().name(name).basePrice(BigDecimal.TEN).build());
+        mockMvc.perform(get("/api/items").param("fields", "name").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(jsonPath("$[*].name", hasItem(name)));
+    }
+
+    @Test
+    void unknownFieldsAndIncludesAreBadRequests() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("bad-fields-" + run).basePrice(BigDecimal.TEN).build());
+        Long variantId = createVariant(item.getId(), "BF-" + run, "black", BigDecimal.ONE);
+
+        mockMvc.perform(get("/api/items/{id}", item.getId()).param("fields", "name,weight"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.message", containsString("Unknown field 'weight'")));
+        mockMvc.perform(get("/api/items/{id}", item.getId()).param("fields", "variants.barcode"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("Unknown field 'variants.barcode'")));
+        mockMvc.perform(get("/api/items").param("include", "locations"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("Unknown include 'locations'")));
+        mockMvc.perform(get("/api/variants/{id}", variantId).param("fields", ","))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("at least one field")));
+        // Field item tidak berlaku untuk variant
+        mockMvc.perform(get("/api/variants/sku/{sku}", "BF-" + run).param("fields", "basePrice"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("Unknown field 'basePrice'")));
+    }
+
+    private Long createVariant(Long itemId, String sku, String color, BigDecimal price) {
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(itemId)
+                .sku(sku)
+                .color(color)
+                .price(price)
+                .stockQuantity(2)
+                .minStockLevel(0)
+                .build()).getId();
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
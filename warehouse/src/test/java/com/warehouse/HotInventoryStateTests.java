@@ -0,0 +1,98 @@
+package com.warehouse;
+
+import com.warehouse.cache.HotInventoryState;
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.service.InventoryService;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Reconcile dan sweep dipanggil langsung oleh test; tulisan lewat JdbcTemplate meniru instance lain
+@SpringBootTest(properties = {
+        "warehouse.hot-state.reconcile-interval=PT1H",
+        "warehouse.hot-state.sweep-interval=PT1H"
+})
+class HotInventoryStateTests {
+
+    @Autowired
+    private HotInventoryState hotInventoryState;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void awaitWarmUp() throws InterruptedException {
+        for (int i = 0; i < 200 && !hotInventoryState.isWarm(); i++) {
+            Thread.sleep(25);
+        }
+        assertThat(hotInventoryState.isWarm()).isTrue();
+    }
+
+    @Test
+    void variantSoftDeletedElsewhereIsRemovedOnReconcile() {
+        Long variantId = createVariant();
+        assertThat(inventoryService.getCurrentStockLevel(variantId)).isEqualTo(4);
+
+        jdbcTemplate.update("UPDATE variants SET deleted_at = ? WHERE id = ?", LocalDateTime.now(), variantId);
+        // Tanpa event, state masih memegang nilai lama sampai reconcile berikutnya
+        assertThat(inventoryService.getCurrentStockLevel(variantId)).isEqualTo(4);
+
+        hotInventoryState.scheduledReconcile();
+        assertThat(hotInventoryState.find(variantId)).isNull();
+        assertThatThrownBy(() -> inventoryService.getCurrentStockLevel(variantId))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void variantHardDeletedElsewhereIsRemovedOnSweep() {
+        Long variantId = createVariant();
+        Long kept = createVariant();
+        assertThat(inventoryService.getCurrentStockLevel(variantId)).isEqualTo(4);
+
+        jdbcTemplate.update("DELETE FROM stock_movements WHERE variant_id = ?", variantId);
+        jdbcTemplate.update("DELETE FROM variants WHERE id = ?", variantId);
+        // Baris yang sudah hilang tidak bisa ditemukan per waktu
+        hotInventoryState.scheduledReconcile();
+        assertThat(hotInventoryState.find(variantId)).isNotNull();
+
+        hotInventoryState.scheduledSweep();
+        assertThat(hotInventoryState.find(variantId)).isNull();
+        assertThatThrownBy(() -> inventoryService.getCurrentStockLevel(variantId))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(hotInventoryState.find(kept).stockQuantity()).isEqualTo(4);
+    }
+
+    private Long createVariant() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("hot-" + run).basePrice(BigDecimal.TEN).build());
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("HOT-" + run)
+                .price(BigDecimal.TEN)
+                .stockQuantity(4)
+                .minStockLevel(0)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,146 @@
+package com.warehouse;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.dto.ValuationDTO;
+import com.warehouse.dto.ValuationGroupDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.exception.InvalidStockRequestException;
+import com.warehouse.service.InventoryService;
+import com.warehouse.service.InventoryValuationService;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Refresh dan rekonsiliasi dipanggil langsung oleh test, bukan oleh jadwal
+@SpringBootTest(properties = {
+        "warehouse.valuation.refresh-interval=PT1H",
+        "warehouse.valuation.reconcile-interval=PT1H"
+})
+class InventoryValuationTests {
+
+    @Autowired
+    private InventoryValuationService valuationService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void awaitFirstRecompute() throws InterruptedException {
+        for (int i = 0; i < 200 && !valuationService.getValuation().isReady(); i++) {
+            Thread.sleep(25);
+        }
+        assertThat(valuationService.getValuation().isReady()).isTrue();
+    }
+
+    @Test
+    void committedChangesAreAppliedToTotalsAndBreakdowns() {
+        String run = run();
+        String color = "color-" + run;
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("valuation-" + run).basePrice(BigDecimal.TEN).build());
+        Long first = createVariant(item.getId(), "VAL-A-" + run, color, "S", new BigDecimal("2.50"), 4);
+        Long second = createVariant(item.getId(), "VAL-B-" + run, color, null, new BigDecimal("10.00"), 3);
+        valuationService.refresh();
+
+        // 2.50 x 4 + 10.00 x 3
+        assertGroup("color", color, "40.00", 7, 2);
+        assertGroup("item", String.valueOf(item.getId()), "40.00", 7, 2);
+        assertTotalMatchesBreakdown();
+
+        inventoryService.addStock(StockUpdateDTO.builder().variantId(first).quantity(6).build());
+        variantService.deleteVariant(second);
+        valuationService.refresh();
+
+        // 2.50 x (4 + 6); variant kedua keluar dari semua group
+        assertGroup("color", color, "25.00", 10, 1);
+        assertGroup("item", String.valueOf(item.getId()), "25.00", 10, 1);
+        assertTotalMatchesBreakdown();
+    }
+
+    @Test
+    void changesMadeByOtherInstancesArePickedUpThroughUpdatedAt() {
+        String run = run();
+        String color = "remote-" + run;
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("remote-" + run).basePrice(BigDecimal.TEN).build());
+        Long repriced = createVariant(item.getId(), "REM-A-" + run, color, null, new BigDecimal("5.00"), 2);
+        Long deleted = createVariant(item.getId(), "REM-B-" + run, color, null, new BigDecimal("5.00"), 2);
+        valuationService.refresh();
+        assertGroup("color", color, "20.00", 4, 2);
+
+        // Tulisan langsung ke database tanpa event, seperti perubahan dari instance lain
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("UPDATE variants SET price = 7.00, updated_at = ? WHERE id = ?", now, repriced);
+        jdbcTemplate.update("UPDATE variants SET deleted_at = ? WHERE id = ?", now, deleted);
+        valuationService.refresh();
+        assertGroup("color", color, "20.00", 4, 2);
+
+        valuationService.scheduledReconcile();
+        valuationService.refresh();
+        assertGroup("color", color, "14.00", 2, 1);
+        assertTotalMatchesBreakdown();
+    }
+
+    @Test
+    void unknownDimensionIsABadRequest() {
+        assertThatThrownBy(() -> valuationService.getBreakdown("warehouse", 10))
+                .isInstanceOf(InvalidStockRequestException.class)
+                .hasMessageContaining("expected item, color, size or material");
+    }
+
+    private void assertGroup(String dimension, String key, String value, long units, long variants) {
+        Optional<ValuationGroupDTO> group = valuationService.getBreakdown(dimension, Integer.MAX_VALUE).stream()
+                .filter(candidate -> key.equals(candidate.getKey()))
+                .findFirst();
+        assertThat(group).isPresent();
+        assertThat(group.get().getTotalValue()).isEqualByComparingTo(value);
+        assertThat(group.get().getTotalUnits()).isEqualTo(units);
+        assertThat(group.get().getVariantCount()).isEqualTo(variants);
+    }
+
+    private void assertTotalMatchesBreakdown() {
+        ValuationDTO valuation = valuationService.getValuation();
+        List<ValuationGroupDTO> items = valuationService.getBreakdown("item", Integer.MAX_VALUE);
+        assertThat(items.stream().map(ValuationGroupDTO::getTotalValue).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo(valuation.getTotalValue());
+        assertThat(items.stream().mapToLong(ValuationGroupDTO::getVariantCount).sum()).isEqualTo(valuation.getVariantCount());
+        assertThat(items.stream().mapToLong(ValuationGroupDTO::getTotalUnits).sum()).isEqualTo(valuation.getTotalUnits());
+    }
+
+    private Long createVariant(Long itemId, String sku, String color, String size, BigDecimal price, int stock) {
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(itemId)
+                .sku(sku)
+                .color(color)
+                .size(size)
+                .price(price)
+                .stockQuantity(stock)
+                .minStockLevel(0)
+                .build()).getId();
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
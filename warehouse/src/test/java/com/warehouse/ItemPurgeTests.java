@@ -0,0 +1,137 @@
+package com.warehouse;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.ItemPurgeStatusDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.exception.DuplicateResourceException;
+import com.warehouse.exception.ResourceNotFoundException;
+import com.warehouse.service.ItemPurgeService;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Chunk kecil supaya purge melewati beberapa putaran
+@SpringBootTest(properties = {
+        "warehouse.purge.chunk-size=2",
+        "warehouse.purge.chunk-pause=PT0S"
+})
+class ItemPurgeTests {
+
+    @Autowired
+    private ItemPurgeService itemPurgeService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void purgeRemovesEveryRowAndReleasesTheKeys() throws InterruptedException {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("purge-" + run).basePrice(BigDecimal.TEN).build());
+        for (int i = 0; i < 3; i++) {
+            createVariant(item.getId(), "PG-" + i + "-" + run);
+        }
+
+        itemService.purgeItem(item.getId());
+        ItemPurgeStatusDTO status = awaitFinished(item.getId());
+
+        assertThat(status.getStatus()).isEqualTo("COMPLETED");
+        assertThat(status.getVariantsDeleted()).isEqualTo(3);
+        assertThat(status.getMovementsDeleted()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM variants WHERE item_id = ?", Integer.class, item.getId()))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items WHERE id = ?", Integer.class, item.getId()))
+                .isZero();
+
+        // Nama dan SKU bisa dipakai lagi setelah purge selesai
+        ItemDTO again = itemService.createItem(ItemDTO.builder().name("purge-" + run).basePrice(BigDecimal.ONE).build());
+        assertThat(createVariant(again.getId(), "PG-0-" + run)).isNotNull();
+    }
+
+    @Test
+    void purgeLeftByAnotherInstanceIsReportedAndResumed() throws InterruptedException {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("pending-" + run).basePrice(BigDecimal.TEN).build());
+        createVariant(item.getId(), "PD-A-" + run);
+        createVariant(item.getId(), "PD-B-" + run);
+
+        // Soft delete tanpa event: purge milik instance yang berhenti sebelum selesai
+        LocalDateTime deletedAt = LocalDateTime.now();
+        jdbcTemplate.update("UPDATE items SET deleted_at = ? WHERE id = ?", deletedAt, item.getId());
+        jdbcTemplate.update("UPDATE variants SET deleted_at = ? WHERE item_id = ?", deletedAt, item.getId());
+
+        ItemPurgeStatusDTO pending = itemPurgeService.getStatus(item.getId());
+        assertThat(pending.getStatus()).isEqualTo("PENDING");
+        assertThat(pending.getVariantsRemaining()).isEqualTo(2);
+        assertThat(pending.getMovementsRemaining()).isEqualTo(2);
+
+        // Nama dan SKU masih dipegang baris yang belum terhapus
+        assertThatThrownBy(() -> itemService.createItem(ItemDTO.builder().name("pending-" + run).basePrice(BigDecimal.ONE).build()))
+                .isInstanceOf(DuplicateResourceException.class);
+        ItemDTO other = itemService.createItemWithVariants(ItemDTO.builder()
+                .name("pending-other-" + run)
+                .basePrice(BigDecimal.ONE)
+                .variants(List.of(variant("PD-A-" + run), variant("PD-C-" + run)))
+                .build());
+        assertThat(variantService.getVariantsByItemId(other.getId())).extracting(VariantDTO::getSku)
+                .containsExactly("PD-C-" + run);
+
+        itemPurgeService.resumePendingPurges();
+        ItemPurgeStatusDTO status = awaitFinished(item.getId());
+        assertThat(status.getStatus()).isEqualTo("COMPLETED");
+        assertThat(status.getVariantsDeleted()).isEqualTo(2);
+    }
+
+    @Test
+    void liveItemHasNoPurgeStatus() {
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("live-" + run()).basePrice(BigDecimal.TEN).build());
+
+        assertThatThrownBy(() -> itemPurgeService.getStatus(item.getId()))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private ItemPurgeStatusDTO awaitFinished(Long itemId) throws InterruptedException {
+        ItemPurgeStatusDTO status = itemPurgeService.getStatus(itemId);
+        for (int i = 0; i < 200 && status.getFinishedAt() == null; i++) {
+            Thread.sleep(25);
+            status = itemPurgeService.getStatus(itemId);
+        }
+        assertThat(status.getFinishedAt()).isNotNull();
+        return status;
+    }
+
+    private Long createVariant(Long itemId, String sku) {
+        VariantDTO variant = variant(sku);
+        variant.setItemId(itemId);
+        return variantService.createVariant(variant).getId();
+    }
+
+    private static VariantDTO variant(String sku) {
+        return VariantDTO.builder()
+                .sku(sku)
+                .price(BigDecimal.TEN)
+                .stockQuantity(5)
+                .minStockLevel(0)
+                .build();
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,109 @@
+package com.warehouse;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.LedgerMismatchDTO;
+import com.warehouse.dto.ReconciliationJobDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.LedgerReconciliationService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Database dipakai bersama test lain, jadi hanya mismatch milik variant test ini yang diperiksa
+@SpringBootTest
+@AutoConfigureMockMvc
+class LedgerReconciliationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LedgerReconciliationService ledgerReconciliationService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void seededMismatchIsReportedAndRepairedWithAnAdjustment() throws Exception {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("ledger-" + run).basePrice(BigDecimal.TEN).build());
+        Long variantId = variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("LEDGER-" + run)
+                .price(BigDecimal.ONE)
+                .stockQuantity(10)
+                .minStockLevel(0)
+                .build()).getId();
+        // Stok berubah tanpa movement: ledger tertinggal 3
+        jdbcTemplate.update("UPDATE variants SET stock_quantity = 13 WHERE id = ?", variantId);
+
+        String location = mockMvc.perform(post("/api/inventory/reconciliations"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        assertThat(location).startsWith("/api/inventory/reconciliations/");
+        ReconciliationJobDTO report = await(location.substring(location.lastIndexOf('/') + 1));
+        LedgerMismatchDTO reported = mismatchOf(report, variantId).orElseThrow();
+        assertThat(reported.getStockQuantity()).isEqualTo(13);
+        assertThat(reported.getLedgerBalance()).isEqualTo(10);
+        assertThat(reported.getDifference()).isEqualTo(3);
+        assertThat(reported.isRepaired()).isFalse();
+        assertThat(adjustments(variantId)).isEmpty();
+
+        ReconciliationJobDTO repair = await(ledgerReconciliationService.startJob(true).getId());
+        assertThat(mismatchOf(repair, variantId).orElseThrow().isRepaired()).isTrue();
+        List<Map<String, Object>> adjustments = adjustments(variantId);
+        assertThat(adjustments).hasSize(1);
+        assertThat(((Number) adjustments.get(0).get("quantity")).intValue()).isEqualTo(3);
+        assertThat(adjustments.get(0).get("reference")).isEqualTo("reconciliation:" + repair.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM variants WHERE id = ?", Integer.class, variantId))
+                .isEqualTo(13);
+
+        ReconciliationJobDTO after = await(ledgerReconciliationService.startJob(false).getId());
+        assertThat(mismatchOf(after, variantId)).isEmpty();
+    }
+
+    private ReconciliationJobDTO await(String jobId) throws InterruptedException {
+        ReconciliationJobDTO job = ledgerReconciliationService.getJob(jobId);
+        for (int i = 0; i < 200 && !isFinished(job); i++) {
+            Thread.sleep(25);
+            job = ledgerReconciliationService.getJob(jobId);
+        }
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        return job;
+    }
+
+    private static boolean isFinished(ReconciliationJobDTO job) {
+        return job.getStatus().equals("COMPLETED") || job.getStatus().equals("FAILED");
+    }
+
+    private static Optional<LedgerMismatchDTO> mismatchOf(ReconciliationJobDTO job, Long variantId) {
+        return job.getMismatches().stream().filter(mismatch -> mismatch.getVariantId().equals(variantId)).findFirst();
+    }
+
+    private List<Map<String, Object>> adjustments(Long variantId) {
+        return jdbcTemplate.queryForList("SELECT quantity, reference FROM stock_movements "
+                + "WHERE variant_id = ? AND movement_type = 'ADJUSTMENT'", variantId);
+    }
+}
@@ -0,0 +1,107 @@
+package com.warehouse;
+
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.dto.VariantAvailabilityDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.exception.InsufficientStockException;
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.LocationStockService;
+import com.warehouse.service.VariantService;
+import com.warehouse.sharding.LocationShards;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Tiga database H2 in-memory terpisah sebagai shard stok lokasi, di samping database utama
+@SpringBootTest(properties = {
+        "warehouse.location-stock.shard-urls=jdbc:h2:mem:location-shard-0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:location-shard-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:location-shard-2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "warehouse.location-stock.pinned=PINNED:2"
+})
+class LocationStockShardingTests {
+
+    private static final List<String> LOCATIONS = List.of("JKT", "SBY", "BDG", "MDN", "DPS", "UPG", "PINNED");
+
+    @Autowired
+    private LocationStockService locationStockService;
+
+    @Autowired
+    private LocationShards locationShards;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Test
+    void stockIsKeptPerLocationAndSummedAcrossShards() {
+        Long variantId = createVariant();
+
+        Set<String> usedShards = LOCATIONS.stream()
+                .map(location -> locationShards.forLocation(location).name())
+                .collect(Collectors.toSet());
+        assertThat(usedShards).hasSizeGreaterThan(1);
+        assertThat(locationShards.forLocation("PINNED").index()).isEqualTo(2);
+
+        for (int i = 0; i < LOCATIONS.size(); i++) {
+            locationStockService.addStock(LOCATIONS.get(i).toLowerCase(), update(variantId, 10 + i));
+        }
+        locationStockService.reserveStock("JKT", variantId, 4);
+        locationStockService.adjustStock("SBY", update(variantId, -3));
+
+        VariantAvailabilityDTO availability = locationStockService.getAvailability(variantId);
+        assertThat(availability.isComplete()).isTrue();
+        assertThat(availability.getLocations()).hasSize(LOCATIONS.size());
+        // 10 + 11 + ... + 16, dikurangi reservasi 4 dan penyesuaian -3
+        assertThat(availability.getTotalQuantity()).isEqualTo(91 - 4 - 3);
+        assertThat(locationStockService.getStock("JKT", variantId).getQuantity()).isEqualTo(6);
+        assertThat(locationStockService.getMovements("JKT", variantId, 10))
+                .extracting(movement -> movement.getLocation() + ":" + movement.getMovementType() + ":" + movement.getQuantity())
+                .containsExactly("JKT:OUT:4", "JKT:IN:10");
+
+        // Stok pusat tidak ikut berubah
+        assertThat(variantService.getVariantById(variantId).getStockQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void removalBeyondLocationStockIsRejected() {
+        Long variantId = createVariant();
+        locationStockService.addStock("JKT", update(variantId, 2));
+
+        assertThatThrownBy(() -> locationStockService.removeStock("JKT", update(variantId, 3)))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Available: 2");
+        // Stok di lokasi lain tidak bisa dipakai untuk lokasi ini
+        assertThatThrownBy(() -> locationStockService.reserveStock("SBY", variantId, 1))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThat(locationStockService.getStock("JKT", variantId).getQuantity()).isEqualTo(2);
+    }
+
+    private Long createVariant() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("location-" + run).basePrice(BigDecimal.TEN).build());
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("LOC-" + run)
+                .price(BigDecimal.TEN)
+                .stockQuantity(5)
+                .minStockLevel(0)
+                .build()).getId();
+    }
+
+    private static StockUpdateDTO update(Long variantId, int quantity) {
+        return StockUpdateDTO.builder().variantId(variantId).quantity(quantity).build();
+    }
+}
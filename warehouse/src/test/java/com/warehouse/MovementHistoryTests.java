@@ -0,0 +1,99 @@
+package com.warehouse;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MovementHistoryTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void defaultWindowIsTheLastSevenDaysNewestFirst() throws Exception {
+        Long variantId = createVariant("history");
+        LocalDateTime now = LocalDateTime.now();
+        insertMovements(variantId, "OUT", "recent", List.of(now.minusDays(1), now.minusHours(2)));
+        insertMovements(variantId, "IN", "old", List.of(now.minusDays(8), now.minusDays(30)));
+        String path = "/api/inventory/" + variantId + "/movements/history";
+
+        // Movement awal dari createVariant ikut di jendela default
+        mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[1].reason").value("recent"))
+                .andExpect(jsonPath("$[2].reason").value("recent"))
+                .andExpect(jsonPath("$[?(@.reason == 'old')]", hasSize(0)));
+        mockMvc.perform(get(path).param("from", now.minusDays(40).toString()).param("types", "IN"))
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[1].reason").value("old"));
+        mockMvc.perform(get("/api/inventory/" + Long.MAX_VALUE + "/movements/history"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void limitIsCappedAtOneThousand() throws Exception {
+        Long variantId = createVariant("history-cap");
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        List<LocalDateTime> times = new ArrayList<>();
+        for (int i = 0; i < 1_050; i++) {
+            times.add(start.plusNanos(i * 1_000_000L));
+        }
+        insertMovements(variantId, "OUT", "bulk", times);
+        String path = "/api/inventory/" + variantId + "/movements/history";
+
+        mockMvc.perform(get(path).param("limit", "5000"))
+                .andExpect(jsonPath("$", hasSize(1_000)));
+        mockMvc.perform(get(path).param("limit", "0"))
+                .andExpect(jsonPath("$", hasSize(1)));
+        mockMvc.perform(get(path).param("limit", "20"))
+                .andExpect(jsonPath("$", hasSize(20)));
+    }
+
+    private void insertMovements(Long variantId, String type, String reason, List<LocalDateTime> times) {
+        jdbcTemplate.batchUpdate("INSERT INTO stock_movements (variant_id, movement_type, quantity, reason, created_at) "
+                        + "VALUES (?, ?, 1, ?, ?)",
+                times.stream().map(time -> new Object[]{variantId, type, reason, time}).toList());
+    }
+
+    private Long createVariant(String prefix) {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name(prefix + "-" + run).basePrice(BigDecimal.TEN).build());
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku(prefix.toUpperCase() + "-" + run)
+                .price(BigDecimal.ONE)
+                .stockQuantity(5)
+                .minStockLevel(0)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,152 @@
+package com.warehouse;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.StockLevelBucketDTO;
+import com.warehouse.dto.StockLevelSeriesDTO;
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.InventoryService;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.StockLevelService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Flush dipanggil langsung oleh test, bukan oleh jadwal
+@SpringBootTest(properties = "warehouse.stock-levels.flush-interval=PT1H")
+class StockLevelSeriesTests {
+
+    private static final int DAYS = 20;
+
+    @Autowired
+    private StockLevelService stockLevelService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void seriesFoldedBeforeAFlushMatchTheStoredRollups() {
+        Long variantId = seedVariant();
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+
+        // Belum ada rollup: request melipat di memori dan tidak menulis apa-apa
+        List<StockLevelSeriesDTO> folded = series(variantId, to);
+        assertThat(rollupCount(variantId)).isZero();
+
+        stockLevelService.flush();
+        assertThat(rollupCount(variantId)).isPositive();
+        assertSameBuckets(series(variantId, to), folded);
+        assertThat(lastClose(folded.get(0))).isEqualTo(stockQuantity(variantId));
+    }
+
+    @Test
+    void movementsAfterTheLastFlushAreServedWithoutWritingRollups() {
+        Long variantId = seedVariant();
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+        series(variantId, to);
+        stockLevelService.flush();
+        int rollups = rollupCount(variantId);
+
+        inventoryService.addStock(StockUpdateDTO.builder().variantId(variantId).quantity(7).build());
+        List<StockLevelSeriesDTO> folded = series(variantId, to);
+        assertThat(folded).allSatisfy(series -> assertThat(lastClose(series)).isEqualTo(stockQuantity(variantId)));
+        assertThat(rollupCount(variantId)).isEqualTo(rollups);
+
+        stockLevelService.flush();
+        assertSameBuckets(series(variantId, to), folded);
+    }
+
+    @Test
+    void repeatedFullRebuildsUpsertTheSameRollups() {
+        Long variantId = seedVariant();
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+        series(variantId, to);
+        stockLevelService.flush();
+        List<StockLevelSeriesDTO> before = series(variantId, to);
+        int rollups = rollupCount(variantId);
+
+        for (int i = 0; i < 2; i++) {
+            stockLevelService.rebuildAll();
+            assertSameBuckets(series(variantId, to), before);
+            stockLevelService.flush();
+        }
+        assertThat(rollupCount(variantId)).isEqualTo(rollups);
+        assertSameBuckets(series(variantId, to), before);
+    }
+
+    private List<StockLevelSeriesDTO> series(Long variantId, LocalDateTime to) {
+        return List.of(
+                stockLevelService.getSeries(variantId, "day", to.minusDays(DAYS + 1), to),
+                stockLevelService.getSeries(variantId, "week", to.minusDays(DAYS + 1), to),
+                stockLevelService.getSeries(variantId, "hour", to.minusDays(2), to));
+    }
+
+    private static void assertSameBuckets(List<StockLevelSeriesDTO> actual, List<StockLevelSeriesDTO> expected) {
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getBuckets()).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyElementsOf(expected.get(i).getBuckets());
+        }
+    }
+
+    private static int lastClose(StockLevelSeriesDTO series) {
+        List<StockLevelBucketDTO> buckets = series.getBuckets();
+        return buckets.get(buckets.size() - 1).getCloseLevel();
+    }
+
+    private int rollupCount(Long variantId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_level_rollups WHERE variant_id = ?",
+                Integer.class, variantId);
+    }
+
+    private int stockQuantity(Long variantId) {
+        return variantService.getVariantById(variantId).getStockQuantity();
+    }
+
+    // Riwayat ditulis langsung tanpa event, beberapa movement per hari selama DAYS hari terakhir
+    private Long seedVariant() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("stock-levels-" + run).basePrice(BigDecimal.TEN).build());
+        Long variantId = variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("SL-" + run)
+                .price(BigDecimal.TEN)
+                .stockQuantity(0)
+                .minStockLevel(0)
+                .build()).getId();
+
+        LocalDateTime first = LocalDateTime.now().minusDays(DAYS - 1);
+        for (int i = 0; i < DAYS * 3; i++) {
+            String type = i % 3 == 1 ? "OUT" : i % 5 == 4 ? "ADJUSTMENT" : "IN";
+            int quantity = switch (type) {
+                case "OUT" -> 2;
+                case "ADJUSTMENT" -> -1;
+                default -> 4;
+            };
+            jdbcTemplate.update("INSERT INTO stock_movements (variant_id, movement_type, quantity, created_at) VALUES (?, ?, ?, ?)",
+                    variantId, type, quantity, Timestamp.valueOf(first.plusHours(i * 8L)));
+        }
+        jdbcTemplate.update("UPDATE variants SET stock_quantity = (SELECT SUM(CASE movement_type WHEN 'OUT' THEN -quantity "
+                + "ELSE quantity END) FROM stock_movements WHERE variant_id = ?) WHERE id = ?", variantId, variantId);
+        return variantId;
+    }
+}
@@ -0,0 +1,112 @@
+package com.warehouse;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.service.ItemService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Status dan pesan error ikut diuji: tidak ada pengecekan awal, semuanya berasal dari INSERT ... SELECT dan unique key
+@SpringBootTest
+@AutoConfigureMockMvc
+class VariantCreateTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void variantIsCreatedWithItsInitialMovement() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("create-" + run).basePrice(BigDecimal.TEN).build());
+
+        String body = mockMvc.perform(post("/api/variants").contentType(MediaType.APPLICATION_JSON)
+                        .content(variantJson(item.getId(), "VC-" + run, "S", 7)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.sku").value("VC-" + run))
+                .andExpect(jsonPath("$.itemId").value(item.getId()))
+                .andExpect(jsonPath("$.stockQuantity").value(7))
+                .andExpect(jsonPath("$.createdAt").exists())
+                .andReturn().getResponse().getContentAsString();
+
+        Long variantId = jdbcTemplate.queryForObject("SELECT id FROM variants WHERE sku = ?", Long.class, "VC-" + run);
+        assertThat(body).contains("\"id\":" + variantId);
+        List<Map<String, Object>> movements = jdbcTemplate.queryForList(
+                "SELECT movement_type, quantity, reason FROM stock_movements WHERE variant_id = ?", variantId);
+        assertThat(movements).hasSize(1);
+        assertThat(movements.get(0).get("movement_type")).isEqualTo("IN");
+        assertThat(((Number) movements.get(0).get("quantity")).intValue()).isEqualTo(7);
+        assertThat(movements.get(0).get("reason")).isEqualTo("Initial stock");
+    }
+
+    @Test
+    void missingOrSoftDeletedItemIsNotFound() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("create-deleted-" + run).basePrice(BigDecimal.TEN).build());
+        jdbcTemplate.update("UPDATE items SET deleted_at = ? WHERE id = ?", LocalDateTime.now(), item.getId());
+
+        mockMvc.perform(post("/api/variants").contentType(MediaType.APPLICATION_JSON)
+                        .content(variantJson(item.getId(), "VD-" + run, "S", 1)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Item not found with id: " + item.getId()));
+        mockMvc.perform(post("/api/variants").contentType(MediaType.APPLICATION_JSON)
+                        .content(variantJson(Long.MAX_VALUE, "VD-" + run, "S", 1)))
+                .andExpect(status().isNotFound());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM variants WHERE sku = ?", Integer.class, "VD-" + run))
+                .isZero();
+    }
+
+    @Test
+    void duplicateSkuAndAttributesAreConflicts() throws Exception {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("create-dup-" + run).basePrice(BigDecimal.TEN).build());
+        mockMvc.perform(post("/api/variants").contentType(MediaType.APPLICATION_JSON)
+                        .content(variantJson(item.getId(), "VX-" + run, "S", 2)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/variants").contentType(MediaType.APPLICATION_JSON)
+                        .content(variantJson(item.getId(), "VX-" + run, "M", 2)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Variant with SKU 'VX-" + run + "' already exists"));
+        mockMvc.perform(post("/api/variants").contentType(MediaType.APPLICATION_JSON)
+                        .content(variantJson(item.getId(), "VY-" + run, "S", 2)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Variant with these attributes already exists for this item"));
+
+        // Insert yang ditolak tidak meninggalkan movement
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_movements m JOIN variants v ON v.id = m.variant_id "
+                + "WHERE v.item_id = ?", Integer.class, item.getId())).isEqualTo(1);
+    }
+
+    private static String variantJson(Long itemId, String sku, String size, int stock) {
+        return """
+                {"itemId": %d, "sku": "%s", "size": "%s", "color": "red", "material": "cotton",
+                 "price": 5.00, "stockQuantity": %d, "minStockLevel": 0}
+                """.formatted(itemId, sku, size, stock);
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
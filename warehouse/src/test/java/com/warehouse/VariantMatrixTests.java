@@ -0,0 +1,144 @@
+package com.warehouse;
+
+import com.warehouse.cache.CatalogKeyIndex;
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.dto.VariantMatrixDTO;
+import com.warehouse.exception.DuplicateResourceException;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantMatrixService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Rekonsiliasi index SKU tidak jalan selama test, jadi SKU matrix hanya bisa masuk lewat skuAdded
+@SpringBootTest(properties = "warehouse.catalog-keys.reconcile-interval=PT1H")
+class VariantMatrixTests {
+
+    @Autowired
+    private VariantMatrixService variantMatrixService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private CatalogKeyIndex catalogKeyIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void awaitKeyIndex() throws InterruptedException {
+        for (int i = 0; i < 200 && !catalogKeyIndex.isReady(); i++) {
+            Thread.sleep(25);
+        }
+        assertThat(catalogKeyIndex.isReady()).isTrue();
+    }
+
+    @Test
+    void everyCombinationIsInsertedWithItsInitialMovement() {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("matrix-" + run).basePrice(BigDecimal.TEN).build());
+
+        List<VariantDTO> created = variantMatrixService.createVariantMatrix(item.getId(), VariantMatrixDTO.builder()
+                .sizes(List.of("S", "M"))
+                .colors(List.of("red", "blue"))
+                .materials(List.of("cotton"))
+                .skuTemplate("MX-" + run + "-{size}-{color}-{index}")
+                .priceAdjustments(Map.of("size", Map.of("M", new BigDecimal("2.50"))))
+                .stockQuantity(3)
+                .minStockLevel(1)
+                .build());
+
+        List<String> skus = List.of("MX-" + run + "-S-red-1", "MX-" + run + "-S-blue-2",
+                "MX-" + run + "-M-red-3", "MX-" + run + "-M-blue-4");
+        assertThat(created).extracting(VariantDTO::getSku).containsExactlyElementsOf(skus);
+        assertThat(created).extracting(VariantDTO::getPrice)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(BigDecimal.TEN, BigDecimal.TEN, new BigDecimal("12.50"), new BigDecimal("12.50"));
+        assertThat(created).allSatisfy(variant -> {
+            assertThat(variant.getItemId()).isEqualTo(item.getId());
+            assertThat(variant.getMaterial()).isEqualTo("cotton");
+            assertThat(variant.getStockQuantity()).isEqualTo(3);
+            assertThat(variant.getMinStockLevel()).isEqualTo(1);
+        });
+        assertThat(variantService.getVariantsByItemId(item.getId())).hasSize(4);
+
+        // Satu movement IN per variant, diambil dari baris yang baru di-insert
+        List<Map<String, Object>> movements = jdbcTemplate.queryForList(
+                "SELECT m.variant_id, m.movement_type, m.quantity, m.reason FROM stock_movements m "
+                        + "JOIN variants v ON v.id = m.variant_id WHERE v.item_id = ? ORDER BY m.variant_id", item.getId());
+        assertThat(movements).extracting(row -> ((Number) row.get("variant_id")).longValue())
+                .containsExactlyElementsOf(created.stream().map(VariantDTO::getId).toList());
+        assertThat(movements).allSatisfy(row -> {
+            assertThat(row.get("movement_type")).isEqualTo("IN");
+            assertThat(((Number) row.get("quantity")).intValue()).isEqualTo(3);
+            assertThat(row.get("reason")).isEqualTo("Initial stock");
+        });
+
+        // Filter yang tidak mengenal SKU menjawab "pasti tidak ada" tanpa bertanya ke database
+        for (String sku : skus) {
+            AtomicBoolean consulted = new AtomicBoolean();
+            assertThat(catalogKeyIndex.skuExists(sku, () -> {
+                consulted.set(true);
+                return true;
+            })).isTrue();
+            assertThat(consulted).isTrue();
+        }
+    }
+
+    @Test
+    void conflictsAreReportedBeforeAnyRowIsInserted() {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("matrix-conflict-" + run).basePrice(BigDecimal.TEN).build());
+        variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("MC-" + run + "-S")
+                .price(BigDecimal.ONE)
+                .build());
+        variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("MC-EXISTING-" + run)
+                .size("M")
+                .color("black")
+                .material("wool")
+                .price(BigDecimal.ONE)
+                .build());
+
+        assertThatThrownBy(() -> variantMatrixService.createVariantMatrix(item.getId(), VariantMatrixDTO.builder()
+                .sizes(List.of("S", "M", "L"))
+                .colors(List.of("black"))
+                .materials(List.of("wool"))
+                .skuTemplate("MC-" + run + "-{size}")
+                .stockQuantity(5)
+                .build()))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessageContaining("2 generated variant(s) already exist")
+                .hasMessageContaining("SKU 'MC-" + run + "-S'")
+                .hasMessageContaining("size 'M', color 'black', material 'wool'");
+
+        assertThat(variantService.getVariantsByItemId(item.getId())).hasSize(2);
+        assertThat(variantService.existsBySku("MC-" + run + "-L")).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_movements m JOIN variants v ON v.id = m.variant_id "
+                + "WHERE v.item_id = ?", Integer.class, item.getId())).isZero();
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,133 @@
+package com.warehouse;
+
+import com.warehouse.cache.CatalogSnapshotManager;
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.RepricingJobDTO;
+import com.warehouse.dto.RepricingRequestDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantRepricingService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Chunk kecil supaya satu job melewati beberapa transaksi chunk
+@SpringBootTest(properties = "warehouse.repricing.chunk-size=2")
+class VariantRepricingTests {
+
+    @Autowired
+    private VariantRepricingService repricingService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private CatalogSnapshotManager catalogSnapshotManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ruleJobRepricesOnlyMatchingVariantsAcrossChunks() throws InterruptedException {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("repricing-" + run).basePrice(BigDecimal.TEN).build());
+        List<Long> red = new ArrayList<>();
+        List<Long> blue = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            red.add(createVariant(item.getId(), "RED-" + i + "-" + run, "red", new BigDecimal("12.34")));
+        }
+        for (int i = 0; i < 2; i++) {
+            blue.add(createVariant(item.getId(), "BLUE-" + i + "-" + run, "blue", new BigDecimal("12.34")));
+        }
+        catalogSnapshotManager.current();
+
+        RepricingJobDTO job = await(repricingService.startJob(RepricingRequestDTO.builder()
+                .adjustmentType(RepricingRequestDTO.AdjustmentType.PERCENTAGE)
+                .amount(BigDecimal.valueOf(-50))
+                .itemIds(List.of(item.getId()))
+                .color("red")
+                .reason("clearance")
+                .build()));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getVariantsMatched()).isEqualTo(5);
+        assertThat(job.getVariantsUpdated()).isEqualTo(5);
+        assertThat(job.getItemsAffected()).isEqualTo(1);
+        // Kandidat diambil dari seluruh tabel per dua id, jadi job ini butuh lebih dari satu chunk
+        assertThat(job.getChunksCompleted()).isGreaterThan(1);
+        red.forEach(id -> assertThat(variantService.getVariantById(id).getPrice()).isEqualByComparingTo("6.17"));
+        blue.forEach(id -> assertThat(variantService.getVariantById(id).getPrice()).isEqualByComparingTo("12.34"));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM variant_price_history WHERE batch_id = ? AND reason = 'clearance' AND new_price = 6.17",
+                Integer.class, job.getId())).isEqualTo(5);
+
+        // Setiap chunk menandai itemnya berubah; snapshot katalog mengikuti setelah refresh berikutnya
+        catalogSnapshotManager.refreshDirty();
+        String body = new String(catalogSnapshotManager.current().getBody(), StandardCharsets.UTF_8);
+        assertThat(body).contains("RED-0-" + run).contains("6.17");
+    }
+
+    @Test
+    void priceListSkipsUnchangedPricesAndReportsUnknownSkus() throws InterruptedException {
+        String run = run();
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("price-list-" + run).basePrice(BigDecimal.TEN).build());
+        Long changed = createVariant(item.getId(), "PL-A-" + run, "green", BigDecimal.TEN);
+        Long unchanged = createVariant(item.getId(), "PL-B-" + run, "green", BigDecimal.TEN);
+
+        RepricingJobDTO job = await(repricingService.startJob(RepricingRequestDTO.builder()
+                .prices(List.of(
+                        new RepricingRequestDTO.PriceEntry("PL-A-" + run, new BigDecimal("11.50")),
+                        new RepricingRequestDTO.PriceEntry("PL-B-" + run, BigDecimal.TEN),
+                        new RepricingRequestDTO.PriceEntry("PL-MISSING-" + run, BigDecimal.ONE)))
+                .build()));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getVariantsMatched()).isEqualTo(2);
+        assertThat(job.getVariantsUpdated()).isEqualTo(1);
+        assertThat(job.getVariantsSkipped()).isEqualTo(1);
+        assertThat(job.getUnknownSkus()).containsExactly("PL-MISSING-" + run);
+        assertThat(variantService.getVariantById(changed).getPrice()).isEqualByComparingTo("11.50");
+        assertThat(variantService.getVariantById(unchanged).getPrice()).isEqualByComparingTo("10");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM variant_price_history WHERE batch_id = ?",
+                Integer.class, job.getId())).isEqualTo(1);
+    }
+
+    private Long createVariant(Long itemId, String sku, String color, BigDecimal price) {
+        return variantService.createVariant(VariantDTO.builder()
+                .itemId(itemId)
+                .sku(sku)
+                .color(color)
+                .price(price)
+                .stockQuantity(1)
+                .minStockLevel(0)
+                .build()).getId();
+    }
+
+    private RepricingJobDTO await(RepricingJobDTO started) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            RepricingJobDTO job = repricingService.getJob(started.getId());
+            if (!"QUEUED".equals(job.getStatus()) && !"RUNNING".equals(job.getStatus())) {
+                return job;
+            }
+            Thread.sleep(25);
+        }
+        throw new AssertionError("Repricing job " + started.getId() + " did not finish");
+    }
+
+    private static String run() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
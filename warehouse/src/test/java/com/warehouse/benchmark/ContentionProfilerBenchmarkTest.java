@@ -0,0 +1,89 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.cache.HotInventoryState;
+import com.warehouse.dto.ContentionReportDTO;
+import com.warehouse.dto.VariantContentionDTO;
+import com.warehouse.profiling.ContentionProfiler;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Overhead {@link ContentionProfiler#profile} per operasi dan apakah variant terpanas tetap
+ * ditemukan ketika trafik tersebar ke katalog besar (distribusi mirip Zipf).
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=ContentionProfilerBenchmarkTest \
+ *     -Dbenchmark.profiler.variants=5000000 -Dbenchmark.profiler.threads=8
+ * </pre>
+ * -Dbenchmark.profiler.stripes=1 membandingkan dengan satu lock per slice.
+ */
+@Tag("benchmark")
+class ContentionProfilerBenchmarkTest {
+
+    private static final int VARIANTS = Integer.getInteger("benchmark.profiler.variants", 1_000_000);
+    private static final int THREADS = Integer.getInteger("benchmark.profiler.threads", 4);
+    private static final int OPERATIONS = Integer.getInteger("benchmark.profiler.operations", 5_000_000);
+    private static final int STRIPES = Integer.getInteger("benchmark.profiler.stripes", 4);
+    private static final int HOT_VARIANTS = 10;
+
+    @Test
+    void overheadAndTopK() throws InterruptedException {
+        // State kosong: laporan hanya butuh SKU, yang boleh null di sini
+        HotInventoryState emptyState = new HotInventoryState(null, null, Path.of("target/unused.bin"), Duration.ZERO, 16);
+        ContentionProfiler profiler = new ContentionProfiler(emptyState, Duration.ofMinutes(5), 5, 50, 2048, STRIPES);
+
+        // Pemanasan JIT
+        run(profiler, 1, OPERATIONS / 5);
+
+        long start = System.nanoTime();
+        run(profiler, 1, OPERATIONS);
+        double singleThreadNanos = (System.nanoTime() - start) / (double) OPERATIONS;
+
+        start = System.nanoTime();
+        run(profiler, THREADS, OPERATIONS);
+        double multiThreadNanos = (System.nanoTime() - start) / (double) OPERATIONS;
+
+        ContentionReportDTO report = profiler.report(HOT_VARIANTS);
+        List<Long> hottest = report.getHottest().stream().map(VariantContentionDTO::getVariantId).toList();
+        System.out.printf("profile() over %d variants, %d stripes: %.0f ns/op on 1 thread, %.0f ns/op wall on %d threads; "
+                        + "hottest=%s%n", VARIANTS, STRIPES, singleThreadNanos, multiThreadNanos, THREADS, hottest);
+
+        assertThat(hottest).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    private static void run(ContentionProfiler profiler, int threads, int operations) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operations / threads; i++) {
+                    long variantId = pick(random);
+                    ContentionProfiler.Operation operation = (i & 3) == 0
+                            ? ContentionProfiler.Operation.MUTATION : ContentionProfiler.Operation.LOOKUP;
+                    profiler.profile(operation, variantId, () -> null);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    // Setengah trafik ke 10 variant panas (variant 1 paling panas), sisanya acak ke seluruh katalog
+    private static long pick(ThreadLocalRandom random) {
+        if (random.nextBoolean()) {
+            return 1 + (long) (HOT_VARIANTS * Math.pow(random.nextDouble(), 2));
+        }
+        return 1 + random.nextInt(VARIANTS);
+    }
+}
@@ -0,0 +1,122 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ukuran body dan latensi (p50/p99) GET katalog per field set, lewat HTTP sungguhan supaya
+ * serialisasi ikut terukur.
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=FieldSelectionBenchmarkTest \
+ *     -Dbenchmark.fields.items=500 -Dbenchmark.fields.variants=20
+ * </pre>
+ * Tanpa properti datasource benchmark jalan di H2 embedded; arahkan ke MySQL dengan
+ * -Dspring.datasource.url=... (lihat VariantCreateBenchmarkTest) untuk angka yang mewakili produksi.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class FieldSelectionBenchmarkTest {
+
+    private static final int ITEMS = Integer.getInteger("benchmark.fields.items", 200);
+    private static final int VARIANTS = Integer.getInteger("benchmark.fields.variants", 20);
+    private static final int REQUESTS = Integer.getInteger("benchmark.fields.requests", 200);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ItemService itemService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void bytesAndLatencyPerFieldSet() throws Exception {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        List<Long> itemIds = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            itemIds.add(itemService.createItemWithVariants(item(run, i)).getId());
+        }
+        Long itemId = itemIds.get(itemIds.size() / 2);
+
+        List<String> paths = List.of(
+                "/api/items",
+                "/api/items?include=variants",
+                "/api/items?fields=id,name,basePrice",
+                "/api/items?fields=id,name,variants.sku,variants.price",
+                "/api/items/" + itemId,
+                "/api/items/" + itemId + "?fields=id,name,basePrice",
+                "/api/items/search?name=" + run,
+                "/api/items/search?name=" + run + "&fields=id,name",
+                "/api/variants/item/" + itemId,
+                "/api/variants/item/" + itemId + "?fields=sku,price,stockQuantity");
+
+        System.out.printf("catalog reads over %d items x %d variants, %d requests each%n", ITEMS, VARIANTS, REQUESTS);
+        for (String path : paths) {
+            measure(path);
+        }
+    }
+
+    private void measure(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        int bytes = 0;
+        for (int i = 0; i < REQUESTS / 5; i++) {
+            bytes = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+        }
+
+        long[] nanos = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            long start = System.nanoTime();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            nanos[i] = System.nanoTime() - start;
+            assertThat(response.statusCode()).isEqualTo(200);
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-60s %10d bytes  p50=%7.3f ms  p99=%7.3f ms%n",
+                path.replaceAll("search\\?name=[^&]+", "search?name=..."), bytes,
+                percentile(nanos, 0.50), percentile(nanos, 0.99));
+    }
+
+    private static ItemDTO item(String run, int index) {
+        List<VariantDTO> variants = new ArrayList<>();
+        for (int v = 0; v < VARIANTS; v++) {
+            variants.add(VariantDTO.builder()
+                    .sku("FS-" + run + "-" + index + "-" + v)
+                    .size("S" + v)
+                    .color("color-" + (v % 4))
+                    .material("cotton")
+                    .price(BigDecimal.valueOf(10 + v))
+                    .stockQuantity(100)
+                    .minStockLevel(10)
+                    .build());
+        }
+        return ItemDTO.builder()
+                .name(run + "-item-" + index)
+                .description("Benchmark item " + index + " with a description of typical length for a catalog")
+                .basePrice(BigDecimal.TEN)
+                .variants(variants)
+                .build();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,201 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.admission.AdmissionControl;
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.StockMutationAck;
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.exception.TooManyRequestsException;
+import com.warehouse.service.InventoryService;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.JournaledStockService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput add-stock dengan banyak thread: jalur langsung (UPDATE variants + INSERT stock_movements per
+ * mutasi) dibandingkan journal movement (append + fsync bersama, proyeksi ke database di belakang).
+ * Setelah fase journal dicetak berapa lama projector menyusul, lalu stok di database dicocokkan dengan saldo.
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=JournalWriteBenchmarkTest -Dbenchmark.journal.threads=64 \
+ *     -Dspring.datasource.url=jdbc:mysql://localhost:3306/shop_warehouse \
+ *     -Dspring.datasource.username=root -Dspring.datasource.password=root123 \
+ *     -Dspring.jpa.hibernate.ddl-auto=validate -Dspring.flyway.enabled=true
+ * </pre>
+ * Di H2 in-memory jalur langsung tidak pernah menunggu disk, jadi angkanya hanya bermakna di MySQL
+ * dengan innodb_flush_log_at_trx_commit=1. Journal ditulis ke direktori sementara baru setiap run.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "warehouse.stock-journal.enabled=true")
+class JournalWriteBenchmarkTest {
+
+    private static final int THREADS = Integer.getInteger("benchmark.journal.threads", 32);
+    private static final int MUTATIONS = Integer.getInteger("benchmark.journal.mutations", 20_000);
+    private static final int VARIANTS = Integer.getInteger("benchmark.journal.variants", 64);
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("stock-journal-benchmark").toString();
+        registry.add("warehouse.stock-journal.directory", () -> directory);
+    }
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JournaledStockService journaledStockService;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void directVersusJournal() throws Exception {
+        while (!journaledStockService.isReady()) {
+            Thread.sleep(10);
+        }
+        List<Long> directVariants = seedVariants("direct");
+        List<Long> journalVariants = seedVariants("journal");
+
+        // Pemanasan JIT dan pool koneksi untuk kedua jalur
+        run(directVariants, MUTATIONS / 10, this::addStockDirect);
+        Result warmup = run(journalVariants, MUTATIONS / 10, journaledStockService::addStock);
+
+        rejected.set(0);
+        Result direct = run(directVariants, MUTATIONS, this::addStockDirect);
+        long start = System.nanoTime();
+        Result journal = run(journalVariants, MUTATIONS, journaledStockService::addStock);
+        print("direct (UPDATE + INSERT)", direct);
+        System.out.printf("direct path: %d attempts rejected by admission control and retried%n", rejected.get());
+        print("journal (append + group fsync)", journal);
+
+        // Projector menyusul: movement semua mutasi journal sudah ada di stock_movements
+        int expectedMovements = warmup.mutations() + journal.mutations();
+        String placeholders = String.join(", ", Collections.nCopies(journalVariants.size(), "?"));
+        while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_movements WHERE variant_id IN (" + placeholders + ")",
+                Integer.class, journalVariants.toArray()) < expectedMovements) {
+            Thread.sleep(5);
+        }
+        System.out.printf("journal projected into the database %.0f ms after its first append%n",
+                (System.nanoTime() - start) / 1_000_000.0);
+
+        int total = 0;
+        for (Long variantId : journalVariants) {
+            Integer stored = jdbcTemplate.queryForObject("SELECT stock_quantity FROM variants WHERE id = ?",
+                    Integer.class, variantId);
+            assertThat(stored).isEqualTo(journaledStockService.getStockQuantity(variantId));
+            total += stored;
+        }
+        assertThat(total).isEqualTo(expectedMovements);
+    }
+
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    // Seperti controller: jalur langsung selalu lewat admission control, yang menjaga pool koneksi tidak habis.
+    // Penolakan 429 diulang, jadi ikut terhitung di latensi
+    private StockMutationAck addStockDirect(StockUpdateDTO update) {
+        try {
+            return admitted(update);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private StockMutationAck admitted(StockUpdateDTO update) throws InterruptedException {
+        while (true) {
+            try {
+                return admissionControl.execute(update.getVariantId(), () -> inventoryService.addStock(update));
+            } catch (TooManyRequestsException e) {
+                rejected.incrementAndGet();
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    // Tiap thread berputar di semua variant
+    private static Result run(List<Long> variantIds, int mutations, Function<StockUpdateDTO, StockMutationAck> mutation)
+            throws InterruptedException {
+        int perThread = mutations / THREADS;
+        long[][] latencies = new long[THREADS][perThread];
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    StockUpdateDTO update = StockUpdateDTO.builder()
+                            .variantId(variantIds.get((thread + i) % variantIds.size()))
+                            .quantity(1)
+                            .build();
+                    long began = System.nanoTime();
+                    mutation.apply(update);
+                    latencies[thread][i] = System.nanoTime() - began;
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long[] sorted = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(sorted.length, sorted.length / seconds, sorted[sorted.length / 2] / 1000,
+                sorted[sorted.length * 99 / 100] / 1000);
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-32s %8.0f mutations/s on %d threads, p50 %6d us, p99 %6d us%n",
+                label, result.perSecond(), THREADS, result.p50Micros(), result.p99Micros());
+    }
+
+    private record Result(int mutations, double perSecond, long p50Micros, long p99Micros) {
+    }
+
+    private List<Long> seedVariants(String prefix) {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name(prefix + "-" + run).basePrice(BigDecimal.TEN).build());
+        List<Long> variantIds = new ArrayList<>(VARIANTS);
+        for (int i = 0; i < VARIANTS; i++) {
+            variantIds.add(variantService.createVariant(VariantDTO.builder()
+                    .itemId(item.getId())
+                    .sku(prefix.toUpperCase() + "-" + run + "-" + i)
+                    .size(String.valueOf(i))
+                    .price(BigDecimal.TEN)
+                    .stockQuantity(0)
+                    .minStockLevel(0)
+                    .build()).getId());
+        }
+        return variantIds;
+    }
+}
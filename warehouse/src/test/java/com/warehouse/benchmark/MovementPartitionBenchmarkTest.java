@@ -0,0 +1,199 @@
+package com.warehouse.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Movement store yang tumbuh: tabel tanpa partisi (layout sebelum V9) dibandingkan tabel berpartisi per
+ * bulan (layout V9). Setiap langkah menambah baris yang tersebar di seluruh riwayat, lalu mengukur insert
+ * movement bulan berjalan, riwayat satu variant 7 hari terakhir, dan agregat satu bulan. Di akhir retention
+ * satu bulan tertua: DELETE baris dibandingkan DROP PARTITION. Dicetak juga partisi yang dibuka query
+ * repository terhadap stock_movements yang sebenarnya.
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=MovementPartitionBenchmarkTest -Dbenchmark.partitions.rows-per-step=1000000 \
+ *     -Dspring.datasource.url=jdbc:mysql://localhost:3306/shop_warehouse \
+ *     -Dspring.datasource.username=root -Dspring.datasource.password=root123 \
+ *     -Dspring.jpa.hibernate.ddl-auto=validate -Dspring.flyway.enabled=true
+ * </pre>
+ * Butuh MySQL/MariaDB (dilewati di H2). Tabel benchmark_* dibuat dan dibuang oleh test ini sendiri.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class MovementPartitionBenchmarkTest {
+
+    private static final int MONTHS = Integer.getInteger("benchmark.partitions.months", 24);
+    private static final int STEPS = Integer.getInteger("benchmark.partitions.steps", 4);
+    private static final int ROWS_PER_STEP = Integer.getInteger("benchmark.partitions.rows-per-step", 500_000);
+    private static final int VARIANTS = Integer.getInteger("benchmark.partitions.variants", 10_000);
+    private static final int SAMPLES = Integer.getInteger("benchmark.partitions.samples", 300);
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String FLAT = "benchmark_movements_flat";
+    private static final String MONTHLY = "benchmark_movements_monthly";
+    private static final DateTimeFormatter LITERAL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Random random = new Random(48);
+    private final LocalDateTime currentMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+    private final LocalDateTime firstMonth = currentMonth.minusMonths(MONTHS - 1L);
+
+    @Test
+    void flatVersusMonthlyPartitions() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        assumeTrue(product.contains("MySQL") || product.contains("MariaDB"), "partitioning needs MySQL, not " + product);
+
+        explainRepositoryQueries();
+        createTables();
+        try {
+            long rows = 0;
+            for (int step = 1; step <= STEPS; step++) {
+                load(ROWS_PER_STEP);
+                rows += ROWS_PER_STEP;
+                System.out.printf("%n%,d rows over %d months%n", rows, MONTHS);
+                for (String table : List.of(FLAT, MONTHLY)) {
+                    measure(table);
+                }
+            }
+            System.out.println();
+            retention();
+        } finally {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + FLAT);
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + MONTHLY);
+        }
+    }
+
+    // Query repository dengan rentang tanggal hanya membuka partisi yang dicakup rentangnya
+    private void explainRepositoryQueries() {
+        LocalDateTime now = LocalDateTime.now();
+        explain("history, last 7 days", "SELECT id FROM stock_movements WHERE variant_id = 1 "
+                + "AND created_at >= '" + LITERAL.format(now.minusDays(7)) + "' AND created_at < '" + LITERAL.format(now)
+                + "' ORDER BY created_at DESC, id DESC LIMIT 100");
+        explain("stock-level fold, this month", "SELECT id FROM stock_movements WHERE variant_id = 1 "
+                + "AND created_at >= '" + LITERAL.format(currentMonth) + "' AND created_at < '"
+                + LITERAL.format(currentMonth.plusMonths(1)) + "' ORDER BY created_at, id LIMIT 5000");
+        explain("full history (no range)", "SELECT id FROM stock_movements WHERE variant_id = 1");
+    }
+
+    private void explain(String label, String sql) {
+        String partitions = jdbcTemplate.query("EXPLAIN PARTITIONS " + sql,
+                rs -> rs.next() ? rs.getString("partitions") : null);
+        System.out.printf("stock_movements %-30s partitions: %s%n", label, partitions);
+    }
+
+    private void createTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + FLAT);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + MONTHLY);
+        String columns = "id bigint NOT NULL AUTO_INCREMENT, variant_id bigint NOT NULL, "
+                + "movement_type enum('IN','OUT','ADJUSTMENT') NOT NULL, quantity int NOT NULL, "
+                + "reason varchar(255) DEFAULT NULL, reference varchar(255) DEFAULT NULL, "
+                + "created_at timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6), location_code varchar(64) DEFAULT NULL, "
+                + "KEY idx_created_at (created_at), KEY idx_variant_created (variant_id, created_at), ";
+        jdbcTemplate.execute("CREATE TABLE " + FLAT + " (" + columns + "PRIMARY KEY (id)) ENGINE=InnoDB");
+        StringBuilder partitions = new StringBuilder();
+        for (LocalDateTime month = firstMonth; !month.isAfter(currentMonth); month = month.plusMonths(1)) {
+            partitions.append("PARTITION p").append(DateTimeFormatter.ofPattern("yyyyMM").format(month))
+                    .append(" VALUES LESS THAN (UNIX_TIMESTAMP('").append(LITERAL.format(month.plusMonths(1))).append("')), ");
+        }
+        jdbcTemplate.execute("CREATE TABLE " + MONTHLY + " (" + columns + "PRIMARY KEY (id, created_at)) ENGINE=InnoDB "
+                + "PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (" + partitions
+                + "PARTITION p_future VALUES LESS THAN MAXVALUE)");
+    }
+
+    // Baris yang sama ke kedua tabel, tersebar acak di seluruh riwayat (bulan berjalan sampai hari ini)
+    private void load(int rows) {
+        long start = System.nanoTime();
+        long span = Duration.between(firstMonth, LocalDateTime.now()).getSeconds();
+        for (int done = 0; done < rows; done += BATCH_SIZE) {
+            List<Object> args = new ArrayList<>(BATCH_SIZE * 4);
+            int batch = Math.min(BATCH_SIZE, rows - done);
+            for (int i = 0; i < batch; i++) {
+                Collections.addAll(args, 1 + random.nextInt(VARIANTS), random.nextBoolean() ? "IN" : "OUT",
+                        1 + random.nextInt(10), Timestamp.valueOf(firstMonth.plusSeconds((long) (random.nextDouble() * span))));
+            }
+            for (String table : List.of(FLAT, MONTHLY)) {
+                jdbcTemplate.update(insertSql(table, batch), args.toArray());
+            }
+        }
+        System.out.printf("loaded %,d rows into both tables in %.1f s%n", rows, (System.nanoTime() - start) / 1e9);
+    }
+
+    private void measure(String table) {
+        LocalDateTime now = LocalDateTime.now();
+        // Insert movement baru: satu statement 1000 baris bulan berjalan per sampel
+        long[] inserts = sample(SAMPLES / 10, i -> {
+            List<Object> args = new ArrayList<>(BATCH_SIZE * 4);
+            for (int row = 0; row < BATCH_SIZE; row++) {
+                Collections.addAll(args, 1 + random.nextInt(VARIANTS), "IN", 1,
+                        Timestamp.valueOf(now.minusSeconds(random.nextInt(3600))));
+            }
+            jdbcTemplate.update(insertSql(table, BATCH_SIZE), args.toArray());
+        });
+        long[] history = sample(SAMPLES, i -> jdbcTemplate.queryForList("SELECT id, movement_type, quantity, created_at FROM "
+                        + table + " WHERE variant_id = ? AND created_at >= ? AND created_at < ? "
+                        + "ORDER BY created_at DESC, id DESC LIMIT 100",
+                1 + random.nextInt(VARIANTS), Timestamp.valueOf(now.minusDays(7)), Timestamp.valueOf(now)));
+        long[] month = sample(Math.max(3, SAMPLES / 100), i -> {
+            LocalDateTime from = firstMonth.plusMonths(random.nextInt(MONTHS - 1));
+            jdbcTemplate.queryForList("SELECT movement_type, SUM(quantity) FROM " + table
+                    + " WHERE created_at >= ? AND created_at < ? GROUP BY movement_type",
+                    Timestamp.valueOf(from), Timestamp.valueOf(from.plusMonths(1)));
+        });
+        System.out.printf("%-28s insert 1000 rows p50 %7.2f ms p99 %7.2f ms | 7-day history p50 %6.2f ms p99 %6.2f ms"
+                        + " | one-month aggregate p50 %8.1f ms%n",
+                table, millis(inserts, 50), millis(inserts, 99), millis(history, 50), millis(history, 99), millis(month, 50));
+    }
+
+    private void retention() {
+        LocalDateTime cutoff = firstMonth.plusMonths(1);
+        long start = System.nanoTime();
+        int deleted = jdbcTemplate.update("DELETE FROM " + FLAT + " WHERE created_at < ?", Timestamp.valueOf(cutoff));
+        System.out.printf("retention of the oldest month, %s: DELETE of %,d rows in %.0f ms%n",
+                FLAT, deleted, (System.nanoTime() - start) / 1e6);
+        start = System.nanoTime();
+        jdbcTemplate.execute("ALTER TABLE " + MONTHLY + " DROP PARTITION p" + DateTimeFormatter.ofPattern("yyyyMM").format(firstMonth));
+        System.out.printf("retention of the oldest month, %s: DROP PARTITION in %.0f ms%n",
+                MONTHLY, (System.nanoTime() - start) / 1e6);
+    }
+
+    private static String insertSql(String table, int rows) {
+        return "INSERT INTO " + table + " (variant_id, movement_type, quantity, created_at) VALUES "
+                + String.join(", ", Collections.nCopies(rows, "(?, ?, ?, ?)"));
+    }
+
+    private static long[] sample(int count, IntConsumer operation) {
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long began = System.nanoTime();
+            operation.accept(i);
+            latencies[i] = System.nanoTime() - began;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static double millis(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1e6;
+    }
+}
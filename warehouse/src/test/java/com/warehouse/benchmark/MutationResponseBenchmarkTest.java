@@ -0,0 +1,217 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.StockUpdateDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.event.CatalogChangedEvent;
+import com.warehouse.model.StockMovement;
+import com.warehouse.model.Variant;
+import com.warehouse.repository.StockMovementRepository;
+import com.warehouse.repository.VariantRepository;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Response add-stock dan daftar movement lewat HTTP sungguhan: entity StockMovement seperti sebelumnya
+ * (direplikasi di controller khusus benchmark), StockMutationAck, dan Prefer: return=minimal.
+ * Per kasus dicetak ukuran body, latensi p50/p99 dan alokasi heap per request (dijumlah di semua thread,
+ * jadi termasuk klien HTTP).
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=MutationResponseBenchmarkTest -Dbenchmark.mutation.requests=2000
+ * </pre>
+ * Tanpa properti datasource benchmark jalan di H2 embedded; arahkan ke MySQL dengan
+ * -Dspring.datasource.url=... (lihat VariantCreateBenchmarkTest) untuk angka yang mewakili produksi.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MutationResponseBenchmarkTest {
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.mutation.requests", 1000);
+    private static final int WARMUP = Integer.getInteger("benchmark.mutation.warmup", 300);
+    private static final int ROUNDS = Integer.getInteger("benchmark.mutation.rounds", 3);
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void entityVersusAckVersusMinimal() throws Exception {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("mutation-" + run).basePrice(BigDecimal.TEN).build());
+        Long variantId = variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("MUT-" + run)
+                .price(BigDecimal.TEN)
+                .stockQuantity(0)
+                .minStockLevel(0)
+                .build()).getId();
+        String body = "{\"variantId\":" + variantId + ",\"quantity\":1}";
+
+        // Beberapa ronde supaya urutan kasus (JIT, pool koneksi yang masih dingin) tidak menentukan hasil
+        for (int round = 0; round < ROUNDS; round++) {
+            Result entity = measure(post("/benchmark/legacy-inventory/add-stock", body, null));
+            Result ack = measure(post("/api/inventory/add-stock", body, null));
+            Result minimal = measure(post("/api/inventory/add-stock", body, "return=minimal"));
+            print(round, "add-stock, entity (before)", entity);
+            print(round, "add-stock, ack", ack);
+            print(round, "add-stock, Prefer: return=minimal", minimal);
+            assertThat(ack.status).isEqualTo(200);
+            assertThat(minimal.status).isEqualTo(202);
+            assertThat(minimal.bytes).isZero();
+        }
+
+        // Entity lama berhenti di tengah jalan (rekursi variant -> item -> variants); body-nya terpotong
+        int listRequests = Math.max(10, REQUESTS / 50);
+        Result entityList = measure(get("/benchmark/legacy-inventory/" + variantId + "/movements"), listRequests);
+        Result recordList = measure(get("/api/inventory/" + variantId + "/movements"), listRequests);
+        print(0, "movements, entities (before)", entityList);
+        print(0, "movements, records", recordList);
+        assertThat(recordList.status).isEqualTo(200);
+    }
+
+    private HttpRequest post(String path, String body, String prefer) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (prefer != null) {
+            builder.header("Prefer", prefer);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+    }
+
+    private Result measure(HttpRequest request) throws Exception {
+        return measure(request, REQUESTS);
+    }
+
+    private Result measure(HttpRequest request, int requests) throws Exception {
+        for (int i = 0; i < Math.min(WARMUP, requests); i++) {
+            client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        }
+        long[] nanos = new long[requests];
+        HttpResponse<byte[]> response = null;
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        Arrays.sort(nanos);
+        return new Result(response.statusCode(), response.body().length, nanos[requests / 2] / 1000,
+                nanos[requests * 99 / 100] / 1000, allocated / requests);
+    }
+
+    private static long allocatedBytes() {
+        return Arrays.stream(THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())).filter(b -> b > 0).sum();
+    }
+
+    private static void print(int round, String label, Result result) {
+        System.out.printf("round %d, %-34s status %d, %7d bytes, p50 %6d us, p99 %6d us, %8d bytes allocated/request%n",
+                round, label, result.status, result.bytes, result.p50Micros, result.p99Micros, result.allocatedPerRequest);
+    }
+
+    private record Result(int status, int bytes, long p50Micros, long p99Micros, long allocatedPerRequest) {
+    }
+
+    // Replika controller dan service sebelum response record: entity dikembalikan apa adanya ke Jackson
+    @TestConfiguration
+    static class LegacyResponses {
+
+        @Bean
+        LegacyInventoryController legacyInventoryController(VariantRepository variantRepository,
+                                                            StockMovementRepository stockMovementRepository,
+                                                            EntityManager entityManager,
+                                                            ApplicationEventPublisher eventPublisher,
+                                                            PlatformTransactionManager transactionManager) {
+            return new LegacyInventoryController(variantRepository, stockMovementRepository, entityManager,
+                    eventPublisher, new TransactionTemplate(transactionManager));
+        }
+    }
+
+    @RestController
+    @RequestMapping("/benchmark/legacy-inventory")
+    static class LegacyInventoryController {
+
+        private final VariantRepository variantRepository;
+        private final StockMovementRepository stockMovementRepository;
+        private final EntityManager entityManager;
+        private final ApplicationEventPublisher eventPublisher;
+        private final TransactionTemplate transactionTemplate;
+
+        LegacyInventoryController(VariantRepository variantRepository, StockMovementRepository stockMovementRepository,
+                                  EntityManager entityManager, ApplicationEventPublisher eventPublisher,
+                                  TransactionTemplate transactionTemplate) {
+            this.variantRepository = variantRepository;
+            this.stockMovementRepository = stockMovementRepository;
+            this.entityManager = entityManager;
+            this.eventPublisher = eventPublisher;
+            this.transactionTemplate = transactionTemplate;
+        }
+
+        @PostMapping("/add-stock")
+        public StockMovement addStock(@RequestBody StockUpdateDTO request) {
+            return transactionTemplate.execute(status -> {
+                Variant variant = variantRepository.findById(request.getVariantId()).orElseThrow();
+                variant.setStockQuantity(variant.getStockQuantity() + request.getQuantity());
+                variantRepository.save(variant);
+                StockMovement movement = stockMovementRepository.save(StockMovement.builder()
+                        .variant(variant)
+                        .movementType(StockMovement.MovementType.IN)
+                        .quantity(request.getQuantity())
+                        .reason("Stock addition")
+                        .build());
+                eventPublisher.publishEvent(CatalogChangedEvent.ofVariant(variant.getItem().getId(), variant.getId()));
+                return movement;
+            });
+        }
+
+        @GetMapping("/{variantId}/movements")
+        public List<StockMovement> movements(@PathVariable Long variantId) {
+            return entityManager.createQuery("SELECT sm FROM StockMovement sm WHERE sm.variant.id = :variantId "
+                    + "ORDER BY sm.createdAt DESC", StockMovement.class).setParameter("variantId", variantId).getResultList();
+        }
+    }
+}
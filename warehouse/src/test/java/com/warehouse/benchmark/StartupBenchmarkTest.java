@@ -0,0 +1,111 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.WarehouseApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mengukur time-to-first-request: dari proses JVM di-launch sampai GET /api/items pertama dijawab 200.
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=StartupBenchmarkTest \
+ *     -Dbenchmark.startup.runs=5 \
+ *     -Dbenchmark.startup.jvmArgs="-XX:SharedArchiveFile=target/app.jsa" \
+ *     -Dbenchmark.startup.appArgs="--spring.profiles.active=prod"
+ * </pre>
+ * Tanpa appArgs aplikasi memakai konfigurasi test (H2 embedded); arahkan ke MySQL dengan
+ * --spring.datasource.url=... untuk angka yang mewakili produksi.
+ */
+@Tag("benchmark")
+class StartupBenchmarkTest {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    @Test
+    void timeToFirstRequest() throws Exception {
+        int runs = Integer.getInteger("benchmark.startup.runs", 3);
+        List<String> jvmArgs = split(System.getProperty("benchmark.startup.jvmArgs", ""));
+        List<String> appArgs = split(System.getProperty("benchmark.startup.appArgs", ""));
+
+        List<Long> timings = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            long millis = launchAndWait(jvmArgs, appArgs);
+            timings.add(millis);
+            System.out.printf("run %d: time-to-first-request %d ms%n", run, millis);
+        }
+
+        Collections.sort(timings);
+        System.out.printf("startup benchmark [jvmArgs=%s, appArgs=%s]: min=%d ms, median=%d ms, max=%d ms%n",
+                jvmArgs, appArgs, timings.get(0), timings.get(timings.size() / 2), timings.get(timings.size() - 1));
+        assertThat(timings).hasSize(runs);
+    }
+
+    private long launchAndWait(List<String> jvmArgs, List<String> appArgs) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(WarehouseApplication.class.getName());
+        command.add("--server.port=" + port);
+        command.addAll(appArgs);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/items"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (System.nanoTime() - start < STARTUP_TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + process.exitValue());
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (java.io.IOException notListeningYet) {
+                    // Port belum dibuka, coba lagi
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("Application did not answer within " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static List<String> split(String args) {
+        return args.isBlank() ? List.of() : Arrays.asList(args.trim().split("\\s+"));
+    }
+}
@@ -0,0 +1,149 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.StockLevelBucketDTO;
+import com.warehouse.dto.StockLevelSeriesDTO;
+import com.warehouse.dto.StockMovementResponse;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.model.StockMovement;
+import com.warehouse.service.InventoryService;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.StockLevelService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Grafik stok harian 90 hari untuk satu SKU sibuk: riwayat movement lengkap yang diputar ulang di klien
+ * (getStockMovementHistory) dibandingkan deret level stok dari server (rollup harian dan lipatan per jam).
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=StockLevelSeriesBenchmarkTest -Dbenchmark.stock-levels.movements=200000 \
+ *     -Dspring.datasource.url=jdbc:mysql://localhost:3306/shop_warehouse \
+ *     -Dspring.datasource.username=root -Dspring.datasource.password=root123 \
+ *     -Dspring.jpa.hibernate.ddl-auto=validate -Dspring.flyway.enabled=true
+ * </pre>
+ * Movement disebar rata selama 90 hari terakhir (default 100.000). Request pertama melipat seluruh riwayat
+ * di memori dan flush sesudahnya menyimpan rollup; ronde-ronde berikutnya hanya membaca rollup.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class StockLevelSeriesBenchmarkTest {
+
+    private static final int MOVEMENTS = Integer.getInteger("benchmark.stock-levels.movements", 100_000);
+    private static final int ROUNDS = Integer.getInteger("benchmark.stock-levels.rounds", 3);
+    private static final int DAYS = 90;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockLevelService stockLevelService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void clientReplayVersusServerSeries() {
+        Long variantId = seedVariant();
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+        LocalDateTime from = to.minusDays(DAYS);
+
+        // Request pertama melipat seluruh riwayat di memori; rollup-nya baru tersimpan oleh flush
+        long start = System.nanoTime();
+        stockLevelService.getSeries(variantId, "day", from, to);
+        double firstMs = (System.nanoTime() - start) / 1_000_000.0;
+        start = System.nanoTime();
+        stockLevelService.flush();
+        System.out.printf("first daily series %.1f ms, rollup flush %.1f ms%n", firstMs, (System.nanoTime() - start) / 1_000_000.0);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            List<StockMovementResponse> history = inventoryService.getStockMovementHistory(variantId);
+            TreeMap<LocalDateTime, Integer> replayed = replayDailyClose(history);
+            double replayMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            StockLevelSeriesDTO daily = stockLevelService.getSeries(variantId, "day", from, to);
+            double dailyMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            StockLevelSeriesDTO hourly = stockLevelService.getSeries(variantId, "hour", to.minusDays(2), to);
+            double hourlyMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            System.out.printf("round %d: client replay %.1f ms (%d movements), daily series %.1f ms (%d buckets), "
+                            + "hourly series %.1f ms (%d buckets)%n", round, replayMs, history.size(), dailyMs,
+                    daily.getBuckets().size(), hourlyMs, hourly.getBuckets().size());
+
+            List<StockLevelBucketDTO> buckets = daily.getBuckets();
+            assertThat(buckets).hasSize(DAYS);
+            assertThat(buckets.get(buckets.size() - 1).getCloseLevel()).isEqualTo(replayed.lastEntry().getValue());
+            assertThat(hourly.getBuckets().get(hourly.getBuckets().size() - 1).getCloseLevel())
+                    .isEqualTo(replayed.lastEntry().getValue());
+        }
+    }
+
+    // Yang sekarang dikerjakan dashboard di browser: urutkan seluruh riwayat lalu jumlahkan per hari
+    private static TreeMap<LocalDateTime, Integer> replayDailyClose(List<StockMovementResponse> history) {
+        List<StockMovementResponse> ordered = new ArrayList<>(history);
+        Collections.reverse(ordered);
+        TreeMap<LocalDateTime, Integer> close = new TreeMap<>();
+        int level = 0;
+        for (StockMovementResponse movement : ordered) {
+            level += movement.movementType() == StockMovement.MovementType.OUT ? -movement.quantity() : movement.quantity();
+            close.put(movement.createdAt().truncatedTo(ChronoUnit.DAYS), level);
+        }
+        return close;
+    }
+
+    private Long seedVariant() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder().name("stock-levels-" + run).basePrice(BigDecimal.TEN).build());
+        Long variantId = variantService.createVariant(VariantDTO.builder()
+                .itemId(item.getId())
+                .sku("SLV-" + run)
+                .price(BigDecimal.TEN)
+                .stockQuantity(0)
+                .minStockLevel(0)
+                .build()).getId();
+
+        // Riwayat lama ditulis langsung, seperti data yang sudah ada sebelum endpoint ini
+        LocalDateTime first = LocalDateTime.now().minusDays(DAYS - 1);
+        long spacingMillis = (DAYS - 1) * 86_400_000L / MOVEMENTS;
+        for (int offset = 0; offset < MOVEMENTS; offset += 1000) {
+            int rows = Math.min(1000, MOVEMENTS - offset);
+            List<Object> args = new ArrayList<>(rows * 4);
+            for (int i = offset; i < offset + rows; i++) {
+                boolean in = i % 3 != 1;
+                Collections.addAll(args, variantId, in ? "IN" : "OUT", in ? 3 : 5,
+                        Timestamp.valueOf(first.plus(i * spacingMillis, ChronoUnit.MILLIS)));
+            }
+            jdbcTemplate.update("INSERT INTO stock_movements (variant_id, movement_type, quantity, created_at) VALUES "
+                    + String.join(", ", Collections.nCopies(rows, "(?, ?, ?, ?)")), args.toArray());
+        }
+        jdbcTemplate.update("UPDATE variants SET stock_quantity = (SELECT SUM(CASE movement_type WHEN 'OUT' THEN -quantity "
+                + "ELSE quantity END) FROM stock_movements WHERE variant_id = ?) WHERE id = ?", variantId, variantId);
+        return variantId;
+    }
+}
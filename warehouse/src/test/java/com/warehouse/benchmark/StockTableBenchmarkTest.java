@@ -0,0 +1,188 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.cache.HotInventoryState;
+import com.warehouse.cache.HotVariant;
+import com.warehouse.cache.StockTable;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Membandingkan {@link StockTable} dengan baseline {@code HashMap<Long, Integer>}:
+ * footprint heap per SKU, throughput lookup, dan throughput update berversi dari banyak thread.
+ * Footprint juga diukur untuk {@link HotInventoryState} secara utuh, dengan SKU realistis.
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=StockTableBenchmarkTest \
+ *     -Dbenchmark.stock.entries=5000000 -Dbenchmark.stock.threads=8
+ * </pre>
+ * Angka memori diambil dari selisih heap terpakai setelah System.gc(), jadi hanya perkiraan;
+ * jalankan dengan -Xmx yang cukup besar dan heap yang tidak sedang dipakai test lain.
+ */
+@Tag("benchmark")
+class StockTableBenchmarkTest {
+
+    private static final int ENTRIES = Integer.getInteger("benchmark.stock.entries", 1_000_000);
+    private static final int THREADS = Integer.getInteger("benchmark.stock.threads", 4);
+    private static final long OPERATIONS = Long.getLong("benchmark.stock.operations", 20_000_000L);
+
+    @Test
+    void memoryFootprint() {
+        long baseline = usedHeap();
+        Map<Long, Integer> map = new HashMap<>();
+        for (long id = 1; id <= ENTRIES; id++) {
+            map.put(id, 1_000 + (int) (id % 1_000));
+        }
+        long mapBytes = usedHeap() - baseline;
+        assertThat(map).hasSize(ENTRIES);
+        map = null;
+
+        // Struktur yang dipakai HotInventoryState sebelum StockTable
+        baseline = usedHeap();
+        Map<Long, HotVariant> boxed = new ConcurrentHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= ENTRIES; id++) {
+            boxed.put(id, new HotVariant(id, id / 10, null, 1_000 + (int) (id % 1_000), 10, now.plusNanos(id * 1_000)));
+        }
+        long boxedBytes = usedHeap() - baseline;
+        assertThat(boxed).hasSize(ENTRIES);
+        boxed = null;
+
+        baseline = usedHeap();
+        StockTable table = new StockTable();
+        for (long id = 1; id <= ENTRIES; id++) {
+            table.put(id, id / 10, 1_000 + (int) (id % 1_000), 10, 0, null);
+        }
+        long tableBytes = usedHeap() - baseline;
+        assertThat(table.size()).isEqualTo(ENTRIES);
+        table = null;
+
+        // Seluruh state dengan SKU 12 karakter: level, item, versi dan SKU dalam StockTable
+        baseline = usedHeap();
+        HotInventoryState state = new HotInventoryState(null, null, Path.of("unused"), Duration.ZERO, 1024);
+        for (long id = 1; id <= ENTRIES; id++) {
+            state.remember(new HotVariant(id, id / 10, sku(id), 1_000 + (int) (id % 1_000), 10, now));
+        }
+        long stateBytes = usedHeap() - baseline;
+        assertThat(state.size()).isEqualTo(ENTRIES);
+        assertThat(state.find(ENTRIES / 2L).sku()).isEqualTo(sku(ENTRIES / 2L));
+
+        System.out.printf("memory for %,d SKUs: HashMap<Long,Integer> %.1f B/SKU (stock only), "
+                        + "ConcurrentHashMap<Long,HotVariant> %.1f B/SKU (without SKU strings), "
+                        + "StockTable %.1f B/SKU (stock, minStockLevel, itemId and version), "
+                        + "HotInventoryState %.1f B/SKU (all of it, 12-character SKUs)%n",
+                ENTRIES, mapBytes / (double) ENTRIES, boxedBytes / (double) ENTRIES, tableBytes / (double) ENTRIES,
+                stateBytes / (double) ENTRIES);
+    }
+
+    private static String sku(long id) {
+        return String.format("SKU-%08d", id);
+    }
+
+    @Test
+    void lookupThroughput() {
+        Map<Long, Integer> map = new HashMap<>();
+        StockTable table = new StockTable(ENTRIES);
+        for (long id = 1; id <= ENTRIES; id++) {
+            map.put(id, 1_000);
+            table.put(id, 1, 1_000, 10, 0, null);
+        }
+
+        // Putaran pertama untuk warm-up JIT
+        for (int round = 0; round < 2; round++) {
+            double mapOps = measure(OPERATIONS, id -> map.get(id));
+            double tableOps = measure(OPERATIONS, table::levels);
+            if (round == 1) {
+                System.out.printf("single-thread lookups: HashMap<Long,Integer> %,.0f ops/s, StockTable %,.0f ops/s%n",
+                        mapOps, tableOps);
+            }
+        }
+    }
+
+    // Pola tulis HotInventoryState: nilai yang sudah commit disimpan kalau versinya tidak lebih lama
+    @Test
+    void concurrentUpdateThroughput() throws InterruptedException {
+        Map<Long, Integer> map = new HashMap<>();
+        StockTable table = new StockTable(ENTRIES);
+        for (long id = 1; id <= ENTRIES; id++) {
+            map.put(id, 1_000);
+            table.put(id, 1, 1_000, 10, 0, null);
+        }
+
+        // HashMap tidak thread-safe, jadi baseline-nya dijaga dengan satu lock global
+        double mapOps = concurrently(id -> {
+            synchronized (map) {
+                map.put(id, (int) (id % 1_000));
+                return 1;
+            }
+        });
+        double tableOps = concurrently(id -> table.put(id, 1, (int) (id % 1_000), 10, id, null) ? 1 : 0);
+
+        System.out.printf("versioned updates with %d threads: synchronized HashMap<Long,Integer> %,.0f ops/s, "
+                + "StockTable %,.0f ops/s%n", THREADS, mapOps, tableOps);
+        LongAdder mismatched = new LongAdder();
+        table.forEach((variantId, itemId, stock, minStock, version, sku) -> {
+            if (version != 0 && stock != variantId % 1_000) {
+                mismatched.increment();
+            }
+        });
+        assertThat(mismatched.sum()).isZero();
+        assertThat(table.size()).isEqualTo(ENTRIES);
+    }
+
+    private static double measure(long operations, LongUnaryOperator lookup) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < operations; i++) {
+            sink += lookup.applyAsLong(1 + (i * 7919) % ENTRIES);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(sink).isNotZero();
+        return operations * 1e9 / elapsed;
+    }
+
+    private static double concurrently(LongUnaryOperator operation) throws InterruptedException {
+        long perThread = OPERATIONS / THREADS;
+        LongAdder sink = new LongAdder();
+        Thread[] workers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            workers[t] = new Thread(() -> {
+                long local = 0;
+                long offset = ThreadLocalRandom.current().nextInt(ENTRIES);
+                for (long i = 0; i < perThread; i++) {
+                    local += operation.applyAsLong(1 + (offset + i * 7919) % ENTRIES);
+                }
+                sink.add(local);
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(sink.sum()).isNotZero();
+        return perThread * THREADS * 1e9 / elapsed;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
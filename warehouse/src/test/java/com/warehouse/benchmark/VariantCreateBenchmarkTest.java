@@ -0,0 +1,83 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latensi VariantService.createVariant (p50/p90/p99) termasuk movement stok awal.
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=VariantCreateBenchmarkTest -Dbenchmark.create.count=2000 \
+ *     -Dspring.datasource.url=jdbc:mysql://localhost:3306/shop_warehouse \
+ *     -Dspring.datasource.username=root -Dspring.datasource.password=root123 \
+ *     -Dspring.jpa.hibernate.ddl-auto=validate -Dspring.flyway.enabled=true
+ * </pre>
+ * Tanpa properti datasource benchmark jalan di H2 embedded, yang hampir tidak punya latensi jaringan;
+ * pakai MySQL supaya jumlah round trip terlihat di angka.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class VariantCreateBenchmarkTest {
+
+    private static final int COUNT = Integer.getInteger("benchmark.create.count", 1_000);
+    private static final int WARMUP = Integer.getInteger("benchmark.create.warmup", 200);
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Test
+    void createVariantLatency() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        ItemDTO item = itemService.createItem(ItemDTO.builder()
+                .name("benchmark-" + run)
+                .basePrice(BigDecimal.TEN)
+                .build());
+
+        for (int i = 0; i < WARMUP; i++) {
+            variantService.createVariant(variant(item.getId(), run + "-w" + i));
+        }
+
+        long[] nanos = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            VariantDTO dto = variant(item.getId(), run + "-" + i);
+            long start = System.nanoTime();
+            variantService.createVariant(dto);
+            nanos[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(nanos);
+        System.out.printf("createVariant over %d calls: p50=%.3f ms, p90=%.3f ms, p99=%.3f ms%n",
+                COUNT, percentile(nanos, 0.50), percentile(nanos, 0.90), percentile(nanos, 0.99));
+        assertThat(nanos[0]).isPositive();
+    }
+
+    private static VariantDTO variant(Long itemId, String suffix) {
+        return VariantDTO.builder()
+                .itemId(itemId)
+                .sku("BENCH-" + suffix)
+                .size(suffix)
+                .price(BigDecimal.ONE)
+                .stockQuantity(10)
+                .minStockLevel(1)
+                .build();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1_000_000.0;
+    }
+}
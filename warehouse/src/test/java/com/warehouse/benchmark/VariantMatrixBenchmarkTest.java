@@ -0,0 +1,107 @@
+package com.warehouse.benchmark;
+
+import com.warehouse.dto.ItemDTO;
+import com.warehouse.dto.ItemVariantMatrixDTO;
+import com.warehouse.dto.VariantDTO;
+import com.warehouse.dto.VariantMatrixDTO;
+import com.warehouse.service.ItemService;
+import com.warehouse.service.VariantService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Waktu membuat satu item dengan matrix variant: variant array dari klien (createItemWithVariants,
+ * insert satu per satu) dibandingkan matrix yang dibangkitkan di server (batch insert).
+ *
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=VariantMatrixBenchmarkTest -Dbenchmark.matrix.sizes=25 \
+ *     -Dspring.datasource.url=jdbc:mysql://localhost:3306/shop_warehouse \
+ *     -Dspring.datasource.username=root -Dspring.datasource.password=root123 \
+ *     -Dspring.jpa.hibernate.ddl-auto=validate -Dspring.flyway.enabled=true
+ * </pre>
+ * Ukuran matrix: sizes x 10 warna x 4 material (default 25 size, 1.000 variant).
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class VariantMatrixBenchmarkTest {
+
+    private static final int SIZES = Integer.getInteger("benchmark.matrix.sizes", 25);
+    private static final int ROUNDS = Integer.getInteger("benchmark.matrix.rounds", 3);
+    private static final List<String> COLORS = IntStream.range(0, 10).mapToObj(i -> "color-" + i).toList();
+    private static final List<String> MATERIALS = List.of("leather", "mesh", "canvas", "suede");
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private VariantService variantService;
+
+    @Test
+    void clientArrayVersusServerMatrix() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        List<String> sizes = IntStream.range(0, SIZES).mapToObj(i -> String.valueOf(30 + i)).toList();
+        int variants = sizes.size() * COLORS.size() * MATERIALS.size();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            String prefix = run + "-" + round;
+
+            long start = System.nanoTime();
+            ItemDTO perVariant = itemService.createItemWithVariants(ItemDTO.builder()
+                    .name("array-" + prefix)
+                    .basePrice(BigDecimal.TEN)
+                    .variants(variantArray("ARR-" + prefix, sizes))
+                    .build());
+            double perVariantMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            ItemDTO matrix = itemService.createItemWithVariantMatrix(ItemVariantMatrixDTO.builder()
+                    .name("matrix-" + prefix)
+                    .basePrice(BigDecimal.TEN)
+                    .matrix(VariantMatrixDTO.builder()
+                            .sizes(sizes)
+                            .colors(COLORS)
+                            .materials(MATERIALS)
+                            .skuTemplate("MTX-" + prefix + "-{size}-{color}-{material}")
+                            .stockQuantity(10)
+                            .minStockLevel(1)
+                            .build())
+                    .build());
+            double matrixMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            System.out.printf("round %d, %d variants: client array %.1f ms, server matrix %.1f ms%n",
+                    round, variants, perVariantMs, matrixMs);
+            assertThat(variantService.getVariantsByItemId(perVariant.getId())).hasSize(variants);
+            assertThat(variantService.getVariantsByItemId(matrix.getId())).hasSize(variants);
+        }
+    }
+
+    private static List<VariantDTO> variantArray(String prefix, List<String> sizes) {
+        List<VariantDTO> variants = new ArrayList<>();
+        for (String size : sizes) {
+            for (String color : COLORS) {
+                for (String material : MATERIALS) {
+                    variants.add(VariantDTO.builder()
+                            .sku(prefix + "-" + size + "-" + color + "-" + material)
+                            .size(size)
+                            .color(color)
+                            .material(material)
+                            .price(BigDecimal.TEN)
+                            .stockQuantity(10)
+                            .minStockLevel(1)
+                            .build());
+                }
+            }
+        }
+        return variants;
+    }
+}
@@ -0,0 +1,128 @@
+package com.warehouse.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadCoalescerTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReadCoalescer coalescer = new ReadCoalescer(new NoOpTransactionManager(), meterRegistry);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void callerArrivingDuringARunningLoadGetsANewerRead() throws Exception {
+        AtomicReference<String> committed = new AtomicReference<>("old");
+        CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+
+        Future<String> first = callers.submit(() -> coalescer.load("variant", 1L, () -> {
+            String value = committed.get();
+            firstLoadStarted.countDown();
+            await(releaseFirstLoad);
+            return value;
+        }));
+        assertThat(firstLoadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Tulisan caller kedua commit setelah load pertama membaca
+        committed.set("new");
+        Future<String> second = callers.submit(() -> coalescer.load("variant", 1L, committed::get));
+        releaseFirstLoad.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("new");
+    }
+
+    @Test
+    void callersQueuedBehindARunningLoadShareOneLoadAndGetTheirOwnCopy() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+
+        Future<List<String>> first = callers.submit(() -> coalescer.load("item", 1L, () -> {
+            loads.incrementAndGet();
+            firstLoadStarted.countDown();
+            await(releaseFirstLoad);
+            return List.of("first");
+        }));
+        assertThat(firstLoadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Future<List<String>>> queued = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queued.add(callers.submit(() -> coalescer.load("item", 1L, () -> {
+                loads.incrementAndGet();
+                return new ArrayList<>(List.of("second"));
+            }, ArrayList::new)));
+        }
+        // Satu pemanggil memimpin load berikutnya, dua lainnya bergabung sebelum load itu mulai
+        while (calls("item", "leader") < 2 || calls("item", "coalesced") < 2) {
+            Thread.sleep(5);
+        }
+        releaseFirstLoad.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly("first");
+        List<List<String>> results = new ArrayList<>();
+        for (Future<List<String>> future : queued) {
+            results.add(future.get(5, TimeUnit.SECONDS));
+        }
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(results).allSatisfy(result -> assertThat(result).containsExactly("second"));
+        results.get(0).add("changed by one caller");
+        assertThat(results.get(1)).containsExactly("second");
+        assertThat(results.get(2)).containsExactly("second");
+    }
+
+    private double calls(String group, String role) {
+        return meterRegistry.counter("warehouse.read.coalescer.calls", "group", group, "role", role).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Tanpa database: yang diuji hanya siapa yang berbagi load
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.warehouse.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockTableTests {
+
+    @Test
+    void removedVariantIsNotResurrectedByAStalePut() {
+        StockTable table = new StockTable();
+        table.put(1, 10, 5, 1, 100, "SKU-1");
+
+        assertThat(table.remove(1, 150)).isTrue();
+        assertThat(table.levels(1)).isEqualTo(StockTable.MISSING);
+        assertThat(table.sku(1)).isNull();
+
+        // Dibaca sebelum penghapusan: versinya tidak lebih baru dari tombstone
+        assertThat(table.put(1, 10, 4, 1, 120, "SKU-1")).isFalse();
+        assertThat(table.put(1, 10, 4, 1, 150, "SKU-1")).isFalse();
+        assertThat(table.levels(1)).isEqualTo(StockTable.MISSING);
+        assertThat(table.size()).isZero();
+
+        assertThat(table.put(1, 10, 3, 1, 151, "SKU-1")).isTrue();
+        assertThat(StockTable.stockOf(table.levels(1))).isEqualTo(3);
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    @Test
+    void tombstoneKeepsTheNewerOfStoredAndRemovalVersion() {
+        StockTable table = new StockTable();
+        table.put(7, 1, 5, 0, 500, null);
+        table.remove(7, 200);
+
+        assertThat(table.put(7, 1, 5, 0, 400, null)).isFalse();
+        assertThat(table.put(7, 1, 5, 0, 501, null)).isTrue();
+    }
+
+    @Test
+    void skusSurviveChangesRemovalsAndGrowth() {
+        StockTable table = new StockTable(16);
+        Map<Long, String> expected = new HashMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            String sku = "SKU-" + id + "-é";
+            table.put(id, id % 7, 1, 0, 1, sku);
+            expected.put(id, sku);
+        }
+        // SKU baru menambah sampah di heap SKU; SKU null mempertahankan yang lama
+        for (long id = 1; id <= 2_000; id += 3) {
+            String sku = "RENAMED-" + id;
+            table.put(id, id % 7, 2, 0, 2, sku);
+            expected.put(id, sku);
+        }
+        for (long id = 2; id <= 2_000; id += 5) {
+            table.put(id, id % 7, 3, 0, 3, null);
+        }
+        for (long id = 4; id <= 2_000; id += 4) {
+            table.remove(id, 10);
+            expected.remove(id);
+        }
+
+        assertThat(table.size()).isEqualTo(expected.size());
+        Map<Long, String> visited = new HashMap<>();
+        table.forEach((variantId, itemId, stock, minStock, version, sku) -> visited.put(variantId, sku));
+        assertThat(visited).isEqualTo(expected);
+        expected.forEach((id, sku) -> assertThat(table.sku(id)).isEqualTo(sku));
+    }
+
+    @Test
+    void variantIdsOfItemFollowItemChangesAndRemovals() {
+        StockTable table = new StockTable();
+        table.put(1, 10, 1, 0, 1, null);
+        table.put(2, 10, 1, 0, 1, null);
+        table.put(3, 20, 1, 0, 1, null);
+
+        table.put(2, 20, 1, 0, 2, null);
+        table.remove(1, 5);
+
+        assertThat(table.variantIdsOfItem(10)).isEmpty();
+        assertThat(table.variantIdsOfItem(20)).containsExactlyInAnyOrder(2L, 3L);
+    }
+}
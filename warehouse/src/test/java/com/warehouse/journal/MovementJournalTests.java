@@ -0,0 +1,144 @@
+package com.warehouse.journal;
+
+import com.warehouse.model.StockMovement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MovementJournalTests {
+
+    // Header 32 byte + dua frame 42 byte (reason satu karakter, reference null): dua entry per segment
+    private static final long TWO_ENTRIES_PER_SEGMENT = 32 + 2 * 42;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tornLastFrameIsTruncatedOnOpen() throws IOException {
+        try (MovementJournal journal = MovementJournal.open(directory, 1024 * 1024)) {
+            appendOneByOne(journal, 3);
+        }
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        try (MovementJournal journal = MovementJournal.open(directory, 1024 * 1024)) {
+            assertThat(journal.getLastSequence()).isEqualTo(2);
+            assertThat(journal.append(List.of(entry(7))).get(0).sequence()).isEqualTo(3);
+            assertThat(replay(journal, 0)).extracting(JournalEntry::variantId).containsExactly(1L, 2L, 7L);
+        }
+    }
+
+    @Test
+    void corruptionInAnOlderSegmentFailsTheOpen() throws IOException {
+        try (MovementJournal journal = MovementJournal.open(directory, TWO_ENTRIES_PER_SEGMENT)) {
+            appendOneByOne(journal, 6);
+        }
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(3);
+        try (FileChannel channel = FileChannel.open(segments.get(1), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 32 + 20);
+        }
+
+        assertThatThrownBy(() -> MovementJournal.open(directory, TWO_ENTRIES_PER_SEGMENT))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Corrupt journal segment");
+    }
+
+    @Test
+    void missingSegmentFailsTheOpen() throws IOException {
+        try (MovementJournal journal = MovementJournal.open(directory, TWO_ENTRIES_PER_SEGMENT)) {
+            appendOneByOne(journal, 6);
+        }
+        Files.delete(segments().get(1));
+
+        assertThatThrownBy(() -> MovementJournal.open(directory, TWO_ENTRIES_PER_SEGMENT))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("starts at sequence 5, expected 3");
+    }
+
+    @Test
+    void replayStartsAfterTheCheckpoint() throws IOException {
+        try (MovementJournal journal = MovementJournal.open(directory, TWO_ENTRIES_PER_SEGMENT)) {
+            appendOneByOne(journal, 5);
+            assertThat(replay(journal, 2)).extracting(JournalEntry::sequence).containsExactly(3L, 4L, 5L);
+            assertThat(replay(journal, 5)).isEmpty();
+        }
+    }
+
+    @Test
+    void replayPastTheEndOfTheJournalIsRefused() throws IOException {
+        try (MovementJournal journal = MovementJournal.open(directory, 1024 * 1024)) {
+            appendOneByOne(journal, 2);
+            assertThatThrownBy(() -> replay(journal, 3))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("ends at 2");
+        }
+    }
+
+    @Test
+    void projectedSegmentsAreDeletedAndTheSequenceSurvivesReopen() throws IOException {
+        try (MovementJournal journal = MovementJournal.open(directory, TWO_ENTRIES_PER_SEGMENT)) {
+            appendOneByOne(journal, 6);
+            assertThat(segments()).hasSize(3);
+            // Segment kedua berakhir di sequence 4, jadi belum boleh dihapus pada checkpoint 3
+            assertThat(journal.deleteProjected(3)).isEqualTo(1);
+            assertThat(journal.deleteProjected(6)).isEqualTo(1);
+            assertThat(segments()).hasSize(1);
+        }
+
+        try (MovementJournal journal = MovementJournal.open(directory, TWO_ENTRIES_PER_SEGMENT)) {
+            assertThat(journal.getLastSequence()).isEqualTo(6);
+            assertThat(replay(journal, 4)).extracting(JournalEntry::sequence).containsExactly(5L, 6L);
+            assertThat(journal.append(List.of(entry(9))).get(0).sequence()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void secondOpenOfTheSameDirectoryFails() throws IOException {
+        try (MovementJournal journal = MovementJournal.open(directory, 1024 * 1024)) {
+            assertThatThrownBy(() -> MovementJournal.open(directory, 1024 * 1024))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("locked by another writer");
+        }
+        // Lock dilepas saat close
+        MovementJournal.open(directory, 1024 * 1024).close();
+    }
+
+    private static void appendOneByOne(MovementJournal journal, int count) throws IOException {
+        for (int i = 1; i <= count; i++) {
+            journal.append(List.of(entry(i)));
+        }
+    }
+
+    private static JournalEntry entry(long variantId) {
+        return new JournalEntry(0, variantId, StockMovement.MovementType.IN, 1, "r", null,
+                LocalDateTime.of(2026, 10, 1, 12, 0));
+    }
+
+    private static List<JournalEntry> replay(MovementJournal journal, long afterSequence) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        journal.replay(afterSequence, entries::add);
+        return entries;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,3 @@
+-- Padanan H2 untuk V10: satu kolom per statement
+ALTER TABLE stock_journal_checkpoints ADD COLUMN lease_owner varchar(64) NULL;
+ALTER TABLE stock_journal_checkpoints ADD COLUMN lease_expires_at timestamp(6) NULL;
@@ -0,0 +1,5 @@
+-- Padanan H2 untuk V2: satu perubahan per statement. idx_variants_item_id dan idx_stock_movements_variant_id
+-- tetap ada, di H2 keduanya milik constraint FK dan tidak bisa dibuang walaupun ada index lain yang mencakupnya
+DROP INDEX idx_variants_sku;
+CREATE INDEX idx_variants_stock_levels ON variants (stock_quantity, min_stock_level);
+CREATE INDEX idx_stock_movements_variant_created ON stock_movements (variant_id, created_at);
@@ -0,0 +1,6 @@
+-- Padanan H2 untuk V3: satu kolom per statement
+ALTER TABLE items MODIFY created_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6);
+ALTER TABLE items MODIFY updated_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+ALTER TABLE variants MODIFY created_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6);
+ALTER TABLE variants MODIFY updated_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+ALTER TABLE stock_movements MODIFY created_at timestamp(6) NULL DEFAULT CURRENT_TIMESTAMP(6);
@@ -0,0 +1,4 @@
+-- Padanan H2 untuk V4: satu perubahan per statement
+ALTER TABLE items ADD COLUMN deleted_at timestamp(6) NULL;
+CREATE INDEX idx_items_deleted_at ON items (deleted_at);
+ALTER TABLE variants ADD COLUMN deleted_at timestamp(6) NULL;
@@ -0,0 +1,5 @@
+-- Padanan H2 untuk V9: FK dan primary key diubah seperti di MySQL, tabelnya tidak dipartisi
+ALTER TABLE stock_movements DROP CONSTRAINT stock_movements_ibfk_1;
+ALTER TABLE stock_movements MODIFY created_at timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
+ALTER TABLE stock_movements DROP PRIMARY KEY;
+ALTER TABLE stock_movements ADD PRIMARY KEY (id, created_at);